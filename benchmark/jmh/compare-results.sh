@@ -0,0 +1,57 @@
+#!/bin/bash
+
+# 对比两次 JMH 结果（-rf json 输出），按基准名称和参数对齐
+# 输出每项的平均耗时、变化百分比和每次调用的分配字节数（-prof gc 的 gc.alloc.rate.norm）
+#
+# 用法: benchmark/jmh/compare-results.sh <基线结果.json> <对比结果.json> [回归阈值百分比，默认10]
+# 存在耗时增加超过阈值的基准时退出码为1，可用于 CI 判定回归
+
+set -euo pipefail
+export LC_ALL=C
+
+if [ $# -lt 2 ]; then
+  echo "用法: $0 <基线结果.json> <对比结果.json> [回归阈值百分比]" >&2
+  exit 2
+fi
+
+BASE=$1
+HEAD=$2
+THRESHOLD=${3:-10}
+
+# 每项结果转换为 "名称 参数<TAB>耗时<TAB>分配字节数"
+flatten() {
+  jq -r '.[] | [
+      (.benchmark | split(".") | .[-2:] | join(".")) + " " + ((.params // {}) | to_entries | map("\(.key)=\(.value)") | join(",")),
+      .primaryMetric.score,
+      .primaryMetric.scoreUnit,
+      ([.secondaryMetrics // {} | to_entries[] | select(.key | endswith("gc.alloc.rate.norm")) | .value.score][0] // "-")
+    ] | @tsv' "$1" | sort
+}
+
+join -t $'\t' -a 2 -e '-' -o '0,1.2,2.2,2.3,1.4,2.4' <(flatten "$BASE") <(flatten "$HEAD") \
+  | awk -F'\t' -v threshold="$THRESHOLD" '
+    BEGIN {
+      printf "%-70s %12s %12s %-6s %10s %12s %12s\n", "benchmark", "base", "head", "unit", "change", "base B/op", "head B/op"
+      regressions = 0
+    }
+    {
+      change = "-"
+      if ($2 != "-" && $2 > 0) {
+        pct = ($3 - $2) / $2 * 100
+        change = sprintf("%+.1f%%", pct)
+        if (pct > threshold) {
+          change = change " !"
+          regressions++
+        }
+      }
+      printf "%-70s %12s %12s %-6s %10s %12s %12s\n", $1, fmt($2), fmt($3), $4, change, fmt($5), fmt($6)
+    }
+    END {
+      if (regressions > 0) {
+        printf "\n%d 项耗时增加超过 %s%%\n", regressions, threshold
+        exit 1
+      }
+    }
+    function fmt(v) {
+      return v == "-" ? v : sprintf("%.1f", v)
+    }'
@@ -0,0 +1,28 @@
+#!/bin/bash
+
+# 运行网关热路径 JMH 基准测试，结果按当前提交写入 benchmark/jmh/results-<提交>.json
+#
+# 用法: benchmark/jmh/run-benchmarks.sh [基准名称正则，默认全部] [追加的 JMH 参数...]
+#   benchmark/jmh/run-benchmarks.sh AccessRuleBenchmark -p ruleCount=1000
+# 对比两次结果: benchmark/jmh/compare-results.sh results-<旧提交>.json results-<新提交>.json
+
+set -euo pipefail
+
+DIR=$(cd "$(dirname "$0")" && pwd)
+ROOT=$(cd "$DIR/../.." && pwd)
+INCLUDE=${1:-com.saltyfish.contract.gateway.benchmark}
+shift || true
+
+COMMIT=$(git -C "$ROOT" rev-parse --short HEAD)
+if [ -n "$(git -C "$ROOT" status --porcelain -- src)" ]; then
+  COMMIT="$COMMIT-dirty"
+fi
+RESULT="$DIR/results-$COMMIT.json"
+
+cd "$ROOT"
+mvn -B verify -Pjmh -DskipTests \
+  -Djmh.include="$INCLUDE" \
+  -Djmh.result="$RESULT" \
+  -Djmh.args="$*"
+
+echo "结果: $RESULT"
@@ -0,0 +1,37 @@
+-- 访问规则和URL映射表，每张表带少量规则，让启动时的加载和编译走完整流程
+-- 只使用黑名单规则：数据库规则中存在白名单时，未命中的请求（包括基准测试的路由请求）会被拒绝
+CREATE TABLE IF NOT EXISTS access_rules (
+    id            BIGSERIAL PRIMARY KEY,
+    rule_name     VARCHAR(100) NOT NULL,
+    rule_type     VARCHAR(20)  NOT NULL,
+    match_type    VARCHAR(20)  NOT NULL,
+    match_pattern VARCHAR(20)  NOT NULL,
+    match_value   VARCHAR(500) NOT NULL,
+    priority      INTEGER      DEFAULT 0,
+    enabled       BOOLEAN      DEFAULT TRUE,
+    description   VARCHAR(500),
+    created_at    TIMESTAMP    DEFAULT CURRENT_TIMESTAMP,
+    updated_at    TIMESTAMP    DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS url_mappings (
+    id              BIGSERIAL PRIMARY KEY,
+    mapping_name    VARCHAR(100) NOT NULL,
+    external_path   VARCHAR(500) NOT NULL,
+    internal_path   VARCHAR(500) NOT NULL,
+    target_service  VARCHAR(100) NOT NULL,
+    mapping_type    VARCHAR(20)  NOT NULL,
+    priority        INTEGER      DEFAULT 0,
+    enabled         BOOLEAN      DEFAULT TRUE,
+    description     VARCHAR(500),
+    created_at      TIMESTAMP    DEFAULT CURRENT_TIMESTAMP,
+    updated_at      TIMESTAMP    DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO access_rules (rule_name, rule_type, match_type, match_pattern, match_value, priority) VALUES
+    ('block-legacy-api', 'blacklist', 'path', 'wildcard', '/legacy/*/export', 200),
+    ('block-internal-admin', 'blacklist', 'path', 'prefix', '/internal', 100),
+    ('block-test-network', 'blacklist', 'ip', 'cidr', '198.51.100.0/24', 90);
+
+INSERT INTO url_mappings (mapping_name, external_path, internal_path, target_service, mapping_type, priority) VALUES
+    ('api-v1-contracts', '/api/v1/contracts/**', '/contracts/**', 'contract-management-service', 'rewrite', 100);
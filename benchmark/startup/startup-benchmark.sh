@@ -0,0 +1,129 @@
+#!/bin/bash
+
+# 启动性能基准测试
+# 对比当前镜像（dockerfile）和启动优化镜像（dockerfile.cds，AppCDS + Spring AOT）：
+#   routed_ms - 从启动容器到第一个经过路由的请求得到响应（/cg/** 路由回到网关自身）
+#   ready_ms  - 从启动容器到 /actuator/health/readiness 返回 UP（包含启动预热）
+#   rss_kb    - 就绪后 JVM 进程的常驻内存
+# 依赖（Nacos、Redis、PostgreSQL）由同目录的 docker-compose.yml 在本地启动。
+#
+# 用法: benchmark/startup/startup-benchmark.sh [每个镜像的启动次数，默认5]
+#   SKIP_BUILD=true  跳过打包和镜像构建，直接使用已有镜像
+#   PORT=19090       网关映射到本机的端口
+
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-19090}
+STARTUP_TIMEOUT=${STARTUP_TIMEOUT:-180}
+SETTLE_SECONDS=${SETTLE_SECONDS:-5}
+
+DIR=$(cd "$(dirname "$0")" && pwd)
+ROOT=$(cd "$DIR/../.." && pwd)
+VERSION=1.0.0
+BASELINE_IMAGE=contract-gateway:${VERSION}-baseline
+OPTIMIZED_IMAGE=contract-gateway:${VERSION}-cds
+CONTAINER=contract-gateway-bench-gw
+NETWORK=contract-gateway-bench
+RESULT="$DIR/results-$(date +%Y%m%d-%H%M%S).csv"
+
+cleanup() {
+  docker rm -f "$CONTAINER" >/dev/null 2>&1 || true
+  docker compose -f "$DIR/docker-compose.yml" down -v >/dev/null 2>&1 || true
+}
+trap cleanup EXIT
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# 构建当前镜像和启动优化镜像，两次打包使用同一份源码
+build_images() {
+  cd "$ROOT"
+  echo "构建当前镜像: $BASELINE_IMAGE"
+  mvn -B -q package -DskipTests
+  docker build -q -f dockerfile -t "$BASELINE_IMAGE" . >/dev/null
+  echo "构建启动优化镜像: $OPTIMIZED_IMAGE"
+  mvn -B -q package -DskipTests -Pstartup -Dstartup.image="$OPTIMIZED_IMAGE"
+}
+
+# 启动一次网关并记录指标
+run_once() {
+  local name=$1 image=$2 run=$3
+  docker rm -f "$CONTAINER" >/dev/null 2>&1 || true
+
+  local start routed_ms="" ready_ms="" code
+  start=$(now_ms)
+  docker run -d --name "$CONTAINER" --network "$NETWORK" -p "$PORT:9090" \
+    -e NACOS_SERVER=nacos:8848 \
+    -e DB_HOST=postgres \
+    -e REDIS_HOST=redis \
+    "$image" >/dev/null
+
+  local deadline=$(( start + STARTUP_TIMEOUT * 1000 ))
+  while [ -z "$ready_ms" ]; do
+    if [ "$(now_ms)" -gt "$deadline" ]; then
+      echo "启动超时: $name 第${run}次" >&2
+      docker logs --tail 50 "$CONTAINER" >&2
+      return 1
+    fi
+    if [ -z "$routed_ms" ]; then
+      # 000 表示端口未监听，502/504 表示路由到了但上游未就绪，其余状态码都说明请求已经过路由
+      code=$(curl -s -o /dev/null -m 2 -w '%{http_code}' "http://localhost:$PORT/cg/actuator/health" || true)
+      if [ "$code" != "000" ] && [ "$code" != "502" ] && [ "$code" != "504" ]; then
+        routed_ms=$(( $(now_ms) - start ))
+      fi
+    fi
+    if [ -n "$routed_ms" ]; then
+      code=$(curl -s -o /dev/null -m 2 -w '%{http_code}' "http://localhost:$PORT/actuator/health/readiness" || true)
+      if [ "$code" = "200" ]; then
+        ready_ms=$(( $(now_ms) - start ))
+      fi
+    fi
+    if [ -z "$ready_ms" ]; then
+      sleep 0.05
+    fi
+  done
+
+  sleep "$SETTLE_SECONDS"
+  local rss_kb
+  rss_kb=$(docker exec "$CONTAINER" cat /proc/1/status | awk '/^VmRSS/ {print $2}')
+  echo "$name,$run,$routed_ms,$ready_ms,$rss_kb" >> "$RESULT"
+  printf '%-10s #%-2s routed=%6sms ready=%6sms rss=%8skB\n' "$name" "$run" "$routed_ms" "$ready_ms" "$rss_kb"
+
+  docker rm -f "$CONTAINER" >/dev/null
+}
+
+# 输出每个镜像各项指标的中位数
+summarize() {
+  echo ""
+  printf '%-10s %12s %12s %12s\n' "image" "routed_ms" "ready_ms" "rss_kb"
+  for name in baseline cds; do
+    local line=""
+    for column in 3 4 5; do
+      local median
+      median=$(awk -F, -v n="$name" -v c="$column" '$1 == n {print $c}' "$RESULT" | sort -n \
+        | awk '{v[NR] = $1} END {if (NR == 0) print "-"; else if (NR % 2) print v[(NR + 1) / 2]; else print int((v[NR / 2] + v[NR / 2 + 1]) / 2)}')
+      line="$line $(printf '%12s' "$median")"
+    done
+    printf '%-10s%s\n' "$name" "$line"
+  done
+  echo ""
+  echo "明细: $RESULT"
+}
+
+if [ "${SKIP_BUILD:-false}" != "true" ]; then
+  build_images
+fi
+
+echo "启动依赖服务..."
+docker compose -f "$DIR/docker-compose.yml" up -d --wait >/dev/null
+
+echo "image,run,routed_ms,ready_ms,rss_kb" > "$RESULT"
+# 交替启动两个镜像，减少宿主机负载变化对结果的影响
+for run in $(seq 1 "$RUNS"); do
+  run_once baseline "$BASELINE_IMAGE" "$run"
+  run_once cds "$OPTIMIZED_IMAGE" "$run"
+done
+
+summarize
@@ -0,0 +1,122 @@
+package com.saltyfish.contract.gateway.benchmark;
+
+import com.saltyfish.contract.gateway.entity.AccessRule;
+import com.saltyfish.contract.gateway.util.CompiledAccessRules;
+import com.saltyfish.contract.gateway.util.IpAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access Rule Benchmark
+ * 访问规则求值基准，覆盖不同规则数量和匹配类型
+ *
+ * 所有规则都是黑名单，按生成顺序排列。miss 请求不命中任何规则，需要遍历全部规则；hit 请求命中中间的规则。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessRuleBenchmark {
+
+    private static final String METHOD = "GET";
+
+    private static final String[] MATCH_TYPES = {"path-exact", "path-prefix", "path-wildcard", "ip-exact", "ip-cidr", "user"};
+
+    @Param({"10", "1000", "100000"})
+    private int ruleCount;
+
+    /**
+     * 匹配类型，mixed 为前六种轮流出现
+     */
+    @Param({"path-exact", "path-prefix", "path-wildcard", "ip-exact", "ip-cidr", "user", "mixed"})
+    private String matchType;
+
+    private CompiledAccessRules rules;
+
+    private String hitPath;
+    private String hitIp;
+    private IpAddress hitAddress;
+    private String hitUser;
+
+    private String missPath;
+    private String missIp;
+    private IpAddress missAddress;
+    private String missUser;
+
+    @Setup
+    public void setup() {
+        List<AccessRule> list = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            list.add(rule(i, "mixed".equals(matchType) ? MATCH_TYPES[i % MATCH_TYPES.length] : matchType));
+        }
+        rules = CompiledAccessRules.compile(list, "allow", CompiledAccessRules.SOURCE_DATABASE, 1, true, null);
+
+        // 命中请求的各字段都对应中间那条规则，无论它是哪种匹配类型
+        int target = ruleCount / 2;
+        hitPath = "/svc" + target + "/item/detail";
+        hitIp = ip(target) + ".1";
+        hitAddress = IpAddress.parse(hitIp);
+        hitUser = "user-" + target;
+
+        missPath = "/none/item/detail";
+        missIp = "192.168.255.1";
+        missAddress = IpAddress.parse(missIp);
+        missUser = "anonymous";
+    }
+
+    @Benchmark
+    public int evaluateHit() {
+        return rules.evaluate(hitPath, METHOD, hitIp, hitAddress, hitUser);
+    }
+
+    @Benchmark
+    public int evaluateMiss() {
+        return rules.evaluate(missPath, METHOD, missIp, missAddress, missUser);
+    }
+
+    private AccessRule rule(int i, String type) {
+        AccessRule rule = new AccessRule();
+        rule.setRuleName("rule-" + i);
+        rule.setRuleType("blacklist");
+        rule.setPriority(ruleCount - i);
+        rule.setEnabled(true);
+        switch (type) {
+            case "path-exact" -> match(rule, "path", "exact", "/svc" + i + "/item/detail");
+            case "path-prefix" -> match(rule, "path", "prefix", "/svc" + i + "/");
+            case "path-wildcard" -> match(rule, "path", "wildcard", "/svc" + i + "/*/detail");
+            case "ip-exact" -> match(rule, "ip", "exact", ip(i) + ".1");
+            case "ip-cidr" -> match(rule, "ip", "cidr", ip(i) + ".0/24");
+            case "user" -> match(rule, "user", "exact", "user-" + i);
+            default -> throw new IllegalArgumentException("未知的匹配类型: " + type);
+        }
+        return rule;
+    }
+
+    private static void match(AccessRule rule, String matchType, String matchPattern, String matchValue) {
+        rule.setMatchType(matchType);
+        rule.setMatchPattern(matchPattern);
+        rule.setMatchValue(matchValue);
+    }
+
+    /**
+     * 每条规则独占一个 /24 网段
+     */
+    private static String ip(int i) {
+        return (10 + (i >> 16)) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+    }
+}
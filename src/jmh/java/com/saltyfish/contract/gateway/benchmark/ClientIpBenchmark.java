@@ -0,0 +1,111 @@
+package com.saltyfish.contract.gateway.benchmark;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.filter.ClientIpResolver;
+import com.saltyfish.contract.gateway.filter.GatewayExchangeAttributes;
+import com.saltyfish.contract.gateway.util.IpAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client IP Benchmark
+ * 客户端IP解析基准：按场景解析 exchange 的客户端地址，以及单独解析 IPv4/IPv6 文本
+ *
+ * 解析结果缓存在 exchange 属性中，每次调用前先移除，测量的是一次完整解析。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientIpBenchmark {
+
+    /**
+     * exchange 解析状态
+     */
+    @State(Scope.Thread)
+    public static class Exchange {
+
+        /**
+         * 场景：
+         * direct - 直连地址不可信，忽略转发头；
+         * forwarded - 可信代理转发，X-Forwarded-For 只有客户端地址；
+         * forwarded-chain - 经过多级可信代理；
+         * ipv6-chain - IPv6 直连地址和转发链
+         */
+        @Param({"direct", "forwarded", "forwarded-chain", "ipv6-chain"})
+        private String scenario;
+
+        private ClientIpResolver resolver;
+        private MockServerWebExchange exchange;
+
+        @Setup
+        public void setup() throws UnknownHostException {
+            GatewayProperties properties = new GatewayProperties();
+            // 默认只信任本机，这里按典型的内网代理部署补充可信网段
+            properties.getClientIp().getTrustedProxies().addAll(List.of("10.0.0.0/8", "172.16.0.0/12", "fc00::/7"));
+            resolver = new ClientIpResolver();
+            ReflectionTestUtils.setField(resolver, "gatewayProperties", properties);
+
+            MockServerHttpRequest request = switch (scenario) {
+                case "direct" -> request("203.0.113.10", "198.51.100.7");
+                case "forwarded" -> request("10.0.0.1", "203.0.113.10");
+                case "forwarded-chain" -> request("10.0.0.1", "203.0.113.10, 172.16.0.5, 10.0.0.3");
+                case "ipv6-chain" -> request("::1", "2001:db8::10, fd00::5");
+                default -> throw new IllegalArgumentException("未知的场景: " + scenario);
+            };
+            exchange = MockServerWebExchange.from(request);
+        }
+    }
+
+    /**
+     * 地址文本，放在状态字段中避免被当作常量折叠
+     */
+    @State(Scope.Thread)
+    public static class Text {
+        private String ipv4 = "203.0.113.10";
+        private String ipv6 = "2001:db8:85a3::8a2e:370:7334";
+    }
+
+    @Benchmark
+    public String resolve(Exchange state) {
+        state.exchange.getAttributes().remove(GatewayExchangeAttributes.CLIENT_IP_ATTR);
+        state.exchange.getAttributes().remove(GatewayExchangeAttributes.CLIENT_ADDRESS_ATTR);
+        return state.resolver.resolve(state.exchange);
+    }
+
+    @Benchmark
+    public IpAddress parseIpv4(Text text) {
+        return IpAddress.parse(text.ipv4);
+    }
+
+    @Benchmark
+    public IpAddress parseIpv6(Text text) {
+        return IpAddress.parse(text.ipv6);
+    }
+
+    private static MockServerHttpRequest request(String remoteAddress, String forwardedFor) throws UnknownHostException {
+        return MockServerHttpRequest.get("/cm/api/contracts/42")
+                .remoteAddress(new InetSocketAddress(InetAddress.getByName(remoteAddress), 52000))
+                .header("X-Forwarded-For", forwardedFor)
+                .build();
+    }
+}
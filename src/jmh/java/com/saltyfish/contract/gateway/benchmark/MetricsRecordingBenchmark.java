@@ -0,0 +1,109 @@
+package com.saltyfish.contract.gateway.benchmark;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.filter.RequestTiming;
+import com.saltyfish.contract.gateway.service.GatewayMetricsService;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics Recording Benchmark
+ * MonitoringFilter 请求结束时的指标记录基准：请求计数和耗时、各阶段耗时直方图
+ *
+ * 使用与生产相同的 Prometheus 注册表，按已注册的请求序列数参数化，每次调用轮流记录其中一个序列。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsRecordingBenchmark {
+
+    private static final long DURATION_NANOS = TimeUnit.MILLISECONDS.toNanos(12);
+
+    /**
+     * 共享的注册表和指标服务
+     */
+    @State(Scope.Benchmark)
+    public static class Registry {
+
+        /**
+         * 请求序列数（路由、路径模板组合），不超过 gateway.monitoring.max-meter-series
+         */
+        @Param({"1", "100", "1000"})
+        private int series;
+
+        private GatewayMetricsService metricsService;
+        private String[] routeIds;
+        private String[] pathTemplates;
+        private RequestTiming timing;
+
+        @Setup
+        public void setup() {
+            metricsService = new GatewayMetricsService(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+                    new GatewayProperties());
+            routeIds = new String[series];
+            pathTemplates = new String[series];
+            for (int i = 0; i < series; i++) {
+                routeIds[i] = "route-" + (i % 10);
+                pathTemplates[i] = "/api/v1/resource-" + i + "/{id}";
+                // 预先注册序列，测量的是稳定状态下的记录开销
+                metricsService.recordRequest(routeIds[i], pathTemplates[i], "GET", 200, DURATION_NANOS, null);
+            }
+
+            timing = new RequestTiming();
+            for (RequestTiming.Mark mark : RequestTiming.Mark.values()) {
+                timing.mark(mark);
+            }
+        }
+    }
+
+    /**
+     * 每个线程独立的序列游标
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        private int next(int bound) {
+            int index = next;
+            next = index + 1 == bound ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    @Benchmark
+    public void recordRequest(Registry registry, Cursor cursor) {
+        int i = cursor.next(registry.series);
+        registry.metricsService.recordRequest(registry.routeIds[i], registry.pathTemplates[i], "GET", 200,
+                DURATION_NANOS, null);
+    }
+
+    @Benchmark
+    public void recordPhases(Registry registry) {
+        registry.metricsService.recordPhases(registry.timing);
+    }
+
+    /**
+     * 多个事件循环线程同时记录
+     */
+    @Benchmark
+    @Threads(4)
+    public void recordRequestContended(Registry registry, Cursor cursor) {
+        recordRequest(registry, cursor);
+    }
+}
@@ -0,0 +1,152 @@
+package com.saltyfish.contract.gateway.benchmark;
+
+import com.saltyfish.contract.gateway.entity.UrlMapping;
+import com.saltyfish.contract.gateway.service.UrlMappingService;
+import com.saltyfish.contract.gateway.util.CompiledUrlMappings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Url Mapping Benchmark
+ * URL映射查找和路径重写基准
+ *
+ * 查找按映射数量和外部路径写法参数化，hit 请求命中中间的映射，miss 请求遍历全部映射；
+ * 路径重写与映射数量无关，单独按映射写法参数化。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlMappingBenchmark {
+
+    /**
+     * 查找状态
+     */
+    @State(Scope.Benchmark)
+    public static class Lookup {
+
+        @Param({"10", "1000", "100000"})
+        private int mappingCount;
+
+        /**
+         * 外部路径写法：exact（精确）、wildcard（/**）、single-level（/*）、regex
+         */
+        @Param({"exact", "wildcard", "single-level", "regex"})
+        private String pattern;
+
+        private CompiledUrlMappings mappings;
+        private String hitPath;
+        private String missPath;
+
+        @Setup
+        public void setup() {
+            List<UrlMapping> list = new ArrayList<>(mappingCount);
+            for (int i = 0; i < mappingCount; i++) {
+                list.add(mapping(i, externalPath(pattern, i), "/int" + i + "/**", mappingCount - i));
+            }
+            mappings = CompiledUrlMappings.compile(list, CompiledUrlMappings.SOURCE_DATABASE, 1, true, null);
+
+            int target = mappingCount / 2;
+            hitPath = switch (pattern) {
+                case "wildcard" -> prefix(target) + "/v1/contracts/42";
+                case "regex" -> prefix(target) + "/v1/contracts";
+                default -> prefix(target) + "/contracts";
+            };
+            missPath = "/none/v1/contracts";
+        }
+
+        private static String externalPath(String pattern, int i) {
+            return switch (pattern) {
+                case "exact" -> prefix(i) + "/contracts";
+                case "wildcard" -> prefix(i) + "/**";
+                case "single-level" -> prefix(i) + "/*";
+                case "regex" -> "regex:" + prefix(i) + "/v[0-9]+/.*";
+                default -> throw new IllegalArgumentException("未知的路径写法: " + pattern);
+            };
+        }
+
+        /**
+         * 定长编号，/** 按字符串前缀匹配，避免 /ext1 命中 /ext10 开头的路径
+         */
+        private static String prefix(int i) {
+            return String.format("/ext%06d", i);
+        }
+    }
+
+    /**
+     * 路径重写状态
+     */
+    @State(Scope.Benchmark)
+    public static class Rewrite {
+
+        /**
+         * 映射写法：wildcard（/** 到 /**）、exact（精确）、prefix（外部路径是请求路径的前缀）
+         */
+        @Param({"wildcard", "exact", "prefix"})
+        private String pattern;
+
+        private final UrlMappingService urlMappingService = new UrlMappingService();
+        private UrlMapping mapping;
+        private String path;
+
+        @Setup
+        public void setup() {
+            switch (pattern) {
+                case "wildcard" -> {
+                    mapping = mapping(0, "/api/contracts/**", "/contract-management/contracts/**", 0);
+                    path = "/api/contracts/42/reviews";
+                }
+                case "exact" -> {
+                    mapping = mapping(0, "/api/contracts", "/contract-management/contracts", 0);
+                    path = "/api/contracts";
+                }
+                case "prefix" -> {
+                    mapping = mapping(0, "/api/contracts", "/contract-management/contracts", 0);
+                    path = "/api/contracts/42/reviews";
+                }
+                default -> throw new IllegalArgumentException("未知的映射写法: " + pattern);
+            }
+        }
+    }
+
+    @Benchmark
+    public UrlMapping findHit(Lookup state) {
+        return state.mappings.find(state.hitPath);
+    }
+
+    @Benchmark
+    public UrlMapping findMiss(Lookup state) {
+        return state.mappings.find(state.missPath);
+    }
+
+    @Benchmark
+    public String rewritePath(Rewrite state) {
+        return state.urlMappingService.rewritePath(state.path, state.mapping);
+    }
+
+    private static UrlMapping mapping(int i, String externalPath, String internalPath, int priority) {
+        UrlMapping mapping = new UrlMapping();
+        mapping.setMappingName("mapping-" + i);
+        mapping.setExternalPath(externalPath);
+        mapping.setInternalPath(internalPath);
+        mapping.setTargetService("contract-management-service");
+        mapping.setMappingType("rewrite");
+        mapping.setPriority(priority);
+        mapping.setEnabled(true);
+        return mapping;
+    }
+}
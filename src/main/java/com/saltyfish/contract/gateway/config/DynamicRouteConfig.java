@@ -1,146 +1,194 @@
 package com.saltyfish.contract.gateway.config;
 
-import com.alibaba.nacos.api.config.ConfigService;
-import com.alibaba.nacos.api.config.listener.Listener;
-import com.alibaba.nacos.api.exception.NacosException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.annotation.PostConstruct;
+import com.saltyfish.contract.gateway.exception.ConfigValidationException;
+import com.saltyfish.contract.gateway.service.ConfigSnapshotService;
+import com.saltyfish.contract.gateway.util.ConfigSnapshotCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
 import org.springframework.cloud.gateway.route.RouteDefinition;
-import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
 import org.springframework.cloud.gateway.route.RouteDefinitionWriter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.util.CollectionUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executor;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * 动态路由配置类
  * 支持从Nacos配置中心动态加载和更新路由规则
+ *
+ * 路由配置由 {@link NacosConfigListener} 监听和解析，这里负责校验并整体替换 Nacos 来源的路由。
+ * 校验时按路由表刷新的方式把每个断言和过滤器的参数绑定到其工厂并构建一次，参数错误在写入前即被拒绝。
+ * 写入路由定义后只发布一次 {@link RefreshRoutesEvent}，路由表在刷新时一次性切换到新版本。
+ * 生效的路由写入 {@link ConfigSnapshotService}，启动时可以在连上 Nacos 之前从快照恢复。
  */
 @Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class DynamicRouteConfig {
 
-    private final ConfigService configService;
     private final RouteDefinitionWriter routeDefinitionWriter;
-    private final RouteDefinitionLocator routeDefinitionLocator;
-    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final List<RoutePredicateFactory<?>> predicateFactories;
+    private final List<GatewayFilterFactory<?>> filterFactories;
+    private final ConfigSnapshotService configSnapshotService;
+    private final ConfigurationService configurationService;
+
+    private static final String SOURCE_NACOS = "nacos";
+
+    private final AtomicLong versions = new AtomicLong();
 
     /**
-     * Nacos路由配置ID
+     * 当前生效的 Nacos 路由ID
      */
-    private static final String ROUTE_DATA_ID = "contract-gateway-routes.yml";
-    private static final String ROUTE_GROUP = "CONTRACT_REVIEW";
+    private volatile Set<String> appliedRouteIds = Set.of();
 
     /**
-     * 初始化动态路由配置
+     * 当前路由是否来自快照，Nacos 推送新路由后为false
      */
-    @PostConstruct
-    public void initDynamicRoute() {
-        try {
-            // 初始加载路由配置
-            loadRoutesFromNacos();
-
-            // 监听配置变化
-            configService.addListener(ROUTE_DATA_ID, ROUTE_GROUP, new Listener() {
-                @Override
-                public Executor getExecutor() {
-                    return null; // 使用默认线程池
-                }
+    private volatile boolean restoredFromSnapshot;
 
-                @Override
-                public void receiveConfigInfo(String configInfo) {
-                    log.info("收到路由配置更新，开始刷新路由...");
-                    refreshRoutes(configInfo);
-                }
-            });
-
-            log.info("动态路由配置初始化完成");
-        } catch (NacosException e) {
-            log.error("初始化动态路由配置失败", e);
-        }
+    /**
+     * 校验并替换 Nacos 来源的路由
+     *
+     * @return 新路由配置的版本号
+     * @throws ConfigValidationException 断言或过滤器不存在或参数无效，当前路由保持不变
+     */
+    public Mono<Long> applyRoutes(List<RouteDefinition> routes) {
+        return apply(routes, true)
+                .doOnNext(version -> restoredFromSnapshot = false);
     }
 
     /**
-     * 从Nacos加载路由配置
+     * 从配置快照恢复路由，恢复的路由不再写回快照
+     *
+     * @return 恢复后的版本号
+     * @throws ConfigValidationException 快照中的断言或过滤器已不存在或参数无效
      */
-    private void loadRoutesFromNacos() {
-        try {
-            String configInfo = configService.getConfig(ROUTE_DATA_ID, ROUTE_GROUP, 5000);
-            if (configInfo != null && !configInfo.trim().isEmpty()) {
-                refreshRoutes(configInfo);
-                log.info("成功从Nacos加载路由配置");
-            } else {
-                log.warn("Nacos中未找到路由配置，使用本地配置");
-            }
-        } catch (NacosException e) {
-            log.error("从Nacos加载路由配置失败", e);
-        }
+    public Mono<Long> restoreRoutes(ConfigSnapshotCodec.RoutesSection section) {
+        return apply(section.routes(), false)
+                .doOnNext(version -> {
+                    restoredFromSnapshot = true;
+                    log.info("已从快照恢复路由: version={}, 路由数量={}, 快照版本={}",
+                            version, section.routes().size(), section.version());
+                });
     }
 
     /**
-     * 刷新路由配置
+     * 移除从快照恢复的路由，Nacos 中已没有路由配置时调用，快照中的路由分段一并删除
+     *
+     * @return 移除后的版本号，当前路由不是来自快照时为空
      */
-    private void refreshRoutes(String configInfo) {
-        // 解析YAML配置中的路由定义
-        List<RouteDefinition> routeDefinitions = parseRouteDefinitions(configInfo);
-
-        if (!CollectionUtils.isEmpty(routeDefinitions)) {
-            log.info("准备更新{}个路由定义", routeDefinitions.size());
-
-            // 使用reactor的非阻塞方式处理路由更新
-            clearConfiguredRoutes()
-                .thenMany(Flux.fromIterable(routeDefinitions))
-                .flatMap(routeDefinition -> {
-                    log.debug("添加路由: {} -> {}", routeDefinition.getId(), routeDefinition.getUri());
-                    return routeDefinitionWriter.save(Mono.just(routeDefinition));
-                })
-                .collectList()
-                .doOnSuccess(v -> log.info("路由配置更新完成"))
-                .doOnError(e -> log.error("刷新路由配置失败", e))
-                .subscribeOn(Schedulers.boundedElastic())
-                .subscribe();
+    public Mono<Long> dropRestoredRoutes() {
+        if (!restoredFromSnapshot) {
+            return Mono.empty();
         }
+        return apply(List.of(), false)
+                .doOnNext(version -> {
+                    restoredFromSnapshot = false;
+                    configSnapshotService.removeRoutes();
+                });
+    }
+
+    private Mono<Long> apply(List<RouteDefinition> routes, boolean persist) {
+        validate(routes);
+        long version = versions.incrementAndGet();
+        Set<String> newIds = routes.stream().map(RouteDefinition::getId).collect(Collectors.toUnmodifiableSet());
+        Set<String> removedIds = appliedRouteIds.stream()
+                .filter(id -> !newIds.contains(id))
+                .collect(Collectors.toSet());
+
+        return Flux.fromIterable(removedIds)
+                .concatMap(id -> routeDefinitionWriter.delete(Mono.just(id))
+                        .onErrorResume(e -> Mono.empty()))
+                .thenMany(Flux.fromIterable(routes))
+                .concatMap(route -> routeDefinitionWriter.save(Mono.just(route)))
+                .then(Mono.fromCallable(() -> {
+                    appliedRouteIds = newIds;
+                    eventPublisher.publishEvent(new RefreshRoutesEvent(this));
+                    if (persist) {
+                        configSnapshotService.saveRoutes(SOURCE_NACOS, version, routes);
+                    }
+                    log.info("路由配置已切换: version={}, 路由数量={}, 移除={}", version, newIds.size(), removedIds);
+                    return version;
+                }));
     }
 
     /**
-     * 清除通过配置管理的路由
-     * @return Mono完成信号
+     * 校验断言和过滤器：名称必须存在，参数按路由表刷新时的方式绑定并构建一次，
+     * 避免无效的正则、路径模式等到路由刷新时才暴露
      */
-    private Mono<Void> clearConfiguredRoutes() {
-        return routeDefinitionLocator.getRouteDefinitions()
-            .filter(route -> route.getMetadata() != null
-                && "nacos".equals(route.getMetadata().get("source")))
-            .flatMap(route -> {
-                log.debug("删除路由: {}", route.getId());
-                return routeDefinitionWriter.delete(Mono.just(route.getId()));
-            })
-            .then()
-            .doOnError(e -> log.error("清除路由配置失败", e));
+    private void validate(List<RouteDefinition> routes) {
+        Map<String, RoutePredicateFactory<?>> predicates = predicateFactories.stream()
+                .collect(Collectors.toMap(RoutePredicateFactory::name, Function.identity(), (a, b) -> a));
+        Map<String, GatewayFilterFactory<?>> filters = filterFactories.stream()
+                .collect(Collectors.toMap(GatewayFilterFactory::name, Function.identity(), (a, b) -> a));
+
+        List<String> errors = new ArrayList<>();
+        for (RouteDefinition route : routes) {
+            for (PredicateDefinition predicate : route.getPredicates()) {
+                RoutePredicateFactory<?> factory = predicates.get(predicate.getName());
+                if (factory == null) {
+                    errors.add("路由[" + route.getId() + "]: 未知的断言 " + predicate.getName());
+                    continue;
+                }
+                try {
+                    bindPredicate(factory, predicate);
+                } catch (RuntimeException e) {
+                    errors.add("路由[" + route.getId() + "]: 断言 " + predicate.getName() + " 参数无效: " + e.getMessage());
+                }
+            }
+            for (FilterDefinition filter : route.getFilters()) {
+                GatewayFilterFactory<?> factory = filters.get(filter.getName());
+                if (factory == null) {
+                    errors.add("路由[" + route.getId() + "]: 未知的过滤器 " + filter.getName());
+                    continue;
+                }
+                try {
+                    bindFilter(factory, filter);
+                } catch (RuntimeException e) {
+                    errors.add("路由[" + route.getId() + "]: 过滤器 " + filter.getName() + " 参数无效: " + e.getMessage());
+                }
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new ConfigValidationException("路由配置校验失败", errors);
+        }
     }
 
     /**
-     * 解析路由定义
-     * TODO: 完善YAML解析逻辑，支持复杂的路由配置
+     * 与 RouteDefinitionRouteLocator 相同的绑定方式，不发布参数事件
      */
-    private List<RouteDefinition> parseRouteDefinitions(String configInfo) {
-        try {
-            // 简单实现：这里需要根据YAML格式进行解析
-            // 当前先返回空列表，使用application.yml中的配置
-            log.info("解析路由配置: {}", configInfo.substring(0, Math.min(100, configInfo.length())));
-
-            // TODO: 实现完整的YAML到RouteDefinition的转换
-            return List.of();
-        } catch (Exception e) {
-            log.error("解析路由定义失败", e);
-            return List.of();
-        }
+    @SuppressWarnings("unchecked")
+    private void bindPredicate(RoutePredicateFactory<?> factory, PredicateDefinition predicate) {
+        RoutePredicateFactory<Object> typed = (RoutePredicateFactory<Object>) factory;
+        Object config = configurationService.with(typed)
+                .name(predicate.getName())
+                .properties(predicate.getArgs())
+                .bind();
+        typed.applyAsync(config);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bindFilter(GatewayFilterFactory<?> factory, FilterDefinition filter) {
+        GatewayFilterFactory<Object> typed = (GatewayFilterFactory<Object>) factory;
+        Object config = configurationService.with(typed)
+                .name(filter.getName())
+                .properties(filter.getArgs())
+                .bind();
+        typed.apply(config);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.saltyfish.contract.gateway.config;
+
+import com.saltyfish.contract.gateway.dto.EventLoopBlockingDto;
+import com.saltyfish.contract.gateway.service.EventLoopBlockingDetector;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Event Loop Health Indicator
+ * 事件循环阻塞检测的健康指标，严格模式下存在阻塞记录时返回 DOWN
+ *
+ * 只参与 /actuator/health 整体状态，不在存活和就绪探针分组中，不会因阻塞记录重启实例或摘除流量。
+ */
+@Component
+@RequiredArgsConstructor
+public class EventLoopHealthIndicator implements HealthIndicator {
+
+    private final EventLoopBlockingDetector eventLoopBlockingDetector;
+
+    @Override
+    public Health health() {
+        if (!eventLoopBlockingDetector.isEnabled()) {
+            return Health.up().withDetail("detector", "disabled").build();
+        }
+        // 只输出各组件的累计阻塞时间，调用栈通过 /admin/event-loop/blocking 查看
+        Map<String, Long> blockedMillis = new LinkedHashMap<>();
+        for (EventLoopBlockingDto finding : eventLoopBlockingDetector.getFindings()) {
+            blockedMillis.put(finding.getComponent(), finding.getBlockedMillis());
+        }
+        Health.Builder builder = eventLoopBlockingDetector.isFailing() ? Health.down() : Health.up();
+        return builder.withDetail("detector", "enabled")
+                .withDetail("blockedMillis", blockedMillis)
+                .withDetail("unsampledCount", eventLoopBlockingDetector.getUnsampledCount())
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.saltyfish.contract.gateway.config;
+
+import com.saltyfish.contract.gateway.filter.RequestTiming;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gateway HttpClient Configuration
+ * 网关转发使用的 HttpClient 定制
+ */
+@Configuration
+public class GatewayHttpClientConfig {
+
+    /**
+     * 在请求即将发往上游时打点，此时连接已从连接池获取或新建完成
+     * 计时对象由 UpstreamTimingFilter 写入 Reactor Context
+     */
+    @Bean
+    public HttpClientCustomizer requestTimingHttpClientCustomizer() {
+        return httpClient -> httpClient.doOnRequest((request, connection) -> {
+            RequestTiming timing = request.currentContextView().getOrDefault(RequestTiming.class, null);
+            if (timing != null) {
+                timing.mark(RequestTiming.Mark.UPSTREAM_REQUEST_SENT);
+            }
+        });
+    }
+}
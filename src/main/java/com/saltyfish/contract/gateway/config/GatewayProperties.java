@@ -3,6 +3,13 @@ package com.saltyfish.contract.gateway.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Gateway Properties
@@ -28,6 +35,101 @@ public class GatewayProperties {
      */
     private Monitoring monitoring = new Monitoring();
 
+    /**
+     * 健康状态推送配置
+     */
+    private HealthStream healthStream = new HealthStream();
+
+    /**
+     * 健康历史配置
+     */
+    private HealthHistory healthHistory = new HealthHistory();
+
+    /**
+     * 主动健康探测配置
+     */
+    private HealthProbe healthProbe = new HealthProbe();
+
+    /**
+     * 访问日志配置
+     */
+    private AccessLog accessLog = new AccessLog();
+
+    /**
+     * 诊断日志限流配置
+     */
+    private DiagnosticLog diagnosticLog = new DiagnosticLog();
+
+    /**
+     * 高频键统计配置
+     */
+    private HeavyHitter heavyHitter = new HeavyHitter();
+
+    /**
+     * 自动封禁配置
+     */
+    private AutoBan autoBan = new AutoBan();
+
+    /**
+     * 限流配置
+     */
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * 自适应并发限制配置
+     */
+    private AdaptiveConcurrency adaptiveConcurrency = new AdaptiveConcurrency();
+
+    /**
+     * 公平排队配置
+     */
+    private FairQueue fairQueue = new FairQueue();
+
+    /**
+     * 远程鉴权缓存配置
+     */
+    private AuthCache authCache = new AuthCache();
+
+    /**
+     * 令牌解析配置
+     */
+    private Jwt jwt = new Jwt();
+
+    /**
+     * 客户端IP解析配置
+     */
+    private ClientIp clientIp = new ClientIp();
+
+    /**
+     * Nacos配置重载配置
+     */
+    private ConfigReload configReload = new ConfigReload();
+
+    /**
+     * 影子规则配置
+     */
+    private ShadowRules shadowRules = new ShadowRules();
+
+    /**
+     * 配置快照配置
+     */
+    private ConfigSnapshot configSnapshot = new ConfigSnapshot();
+
+    /**
+     * 启动预热配置
+     */
+    private Warmup warmup = new Warmup();
+
+    /**
+     * 阻塞调用配置
+     */
+    private BlockingCalls blockingCalls = new BlockingCalls();
+
+    /**
+     * 事件循环阻塞检测配置
+     */
+    private BlockingDetector blockingDetector = new BlockingDetector();
+
     @Data
     public static class AccessControl {
         /**
@@ -55,5 +157,716 @@ public class GatewayProperties {
          * 是否启用监控
          */
         private boolean enabled = true;
+
+        /**
+         * 请求指标最大序列数，超过后新的标签组合归入overflow
+         */
+        private int maxMeterSeries = 2000;
+
+        /**
+         * 是否在响应中输出各阶段耗时的 Server-Timing 头
+         */
+        private boolean serverTimingEnabled = false;
+    }
+
+    @Data
+    public static class HealthStream {
+        /**
+         * SSE心跳间隔
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+        /**
+         * 单个订阅者的变更缓冲区大小，溢出时断开该订阅者
+         */
+        private int subscriberBufferSize = 256;
+    }
+
+    @Data
+    public static class HealthHistory {
+        /**
+         * 秒级采样保留数量（默认6小时），必须大于0
+         */
+        private int secondCapacity = 21600;
+
+        /**
+         * 分钟级降采样保留数量（默认24小时），必须大于0
+         */
+        private int minuteCapacity = 1440;
+
+        /**
+         * 状态转换记录保留数量，必须大于0
+         */
+        private int transitionCapacity = 1024;
+    }
+
+    @Data
+    public static class HealthProbe {
+        /**
+         * 是否启用主动健康探测
+         */
+        private boolean enabled = false;
+
+        /**
+         * 默认健康检查路径
+         */
+        private String path = "/actuator/health";
+
+        /**
+         * 按服务覆盖的健康检查路径（服务带有上下文路径时需要配置）
+         */
+        private Map<String, String> servicePaths = new HashMap<>();
+
+        /**
+         * 探测周期
+         */
+        private Duration interval = Duration.ofSeconds(10);
+
+        /**
+         * 单次探测超时时间
+         */
+        private Duration timeout = Duration.ofSeconds(2);
+
+        /**
+         * 同时在途的最大探测数
+         */
+        private int maxConcurrency = 16;
+
+        /**
+         * 随机抖动幅度（占探测周期的比例）
+         */
+        private double jitter = 0.1;
+
+        /**
+         * 连续失败多少次后标记为不可用
+         */
+        private int fallThreshold = 3;
+
+        /**
+         * 连续成功多少次后恢复可用
+         */
+        private int riseThreshold = 2;
+    }
+
+    @Data
+    public static class AccessLog {
+        /**
+         * 是否启用访问日志
+         */
+        private boolean enabled = false;
+
+        /**
+         * 日志目录
+         */
+        private String directory = "logs/access";
+
+        /**
+         * 日志格式：binary/ndjson
+         */
+        private String format = "ndjson";
+
+        /**
+         * 环形缓冲区容量（记录数），满时丢弃新记录
+         */
+        private int bufferSize = 65536;
+
+        /**
+         * 单次批量写入的缓冲字节数
+         */
+        private DataSize batchSize = DataSize.ofKilobytes(256);
+
+        /**
+         * 最长刷盘间隔
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        /**
+         * 单个文件最大大小，超过后滚动
+         */
+        private DataSize maxFileSize = DataSize.ofMegabytes(256);
+
+        /**
+         * 单个文件最长写入时间，超过后滚动
+         */
+        private Duration rotationInterval = Duration.ofHours(1);
+
+        /**
+         * 保留的历史文件数量
+         */
+        private int maxHistory = 48;
+    }
+
+    @Data
+    public static class DiagnosticLog {
+        /**
+         * 每个调用点每秒允许输出的日志条数
+         */
+        private double permitsPerSecond = 5;
+
+        /**
+         * 每个调用点允许的突发条数
+         */
+        private int burst = 20;
+
+        /**
+         * 汇总输出周期
+         */
+        private Duration summaryInterval = Duration.ofSeconds(10);
+
+        /**
+         * 同一异常签名输出完整堆栈的次数
+         */
+        private int stackTraceLimit = 3;
+
+        /**
+         * 最多跟踪的异常签名数量
+         */
+        private int maxSignatures = 1024;
+
+        /**
+         * 每个汇总窗口最多记录的来源和目标数量
+         */
+        private int maxDistinctKeys = 256;
+    }
+
+    @Data
+    public static class HeavyHitter {
+        /**
+         * 是否启用高频键统计
+         */
+        private boolean enabled = true;
+
+        /**
+         * 统计窗口长度
+         */
+        private Duration window = Duration.ofSeconds(60);
+
+        /**
+         * 每个维度跟踪的键数量（Top-K 容量）
+         */
+        private int capacity = 128;
+
+        /**
+         * Count-Min Sketch 每行宽度
+         */
+        private int sketchWidth = 1024;
+
+        /**
+         * Count-Min Sketch 行数
+         */
+        private int sketchDepth = 4;
+    }
+
+    @Data
+    public static class AutoBan {
+        /**
+         * 是否启用自动封禁
+         */
+        private boolean enabled = false;
+
+        /**
+         * 触发封禁的分数阈值
+         */
+        private double threshold = 50;
+
+        /**
+         * 分数衰减半衰期
+         */
+        private Duration halfLife = Duration.ofSeconds(30);
+
+        /**
+         * 各响应状态码累加的分数
+         */
+        private Map<Integer, Double> statusWeights = new HashMap<>(Map.of(403, 1.0, 404, 1.0, 429, 2.0));
+
+        /**
+         * 封禁时长
+         */
+        private Duration banDuration = Duration.ofMinutes(10);
+
+        /**
+         * 最多跟踪分数的IP数量
+         */
+        private int maxTrackedIps = 100000;
+
+        /**
+         * 最多同时封禁的IP数量
+         */
+        private int maxBannedIps = 100000;
+
+        /**
+         * 不参与自动封禁的IP
+         */
+        private List<String> exemptIps = new ArrayList<>(List.of("127.0.0.1"));
+
+        /**
+         * 是否通过Redis在集群内共享封禁
+         */
+        private boolean redisEnabled = false;
+    }
+
+    @Data
+    public static class RateLimit {
+        /**
+         * 是否启用限流
+         */
+        private boolean enabled = false;
+
+        /**
+         * 限流模式：local（节点本地）/cluster（Redis集群共享）
+         */
+        private String mode = "local";
+
+        /**
+         * 限流规则，一个请求需要通过所有匹配的规则
+         */
+        private List<RateLimitRule> rules = new ArrayList<>();
+
+        /**
+         * 每条规则最多独立跟踪的限流键数量，超过后共享桶
+         */
+        private int maxBuckets = 100000;
+
+        /**
+         * 共享桶数量
+         */
+        private int overflowStripes = 1024;
+
+        /**
+         * 集群模式的滑动窗口长度
+         */
+        private Duration clusterWindow = Duration.ofSeconds(1);
+
+        /**
+         * 集群模式每次向Redis预取的许可数
+         */
+        private int clusterLeaseSize = 20;
+    }
+
+    @Data
+    public static class RateLimitRule {
+        /**
+         * 规则名称
+         */
+        private String name;
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 限流键：ip/user/route
+         */
+        private String keyType = "ip";
+
+        /**
+         * 只对指定路由生效，为空时对所有路由生效
+         */
+        private String routeId;
+
+        /**
+         * 只对指定路径前缀生效，为空时不限制路径
+         */
+        private String pathPrefix;
+
+        /**
+         * 每秒许可数
+         */
+        private double permitsPerSecond;
+
+        /**
+         * 允许的突发请求数
+         */
+        private int burst = 1;
+    }
+
+    @Data
+    public static class AdaptiveConcurrency {
+        /**
+         * 是否启用自适应并发限制
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每个路由的初始并发上限
+         */
+        private int initialLimit = 50;
+
+        /**
+         * 最小并发上限
+         */
+        private int minLimit = 10;
+
+        /**
+         * 最大并发上限
+         */
+        private int maxLimit = 1000;
+
+        /**
+         * 上限调整的平滑系数（0~1）
+         */
+        private double smoothing = 0.2;
+
+        /**
+         * 允许延迟高出长期基线的倍数
+         */
+        private double rttTolerance = 1.5;
+
+        /**
+         * 长期延迟基线的样本窗口
+         */
+        private int longWindow = 600;
+
+        /**
+         * 上游过载（502/503/504、错误）时的回退系数
+         */
+        private double backoffRatio = 0.9;
+
+        /**
+         * 交互式请求可使用的上限比例
+         */
+        private double interactiveShare = 0.9;
+
+        /**
+         * 上传请求可使用的上限比例
+         */
+        private double uploadShare = 0.75;
+
+        /**
+         * AI批量任务可使用的上限比例
+         */
+        private double batchShare = 0.5;
+
+        /**
+         * 视为健康检查的路径后缀，优先级最高
+         */
+        private List<String> criticalPathSuffixes = new ArrayList<>(List.of("/actuator/health"));
+
+        /**
+         * 视为批量任务的路由
+         */
+        private List<String> batchRoutes = new ArrayList<>(List.of("contract-ai-service-route"));
+
+        /**
+         * 视为上传的路径前缀（写请求）
+         */
+        private List<String> uploadPathPrefixes = new ArrayList<>(List.of("/cfs"));
+    }
+
+    @Data
+    public static class FairQueue {
+        /**
+         * 是否启用公平排队
+         */
+        private boolean enabled = false;
+
+        /**
+         * 启用公平排队的路由
+         */
+        private List<String> routes = new ArrayList<>(List.of("contract-review-engine-route", "contract-ai-service-route"));
+
+        /**
+         * 识别请求方的请求头，按顺序取第一个非空值；均为空时使用客户端IP
+         */
+        private List<String> identityHeaders = new ArrayList<>(List.of("X-Tenant-Id", "X-User-Id"));
+
+        /**
+         * 每个路由的总在途上限
+         */
+        private int maxInflight = 32;
+
+        /**
+         * 每个请求方的在途上限
+         */
+        private int perUserMaxInflight = 4;
+
+        /**
+         * 每个路由的排队上限
+         */
+        private int maxQueueSize = 256;
+
+        /**
+         * 每个请求方的排队上限
+         */
+        private int perUserQueueSize = 16;
+
+        /**
+         * 最长排队时间
+         */
+        private Duration queueTimeout = Duration.ofSeconds(10);
+
+        /**
+         * 每轮轮询的基础额度
+         */
+        private int quantum = 1;
+
+        /**
+         * 请求方权重，未配置时为1
+         */
+        private Map<String, Integer> weights = new HashMap<>();
+    }
+
+    @Data
+    public static class AuthCache {
+        /**
+         * 是否缓存 @RemotePreAuthorize 的鉴权结果
+         */
+        private boolean enabled = true;
+
+        /**
+         * 鉴权结果的有效期
+         */
+        private Duration ttl = Duration.ofSeconds(30);
+
+        /**
+         * 最多缓存的令牌数
+         */
+        private int maxTokens = 10000;
+
+        /**
+         * 等待进行中的远程鉴权的最长时间
+         */
+        private Duration loadTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 启用缓存的路径前缀
+         */
+        private List<String> pathPrefixes = new ArrayList<>(List.of("/admin", "/health"));
+
+        /**
+         * 登出路径，请求时使该令牌的缓存失效
+         */
+        private List<String> logoutPaths = new ArrayList<>(List.of("/csr/logout"));
+
+        /**
+         * 是否通过 Redis 频道在集群内广播失效事件
+         */
+        private boolean redisEnabled = false;
+    }
+
+    @Data
+    public static class Jwt {
+        /**
+         * 是否在网关本地解析令牌
+         */
+        private boolean enabled = false;
+
+        /**
+         * 携带令牌的请求头
+         */
+        private String header = "Authorization";
+
+        /**
+         * HMAC（HS256/384/512）密钥
+         */
+        private String hmacSecret;
+
+        /**
+         * HMAC 密钥是否为 Base64 编码（与若依 token.secret 的用法一致）
+         */
+        private boolean hmacSecretBase64 = true;
+
+        /**
+         * RSA（RS256/384/512）公钥，kid -> PEM 或 Base64 编码的 X.509 公钥
+         */
+        private Map<String, String> rsaPublicKeys = new HashMap<>();
+
+        /**
+         * 用户ID声明，按顺序取第一个非空值
+         */
+        private List<String> userIdClaims = new ArrayList<>(List.of("user_id", "userId", "sub"));
+
+        /**
+         * 用户名声明
+         */
+        private String usernameClaim = "username";
+
+        /**
+         * 角色声明（数组或逗号分隔的字符串）
+         */
+        private String rolesClaim = "roles";
+
+        /**
+         * 是否要求令牌包含 exp
+         */
+        private boolean requireExpiration = false;
+
+        /**
+         * 允许的时钟偏差
+         */
+        private Duration clockSkew = Duration.ofSeconds(30);
+
+        /**
+         * 解析结果的最长缓存时间，令牌自身过期时间更早时以令牌为准
+         */
+        private Duration cacheTtl = Duration.ofMinutes(5);
+
+        /**
+         * 最多缓存的令牌数
+         */
+        private int cacheSize = 10000;
+    }
+
+    @Data
+    public static class ClientIp {
+        /**
+         * 可信代理网段，只有直连地址在其中时才读取转发头
+         * 默认只信任本机，负载均衡或 Ingress 的地址需要按实际部署配置，不要整段信任内网
+         */
+        private List<String> trustedProxies = new ArrayList<>(List.of("127.0.0.0/8", "::1/128"));
+
+        /**
+         * 转发链请求头
+         */
+        private String forwardedHeader = "X-Forwarded-For";
+
+        /**
+         * 没有转发链时使用的真实IP请求头
+         */
+        private String realIpHeader = "X-Real-IP";
+    }
+
+    @Data
+    public static class ConfigReload {
+        /**
+         * 静默期，同一配置在静默期内的多次推送合并为一次重新编译
+         */
+        private Duration quietPeriod = Duration.ofMillis(300);
+
+        /**
+         * 最长延迟，持续推送时从第一次推送起最多等待这么久就重新编译
+         */
+        private Duration maxDelay = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class ShadowRules {
+        /**
+         * 参与影子求值的请求比例
+         */
+        private double sampleRate = 0.05;
+
+        /**
+         * 每秒最多求值次数
+         */
+        private int maxEvaluationsPerSecond = 1000;
+
+        /**
+         * 每秒最多用于影子求值的CPU时间（线程CPU时间，不含等待）
+         */
+        private Duration cpuBudget = Duration.ofMillis(20);
+
+        /**
+         * 每秒影子求值最多分配的内存
+         */
+        private DataSize allocationBudget = DataSize.ofMegabytes(16);
+
+        /**
+         * 分歧统计的最大键数，超过后新键归入 overflow
+         */
+        private int maxDivergenceKeys = 1000;
+    }
+
+    @Data
+    public static class ConfigSnapshot {
+        /**
+         * 是否保存最近一次有效配置，并在启动时从快照恢复
+         */
+        private boolean enabled = true;
+
+        /**
+         * 快照文件路径
+         */
+        private String path = "data/config-snapshot.bin";
+    }
+
+    @Data
+    public static class Warmup {
+        /**
+         * 是否在注册到 Nacos 和就绪前执行预热，关闭时启动后立即注册
+         */
+        private boolean enabled = true;
+
+        /**
+         * 预热总超时时间，超时后停止预热并照常注册
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+
+        /**
+         * 等待 Nacos 初始配置生效的最长时间（从快照启动时 Nacos 配置在后台加载）
+         */
+        private Duration configTimeout = Duration.ofSeconds(10);
+
+        /**
+         * 每个上游实例预先建立的连接数
+         */
+        private int connectionsPerInstance = 2;
+
+        /**
+         * 合成请求，格式为 "METHOD /path"，只允许 GET 和 HEAD，发往本机网关端口
+         */
+        private List<String> requests = new ArrayList<>(List.of("GET /actuator/health"));
+
+        /**
+         * 每个合成请求的重复次数
+         */
+        private int iterations = 200;
+
+        /**
+         * 合成请求并发数
+         */
+        private int concurrency = 4;
+    }
+
+    @Data
+    public static class BlockingCalls {
+        /**
+         * 运行在 Java 21 及以上时是否使用虚拟线程执行阻塞调用，否则使用有界弹性线程池
+         */
+        private boolean virtualThreads = true;
+
+        /**
+         * 同时执行的阻塞调用上限
+         */
+        private int maxConcurrency = 64;
+
+        /**
+         * 有界弹性线程池的排队上限，超过后调用直接失败
+         */
+        private int queueSize = 1000;
+
+        /**
+         * 默认调用超时时间
+         */
+        private Duration timeout = Duration.ofSeconds(3);
+    }
+
+    @Data
+    public static class BlockingDetector {
+        /**
+         * 是否开启事件循环阻塞检测，用于测试和预发环境
+         */
+        private boolean enabled = false;
+
+        /**
+         * 探测间隔，应明显小于阈值
+         */
+        private Duration probeInterval = Duration.ofMillis(10);
+
+        /**
+         * 事件循环延迟超过阈值时记为一次阻塞
+         */
+        private Duration threshold = Duration.ofMillis(50);
+
+        /**
+         * 记录的调用栈深度
+         */
+        private int stackDepth = 40;
+
+        /**
+         * 严格模式，存在阻塞记录时 /actuator/health 返回 DOWN，test-routes.sh 以非零状态退出
+         */
+        private boolean failOnBlocking = false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package com.saltyfish.contract.gateway.config;
+
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * LoadBalancer Configuration
+ * 为所有 lb:// 路由启用带主动探测过滤的实例列表
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = ProbeAwareLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
@@ -1,162 +1,408 @@
 package com.saltyfish.contract.gateway.config;
 
 import com.alibaba.nacos.api.config.ConfigService;
-import com.alibaba.nacos.api.config.listener.Listener;
+import com.alibaba.nacos.api.config.listener.AbstractListener;
 import com.alibaba.nacos.api.exception.NacosException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saltyfish.contract.gateway.exception.ConfigValidationException;
+import com.saltyfish.contract.gateway.service.AccessControlService;
+import com.saltyfish.contract.gateway.service.ConfigSnapshotService;
+import com.saltyfish.contract.gateway.service.NacosConfigService;
+import com.saltyfish.contract.gateway.service.UrlMappingService;
+import com.saltyfish.contract.gateway.util.CompiledAccessRules;
+import com.saltyfish.contract.gateway.util.CompiledUrlMappings;
+import com.saltyfish.contract.gateway.util.ConfigSnapshotCodec;
+import com.saltyfish.contract.gateway.util.NacosConfigParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
  * Nacos Config Listener
  * Nacos配置监听器，用于监听配置变更并动态更新
+ *
+ * 配置推送后解析、完整校验，再整体替换内存中的规则快照，不经过数据库和 Redis。
+ * 校验失败的配置被拒绝，继续使用上一个有效版本。日志只记录配置长度和摘要，不输出配置内容。
+ *
+ * 每个 dataId 只注册一个监听器，所有配置在同一个串行线程上处理，不占用 Nacos 通知线程。
+ * 同一配置在静默期内的连续推送只编译最后一个版本，内容未变化的推送直接跳过。
+ * 收到的配置同时写入 {@link NacosConfigService} 的本地缓存，供配置管理接口读取。
+ *
+ * 启动时先从 {@link ConfigSnapshotService} 恢复上一次有效的配置，再在后台连接 Nacos 并与数据库对齐，
+ * Nacos 或数据库不可用时不阻塞启动，也不会退回到空规则。没有快照时仍等待 Nacos 的初始配置生效。
+ * 快照中来自 Nacos 的配置在 Nacos 中已被删除时（初始读取为空），访问规则和URL映射改用数据库，快照中的路由被移除。
  */
 @Slf4j
 @Component
-@RefreshScope
 public class NacosConfigListener {
 
+    private static final long GET_CONFIG_TIMEOUT_MS = 5000;
+    private static final Duration ROUTE_APPLY_TIMEOUT = Duration.ofSeconds(10);
+
     @Autowired
     private ConfigService configService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private AccessControlService accessControlService;
+
+    @Autowired
+    private UrlMappingService urlMappingService;
+
+    @Autowired
+    private DynamicRouteConfig dynamicRouteConfig;
+
+    @Autowired
+    private NacosConfigService nacosConfigService;
+
+    @Autowired
+    private ConfigSnapshotService configSnapshotService;
+
+    @Autowired
+    private GatewayProperties gatewayProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Value("${spring.cloud.nacos.config.group:CONTRACT_REVIEW}")
     private String configGroup;
 
-    @Value("${spring.cloud.nacos.config.namespace:dev}")
-    private String namespace;
+    /**
+     * 配置处理线程，单线程保证同一时刻只有一个配置在编译
+     */
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gateway-config-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, ConfigPipeline> pipelines = new ConcurrentHashMap<>();
+
+    /**
+     * 读取 Nacos 初始配置并注册监听器的任务
+     */
+    private volatile Future<?> initialLoad;
+
+    /**
+     * 从快照恢复的各分段是否来自 Nacos，初始读取为空时据此撤销
+     */
+    private volatile boolean restoredNacosRules;
+    private volatile boolean restoredNacosMappings;
+    private volatile boolean restoredRoutes;
 
     /**
      * 初始化配置监听器
      */
     @PostConstruct
     public void initConfigListener() {
-        try {
+        boolean restored = restoreSnapshot();
+
+        initialLoad = reloadExecutor.submit(() -> {
             // 监听黑白名单配置
-            addAccessRuleConfigListener();
-            
+            addConfigListener(NacosConfigService.ACCESS_RULES_DATA_ID, this::handleAccessRuleConfigChange,
+                    this::handleAccessRuleConfigMissing);
+
             // 监听URL映射配置
-            addUrlMappingConfigListener();
-            
+            addConfigListener(NacosConfigService.URL_MAPPINGS_DATA_ID, this::handleUrlMappingConfigChange,
+                    this::handleUrlMappingConfigMissing);
+
             // 监听路由配置
-            addRouteConfigListener();
-            
+            addConfigListener(NacosConfigService.ROUTES_DATA_ID, this::handleRouteConfigChange,
+                    this::handleRouteConfigMissing);
+
             log.info("Nacos配置监听器初始化完成");
-        } catch (Exception e) {
-            log.error("初始化Nacos配置监听器失败", e);
+        });
+
+        if (restored) {
+            log.info("已从配置快照启动，Nacos配置在后台加载");
+            return;
+        }
+        try {
+            initialLoad.get();
+        } catch (ExecutionException e) {
+            log.error("初始化Nacos配置监听器失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("初始化Nacos配置监听器被中断");
         }
     }
 
     /**
-     * 添加访问规则配置监听器
+     * 等待 Nacos 初始配置生效
+     *
+     * @return 是否在超时前完成
      */
-    private void addAccessRuleConfigListener() throws NacosException {
-        String dataId = "contract-gateway-access-rules.yml";
-        
-        configService.addListener(dataId, configGroup, new Listener() {
-            @Override
-            public Executor getExecutor() {
-                return null;
-            }
+    public boolean awaitInitialConfig(Duration timeout) {
+        Future<?> load = initialLoad;
+        if (load == null) {
+            return false;
+        }
+        try {
+            load.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // 失败原因已在初始化时记录
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 
-            @Override
-            public void receiveConfigInfo(String configInfo) {
-                log.info("接收到访问规则配置更新: {}", configInfo);
-                // TODO: 实现访问规则配置的动态更新逻辑
-                handleAccessRuleConfigChange(configInfo);
-            }
-        });
-        
-        log.info("已添加访问规则配置监听器: {}", dataId);
+    @PreDestroy
+    public void destroy() {
+        pipelines.forEach((dataId, pipeline) -> configService.removeListener(dataId, configGroup, pipeline));
+        pipelines.clear();
+        reloadExecutor.shutdownNow();
     }
 
     /**
-     * 添加URL映射配置监听器
+     * 从配置快照恢复访问规则、URL映射和路由，来自数据库的部分在后台重新加载
+     *
+     * @return 是否读取到快照
      */
-    private void addUrlMappingConfigListener() throws NacosException {
-        String dataId = "contract-gateway-url-mappings.yml";
-        
-        configService.addListener(dataId, configGroup, new Listener() {
-            @Override
-            public Executor getExecutor() {
-                return null;
+    private boolean restoreSnapshot() {
+        ConfigSnapshotCodec.ConfigSnapshot snapshot = configSnapshotService.load();
+        if (snapshot == null) {
+            return false;
+        }
+        ConfigSnapshotCodec.AccessRulesSection rules = snapshot.accessRules();
+        if (rules != null && accessControlService.restoreRules(rules)) {
+            if (CompiledAccessRules.SOURCE_DATABASE.equals(rules.source())) {
+                accessControlService.initAccessRulesCache().subscribe();
+            } else {
+                restoredNacosRules = true;
             }
-
-            @Override
-            public void receiveConfigInfo(String configInfo) {
-                log.info("接收到URL映射配置更新: {}", configInfo);
-                // TODO: 实现URL映射配置的动态更新逻辑
-                handleUrlMappingConfigChange(configInfo);
+        }
+        ConfigSnapshotCodec.UrlMappingsSection mappings = snapshot.urlMappings();
+        if (mappings != null && urlMappingService.restoreMappings(mappings)) {
+            if (CompiledUrlMappings.SOURCE_DATABASE.equals(mappings.source())) {
+                urlMappingService.initUrlMappingsCache().subscribe();
+            } else {
+                restoredNacosMappings = true;
             }
-        });
-        
-        log.info("已添加URL映射配置监听器: {}", dataId);
+        }
+        if (snapshot.routes() != null) {
+            try {
+                dynamicRouteConfig.restoreRoutes(snapshot.routes()).block(ROUTE_APPLY_TIMEOUT);
+                restoredRoutes = true;
+            } catch (ConfigValidationException e) {
+                log.error("快照中的路由无效，等待Nacos配置: errors={}", e.getErrors());
+            } catch (Exception e) {
+                log.error("从快照恢复路由失败，等待Nacos配置", e);
+            }
+        }
+        return true;
     }
 
     /**
-     * 添加路由配置监听器
+     * 读取当前配置并添加监听器，当前配置立即生效（在配置处理线程上执行）
+     *
+     * @param missingHandler Nacos 中没有该配置时执行
      */
-    private void addRouteConfigListener() throws NacosException {
-        String dataId = "contract-gateway-routes.yml";
-        
-        configService.addListener(dataId, configGroup, new Listener() {
-            @Override
-            public Executor getExecutor() {
-                return null;
-            }
-
-            @Override
-            public void receiveConfigInfo(String configInfo) {
-                log.info("接收到路由配置更新: {}", configInfo);
-                // TODO: 实现路由配置的动态更新逻辑
-                handleRouteConfigChange(configInfo);
+    private void addConfigListener(String dataId, Consumer<String> handler, Runnable missingHandler) {
+        ConfigPipeline pipeline = new ConfigPipeline(dataId, handler);
+        if (pipelines.putIfAbsent(dataId, pipeline) != null) {
+            log.warn("配置监听器已存在，忽略重复注册: dataId={}", dataId);
+            return;
+        }
+        try {
+            String configInfo = configService.getConfigAndSignListener(dataId, configGroup, GET_CONFIG_TIMEOUT_MS,
+                    pipeline);
+            nacosConfigService.cacheConfig(dataId, configInfo);
+            if (configInfo != null && !configInfo.isBlank()) {
+                pipeline.apply(configInfo, 0);
+            } else {
+                log.info("Nacos中未找到配置，使用快照、数据库和本地配置: dataId={}", dataId);
+                missingHandler.run();
             }
-        });
-        
-        log.info("已添加路由配置监听器: {}", dataId);
+            log.info("已添加配置监听器: {}", dataId);
+        } catch (NacosException e) {
+            log.error("添加配置监听器失败: dataId={}", dataId, e);
+        }
     }
 
     /**
      * 处理访问规则配置变更
      */
     private void handleAccessRuleConfigChange(String configInfo) {
-        try {
-            // TODO: 解析配置并更新访问规则缓存
-            log.info("访问规则配置已更新");
-        } catch (Exception e) {
-            log.error("处理访问规则配置变更失败", e);
-        }
+        accessControlService.applyNacosRules(NacosConfigParser.parseAccessRules(configInfo));
     }
 
     /**
      * 处理URL映射配置变更
      */
     private void handleUrlMappingConfigChange(String configInfo) {
-        try {
-            // TODO: 解析配置并更新URL映射缓存
-            log.info("URL映射配置已更新");
-        } catch (Exception e) {
-            log.error("处理URL映射配置变更失败", e);
-        }
+        urlMappingService.applyNacosMappings(NacosConfigParser.parseUrlMappings(configInfo));
     }
 
     /**
-     * 处理路由配置变更
+     * 处理路由配置变更（在配置处理线程上执行，可以等待路由写入完成）
      */
     private void handleRouteConfigChange(String configInfo) {
+        dynamicRouteConfig.applyRoutes(NacosConfigParser.parseRoutes(configInfo)).block(ROUTE_APPLY_TIMEOUT);
+    }
+
+    /**
+     * Nacos 中没有访问规则配置：快照中的规则来自 Nacos 时改用数据库规则
+     */
+    private void handleAccessRuleConfigMissing() {
+        if (restoredNacosRules) {
+            restoredNacosRules = false;
+            log.warn("快照中的访问规则来自Nacos，但Nacos中已没有该配置，改用数据库规则");
+            accessControlService.demoteRestoredNacosRules().subscribe();
+        }
+    }
+
+    /**
+     * Nacos 中没有URL映射配置：快照中的映射来自 Nacos 时改用数据库映射
+     */
+    private void handleUrlMappingConfigMissing() {
+        if (restoredNacosMappings) {
+            restoredNacosMappings = false;
+            log.warn("快照中的URL映射来自Nacos，但Nacos中已没有该配置，改用数据库映射");
+            urlMappingService.demoteRestoredNacosMappings().subscribe();
+        }
+    }
+
+    /**
+     * Nacos 中没有路由配置：移除从快照恢复的路由
+     */
+    private void handleRouteConfigMissing() {
+        if (!restoredRoutes) {
+            return;
+        }
+        restoredRoutes = false;
+        log.warn("快照中的路由来自Nacos，但Nacos中已没有该配置，移除快照中的路由");
         try {
-            // TODO: 解析配置并动态更新路由规则
-            log.info("路由配置已更新");
+            dynamicRouteConfig.dropRestoredRoutes().block(ROUTE_APPLY_TIMEOUT);
         } catch (Exception e) {
-            log.error("处理路由配置变更失败", e);
+            log.error("移除快照中的路由失败", e);
+        }
+    }
+
+    /**
+     * 单个 dataId 的配置处理管道：防抖合并推送，串行编译
+     *
+     * 除构造参数外的字段只在配置处理线程上访问。
+     */
+    private final class ConfigPipeline extends AbstractListener {
+
+        private final String dataId;
+        private final Consumer<String> handler;
+        private final Counter skippedVersions;
+
+        private String pendingConfig;
+        private int pendingVersions;
+        private long firstPendingNanos;
+        private ScheduledFuture<?> scheduledFlush;
+        private String appliedMd5;
+
+        private ConfigPipeline(String dataId, Consumer<String> handler) {
+            this.dataId = dataId;
+            this.handler = handler;
+            this.skippedVersions = Counter.builder("gateway.config.reload.skipped")
+                    .description("防抖合并后未单独编译的配置版本数")
+                    .tag("dataId", dataId)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public Executor getExecutor() {
+            return reloadExecutor;
+        }
+
+        @Override
+        public void receiveConfigInfo(String configInfo) {
+            // 本地缓存保存 Nacos 中的最新内容，与是否通过校验无关
+            nacosConfigService.cacheConfig(dataId, configInfo);
+            long now = System.nanoTime();
+            if (pendingVersions++ == 0) {
+                firstPendingNanos = now;
+            }
+            pendingConfig = configInfo;
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+            }
+
+            GatewayProperties.ConfigReload properties = gatewayProperties.getConfigReload();
+            long remaining = properties.getMaxDelay().toNanos() - (now - firstPendingNanos);
+            long delay = Math.max(0, Math.min(properties.getQuietPeriod().toNanos(), remaining));
+            scheduledFlush = reloadExecutor.schedule(this::flush, delay, TimeUnit.NANOSECONDS);
+        }
+
+        private void flush() {
+            String configInfo = pendingConfig;
+            int skipped = pendingVersions - 1;
+            pendingConfig = null;
+            pendingVersions = 0;
+            scheduledFlush = null;
+            if (skipped > 0) {
+                skippedVersions.increment(skipped);
+            }
+            apply(configInfo, skipped);
+        }
+
+        /**
+         * 应用配置，失败时保留上一个有效版本
+         */
+        private void apply(String configInfo, int skipped) {
+            if (configInfo == null || configInfo.isBlank()) {
+                log.warn("配置已删除或为空，继续使用当前版本: dataId={}", dataId);
+                return;
+            }
+            String md5 = DigestUtils.md5DigestAsHex(configInfo.getBytes(StandardCharsets.UTF_8));
+            if (md5.equals(appliedMd5)) {
+                log.info("配置内容未变化，跳过重新编译: dataId={}, md5={}, 合并推送={}", dataId, md5, skipped);
+                record("unchanged", 0);
+                return;
+            }
+            log.info("接收到配置更新: dataId={}, length={}, md5={}, 合并推送={}", dataId, configInfo.length(), md5, skipped);
+            long start = System.nanoTime();
+            try {
+                handler.accept(configInfo);
+                appliedMd5 = md5;
+                long elapsed = System.nanoTime() - start;
+                record("applied", elapsed);
+                log.info("配置已生效: dataId={}, md5={}, 编译耗时{}ms", dataId, md5,
+                        TimeUnit.NANOSECONDS.toMillis(elapsed));
+            } catch (ConfigValidationException e) {
+                record("rejected", System.nanoTime() - start);
+                log.error("配置校验失败，继续使用上一个有效版本: dataId={}, md5={}, errors={}", dataId, md5, e.getErrors());
+            } catch (Exception e) {
+                record("failed", System.nanoTime() - start);
+                log.error("处理配置变更失败，继续使用上一个有效版本: dataId={}, md5={}", dataId, md5, e);
+            }
+        }
+
+        private void record(String result, long elapsedNanos) {
+            Timer.builder("gateway.config.reload")
+                    .description("配置重新编译耗时")
+                    .tag("dataId", dataId)
+                    .tag("result", result)
+                    .register(meterRegistry)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.saltyfish.contract.gateway.config;
+
+import com.saltyfish.contract.gateway.service.ActiveHealthProbeService;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Probe Aware LoadBalancer Configuration
+ * 负载均衡客户端配置：在服务发现和缓存之后过滤掉未通过主动探测的实例
+ *
+ * 注意：该类作为 LoadBalancer 子容器的配置使用，不能标注 @Configuration，避免被组件扫描到主容器中
+ */
+public class ProbeAwareLoadBalancerConfiguration {
+
+    @Bean
+    public ServiceInstanceListSupplier discoveryClientServiceInstanceListSupplier(ConfigurableApplicationContext context) {
+        return ServiceInstanceListSupplier.builder()
+                .withDiscoveryClient()
+                .withCaching()
+                .with((ctx, delegate) -> new ProbeFilteringServiceInstanceListSupplier(
+                        delegate, ctx.getBean(ActiveHealthProbeService.class)))
+                .build(context);
+    }
+}
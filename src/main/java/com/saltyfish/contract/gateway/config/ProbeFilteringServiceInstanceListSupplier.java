@@ -0,0 +1,46 @@
+package com.saltyfish.contract.gateway.config;
+
+import com.saltyfish.contract.gateway.service.ActiveHealthProbeService;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Probe Filtering Service Instance List Supplier
+ * 过滤掉未通过主动探测的服务实例
+ * 全部实例都未通过探测时保留原列表，与 DiscoveryService 的回退策略一致
+ */
+public class ProbeFilteringServiceInstanceListSupplier implements ServiceInstanceListSupplier {
+
+    private final ServiceInstanceListSupplier delegate;
+    private final ActiveHealthProbeService activeHealthProbeService;
+
+    public ProbeFilteringServiceInstanceListSupplier(ServiceInstanceListSupplier delegate,
+                                                     ActiveHealthProbeService activeHealthProbeService) {
+        this.delegate = delegate;
+        this.activeHealthProbeService = activeHealthProbeService;
+    }
+
+    @Override
+    public String getServiceId() {
+        return delegate.getServiceId();
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return delegate.get().map(this::filter);
+    }
+
+    private List<ServiceInstance> filter(List<ServiceInstance> instances) {
+        List<ServiceInstance> probed = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (activeHealthProbeService.isInstanceUp(instance.getHost(), instance.getPort())) {
+                probed.add(instance);
+            }
+        }
+        return probed.isEmpty() ? instances : probed;
+    }
+}
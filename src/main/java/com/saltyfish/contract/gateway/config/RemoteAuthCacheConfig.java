@@ -0,0 +1,51 @@
+package com.saltyfish.contract.gateway.config;
+
+import com.saltyfish.contract.gateway.filter.CachingRemoteAuthWebFilter;
+import com.saltyfish.contract.gateway.service.AuthDecisionCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.WebFilter;
+
+/**
+ * Remote Auth Cache Configuration
+ * 远程鉴权缓存配置，用 {@link CachingRemoteAuthWebFilter} 包装若依的 RemoteAuthWebFilter
+ *
+ * RemoteAuthWebFilter 由 ruoyi-feign 自动配置，按全限定类名解析其类型后做类型匹配，
+ * 不在编译期依赖其内部实现；类路径上没有该类时不注册后置处理器。
+ */
+@Slf4j
+@Configuration
+@ConditionalOnClass(name = RemoteAuthCacheConfig.REMOTE_AUTH_FILTER_CLASS)
+public class RemoteAuthCacheConfig {
+
+    static final String REMOTE_AUTH_FILTER_CLASS = "com.ruoyi.feign.filter.RemoteAuthWebFilter";
+
+    /**
+     * 后置处理器需要尽早创建，依赖通过 ObjectProvider 延迟获取
+     */
+    @Bean
+    public static BeanPostProcessor remoteAuthWebFilterCachingPostProcessor(
+            ObjectProvider<AuthDecisionCacheService> cacheService,
+            ObjectProvider<RequestMappingHandlerMapping> handlerMapping,
+            ObjectProvider<GatewayProperties> gatewayProperties) {
+        Class<?> remoteAuthFilterType = ClassUtils.resolveClassName(REMOTE_AUTH_FILTER_CLASS,
+                RemoteAuthCacheConfig.class.getClassLoader());
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof WebFilter webFilter && remoteAuthFilterType.isInstance(bean)) {
+                    log.info("已为远程鉴权过滤器启用结果缓存: {}", beanName);
+                    return new CachingRemoteAuthWebFilter(webFilter, cacheService::getObject,
+                            handlerMapping::getObject, gatewayProperties::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+}
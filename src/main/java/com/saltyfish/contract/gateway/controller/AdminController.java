@@ -2,7 +2,13 @@ package com.saltyfish.contract.gateway.controller;
 
 import com.ruoyi.common.annotation.Anonymous;
 import com.ruoyi.feign.annotation.RemotePreAuthorize;
+import com.saltyfish.contract.gateway.exception.ConfigValidationException;
 import com.saltyfish.contract.gateway.service.AccessControlService;
+import com.saltyfish.contract.gateway.service.AuthDecisionCacheService;
+import com.saltyfish.contract.gateway.service.AutoBanService;
+import com.saltyfish.contract.gateway.service.EventLoopBlockingDetector;
+import com.saltyfish.contract.gateway.service.HeavyHitterService;
+import com.saltyfish.contract.gateway.service.ShadowRuleService;
 import com.saltyfish.contract.gateway.service.UrlMappingService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,11 +19,16 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Admin Controller
  * 管理控制器，提供缓存管理和系统管理接口（响应式版本）
@@ -36,6 +47,21 @@ public class AdminController {
     @Autowired
     private RouteDefinitionLocator routeDefinitionLocator;
 
+    @Autowired
+    private HeavyHitterService heavyHitterService;
+
+    @Autowired
+    private AutoBanService autoBanService;
+
+    @Autowired
+    private AuthDecisionCacheService authDecisionCacheService;
+
+    @Autowired
+    private ShadowRuleService shadowRuleService;
+
+    @Autowired
+    private EventLoopBlockingDetector eventLoopBlockingDetector;
+
     /**
      * 刷新访问规则缓存
      */
@@ -92,6 +118,22 @@ public class AdminController {
                 });
     }
 
+    /**
+     * 清除远程鉴权缓存（登出、角色变更后调用）
+     *
+     * @param tokenHash 令牌的 SHA-256 摘要，为空时清除全部
+     */
+    @RemotePreAuthorize("@ss.hasRole('admin')")
+    @DeleteMapping("/cache/auth-decisions")
+    public ResponseEntity<String> clearAuthDecisionCache(@RequestParam(required = false) String tokenHash) {
+        if (tokenHash == null || tokenHash.isBlank()) {
+            authDecisionCacheService.invalidateAll();
+            return ResponseEntity.ok("鉴权缓存清除成功");
+        }
+        authDecisionCacheService.invalidate(tokenHash);
+        return ResponseEntity.ok("令牌鉴权缓存清除成功");
+    }
+
     /**
      * 健康检查
      */
@@ -155,4 +197,137 @@ public class AdminController {
                 "lastUpdated", System.currentTimeMillis()
         )));
     }
+
+    // ==================== 流量统计接口 ====================
+
+    /**
+     * 获取高频键统计
+     *
+     * @param dimension 维度：ip/route/path/denial
+     * @param window    窗口：current（当前窗口）/last（上一个完整窗口）
+     * @param limit     返回数量
+     * @param key       可选，估计指定键在窗口内的次数
+     */
+    @RemotePreAuthorize("@ss.hasRole('admin')")
+    @GetMapping("/heavy-hitters")
+    public ResponseEntity<Map<String, Object>> getHeavyHitters(@RequestParam(defaultValue = "ip") String dimension,
+                                                               @RequestParam(defaultValue = "current") String window,
+                                                               @RequestParam(defaultValue = "20") int limit,
+                                                               @RequestParam(required = false) String key) {
+        HeavyHitterService.Dimension target = HeavyHitterService.Dimension.of(dimension);
+        if (target == null) {
+            return ResponseEntity.badRequest().body(Map.of("code", 400, "message", "不支持的维度: " + dimension));
+        }
+        boolean current = !"last".equalsIgnoreCase(window);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("dimension", target.getValue());
+        data.put("windowStart", heavyHitterService.windowStart(current));
+        data.put("windowEnd", heavyHitterService.windowEnd(current));
+        data.put("top", heavyHitterService.top(target, current, Math.max(1, Math.min(limit, 1000))));
+        if (key != null) {
+            data.put("estimate", heavyHitterService.estimate(target, key, current));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 200);
+        result.put("message", "success");
+        result.put("data", data);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 获取自动封禁的IP列表，value为封禁到期时间（毫秒时间戳）
+     */
+    @RemotePreAuthorize("@ss.hasRole('admin')")
+    @GetMapping("/bans")
+    public ResponseEntity<Map<String, Long>> getBannedIps() {
+        return ResponseEntity.ok(autoBanService.getBannedIps());
+    }
+
+    /**
+     * 解除IP封禁
+     */
+    @RemotePreAuthorize("@ss.hasRole('admin')")
+    @DeleteMapping("/bans/{ip}")
+    public Mono<ResponseEntity<String>> unbanIp(@PathVariable String ip) {
+        return autoBanService.unban(ip)
+                .map(removed -> removed ? ResponseEntity.ok("已解除封禁: " + ip)
+                        : ResponseEntity.ok("IP未被封禁: " + ip));
+    }
+
+    // ==================== 影子规则接口 ====================
+
+    /**
+     * 加载候选访问规则（格式与 contract-gateway-access-rules.yml 相同），在采样流量上试运行
+     */
+    @RemotePreAuthorize("@ss.hasRole('admin')")
+    @PostMapping("/shadow/access-rules")
+    public ResponseEntity<Map<String, Object>> loadShadowRules(@RequestBody String config) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            int rules = shadowRuleService.loadCandidate(config).size();
+            result.put("code", 200);
+            result.put("message", "影子规则已加载，规则数量: " + rules);
+            return ResponseEntity.ok(result);
+        } catch (ConfigValidationException e) {
+            result.put("code", 400);
+            result.put("message", "影子规则校验失败");
+            result.put("errors", e.getErrors());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+
+    /**
+     * 获取影子规则与当前规则的分歧统计
+     *
+     * @param limit 返回的分歧条目数，按次数从高到低
+     */
+    @RemotePreAuthorize("@ss.hasRole('admin')")
+    @GetMapping("/shadow/access-rules")
+    public ResponseEntity<Map<String, Object>> getShadowRuleSummary(@RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> summary = shadowRuleService.summary(Math.max(1, Math.min(limit, 1000)));
+        if (summary == null) {
+            return ResponseEntity.status(404).body(Map.of("code", 404, "message", "未加载影子规则"));
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 200);
+        result.put("message", "success");
+        result.put("data", summary);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 卸载影子规则
+     */
+    @RemotePreAuthorize("@ss.hasRole('admin')")
+    @DeleteMapping("/shadow/access-rules")
+    public ResponseEntity<String> clearShadowRules() {
+        return ResponseEntity.ok(shadowRuleService.clearCandidate() ? "影子规则已卸载" : "未加载影子规则");
+    }
+
+    // ==================== 事件循环阻塞检测接口 ====================
+
+    /**
+     * 获取事件循环阻塞记录，按过滤器/控制器汇总，包含累计阻塞时间和最近一次的调用栈
+     */
+    @RemotePreAuthorize("@ss.hasRole('admin')")
+    @GetMapping("/event-loop/blocking")
+    public ResponseEntity<Map<String, Object>> getEventLoopBlocking() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 200);
+        result.put("message", "success");
+        result.put("data", eventLoopBlockingDetector.summary());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 清空事件循环阻塞记录
+     */
+    @RemotePreAuthorize("@ss.hasRole('admin')")
+    @DeleteMapping("/event-loop/blocking")
+    public ResponseEntity<String> clearEventLoopBlocking() {
+        eventLoopBlockingDetector.reset();
+        return ResponseEntity.ok("事件循环阻塞记录已清空");
+    }
 }
@@ -4,16 +4,22 @@ import com.ruoyi.feign.annotation.RemotePreAuthorize;
 import com.saltyfish.contract.gateway.service.NacosConfigService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
 
 /**
  * Config Controller
- * 配置管理控制器，提供配置的查询和更新接口
+ * 配置管理控制器，提供配置的查询和更新接口（响应式版本）
+ *
+ * 查询接口读取本地配置缓存，响应带 ETag（配置内容的MD5），If-None-Match 命中时返回 304。
  */
 @Slf4j
 @RestController
@@ -28,14 +34,9 @@ public class ConfigController {
      */
     @RemotePreAuthorize("@ss.hasRole('admin')")
     @GetMapping("/access-rules")
-    public ResponseEntity<String> getAccessRuleConfig() {
-        try {
-            String config = nacosConfigService.getAccessRuleConfig();
-            return ResponseEntity.ok(config);
-        } catch (Exception e) {
-            log.error("获取访问规则配置失败", e);
-            return ResponseEntity.internalServerError().body("获取配置失败: " + e.getMessage());
-        }
+    public Mono<ResponseEntity<String>> getAccessRuleConfig(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return toResponse(nacosConfigService.getAccessRuleConfig(), ifNoneMatch, "访问规则");
     }
 
     /**
@@ -43,18 +44,8 @@ public class ConfigController {
      */
     @RemotePreAuthorize("@ss.hasRole('admin')")
     @PostMapping("/access-rules")
-    public ResponseEntity<String> updateAccessRuleConfig(@RequestBody String config) {
-        try {
-            boolean success = nacosConfigService.publishAccessRuleConfig(config);
-            if (success) {
-                return ResponseEntity.ok("访问规则配置更新成功");
-            } else {
-                return ResponseEntity.internalServerError().body("访问规则配置更新失败");
-            }
-        } catch (Exception e) {
-            log.error("更新访问规则配置失败", e);
-            return ResponseEntity.internalServerError().body("更新配置失败: " + e.getMessage());
-        }
+    public Mono<ResponseEntity<String>> updateAccessRuleConfig(@RequestBody String config) {
+        return toPublishResponse(nacosConfigService.publishAccessRuleConfig(config), "访问规则");
     }
 
     /**
@@ -62,14 +53,9 @@ public class ConfigController {
      */
     @RemotePreAuthorize("@ss.hasRole('admin')")
     @GetMapping("/url-mappings")
-    public ResponseEntity<String> getUrlMappingConfig() {
-        try {
-            String config = nacosConfigService.getUrlMappingConfig();
-            return ResponseEntity.ok(config);
-        } catch (Exception e) {
-            log.error("获取URL映射配置失败", e);
-            return ResponseEntity.internalServerError().body("获取配置失败: " + e.getMessage());
-        }
+    public Mono<ResponseEntity<String>> getUrlMappingConfig(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return toResponse(nacosConfigService.getUrlMappingConfig(), ifNoneMatch, "URL映射");
     }
 
     /**
@@ -77,18 +63,8 @@ public class ConfigController {
      */
     @RemotePreAuthorize("@ss.hasRole('admin')")
     @PostMapping("/url-mappings")
-    public ResponseEntity<String> updateUrlMappingConfig(@RequestBody String config) {
-        try {
-            boolean success = nacosConfigService.publishUrlMappingConfig(config);
-            if (success) {
-                return ResponseEntity.ok("URL映射配置更新成功");
-            } else {
-                return ResponseEntity.internalServerError().body("URL映射配置更新失败");
-            }
-        } catch (Exception e) {
-            log.error("更新URL映射配置失败", e);
-            return ResponseEntity.internalServerError().body("更新配置失败: " + e.getMessage());
-        }
+    public Mono<ResponseEntity<String>> updateUrlMappingConfig(@RequestBody String config) {
+        return toPublishResponse(nacosConfigService.publishUrlMappingConfig(config), "URL映射");
     }
 
     /**
@@ -96,14 +72,9 @@ public class ConfigController {
      */
     @RemotePreAuthorize("@ss.hasRole('admin')")
     @GetMapping("/routes")
-    public ResponseEntity<String> getRouteConfig() {
-        try {
-            String config = nacosConfigService.getRouteConfig();
-            return ResponseEntity.ok(config);
-        } catch (Exception e) {
-            log.error("获取路由配置失败", e);
-            return ResponseEntity.internalServerError().body("获取配置失败: " + e.getMessage());
-        }
+    public Mono<ResponseEntity<String>> getRouteConfig(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return toResponse(nacosConfigService.getRouteConfig(), ifNoneMatch, "路由");
     }
 
     /**
@@ -111,17 +82,59 @@ public class ConfigController {
      */
     @RemotePreAuthorize("@ss.hasRole('admin')")
     @PostMapping("/routes")
-    public ResponseEntity<String> updateRouteConfig(@RequestBody String config) {
-        try {
-            boolean success = nacosConfigService.publishRouteConfig(config);
-            if (success) {
-                return ResponseEntity.ok("路由配置更新成功");
-            } else {
-                return ResponseEntity.internalServerError().body("路由配置更新失败");
+    public Mono<ResponseEntity<String>> updateRouteConfig(@RequestBody String config) {
+        return toPublishResponse(nacosConfigService.publishRouteConfig(config), "路由");
+    }
+
+    /**
+     * 生成查询响应：配置不存在返回 404，ETag 未变化返回 304
+     */
+    private Mono<ResponseEntity<String>> toResponse(Mono<NacosConfigService.ConfigContent> config,
+                                                    String ifNoneMatch, String name) {
+        return config
+                .map(content -> {
+                    if (content.content() == null) {
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(name + "配置不存在");
+                    }
+                    String etag = "\"" + content.md5() + "\"";
+                    if (etagMatches(ifNoneMatch, etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<String>build();
+                    }
+                    return ResponseEntity.ok().eTag(etag).body(content.content());
+                })
+                .onErrorResume(e -> {
+                    log.error("获取{}配置失败", name, e);
+                    return Mono.just(ResponseEntity.internalServerError().body("获取配置失败: " + e.getMessage()));
+                });
+    }
+
+    private Mono<ResponseEntity<String>> toPublishResponse(Mono<Boolean> result, String name) {
+        return result
+                .map(success -> success
+                        ? ResponseEntity.ok(name + "配置更新成功")
+                        : ResponseEntity.internalServerError().body(name + "配置更新失败"))
+                .onErrorResume(e -> {
+                    log.error("更新{}配置失败", name, e);
+                    return Mono.just(ResponseEntity.internalServerError().body("更新配置失败: " + e.getMessage()));
+                });
+    }
+
+    /**
+     * 判断 If-None-Match 是否包含当前 ETag，支持多个值、弱校验前缀和 "*"
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
             }
-        } catch (Exception e) {
-            log.error("更新路由配置失败", e);
-            return ResponseEntity.internalServerError().body("更新配置失败: " + e.getMessage());
         }
+        return false;
     }
-}
\ No newline at end of file
+}
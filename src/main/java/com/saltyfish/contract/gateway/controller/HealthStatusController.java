@@ -1,15 +1,30 @@
 package com.saltyfish.contract.gateway.controller;
 
 import com.ruoyi.common.annotation.Anonymous;
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.dto.HealthHistoryPointDto;
+import com.saltyfish.contract.gateway.dto.HealthTransitionDto;
 import com.saltyfish.contract.gateway.dto.ServiceHealthDto;
+import com.saltyfish.contract.gateway.service.HealthHistoryService;
 import com.saltyfish.contract.gateway.service.HealthStatusService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
@@ -30,32 +45,135 @@ import java.util.Map;
 public class HealthStatusController {
 
     private final HealthStatusService healthStatusService;
+    private final HealthHistoryService healthHistoryService;
+    private final GatewayProperties gatewayProperties;
 
     /**
      * 获取所有微服务的健康状态
      */
     @Anonymous
     @GetMapping("/services")
-    public ResponseEntity<Map<String, Object>> getAllServiceHealth() {
-        Map<String, Object> result = new HashMap<>();
+    public Mono<ResponseEntity<Map<String, Object>>> getAllServiceHealth() {
+        return healthStatusService.getAllServiceHealth()
+                .map(serviceList -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("code", 200);
+                    result.put("message", "");
+                    result.put("data", serviceList);
+                    result.put("updateTime", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+                    return ResponseEntity.ok(result);
+                })
+                .onErrorResume(e -> {
+                    log.error("获取所有服务健康状态失败", e);
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("code", 500);
+                    result.put("message", "获取服务健康状态失败: " + e.getMessage());
+                    result.put("data", Collections.emptyList());
+                    result.put("updateTime", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+                    return Mono.just(ResponseEntity.ok(result));
+                });
+    }
+
+    /**
+     * 以 SSE 推送微服务健康状态
+     * 连接建立后先发送一次完整快照（snapshot），之后只推送状态变更（delta），并定期发送心跳注释帧。
+     * 消费过慢导致缓冲区溢出的连接会被主动结束，客户端重连后重新获取快照。
+     */
+    @Anonymous
+    @GetMapping(value = "/services/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamServiceHealth() {
+        GatewayProperties.HealthStream streamProperties = gatewayProperties.getHealthStream();
+
+        return Flux.defer(() -> {
+            // 先订阅变更再取快照：取快照之后的变更都会作为 delta 推送，取快照期间到达的变更暂存在
+            // 本连接的有界缓冲区中，排在快照之后发出，不会出现快照过期且没有后续 delta 的情况
+            Sinks.Many<ServiceHealthDto> pending = Sinks.many().unicast()
+                    .onBackpressureBuffer(Queues.<ServiceHealthDto>get(streamProperties.getSubscriberBufferSize()).get());
+            Disposable upstream = healthStatusService.healthChanges().subscribe(serviceHealth -> {
+                if (pending.tryEmitNext(serviceHealth) == Sinks.EmitResult.FAIL_OVERFLOW) {
+                    log.warn("健康状态推送缓冲区溢出，断开慢速订阅者: {}", serviceHealth.getServiceName());
+                    pending.tryEmitError(Exceptions.failWithOverflow());
+                }
+            }, pending::tryEmitError, pending::tryEmitComplete);
+
+            ServerSentEvent<Object> snapshot = ServerSentEvent.<Object>builder()
+                    .event("snapshot")
+                    .data(healthStatusService.getHealthSnapshot())
+                    .build();
+
+            Flux<ServerSentEvent<Object>> deltas = pending.asFlux()
+                    .map(serviceHealth -> ServerSentEvent.<Object>builder()
+                            .event("delta")
+                            .data(serviceHealth)
+                            .build());
+
+            Flux<ServerSentEvent<Object>> heartbeats = Flux.interval(streamProperties.getHeartbeatInterval())
+                    .onBackpressureDrop()
+                    .map(tick -> ServerSentEvent.<Object>builder()
+                            .comment("heartbeat")
+                            .build());
+
+            return Flux.merge(deltas, heartbeats)
+                    .startWith(snapshot)
+                    .doFinally(signal -> upstream.dispose());
+        }).onErrorResume(Exceptions::isOverflow, e -> Flux.empty());
+    }
 
-        try {
-            List<ServiceHealthDto> serviceList = healthStatusService.getAllServiceHealth();
+    /**
+     * 查询服务健康历史
+     *
+     * @param serviceName 服务名称
+     * @param from        起始时间（毫秒时间戳），默认一小时前
+     * @param to          结束时间（毫秒时间戳），默认当前时间
+     * @param resolution  粒度：second/minute
+     */
+    @Anonymous
+    @GetMapping("/history/{serviceName}")
+    public ResponseEntity<Map<String, Object>> getServiceHealthHistory(@PathVariable String serviceName,
+                                                                       @RequestParam(required = false) Long from,
+                                                                       @RequestParam(required = false) Long to,
+                                                                       @RequestParam(defaultValue = "second") String resolution) {
+        if (!healthHistoryService.isMonitored(serviceName)) {
+            return ResponseEntity.ok(historyResult(404, "服务未被监控: " + serviceName, Collections.emptyList()));
+        }
+        long toMillis = to != null ? to : System.currentTimeMillis();
+        long fromMillis = from != null ? from : toMillis - Duration.ofHours(1).toMillis();
+        boolean minute = "minute".equalsIgnoreCase(resolution);
 
-            result.put("code", 200);
-            result.put("message", "");
-            result.put("data", serviceList);
-            result.put("updateTime", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        List<HealthHistoryPointDto> points = healthHistoryService.queryHistory(serviceName, fromMillis, toMillis, minute);
+        return ResponseEntity.ok(historyResult(200, "", points));
+    }
 
-        } catch (Exception e) {
-            log.error("获取所有服务健康状态失败", e);
-            result.put("code", 500);
-            result.put("message", "获取服务健康状态失败: " + e.getMessage());
-            result.put("data", Collections.emptyList());
-            result.put("updateTime", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+    /**
+     * 查询服务健康状态转换记录
+     *
+     * @param serviceName 服务名称
+     * @param from        起始时间（毫秒时间戳），默认24小时前
+     * @param to          结束时间（毫秒时间戳），默认当前时间
+     */
+    @Anonymous
+    @GetMapping("/history/{serviceName}/transitions")
+    public ResponseEntity<Map<String, Object>> getServiceHealthTransitions(@PathVariable String serviceName,
+                                                                           @RequestParam(required = false) Long from,
+                                                                           @RequestParam(required = false) Long to) {
+        if (!healthHistoryService.isMonitored(serviceName)) {
+            return ResponseEntity.ok(historyResult(404, "服务未被监控: " + serviceName, Collections.emptyList()));
         }
+        long toMillis = to != null ? to : System.currentTimeMillis();
+        long fromMillis = from != null ? from : toMillis - Duration.ofHours(24).toMillis();
 
-        return ResponseEntity.ok(result);
+        List<HealthTransitionDto> transitions = healthHistoryService.queryTransitions(serviceName, fromMillis, toMillis);
+        return ResponseEntity.ok(historyResult(200, "", transitions));
     }
 
+    /**
+     * 构建历史查询响应
+     */
+    private Map<String, Object> historyResult(int code, String message, List<?> data) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", code);
+        result.put("message", message);
+        result.put("data", data);
+        return result;
+    }
 }
\ No newline at end of file
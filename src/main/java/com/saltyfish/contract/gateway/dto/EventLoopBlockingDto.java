@@ -0,0 +1,53 @@
+package com.saltyfish.contract.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 事件循环阻塞DTO，按过滤器/控制器汇总
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventLoopBlockingDto {
+
+    /**
+     * 阻塞发生时所在的过滤器或控制器类名，调用栈中没有网关类时为 unknown
+     */
+    private String component;
+
+    /**
+     * 阻塞次数
+     */
+    private long count;
+
+    /**
+     * 累计阻塞时间（毫秒）
+     */
+    private long blockedMillis;
+
+    /**
+     * 单次最长阻塞时间（毫秒）
+     */
+    private long maxBlockedMillis;
+
+    /**
+     * 最近一次阻塞的时间戳
+     */
+    private long lastSeen;
+
+    /**
+     * 最近一次阻塞的事件循环线程
+     */
+    private String thread;
+
+    /**
+     * 最近一次阻塞时采样的调用栈
+     */
+    private List<String> stackTrace;
+}
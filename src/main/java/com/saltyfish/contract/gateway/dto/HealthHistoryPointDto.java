@@ -0,0 +1,37 @@
+package com.saltyfish.contract.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 服务健康历史采样点DTO
+ * 分钟粒度的采样点为该分钟内的降采样结果：健康实例数取最小值，实例总数取最大值，状态取最差值
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealthHistoryPointDto {
+
+    /**
+     * 采样时间（毫秒时间戳）
+     */
+    private long timestamp;
+
+    /**
+     * 健康实例数量
+     */
+    private int healthyCount;
+
+    /**
+     * 实例总数
+     */
+    private int totalInstance;
+
+    /**
+     * 服务状态
+     */
+    private String status;
+}
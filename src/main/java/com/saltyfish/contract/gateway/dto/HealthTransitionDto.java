@@ -0,0 +1,31 @@
+package com.saltyfish.contract.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 服务健康状态转换DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealthTransitionDto {
+
+    /**
+     * 转换发生时间（毫秒时间戳）
+     */
+    private long timestamp;
+
+    /**
+     * 转换前状态
+     */
+    private String fromStatus;
+
+    /**
+     * 转换后状态
+     */
+    private String toStatus;
+}
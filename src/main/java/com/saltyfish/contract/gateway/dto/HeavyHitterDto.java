@@ -0,0 +1,31 @@
+package com.saltyfish.contract.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 高频键DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeavyHitterDto {
+
+    /**
+     * 键（客户端IP、路由ID、路径模板或拒绝原因）
+     */
+    private String key;
+
+    /**
+     * 窗口内的计数（可能高估）
+     */
+    private long count;
+
+    /**
+     * 计数高估的上界
+     */
+    private long error;
+}
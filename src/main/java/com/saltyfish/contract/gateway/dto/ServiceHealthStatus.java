@@ -0,0 +1,51 @@
+package com.saltyfish.contract.gateway.dto;
+
+/**
+ * 服务健康状态枚举
+ * 序数按严重程度递增，历史记录中以序数存储
+ */
+public enum ServiceHealthStatus {
+
+    /**
+     * 全部实例健康
+     */
+    HEALTHY,
+
+    /**
+     * 大于等于一半实例健康
+     */
+    AVAILABLE,
+
+    /**
+     * 小于一半实例健康
+     */
+    DANGER,
+
+    /**
+     * 无实例健康
+     */
+    UNAVAILABLE;
+
+    private static final ServiceHealthStatus[] VALUES = values();
+
+    /**
+     * 根据状态名称解析，无法识别时视为不可用
+     */
+    public static ServiceHealthStatus of(String name) {
+        if (name != null) {
+            for (ServiceHealthStatus status : VALUES) {
+                if (status.name().equals(name)) {
+                    return status;
+                }
+            }
+        }
+        return UNAVAILABLE;
+    }
+
+    /**
+     * 根据序数获取状态
+     */
+    public static ServiceHealthStatus ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,41 @@
+package com.saltyfish.contract.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 影子规则分歧DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShadowDivergenceDto {
+
+    /**
+     * 变化方向：allow-to-deny（候选规则会拒绝当前放行的请求）/deny-to-allow
+     */
+    private String direction;
+
+    /**
+     * 当前规则中决定结果的规则名称
+     */
+    private String activeRule;
+
+    /**
+     * 候选规则中决定结果的规则名称
+     */
+    private String candidateRule;
+
+    /**
+     * 路由匹配的路径模板
+     */
+    private String pathTemplate;
+
+    /**
+     * 分歧次数
+     */
+    private long count;
+}
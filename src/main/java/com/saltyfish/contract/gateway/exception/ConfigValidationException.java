@@ -0,0 +1,26 @@
+package com.saltyfish.contract.gateway.exception;
+
+import java.util.List;
+
+/**
+ * Config Validation Exception
+ * 配置校验失败，包含全部校验错误，配置整体不生效
+ */
+public class ConfigValidationException extends RuntimeException {
+
+    private final List<String> errors;
+
+    public ConfigValidationException(String message, List<String> errors) {
+        super(message + ": " + String.join("; ", errors));
+        this.errors = List.copyOf(errors);
+    }
+
+    public ConfigValidationException(String message) {
+        super(message);
+        this.errors = List.of(message);
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -11,6 +11,7 @@ public enum GatewayErrorCode {
     IP_BLOCKED("GATEWAY_002", "IP地址被阻止"),
     USER_BLOCKED("GATEWAY_003", "用户被阻止"),
     API_BLOCKED("GATEWAY_004", "API被阻止"),
+    RATE_LIMITED("GATEWAY_429", "请求过于频繁"),
 
     // 认证相关错误
     TOKEN_INVALID("GATEWAY_101", "Token无效"),
@@ -1,6 +1,12 @@
 package com.saltyfish.contract.gateway.exception;
 
+import com.saltyfish.contract.gateway.filter.GatewayExchangeAttributes;
+import com.saltyfish.contract.gateway.service.DiagnosticLogService;
+import com.saltyfish.contract.gateway.util.DiagnosticLogSite;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler;
 import org.springframework.core.annotation.Order;
 import org.springframework.core.io.buffer.DataBuffer;
@@ -22,6 +28,16 @@ import java.nio.charset.StandardCharsets;
 @Order(-1)
 public class GlobalExceptionHandler implements ErrorWebExceptionHandler {
 
+    @Autowired
+    private DiagnosticLogService diagnosticLogService;
+
+    private DiagnosticLogSite errorLogSite;
+
+    @PostConstruct
+    public void initLogSite() {
+        errorLogSite = diagnosticLogService.site("gateway-error", log, Level.ERROR);
+    }
+
     @Override
     public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
         ServerHttpResponse response = exchange.getResponse();
@@ -52,8 +68,10 @@ public class GlobalExceptionHandler implements ErrorWebExceptionHandler {
                 errorCode, errorMessage, System.currentTimeMillis()
         );
 
-        log.error("网关异常处理: path={}, error={}", 
-                 exchange.getRequest().getURI().getPath(), ex.getMessage(), ex);
+        // 同类异常只保留前几次完整堆栈，其余限流输出并汇总
+        String path = exchange.getRequest().getURI().getPath();
+        diagnosticLogService.logException(errorLogSite, GatewayExchangeAttributes.clientIp(exchange), path, ex,
+                "网关异常处理: path={}, error={}", path, ex.getMessage());
 
         DataBuffer buffer = response.bufferFactory().wrap(errorResponse.getBytes(StandardCharsets.UTF_8));
         return response.writeWith(Mono.just(buffer));
@@ -1,7 +1,13 @@
 package com.saltyfish.contract.gateway.filter;
 
 import com.saltyfish.contract.gateway.service.AccessControlService;
+import com.saltyfish.contract.gateway.service.AutoBanService;
+import com.saltyfish.contract.gateway.service.DiagnosticLogService;
+import com.saltyfish.contract.gateway.service.ShadowRuleService;
+import com.saltyfish.contract.gateway.util.DiagnosticLogSite;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
@@ -17,7 +23,8 @@ import reactor.core.publisher.Mono;
  * Access Control Filter
  * 访问控制过滤器，实现基于IP、路径、方法的黑白名单控制（响应式版本）
  *
- * 职责：处理IP黑名单、IP白名单、路径访问限制等
+ * 职责：处理自动封禁、IP黑名单、IP白名单、用户黑名单、路径访问限制等
+ * 用户ID由 JwtAuthenticationFilter 在本过滤器之前解析
  */
 @Slf4j
 @Component
@@ -26,23 +33,62 @@ public class AccessControlFilter implements GlobalFilter, Ordered {
     @Autowired
     private AccessControlService accessControlService;
 
+    @Autowired
+    private DiagnosticLogService diagnosticLogService;
+
+    @Autowired
+    private AutoBanService autoBanService;
+
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+
+    @Autowired
+    private ShadowRuleService shadowRuleService;
+
+    private DiagnosticLogSite bannedLogSite;
+    private DiagnosticLogSite deniedLogSite;
+    private DiagnosticLogSite errorLogSite;
+
+    @PostConstruct
+    public void initLogSites() {
+        bannedLogSite = diagnosticLogService.site("auto-banned", log, Level.WARN);
+        deniedLogSite = diagnosticLogService.site("access-denied", log, Level.WARN);
+        errorLogSite = diagnosticLogService.site("access-check-error", log, Level.ERROR);
+    }
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestTiming.mark(exchange, RequestTiming.Mark.ACCESS_CONTROL_START);
         ServerHttpRequest request = exchange.getRequest();
         ServerHttpResponse response = exchange.getResponse();
 
         // 获取请求信息
         String path = request.getURI().getPath();
         String method = request.getMethod().name();
-        String clientIp = getClientIp(request);
+        String clientIp = clientIpResolver.resolve(exchange);
 
         log.debug("访问控制检查: path={}, method={}, clientIp={}", path, method, clientIp);
 
+        // 被自动封禁的IP在规则匹配之前直接拒绝
+        if (autoBanService.isBanned(clientIp)) {
+            RequestTiming.mark(exchange, RequestTiming.Mark.ACCESS_CONTROL_END);
+            exchange.getAttributes().put(GatewayExchangeAttributes.DENIAL_REASON_ATTR, "auto-ban");
+            diagnosticLogService.log(bannedLogSite, clientIp, path,
+                    "已封禁IP的请求被拒绝: path={}, method={}, clientIp={}", path, method, clientIp);
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return response.setComplete();
+        }
+
         // 检查访问权限（IP黑白名单、路径限制等）
-        return accessControlService.isAccessAllowed(path, method, clientIp, null)
+        String userId = GatewayExchangeAttributes.userId(exchange);
+        Mono<Void> result = accessControlService.isAccessAllowed(path, method, clientIp,
+                        GatewayExchangeAttributes.clientAddress(exchange), userId)
                 .flatMap(allowed -> {
+                    RequestTiming.mark(exchange, RequestTiming.Mark.ACCESS_CONTROL_END);
                     if (!allowed) {
-                        log.warn("访问被拒绝: path={}, method={}, clientIp={}", path, method, clientIp);
+                        exchange.getAttributes().put(GatewayExchangeAttributes.DENIAL_REASON_ATTR, "access-rule");
+                        diagnosticLogService.log(deniedLogSite, clientIp, path,
+                                "访问被拒绝: path={}, method={}, clientIp={}", path, method, clientIp);
                         response.setStatusCode(HttpStatus.FORBIDDEN);
                         return response.setComplete();
                     }
@@ -51,34 +97,25 @@ public class AccessControlFilter implements GlobalFilter, Ordered {
                     return chain.filter(exchange);
                 })
                 .onErrorResume(e -> {
-                    log.error("访问控制检查异常: path={}, method={}, clientIp={}", path, method, clientIp, e);
+                    RequestTiming.mark(exchange, RequestTiming.Mark.ACCESS_CONTROL_END);
+                    diagnosticLogService.logException(errorLogSite, clientIp, path, e,
+                            "访问控制检查异常: path={}, method={}, clientIp={}", path, method, clientIp);
                     // 访问控制异常时拒绝访问（fail-closed 安全策略）
+                    exchange.getAttributes().put(GatewayExchangeAttributes.DENIAL_REASON_ATTR, "access-check-error");
                     response.setStatusCode(HttpStatus.FORBIDDEN);
                     return response.setComplete();
                 });
-    }
-
-    /**
-     * 获取客户端IP地址
-     */
-    private String getClientIp(ServerHttpRequest request) {
-        String xForwardedFor = request.getHeaders().getFirst("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
 
-        String xRealIp = request.getHeaders().getFirst("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
+        // 被采样的请求在响应结束后用候选规则试运行，不影响本次结果；预热请求不参与
+        if (!GatewayExchangeAttributes.isWarmup(exchange) && shadowRuleService.sample()) {
+            return result.doFinally(signal -> shadowRuleService.evaluate(exchange, path, method, clientIp, userId));
         }
-
-        return request.getRemoteAddress() != null ?
-               request.getRemoteAddress().getAddress().getHostAddress() : "unknown";
+        return result;
     }
 
     @Override
     public int getOrder() {
-        // 设置较高优先级，最先执行访问控制检查
+        // 设置较高优先级，在监控过滤器之后最先执行访问控制检查
         return -100;
     }
 }
\ No newline at end of file
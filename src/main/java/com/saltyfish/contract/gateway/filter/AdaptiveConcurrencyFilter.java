@@ -0,0 +1,131 @@
+package com.saltyfish.contract.gateway.filter;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.exception.GatewayErrorCode;
+import com.saltyfish.contract.gateway.service.ConcurrencyLimitService;
+import com.saltyfish.contract.gateway.service.DiagnosticLogService;
+import com.saltyfish.contract.gateway.util.AdaptiveConcurrencyLimit;
+import com.saltyfish.contract.gateway.util.DiagnosticLogSite;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Adaptive Concurrency Filter
+ * 自适应并发限制过滤器，路由在途请求达到上限时按优先级拒绝请求（503）
+ *
+ * 请求结束时把耗时作为样本提交给路由的并发限制：
+ * - 正常完成：按延迟调整上限
+ * - 上游返回 502/503/504 或发生错误：视为过载信号，回退上限
+ * - 客户端取消：只释放名额
+ * 启动预热的合成请求不占用名额，也不作为样本，避免冷启动时的高延迟压低初始上限。
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyFilter implements GlobalFilter, Ordered {
+
+    @Autowired
+    private ConcurrencyLimitService concurrencyLimitService;
+
+    @Autowired
+    private GatewayProperties gatewayProperties;
+
+    @Autowired
+    private DiagnosticLogService diagnosticLogService;
+
+    private DiagnosticLogSite shedLogSite;
+
+    @PostConstruct
+    public void initLogSite() {
+        shedLogSite = diagnosticLogService.site("load-shed", log, Level.WARN);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!gatewayProperties.getAdaptiveConcurrency().isEnabled() || GatewayExchangeAttributes.isWarmup(exchange)) {
+            return chain.filter(exchange);
+        }
+
+        String routeId = GatewayExchangeAttributes.routeId(exchange);
+        ConcurrencyLimitService.RouteLimiter limiter = concurrencyLimitService.limiter(routeId);
+        ConcurrencyLimitService.Priority priority = concurrencyLimitService.classify(exchange);
+        AdaptiveConcurrencyLimit limit = limiter.getLimit();
+
+        int inflightAtStart = limit.tryAcquire(concurrencyLimitService.share(priority));
+        if (inflightAtStart < 0) {
+            limiter.recordShed(priority);
+            return shed(exchange, routeId, priority, limit.getLimit());
+        }
+
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> release(exchange, limit, signal, System.nanoTime() - start, inflightAtStart));
+    }
+
+    private void release(ServerWebExchange exchange, AdaptiveConcurrencyLimit limit, SignalType signal,
+                         long rttNanos, int inflightAtStart) {
+        if (signal == SignalType.CANCEL) {
+            limit.onIgnore();
+            return;
+        }
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        if (signal == SignalType.ON_ERROR || isOverloadStatus(status)) {
+            limit.onDropped();
+            return;
+        }
+        limit.onSuccess(rttNanos, inflightAtStart);
+    }
+
+    private static boolean isOverloadStatus(HttpStatusCode status) {
+        if (status == null) {
+            return false;
+        }
+        int code = status.value();
+        return code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * 返回 503 响应
+     */
+    private Mono<Void> shed(ServerWebExchange exchange, String routeId, ConcurrencyLimitService.Priority priority,
+                            int currentLimit) {
+        String path = exchange.getRequest().getURI().getPath();
+        exchange.getAttributes().put(GatewayExchangeAttributes.DENIAL_REASON_ATTR, "load-shed");
+        diagnosticLogService.log(shedLogSite, GatewayExchangeAttributes.clientIp(exchange), routeId,
+                "请求因并发上限被拒绝: route={}, priority={}, limit={}, path={}",
+                routeId, priority.getTag(), currentLimit, path);
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+
+        String body = String.format("{\"code\":\"%s\",\"message\":\"%s\",\"timestamp\":%d}",
+                GatewayErrorCode.SERVICE_UNAVAILABLE.getCode(), GatewayErrorCode.SERVICE_UNAVAILABLE.getMessage(),
+                System.currentTimeMillis());
+        DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    @Override
+    public int getOrder() {
+        // 在限流（-95）之后、URL映射（-80）之前执行，被限流的请求不占用并发名额
+        return -90;
+    }
+}
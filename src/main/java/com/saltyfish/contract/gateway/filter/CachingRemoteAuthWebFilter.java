@@ -0,0 +1,121 @@
+package com.saltyfish.contract.gateway.filter;
+
+import com.ruoyi.feign.annotation.RemotePreAuthorize;
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.service.AuthDecisionCacheService;
+import com.saltyfish.contract.gateway.util.TokenHashes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.OrderUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caching Remote Auth Web Filter
+ * 带结果缓存的远程鉴权过滤器，包装若依的 RemoteAuthWebFilter
+ *
+ * 只处理配置前缀下、标注了 @RemotePreAuthorize 且携带令牌的请求：
+ * 缓存命中时跳过远程鉴权直接进入后续过滤器；未命中时调用原过滤器，
+ * 原过滤器放行（调用过滤器链）即视为鉴权通过并写入缓存。
+ * 其他请求原样交给原过滤器处理。请求登出路径时使该令牌的缓存失效。
+ */
+@Slf4j
+public class CachingRemoteAuthWebFilter implements WebFilter, Ordered {
+
+    private static final String NO_EXPRESSION = "";
+
+    private final WebFilter delegate;
+    private final int order;
+    private final Supplier<AuthDecisionCacheService> cacheService;
+    private final Supplier<RequestMappingHandlerMapping> handlerMapping;
+    private final Supplier<GatewayProperties> gatewayProperties;
+
+    /**
+     * 处理方法上的权限表达式，无注解时为空串
+     */
+    private final Map<Method, String> expressions = new ConcurrentHashMap<>();
+
+    public CachingRemoteAuthWebFilter(WebFilter delegate, Supplier<AuthDecisionCacheService> cacheService,
+                                      Supplier<RequestMappingHandlerMapping> handlerMapping,
+                                      Supplier<GatewayProperties> gatewayProperties) {
+        this.delegate = delegate;
+        this.order = delegate instanceof Ordered ordered
+                ? ordered.getOrder()
+                : OrderUtils.getOrder(delegate.getClass(), Ordered.LOWEST_PRECEDENCE);
+        this.cacheService = cacheService;
+        this.handlerMapping = handlerMapping;
+        this.gatewayProperties = gatewayProperties;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        GatewayProperties.AuthCache properties = gatewayProperties.get().getAuthCache();
+        if (!properties.isEnabled()) {
+            return delegate.filter(exchange, chain);
+        }
+
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        String token = TokenHashes.bearerToken(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        if (token != null && properties.getLogoutPaths().contains(path)) {
+            cacheService.get().invalidate(TokenHashes.sha256(token));
+            return delegate.filter(exchange, chain);
+        }
+        if (token == null || !matchesPrefix(path, properties)) {
+            return delegate.filter(exchange, chain);
+        }
+
+        return handlerMapping.get().getHandler(exchange)
+                .map(this::expression)
+                .defaultIfEmpty(NO_EXPRESSION)
+                .onErrorReturn(NO_EXPRESSION)
+                .flatMap(expression -> {
+                    if (expression.isEmpty()) {
+                        return delegate.filter(exchange, chain);
+                    }
+                    return cacheService.get().authorize(TokenHashes.sha256(token), expression,
+                            Mono.defer(() -> chain.filter(exchange)),
+                            onAllowed -> delegate.filter(exchange, allowedExchange -> {
+                                onAllowed.run();
+                                return chain.filter(allowedExchange);
+                            }));
+                });
+    }
+
+    private static boolean matchesPrefix(String path, GatewayProperties.AuthCache properties) {
+        for (String prefix : properties.getPathPrefixes()) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String expression(Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return NO_EXPRESSION;
+        }
+        return expressions.computeIfAbsent(handlerMethod.getMethod(), method -> {
+            RemotePreAuthorize annotation = AnnotatedElementUtils.findMergedAnnotation(method, RemotePreAuthorize.class);
+            if (annotation == null) {
+                annotation = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), RemotePreAuthorize.class);
+            }
+            return annotation != null ? annotation.value() : NO_EXPRESSION;
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+}
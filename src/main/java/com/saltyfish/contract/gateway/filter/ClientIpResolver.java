@@ -0,0 +1,140 @@
+package com.saltyfish.contract.gateway.filter;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.util.CidrBlock;
+import com.saltyfish.contract.gateway.util.IpAddress;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client IP Resolver
+ * 客户端IP解析，每个请求只解析一次，结果保存在 exchange 属性中供各过滤器复用
+ *
+ * 只有直连地址属于可信代理时才读取转发头：从右向左遍历 X-Forwarded-For，
+ * 跳过可信代理，第一个不可信的地址即客户端地址；全部可信时取最左边的地址，遇到无法解析的条目时停止。
+ * 直连地址不可信时直接使用直连地址，客户端伪造的转发头不起作用。
+ */
+@Slf4j
+@Component
+public class ClientIpResolver {
+
+    private static final String UNKNOWN = "unknown";
+
+    @Autowired
+    private GatewayProperties gatewayProperties;
+
+    private volatile CompiledProxies compiledProxies = new CompiledProxies(null, new CidrBlock[0]);
+
+    /**
+     * 获取客户端地址，首次调用时解析并保存到 exchange 属性
+     *
+     * @return 客户端IP，无法确定时返回 "unknown"
+     */
+    public String resolve(ServerWebExchange exchange) {
+        String clientIp = exchange.getAttribute(GatewayExchangeAttributes.CLIENT_IP_ATTR);
+        if (clientIp != null) {
+            return clientIp;
+        }
+
+        IpAddress address = resolveAddress(exchange);
+        clientIp = address != null ? address.toString() : UNKNOWN;
+        if (address != null) {
+            exchange.getAttributes().put(GatewayExchangeAttributes.CLIENT_ADDRESS_ATTR, address);
+        }
+        exchange.getAttributes().put(GatewayExchangeAttributes.CLIENT_IP_ATTR, clientIp);
+        return clientIp;
+    }
+
+    private IpAddress resolveAddress(ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        if (remote == null || remote.getAddress() == null) {
+            return null;
+        }
+        IpAddress address = IpAddress.of(remote.getAddress());
+        CidrBlock[] trustedProxies = trustedProxies();
+        if (!isTrusted(address, trustedProxies)) {
+            return address;
+        }
+
+        GatewayProperties.ClientIp properties = gatewayProperties.getClientIp();
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        List<String> forwardedFor = headers.get(properties.getForwardedHeader());
+        if (forwardedFor != null && !forwardedFor.isEmpty()) {
+            return walkForwardedFor(forwardedFor, address, trustedProxies);
+        }
+        IpAddress realIp = IpAddress.parse(headers.getFirst(properties.getRealIpHeader()));
+        return realIp != null ? realIp : address;
+    }
+
+    /**
+     * 从右向左遍历转发链（多个同名请求头按出现顺序拼接）
+     */
+    private static IpAddress walkForwardedFor(List<String> values, IpAddress current, CidrBlock[] trustedProxies) {
+        for (int v = values.size() - 1; v >= 0; v--) {
+            String value = values.get(v);
+            int end = value.length();
+            while (end >= 0) {
+                int comma = value.lastIndexOf(',', end - 1);
+                IpAddress hop = IpAddress.parse(value, comma + 1, end);
+                if (hop == null) {
+                    // 无法解析的条目之前的内容不可信
+                    return current;
+                }
+                current = hop;
+                if (!isTrusted(hop, trustedProxies)) {
+                    return hop;
+                }
+                if (comma < 0) {
+                    break;
+                }
+                end = comma;
+            }
+        }
+        return current;
+    }
+
+    private static boolean isTrusted(IpAddress address, CidrBlock[] trustedProxies) {
+        for (CidrBlock block : trustedProxies) {
+            if (block.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取可信代理网段，配置刷新（列表被替换）后重新解析
+     */
+    private CidrBlock[] trustedProxies() {
+        List<String> source = gatewayProperties.getClientIp().getTrustedProxies();
+        CompiledProxies current = compiledProxies;
+        if (current.source == source) {
+            return current.blocks;
+        }
+        List<CidrBlock> blocks = new ArrayList<>(source.size());
+        for (String cidr : source) {
+            try {
+                blocks.add(CidrBlock.parse(cidr));
+            } catch (IllegalArgumentException e) {
+                log.warn("忽略无效的可信代理网段: {}", cidr);
+            }
+        }
+        current = new CompiledProxies(source, blocks.toArray(new CidrBlock[0]));
+        compiledProxies = current;
+        log.info("已加载可信代理网段: {}", source);
+        return current.blocks;
+    }
+
+    /**
+     * 已解析的可信代理网段及其配置来源
+     */
+    private record CompiledProxies(List<String> source, CidrBlock[] blocks) {
+    }
+}
@@ -0,0 +1,166 @@
+package com.saltyfish.contract.gateway.filter;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.exception.GatewayErrorCode;
+import com.saltyfish.contract.gateway.service.DiagnosticLogService;
+import com.saltyfish.contract.gateway.util.DiagnosticLogSite;
+import com.saltyfish.contract.gateway.util.FairQueueScheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fair Queue Filter
+ * 公平排队过滤器，对耗时较长的路由（合同审查、AI服务）按用户/租户公平分配上游并发
+ *
+ * 请求方身份依次取：已识别的用户ID、配置的身份请求头（如 X-Tenant-Id、X-User-Id）、客户端IP。
+ * 队列已满或排队超时的请求返回 429，调度算法见 {@link FairQueueScheduler}。
+ */
+@Slf4j
+@Component
+public class FairQueueFilter implements GlobalFilter, Ordered {
+
+    @Autowired
+    private GatewayProperties gatewayProperties;
+
+    @Autowired
+    private DiagnosticLogService diagnosticLogService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 各路由的调度器
+     */
+    private final Map<String, RouteQueue> queues = new ConcurrentHashMap<>();
+
+    private DiagnosticLogSite rejectedLogSite;
+
+    @PostConstruct
+    public void initLogSite() {
+        rejectedLogSite = diagnosticLogService.site("fair-queue-rejected", log, Level.WARN);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        GatewayProperties.FairQueue properties = gatewayProperties.getFairQueue();
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        String routeId = GatewayExchangeAttributes.routeId(exchange);
+        if (!properties.getRoutes().contains(routeId)) {
+            return chain.filter(exchange);
+        }
+
+        RouteQueue queue = queues.computeIfAbsent(routeId, this::createQueue);
+        String requester = requester(exchange, properties);
+        // 只处理排队阶段的异常，后续过滤器链的异常照常向外传播
+        return queue.scheduler().acquire(requester, properties.getQueueTimeout())
+                .onErrorResume(FairQueueScheduler.QueueFullException.class,
+                        e -> reject(exchange, queue, routeId, requester, "fair-queue-overflow").then(Mono.empty()))
+                .onErrorResume(TimeoutException.class,
+                        e -> reject(exchange, queue, routeId, requester, "fair-queue-timeout").then(Mono.empty()))
+                .flatMap(permit -> chain.filter(exchange).doFinally(signal -> permit.release()));
+    }
+
+    /**
+     * 识别请求方
+     */
+    private String requester(ServerWebExchange exchange, GatewayProperties.FairQueue properties) {
+        String userId = GatewayExchangeAttributes.userId(exchange);
+        if (userId != null) {
+            return userId;
+        }
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        for (String header : properties.getIdentityHeaders()) {
+            String value = headers.getFirst(header);
+            if (value != null && !value.isEmpty()) {
+                return value;
+            }
+        }
+        String clientIp = GatewayExchangeAttributes.clientIp(exchange);
+        return clientIp != null ? clientIp : GatewayExchangeAttributes.OVERFLOW;
+    }
+
+    private RouteQueue createQueue(String routeId) {
+        GatewayProperties.FairQueue properties = gatewayProperties.getFairQueue();
+        FairQueueScheduler scheduler = new FairQueueScheduler(properties.getMaxInflight(),
+                properties.getPerUserMaxInflight(), properties.getMaxQueueSize(), properties.getPerUserQueueSize(),
+                properties.getQuantum(), user -> gatewayProperties.getFairQueue().getWeights().getOrDefault(user, 1));
+
+        Gauge.builder("gateway.fairqueue.queued", scheduler, FairQueueScheduler::getQueued)
+                .description("排队等待的请求数")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        Gauge.builder("gateway.fairqueue.inflight", scheduler, FairQueueScheduler::getInflight)
+                .description("公平调度放行的在途请求数")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        Counter overflow = Counter.builder("gateway.fairqueue.rejected")
+                .description("排队失败的请求数")
+                .tag("route", routeId)
+                .tag("reason", "overflow")
+                .register(meterRegistry);
+        Counter timeout = Counter.builder("gateway.fairqueue.rejected")
+                .description("排队失败的请求数")
+                .tag("route", routeId)
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+        return new RouteQueue(scheduler, overflow, timeout);
+    }
+
+    /**
+     * 返回 429 响应
+     */
+    private Mono<Void> reject(ServerWebExchange exchange, RouteQueue queue, String routeId, String requester,
+                              String reason) {
+        (reason.endsWith("timeout") ? queue.timeoutCounter() : queue.overflowCounter()).increment();
+        exchange.getAttributes().put(GatewayExchangeAttributes.DENIAL_REASON_ATTR, reason);
+        diagnosticLogService.log(rejectedLogSite, requester, routeId,
+                "公平排队拒绝请求: route={}, requester={}, reason={}", routeId, requester, reason);
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, gatewayProperties.getFairQueue().getQueueTimeout().toSeconds())));
+
+        String body = String.format("{\"code\":\"%s\",\"message\":\"%s\",\"timestamp\":%d}",
+                GatewayErrorCode.RATE_LIMITED.getCode(), GatewayErrorCode.RATE_LIMITED.getMessage(),
+                System.currentTimeMillis());
+        DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    @Override
+    public int getOrder() {
+        // 在限流（-95）之后、自适应并发限制（-90）之前执行，排队时间不计入上游延迟样本
+        return -92;
+    }
+
+    /**
+     * 路由的调度器及其计数
+     */
+    private record RouteQueue(FairQueueScheduler scheduler, Counter overflowCounter, Counter timeoutCounter) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.saltyfish.contract.gateway.filter;
+
+import com.saltyfish.contract.gateway.service.WarmupService;
+import com.saltyfish.contract.gateway.util.IpAddress;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * Gateway Exchange Attributes
+ * 网关过滤器之间共享的 exchange 属性及读取方法
+ */
+public final class GatewayExchangeAttributes {
+
+    /**
+     * 无法归类的请求统一使用的标签值，用于限制指标和统计的基数
+     */
+    public static final String OVERFLOW = "overflow";
+
+    /**
+     * {@link ClientIpResolver} 解析出的客户端IP
+     */
+    public static final String CLIENT_IP_ATTR = GatewayExchangeAttributes.class.getName() + ".clientIp";
+
+    /**
+     * 客户端IP的数值形式（{@link IpAddress}）
+     */
+    public static final String CLIENT_ADDRESS_ATTR = GatewayExchangeAttributes.class.getName() + ".clientAddress";
+
+    /**
+     * 已识别的用户ID
+     */
+    public static final String USER_ID_ATTR = GatewayExchangeAttributes.class.getName() + ".userId";
+
+    /**
+     * 已识别用户的角色
+     */
+    public static final String USER_ROLES_ATTR = GatewayExchangeAttributes.class.getName() + ".userRoles";
+
+    /**
+     * 请求被网关拒绝的原因
+     */
+    public static final String DENIAL_REASON_ATTR = GatewayExchangeAttributes.class.getName() + ".denialReason";
+
+    private GatewayExchangeAttributes() {
+    }
+
+    /**
+     * 获取当前请求匹配的路由ID，未匹配路由时返回 {@link #OVERFLOW}
+     */
+    public static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : OVERFLOW;
+    }
+
+    /**
+     * 获取当前请求匹配的路径模板（如 /cm/**），而不是包含合同ID等变量的原始路径
+     * 只有当模板来自最终选中的路由时才使用，否则返回 {@link #OVERFLOW}
+     */
+    public static String pathTemplate(ServerWebExchange exchange) {
+        String template = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_PREDICATE_MATCHED_PATH_ATTR);
+        if (template == null) {
+            return OVERFLOW;
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String templateRouteId = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_PREDICATE_MATCHED_PATH_ROUTE_ID_ATTR);
+        if (route == null || !route.getId().equals(templateRouteId)) {
+            return OVERFLOW;
+        }
+        return template;
+    }
+
+    /**
+     * 获取解析出的客户端IP，请求尚未解析客户端地址时返回null
+     */
+    public static String clientIp(ServerWebExchange exchange) {
+        return exchange.getAttribute(CLIENT_IP_ATTR);
+    }
+
+    /**
+     * 获取客户端IP的数值形式，未解析或无法确定时返回null
+     */
+    public static IpAddress clientAddress(ServerWebExchange exchange) {
+        return exchange.getAttribute(CLIENT_ADDRESS_ATTR);
+    }
+
+    /**
+     * 获取请求被网关拒绝的原因，未被拒绝时返回null
+     */
+    public static String denialReason(ServerWebExchange exchange) {
+        return exchange.getAttribute(DENIAL_REASON_ATTR);
+    }
+
+    /**
+     * 获取已识别的用户ID，未识别时返回null
+     */
+    public static String userId(ServerWebExchange exchange) {
+        return exchange.getAttribute(USER_ID_ATTR);
+    }
+
+    /**
+     * 获取已识别用户的角色，未识别时返回空列表
+     */
+    public static List<String> userRoles(ServerWebExchange exchange) {
+        return exchange.getAttributeOrDefault(USER_ROLES_ATTR, List.of());
+    }
+
+    /**
+     * 是否为启动预热的合成请求：带预热请求头且直连地址是本机，外部请求携带该请求头无效
+     */
+    public static boolean isWarmup(ServerWebExchange exchange) {
+        if (!"true".equals(exchange.getRequest().getHeaders().getFirst(WarmupService.WARMUP_HEADER))) {
+            return false;
+        }
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        return remoteAddress != null && remoteAddress.getAddress() != null
+                && remoteAddress.getAddress().isLoopbackAddress();
+    }
+}
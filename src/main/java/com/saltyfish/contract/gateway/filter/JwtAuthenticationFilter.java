@@ -0,0 +1,61 @@
+package com.saltyfish.contract.gateway.filter;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.service.JwtIdentityService;
+import com.saltyfish.contract.gateway.util.TokenHashes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * JWT Authentication Filter
+ * 令牌解析过滤器，本地验签后把用户ID和角色写入 exchange 属性
+ *
+ * 供访问控制（按用户匹配规则）、限流、公平排队和访问日志使用。
+ * 网关不做统一认证：没有令牌或令牌无效的请求按匿名请求继续处理，由下游服务决定是否拒绝。
+ */
+@Slf4j
+@Component
+public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
+
+    @Autowired
+    private JwtIdentityService jwtIdentityService;
+
+    @Autowired
+    private GatewayProperties gatewayProperties;
+
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        GatewayProperties.Jwt properties = gatewayProperties.getJwt();
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        String token = TokenHashes.bearerToken(exchange.getRequest().getHeaders().getFirst(properties.getHeader()));
+        if (token == null) {
+            return chain.filter(exchange);
+        }
+
+        JwtIdentityService.Identity identity = jwtIdentityService.resolve(token, clientIpResolver.resolve(exchange));
+        if (identity != null) {
+            exchange.getAttributes().put(GatewayExchangeAttributes.USER_ID_ATTR, identity.userId());
+            exchange.getAttributes().put(GatewayExchangeAttributes.USER_ROLES_ATTR, identity.roles());
+            log.debug("已识别用户: userId={}, roles={}", identity.userId(), identity.roles());
+        }
+        return chain.filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        // 在访问控制（-100）之前执行，按用户匹配的访问规则才能生效
+        return -110;
+    }
+}
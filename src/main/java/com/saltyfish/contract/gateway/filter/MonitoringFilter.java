@@ -1,14 +1,15 @@
 package com.saltyfish.contract.gateway.filter;
 
-import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.service.AccessLogService;
+import com.saltyfish.contract.gateway.service.AutoBanService;
+import com.saltyfish.contract.gateway.service.GatewayMetricsService;
+import com.saltyfish.contract.gateway.service.HeavyHitterService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
-import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
@@ -17,84 +18,121 @@ import reactor.core.publisher.Mono;
 /**
  * Monitoring Filter
  * 监控过滤器，收集请求指标数据
+ *
+ * 在过滤器链最前面执行，创建 {@link RequestTiming} 供后续过滤器分阶段打点，
+ * 请求结束后记录总耗时和各阶段耗时，写入访问日志并更新高频键统计和自动封禁分数。
+ * 启动预热的合成请求不计入指标、访问日志和统计。
  */
 @Slf4j
 @Component
 public class MonitoringFilter implements GlobalFilter, Ordered {
 
+    private static final RequestTiming.Phase[] PHASES = RequestTiming.Phase.values();
+
+    @Autowired
+    private GatewayMetricsService gatewayMetricsService;
+
+    @Autowired
+    private GatewayProperties gatewayProperties;
+
+    @Autowired
+    private AccessLogService accessLogService;
+
+    @Autowired
+    private HeavyHitterService heavyHitterService;
+
     @Autowired
-    private MeterRegistry meterRegistry;
+    private AutoBanService autoBanService;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
-        long startTime = System.currentTimeMillis();
+        RequestTiming timing = new RequestTiming();
+        timing.mark(RequestTiming.Mark.START);
+        exchange.getAttributes().put(RequestTiming.ATTRIBUTE, timing);
 
+        // 响应头必须在提交前写入
+        exchange.getResponse().beforeCommit(() -> {
+            addTimingHeaders(exchange, timing);
+            return Mono.empty();
+        });
+
+        if (GatewayExchangeAttributes.isWarmup(exchange)) {
+            return chain.filter(exchange);
+        }
         return chain.filter(exchange)
-                .doOnSuccess(aVoid -> {
-                    addResponseTimeHeader(exchange, startTime);
-                    recordMetrics(request, exchange.getResponse(), startTime, null);
-                })
-                .doOnError(throwable -> {
-                    addResponseTimeHeader(exchange, startTime);
-                    recordMetrics(request, exchange.getResponse(), startTime, throwable);
-                });
+                .doOnSuccess(aVoid -> recordMetrics(exchange, timing, null))
+                .doOnError(throwable -> recordMetrics(exchange, timing, throwable));
     }
 
     /**
-     * 添加响应时间头
+     * 添加响应时间头，按配置附加 Server-Timing 头
+     * 响应提交时响应体尚未开始传输，因此 Server-Timing 不包含 streaming 阶段
      */
-    private void addResponseTimeHeader(ServerWebExchange exchange, long startTime) {
+    private void addTimingHeaders(ServerWebExchange exchange, RequestTiming timing) {
         try {
-            long responseTime = System.currentTimeMillis() - startTime;
+            long elapsedNanos = timing.elapsedNanos();
             ServerHttpResponse response = exchange.getResponse();
-            response.getHeaders().add("X-Response-Time", String.valueOf(responseTime));
+            response.getHeaders().add("X-Response-Time", String.valueOf(elapsedNanos / 1_000_000));
 
-            log.debug("已添加响应时间头: X-Response-Time={}ms", responseTime);
+            if (gatewayProperties.getMonitoring().isServerTimingEnabled()) {
+                StringBuilder serverTiming = new StringBuilder(128);
+                for (RequestTiming.Phase phase : PHASES) {
+                    long phaseNanos = timing.phaseNanos(phase);
+                    if (phaseNanos >= 0) {
+                        appendServerTiming(serverTiming, phase.getTag(), phaseNanos);
+                    }
+                }
+                appendServerTiming(serverTiming, "gateway", elapsedNanos);
+                response.getHeaders().add("Server-Timing", serverTiming.toString());
+            }
+
+            log.debug("已添加响应时间头: X-Response-Time={}ms", elapsedNanos / 1_000_000);
         } catch (Exception e) {
             log.error("添加响应时间头异常", e);
         }
     }
 
+    /**
+     * 追加一项 Server-Timing 指标，单位毫秒，保留三位小数
+     */
+    private void appendServerTiming(StringBuilder builder, String name, long nanos) {
+        if (builder.length() > 0) {
+            builder.append(", ");
+        }
+        long micros = nanos / 1_000;
+        builder.append(name).append(";dur=").append(micros / 1_000).append('.');
+        long fraction = micros % 1_000;
+        if (fraction < 100) {
+            builder.append('0');
+        }
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        builder.append(fraction);
+    }
+
     /**
      * 记录监控指标
+     * 路径使用路由匹配到的路径模板，避免原始路径中的合同ID等变量造成标签基数无限增长
      */
-    private void recordMetrics(ServerHttpRequest request, ServerHttpResponse response, long startTime, Throwable error) {
+    private void recordMetrics(ServerWebExchange exchange, RequestTiming timing, Throwable error) {
         try {
-            long duration = System.currentTimeMillis() - startTime;
-            String path = request.getURI().getPath();
-            String method = request.getMethod().name();
-            String statusCode = response.getStatusCode() != null ? 
-                              response.getStatusCode().toString() : "unknown";
-
-            // 记录请求计数
-            Counter.builder("gateway.requests.total")
-                    .tag("path", path)
-                    .tag("method", method)
-                    .tag("status", statusCode)
-                    .register(meterRegistry)
-                    .increment();
-
-            // 记录响应时间
-            Timer.builder("gateway.requests.duration")
-                    .tag("path", path)
-                    .tag("method", method)
-                    .tag("status", statusCode)
-                    .register(meterRegistry)
-                    .record(duration, java.util.concurrent.TimeUnit.MILLISECONDS);
-
-            // 记录错误计数
-            if (error != null) {
-                Counter.builder("gateway.requests.errors")
-                        .tag("path", path)
-                        .tag("method", method)
-                        .tag("error", error.getClass().getSimpleName())
-                        .register(meterRegistry)
-                        .increment();
-            }
+            timing.mark(RequestTiming.Mark.COMPLETE);
+            long durationNanos = timing.elapsedNanos(RequestTiming.Mark.COMPLETE);
+            ServerHttpResponse response = exchange.getResponse();
+            String routeId = GatewayExchangeAttributes.routeId(exchange);
+            String pathTemplate = GatewayExchangeAttributes.pathTemplate(exchange);
+            String method = exchange.getRequest().getMethod().name();
+            int statusCode = response.getStatusCode() != null ? response.getStatusCode().value() : 0;
+
+            gatewayMetricsService.recordRequest(routeId, pathTemplate, method, statusCode, durationNanos, error);
+            gatewayMetricsService.recordPhases(timing);
+            accessLogService.record(exchange, statusCode, durationNanos);
+            heavyHitterService.record(exchange);
+            autoBanService.recordResponse(GatewayExchangeAttributes.clientIp(exchange), statusCode);
 
-            log.debug("监控指标已记录: path={}, method={}, status={}, duration={}ms", 
-                     path, method, statusCode, duration);
+            log.debug("监控指标已记录: route={}, path={}, method={}, status={}, duration={}ns",
+                     routeId, pathTemplate, method, statusCode, durationNanos);
 
         } catch (Exception e) {
             log.error("记录监控指标异常", e);
@@ -103,7 +141,7 @@ public class MonitoringFilter implements GlobalFilter, Ordered {
 
     @Override
     public int getOrder() {
-        // 最后执行，记录完整的请求处理过程
-        return Ordered.LOWEST_PRECEDENCE;
+        // 最先执行，记录包括访问控制、URL映射、路由在内的完整请求处理过程
+        return -1000;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.saltyfish.contract.gateway.filter;
+
+import com.saltyfish.contract.gateway.exception.GatewayErrorCode;
+import com.saltyfish.contract.gateway.service.DiagnosticLogService;
+import com.saltyfish.contract.gateway.service.RateLimitService;
+import com.saltyfish.contract.gateway.util.DiagnosticLogSite;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate Limit Filter
+ * 限流过滤器，超过限流规则的请求返回 429 并携带 Retry-After 头
+ *
+ * 在访问控制之后执行，被拒绝或被封禁的请求不消耗限流许可；
+ * 规则和限流算法见 {@link RateLimitService}。
+ */
+@Slf4j
+@Component
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Autowired
+    private DiagnosticLogService diagnosticLogService;
+
+    private DiagnosticLogSite rateLimitedLogSite;
+
+    @PostConstruct
+    public void initLogSite() {
+        rateLimitedLogSite = diagnosticLogService.site("rate-limited", log, Level.WARN);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        return rateLimitService.acquire(exchange)
+                .flatMap(waitNanos -> {
+                    if (waitNanos == RateLimitService.PERMITTED) {
+                        return chain.filter(exchange);
+                    }
+                    return reject(exchange, waitNanos);
+                });
+    }
+
+    /**
+     * 返回 429 响应
+     */
+    private Mono<Void> reject(ServerWebExchange exchange, long waitNanos) {
+        String clientIp = GatewayExchangeAttributes.clientIp(exchange);
+        String path = exchange.getRequest().getURI().getPath();
+        exchange.getAttributes().put(GatewayExchangeAttributes.DENIAL_REASON_ATTR, "rate-limit");
+        diagnosticLogService.log(rateLimitedLogSite, clientIp, path,
+                "请求被限流: path={}, clientIp={}, retryAfter={}ms", path, clientIp,
+                TimeUnit.NANOSECONDS.toMillis(waitNanos));
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        // Retry-After 以秒为单位，向上取整
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+
+        String body = String.format("{\"code\":\"%s\",\"message\":\"%s\",\"timestamp\":%d}",
+                GatewayErrorCode.RATE_LIMITED.getCode(), GatewayErrorCode.RATE_LIMITED.getMessage(),
+                System.currentTimeMillis());
+        DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    @Override
+    public int getOrder() {
+        // 在访问控制（-100）之后、URL映射（-80）之前执行
+        return -95;
+    }
+}
@@ -0,0 +1,121 @@
+package com.saltyfish.contract.gateway.filter;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Request Timing
+ * 单个请求在过滤器链各阶段的纳秒级时间点
+ *
+ * 由 MonitoringFilter 创建并放入 exchange 属性，各过滤器在进入和离开自己的阶段时打点，
+ * 上游阶段由 UpstreamTimingFilter 和 HttpClient 回调打点。
+ * 同一请求的打点在响应式链上依次发生，不需要额外同步。
+ */
+public final class RequestTiming {
+
+    /**
+     * exchange 属性名
+     */
+    public static final String ATTRIBUTE = RequestTiming.class.getName();
+
+    /**
+     * 打点位置
+     */
+    public enum Mark {
+        START,
+        ACCESS_CONTROL_START,
+        ACCESS_CONTROL_END,
+        URL_MAPPING_START,
+        URL_MAPPING_END,
+        ROUTING_START,
+        ROUTING_END,
+        UPSTREAM_START,
+        UPSTREAM_REQUEST_SENT,
+        UPSTREAM_RESPONSE,
+        COMPLETE
+    }
+
+    /**
+     * 由两个打点计算的阶段
+     */
+    public enum Phase {
+        ACCESS_CONTROL("access", Mark.ACCESS_CONTROL_START, Mark.ACCESS_CONTROL_END),
+        URL_MAPPING("mapping", Mark.URL_MAPPING_START, Mark.URL_MAPPING_END),
+        ROUTING("routing", Mark.ROUTING_START, Mark.ROUTING_END),
+        UPSTREAM_CONNECT("connect", Mark.UPSTREAM_START, Mark.UPSTREAM_REQUEST_SENT),
+        UPSTREAM_FIRST_BYTE("ttfb", Mark.UPSTREAM_REQUEST_SENT, Mark.UPSTREAM_RESPONSE),
+        RESPONSE_STREAMING("streaming", Mark.UPSTREAM_RESPONSE, Mark.COMPLETE);
+
+        private final String tag;
+        private final Mark start;
+        private final Mark end;
+
+        Phase(String tag, Mark start, Mark end) {
+            this.tag = tag;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private static final int MARK_COUNT = Mark.values().length;
+
+    private final long[] marks = new long[MARK_COUNT];
+
+    /**
+     * 在当前时间打点，重复打点以最后一次为准
+     */
+    public void mark(Mark mark) {
+        marks[mark.ordinal()] = System.nanoTime();
+    }
+
+    /**
+     * 是否已打点
+     */
+    public boolean isMarked(Mark mark) {
+        return marks[mark.ordinal()] != 0;
+    }
+
+    /**
+     * 阶段耗时（纳秒），阶段未完整经过时返回-1
+     */
+    public long phaseNanos(Phase phase) {
+        long start = marks[phase.start.ordinal()];
+        long end = marks[phase.end.ordinal()];
+        if (start == 0 || end == 0 || end < start) {
+            return -1;
+        }
+        return end - start;
+    }
+
+    /**
+     * 从请求开始到指定打点的耗时（纳秒），未打点时返回-1
+     */
+    public long elapsedNanos(Mark mark) {
+        long start = marks[Mark.START.ordinal()];
+        long end = marks[mark.ordinal()];
+        if (start == 0 || end == 0) {
+            return -1;
+        }
+        return end - start;
+    }
+
+    /**
+     * 从请求开始到现在的耗时（纳秒）
+     */
+    public long elapsedNanos() {
+        return System.nanoTime() - marks[Mark.START.ordinal()];
+    }
+
+    /**
+     * 对 exchange 上的计时对象打点，不存在时忽略
+     */
+    public static void mark(ServerWebExchange exchange, Mark mark) {
+        RequestTiming timing = exchange.getAttribute(ATTRIBUTE);
+        if (timing != null) {
+            timing.mark(mark);
+        }
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.util.Optional;
 
 /**
  * Route Filter
@@ -36,6 +37,7 @@ public class RouteFilter implements GlobalFilter, Ordered {
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestTiming.mark(exchange, RequestTiming.Mark.ROUTING_START);
         ServerHttpRequest request = exchange.getRequest();
         ServerHttpResponse response = exchange.getResponse();
         String path = request.getURI().getPath();
@@ -48,6 +50,7 @@ public class RouteFilter implements GlobalFilter, Ordered {
             log.debug("请求已被Gateway自动路由: {} -> {}", path, route.getUri());
             // TODO: 与访问控制过滤器集成，验证路由后的服务权限
             // TODO: 与监控过滤器集成，记录路由转发统计
+            RequestTiming.mark(exchange, RequestTiming.Mark.ROUTING_END);
             return chain.filter(exchange);
         }
 
@@ -56,46 +59,60 @@ public class RouteFilter implements GlobalFilter, Ordered {
         if (targetService == null || targetService.isEmpty()) {
             log.debug("未指定目标服务，使用Gateway默认路由: {}", path);
             // TODO: 与URL映射过滤器集成，检查是否需要路径转换
+            RequestTiming.mark(exchange, RequestTiming.Mark.ROUTING_END);
             return chain.filter(exchange);
         }
 
-        try {
-            // 手动路由逻辑（用于特殊场景）
-            Instance instance = discoveryService.selectOneHealthyInstance(targetService);
-            if (instance == null) {
-                log.warn("未找到健康的服务实例: {}", targetService);
-                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
-                return response.setComplete();
-            }
+        // 手动路由逻辑（用于特殊场景），实例查询在阻塞调用线程上执行
+        return discoveryService.selectOneHealthyInstance(targetService)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(instance -> {
+                    RequestTiming.mark(exchange, RequestTiming.Mark.ROUTING_END);
+                    if (instance.isEmpty()) {
+                        log.warn("未找到健康的服务实例: {}", targetService);
+                        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                        return response.setComplete();
+                    }
 
-            // 构建目标URI
-            String targetUrl = discoveryService.getInstanceUrl(instance);
-            URI targetUri = URI.create(targetUrl + request.getURI().getPath());
+                    ServerHttpRequest modifiedRequest;
+                    try {
+                        modifiedRequest = buildManualRouteRequest(request, instance.get());
+                    } catch (Exception e) {
+                        log.error("路由处理异常: targetService={}, path={}", targetService, path, e);
+                        response.setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+                        return response.setComplete();
+                    }
 
-            // 修改请求URI
-            ServerHttpRequest modifiedRequest = request.mutate()
-                    .uri(targetUri)
-                    .header("X-Forwarded-Host", request.getHeaders().getFirst("Host"))
-                    .header("X-Forwarded-Proto", request.getURI().getScheme())
-                    .header("X-Forwarded-Port", String.valueOf(request.getURI().getPort()))
-                    .header("X-Gateway-Route-Method", "manual")
-                    .build();
+                    log.debug("手动路由到服务实例: {} -> {}:{}{}", targetService,
+                            instance.get().getIp(), instance.get().getPort(), request.getURI().getPath());
 
-            log.info("手动路由到服务实例: {} -> {}:{}{}", targetService, instance.getIp(), instance.getPort(), request.getURI().getPath());
+                    // TODO: 与用户信息过滤器集成，传递用户上下文到目标服务
+                    return chain.filter(exchange.mutate().request(modifiedRequest).build());
+                });
+    }
 
-            // TODO: 与用户信息过滤器集成，传递用户上下文到目标服务
-            return chain.filter(exchange.mutate().request(modifiedRequest).build());
+    /**
+     * 构建指向选中实例的请求
+     */
+    private ServerHttpRequest buildManualRouteRequest(ServerHttpRequest request, Instance instance) {
+        // 构建目标URI
+        String targetUrl = discoveryService.getInstanceUrl(instance);
+        URI targetUri = URI.create(targetUrl + request.getURI().getPath());
 
-        } catch (Exception e) {
-            log.error("路由处理异常: targetService={}, path={}", targetService, path, e);
-            response.setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
-            return response.setComplete();
-        }
+        // 修改请求URI
+        return request.mutate()
+                .uri(targetUri)
+                .header("X-Forwarded-Host", request.getHeaders().getFirst("Host"))
+                .header("X-Forwarded-Proto", request.getURI().getScheme())
+                .header("X-Forwarded-Port", String.valueOf(request.getURI().getPort()))
+                .header("X-Gateway-Route-Method", "manual")
+                .build();
     }
 
     @Override
     public int getOrder() {
-        // 在URL映射过滤器之后执行，在监控过滤器之前执行
+        // 在URL映射过滤器之后执行
         return -70;
     }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.saltyfish.contract.gateway.filter;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Upstream Timing Filter
+ * 上游调用计时过滤器，紧挨在 NettyRoutingFilter 之前执行
+ *
+ * - 进入时记录上游阶段开始
+ * - 将计时对象写入 Reactor Context，由 HttpClient 的 doOnRequest 回调记录连接就绪、请求发出的时间点
+ * - NettyRoutingFilter 在收到上游响应头后完成，此时记录首字节时间
+ */
+@Component
+public class UpstreamTimingFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestTiming timing = exchange.getAttribute(RequestTiming.ATTRIBUTE);
+        if (timing == null) {
+            return chain.filter(exchange);
+        }
+
+        timing.mark(RequestTiming.Mark.UPSTREAM_START);
+        return chain.filter(exchange)
+                .doOnSuccess(v -> timing.mark(RequestTiming.Mark.UPSTREAM_RESPONSE))
+                .contextWrite(context -> context.put(RequestTiming.class, timing));
+    }
+
+    @Override
+    public int getOrder() {
+        // 在 WebsocketRoutingFilter（LOWEST_PRECEDENCE - 1）和 NettyRoutingFilter（LOWEST_PRECEDENCE）之前执行
+        return Ordered.LOWEST_PRECEDENCE - 2;
+    }
+}
@@ -31,6 +31,7 @@ public class UrlMappingFilter implements GlobalFilter, Ordered {
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestTiming.mark(exchange, RequestTiming.Mark.URL_MAPPING_START);
         ServerHttpRequest request = exchange.getRequest();
         String originalPath = request.getURI().getPath();
 
@@ -40,6 +41,7 @@ public class UrlMappingFilter implements GlobalFilter, Ordered {
                     String newPath = urlMappingService.rewritePath(originalPath, mapping);
                     if (newPath.equals(originalPath)) {
                         log.debug("路径未发生变化: {}", originalPath);
+                        RequestTiming.mark(exchange, RequestTiming.Mark.URL_MAPPING_END);
                         return chain.filter(exchange);
                     }
 
@@ -51,21 +53,24 @@ public class UrlMappingFilter implements GlobalFilter, Ordered {
                             .header("X-Target-Service", mapping.getTargetService())
                             .build();
 
-                    log.info("URL映射完成: {} -> {}, 目标服务: {}", originalPath, newPath, mapping.getTargetService());
+                    log.debug("URL映射完成: {} -> {}, 目标服务: {}", originalPath, newPath, mapping.getTargetService());
 
                     // TODO: 与路由过滤器集成，确保映射后的路径能正确匹配路由规则
                     // TODO: 与访问控制过滤器集成，验证映射后路径的访问权限
                     // TODO: 与监控过滤器集成，记录URL映射统计信息
                     // TODO: 支持基于路由规则的动态URL映射，减少数据库查询
 
+                    RequestTiming.mark(exchange, RequestTiming.Mark.URL_MAPPING_END);
                     return chain.filter(exchange.mutate().request(modifiedRequest).build());
                 })
                 .switchIfEmpty(Mono.defer(() -> {
                     log.debug("未找到URL映射，使用原始路径: {}", originalPath);
+                    RequestTiming.mark(exchange, RequestTiming.Mark.URL_MAPPING_END);
                     return chain.filter(exchange);
                 }))
                 .onErrorResume(e -> {
                     log.error("URL映射处理异常: originalPath={}", originalPath, e);
+                    RequestTiming.mark(exchange, RequestTiming.Mark.URL_MAPPING_END);
                     return chain.filter(exchange);
                 });
     }
@@ -2,19 +2,34 @@ package com.saltyfish.contract.gateway.service;
 
 import com.saltyfish.contract.gateway.entity.AccessRule;
 import com.saltyfish.contract.gateway.repository.AccessRuleRepository;
+import com.saltyfish.contract.gateway.exception.ConfigValidationException;
+import com.saltyfish.contract.gateway.util.CompiledAccessRules;
+import com.saltyfish.contract.gateway.util.ConfigSnapshotCodec;
+import com.saltyfish.contract.gateway.util.IpAddress;
+import com.saltyfish.contract.gateway.util.NacosConfigParser;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Access Control Service
  * 访问控制服务，提供黑白名单检查功能（响应式版本）
+ *
+ * 规则编译为不可变快照后在内存中匹配，只有快照尚未加载时才读取 Redis/数据库。
+ * 编译成功的 Nacos 规则和数据库规则写入 {@link ConfigSnapshotService}，重启时先从快照恢复。
+ * 数据库规则按缓存有效期定期重新读取；读取失败时保留当前快照，尚未加载时请求按拒绝处理并在下次请求重试。
  */
 @Slf4j
 @Service
@@ -26,10 +41,40 @@ public class AccessControlService {
     @Autowired
     private ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
 
+    @Autowired
+    private ConfigSnapshotService configSnapshotService;
+
     private static final String CACHE_KEY_PREFIX = "gateway:access:rules:";
     private static final String CACHE_KEY_ALL_RULES = CACHE_KEY_PREFIX + "all";
     private static final Duration CACHE_EXPIRE = Duration.ofSeconds(300); // 5分钟缓存
 
+    /**
+     * 当前生效的规则快照，请求时直接使用；Nacos 推送的规则优先于数据库规则
+     */
+    private final AtomicReference<CompiledAccessRules> compiledRules = new AtomicReference<>();
+
+    private final AtomicLong versions = new AtomicLong();
+
+    private Disposable reloadSchedule;
+
+    /**
+     * 启动数据库规则的定期重新加载，替代原先 Redis 缓存过期后的重新读取
+     */
+    @PostConstruct
+    public void startReload() {
+        reloadSchedule = Flux.interval(CACHE_EXPIRE, CACHE_EXPIRE)
+                .onBackpressureDrop()
+                .concatMap(tick -> reloadDatabaseRules(), 1)
+                .subscribe(null, e -> log.error("访问规则定期加载调度异常", e));
+    }
+
+    @PreDestroy
+    public void stopReload() {
+        if (reloadSchedule != null) {
+            reloadSchedule.dispose();
+        }
+    }
+
     /**
      * 初始化访问规则缓存
      */
@@ -48,13 +93,19 @@ public class AccessControlService {
      *
      * @param path     请求路径
      * @param method   HTTP方法
-     * @param clientIp 客户端IP
-     * @param userId   用户ID（可选）
+     * @param clientIp      客户端IP
+     * @param clientAddress 客户端IP的数值形式，用于网段匹配（可选）
+     * @param userId        用户ID（可选）
      * @return 是否允许访问
      */
-    public Mono<Boolean> isAccessAllowed(String path, String method, String clientIp, String userId) {
-        return getCachedAccessRules()
-                .map(rules -> checkAccessRules(rules, path, method, clientIp, userId))
+    public Mono<Boolean> isAccessAllowed(String path, String method, String clientIp, IpAddress clientAddress,
+                                         String userId) {
+        CompiledAccessRules rules = compiledRules.get();
+        Mono<CompiledAccessRules> snapshot = rules != null
+                ? Mono.just(rules)
+                : getCachedAccessRules().map(list -> installDatabaseRules(list, false));
+        return snapshot
+                .map(current -> current.isAllowed(path, method, clientIp, clientAddress, userId))
                 .onErrorResume(e -> {
                     log.error("检查访问权限异常: path={}, method={}, clientIp={}", path, method, clientIp, e);
                     // 异常情况下拒绝访问（fail-closed安全策略）
@@ -63,163 +114,104 @@ public class AccessControlService {
     }
 
     /**
-     * 检查访问规则
-     */
-    private boolean checkAccessRules(List<AccessRule> rules, String path, String method, String clientIp, String userId) {
-        // 按优先级检查规则
-        for (AccessRule rule : rules) {
-            if (!rule.getEnabled()) {
-                continue;
-            }
-
-            boolean matched = matchRule(rule, path, method, clientIp, userId);
-            if (matched) {
-                if ("blacklist".equals(rule.getRuleType())) {
-                    log.debug("命中黑名单规则: {}, path={}", rule.getRuleName(), path);
-                    return false;
-                } else if ("whitelist".equals(rule.getRuleType())) {
-                    log.debug("命中白名单规则: {}, path={}", rule.getRuleName(), path);
-                    return true;
-                }
-            }
-        }
-
-        // 如果没有匹配到任何规则，检查是否存在白名单规则
-        boolean hasWhitelistRules = rules.stream()
-                .anyMatch(rule -> rule.getEnabled() && "whitelist".equals(rule.getRuleType()));
-
-        if (hasWhitelistRules) {
-            // 存在白名单规则但未匹配，拒绝访问
-            log.debug("存在白名单规则但未匹配，拒绝访问: path={}", path);
-            return false;
-        }
-
-        // 默认允许访问
-        return true;
-    }
-
-    /**
-     * 匹配访问规则
+     * 应用 Nacos 推送的访问规则，校验通过后整体替换当前快照
+     *
+     * @return 新的规则快照
+     * @throws ConfigValidationException 规则无效，当前快照保持不变
      */
-    private boolean matchRule(AccessRule rule, String path, String method, String clientIp, String userId) {
-        String matchType = rule.getMatchType();
-        String matchPattern = rule.getMatchPattern();
-        String matchValue = rule.getMatchValue();
-
-        switch (matchType) {
-            case "path":
-                return matchPath(path, matchPattern, matchValue);
-            case "method":
-                return matchMethod(method, matchPattern, matchValue);
-            case "ip":
-                return matchIp(clientIp, matchPattern, matchValue);
-            case "user":
-                return matchUser(userId, matchPattern, matchValue);
-            default:
-                log.warn("未知的匹配类型: {}", matchType);
-                return false;
-        }
+    public CompiledAccessRules applyNacosRules(NacosConfigParser.AccessRulesConfig config) {
+        CompiledAccessRules rules = CompiledAccessRules.compile(config.rules(), config.defaultPolicy(),
+                CompiledAccessRules.SOURCE_NACOS, versions.incrementAndGet(), true, null);
+        compiledRules.set(rules);
+        configSnapshotService.saveAccessRules(rules.getSource(), rules.getVersion(), config.defaultPolicy(),
+                config.rules());
+        log.info("访问规则已切换: version={}, source={}, 规则数量={}", rules.getVersion(), rules.getSource(), rules.size());
+        return rules;
     }
 
     /**
-     * 匹配路径
-     */
-    private boolean matchPath(String path, String pattern, String value) {
-        if (path == null || value == null) {
-            return false;
-        }
-
-        switch (pattern) {
-            case "exact":
-                return path.equals(value);
-            case "prefix":
-                return path.startsWith(value);
-            case "suffix":
-                return path.endsWith(value);
-            case "wildcard":
-                return matchWildcard(path, value);
-            case "regex":
-                return matchRegex(path, value);
-            default:
-                return false;
-        }
-    }
-
-    /**
-     * 匹配HTTP方法
+     * 从配置快照恢复规则，只在尚未加载任何规则时生效，恢复的规则不再写回快照
+     *
+     * @return 是否已恢复
      */
-    private boolean matchMethod(String method, String pattern, String value) {
-        if (method == null || value == null) {
-            return false;
+    public boolean restoreRules(ConfigSnapshotCodec.AccessRulesSection section) {
+        List<String> skipped = new ArrayList<>();
+        CompiledAccessRules rules = CompiledAccessRules.compile(section.rules(), section.defaultPolicy(),
+                section.source(), versions.incrementAndGet(), false, skipped);
+        skipped.forEach(error -> log.warn("忽略快照中无效的访问规则: {}", error));
+        boolean restored = compiledRules.compareAndSet(null, rules);
+        if (restored) {
+            log.info("已从快照恢复访问规则: version={}, source={}, 规则数量={}, 快照版本={}",
+                    rules.getVersion(), rules.getSource(), rules.size(), section.version());
         }
-        return method.equalsIgnoreCase(value);
+        return restored;
     }
 
     /**
-     * 匹配IP地址
+     * 撤销从快照恢复的 Nacos 规则，改用数据库规则
+     * Nacos 中已没有访问规则配置时调用；数据库读取失败时继续使用快照中的规则，期间 Nacos 推送了新规则时保持不变
      */
-    private boolean matchIp(String clientIp, String pattern, String value) {
-        if (clientIp == null || value == null) {
-            return false;
-        }
-
-        switch (pattern) {
-            case "exact":
-                return clientIp.equals(value);
-            case "prefix":
-                return clientIp.startsWith(value);
-            case "cidr":
-                return matchCidr(clientIp, value);
-            case "regex":
-                return matchRegex(clientIp, value);
-            default:
-                return false;
+    public Mono<Void> demoteRestoredNacosRules() {
+        CompiledAccessRules restored = compiledRules.get();
+        if (restored == null || !CompiledAccessRules.SOURCE_NACOS.equals(restored.getSource())) {
+            return Mono.empty();
         }
+        return accessRuleRepository.findEnabledRulesOrderByPriority()
+                .collectList()
+                .doOnNext(rules -> {
+                    if (compiledRules.compareAndSet(restored, null)) {
+                        CompiledAccessRules installed = installDatabaseRules(rules, true);
+                        log.warn("已改用数据库访问规则: version={}, 规则数量={}", installed.getVersion(), installed.size());
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.error("加载数据库访问规则失败，继续使用快照中的规则", e);
+                    return Mono.empty();
+                })
+                .then();
     }
 
     /**
-     * 匹配用户
+     * 获取当前生效的规则快照
+     *
+     * @return 规则快照，尚未加载时返回null
      */
-    private boolean matchUser(String userId, String pattern, String value) {
-        if (userId == null || value == null) {
-            return false;
-        }
-        return userId.equals(value);
+    public CompiledAccessRules getCompiledRules() {
+        return compiledRules.get();
     }
 
     /**
-     * 通配符匹配
+     * 编译数据库规则并安装，已有 Nacos 规则时保持 Nacos 规则不变
+     *
+     * @param persist 是否写入配置快照，只有直接从数据库读取的规则才写入
      */
-    private boolean matchWildcard(String text, String pattern) {
-        try {
-            String regex = pattern.replace("*", ".*").replace("?", ".");
-            return Pattern.matches(regex, text);
-        } catch (Exception e) {
-            log.warn("通配符匹配异常: text={}, pattern={}", text, pattern, e);
-            return false;
+    private CompiledAccessRules installDatabaseRules(List<AccessRule> rules, boolean persist) {
+        List<String> skipped = new ArrayList<>();
+        CompiledAccessRules candidate = CompiledAccessRules.compile(rules, null, CompiledAccessRules.SOURCE_DATABASE,
+                versions.incrementAndGet(), false, skipped);
+        skipped.forEach(error -> log.warn("忽略无效的访问规则: {}", error));
+        CompiledAccessRules installed = compiledRules.updateAndGet(current -> current != null
+                && CompiledAccessRules.SOURCE_NACOS.equals(current.getSource()) ? current : candidate);
+        if (persist && installed == candidate) {
+            configSnapshotService.saveAccessRules(candidate.getSource(), candidate.getVersion(), null, rules);
         }
+        return installed;
     }
 
     /**
-     * 正则表达式匹配
+     * 重新读取数据库规则，Nacos 规则生效时跳过；读取失败时保留当前快照
      */
-    private boolean matchRegex(String text, String regex) {
-        try {
-            return Pattern.matches(regex, text);
-        } catch (Exception e) {
-            log.warn("正则表达式匹配异常: text={}, regex={}", text, regex, e);
-            return false;
+    private Mono<Void> reloadDatabaseRules() {
+        CompiledAccessRules current = compiledRules.get();
+        if (current != null && CompiledAccessRules.SOURCE_NACOS.equals(current.getSource())) {
+            return Mono.empty();
         }
-    }
-
-    /**
-     * CIDR匹配
-     * TODO: 实现CIDR网段匹配逻辑
-     */
-    private boolean matchCidr(String ip, String cidr) {
-        // 简单实现，实际应该使用专门的CIDR匹配库
-        log.warn("CIDR匹配暂未实现: ip={}, cidr={}", ip, cidr);
-        return false;
+        return refreshAccessRulesCache()
+                .onErrorResume(e -> {
+                    log.error("定期加载访问规则失败，继续使用当前规则", e);
+                    return Mono.empty();
+                })
+                .then();
     }
 
     /**
@@ -230,23 +222,31 @@ public class AccessControlService {
         return reactiveRedisTemplate.opsForValue().get(CACHE_KEY_ALL_RULES)
                 .cast(List.class)
                 .map(list -> (List<AccessRule>) list)
+                .onErrorResume(e -> {
+                    log.warn("读取访问规则Redis缓存失败，改为读取数据库", e);
+                    return Mono.empty();
+                })
                 .switchIfEmpty(Mono.defer(() -> refreshAccessRulesCache()));
     }
 
     /**
      * 刷新访问规则缓存
+     * 只安装从数据库成功读取的规则；数据库读取失败时以错误结束，当前快照保持不变
      */
     public Mono<List<AccessRule>> refreshAccessRulesCache() {
         return accessRuleRepository.findEnabledRulesOrderByPriority()
                 .collectList()
+                .doOnNext(rules -> {
+                    installDatabaseRules(rules, true);
+                    log.info("访问规则缓存已刷新，规则数量: {}", rules.size());
+                })
                 .flatMap(rules -> reactiveRedisTemplate.opsForValue()
                         .set(CACHE_KEY_ALL_RULES, rules, CACHE_EXPIRE)
-                        .thenReturn(rules))
-                .doOnNext(rules -> log.info("访问规则缓存已刷新，规则数量: {}", rules.size()))
-                .onErrorResume(e -> {
-                    log.error("刷新访问规则缓存失败", e);
-                    return Mono.just(List.of());
-                });
+                        .onErrorResume(e -> {
+                            log.warn("写入访问规则Redis缓存失败", e);
+                            return Mono.empty();
+                        })
+                        .thenReturn(rules));
     }
 
     /**
@@ -254,7 +254,12 @@ public class AccessControlService {
      */
     public Mono<Void> clearAccessRulesCache() {
         return reactiveRedisTemplate.delete(CACHE_KEY_ALL_RULES)
-                .doOnSuccess(v -> log.info("访问规则缓存已清除"))
+                .doOnSuccess(v -> {
+                    // 数据库规则快照一并清除，下次请求重新加载
+                    compiledRules.updateAndGet(current -> current != null
+                            && CompiledAccessRules.SOURCE_DATABASE.equals(current.getSource()) ? null : current);
+                    log.info("访问规则缓存已清除");
+                })
                 .onErrorResume(e -> {
                     log.error("清除访问规则缓存失败", e);
                     return Mono.empty();
@@ -0,0 +1,458 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.filter.GatewayExchangeAttributes;
+import com.saltyfish.contract.gateway.util.AccessLogRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access Log Service
+ * 访问日志服务，异步批量写入访问日志文件
+ *
+ * 请求线程只把固定布局的记录写入 {@link AccessLogRingBuffer}，缓冲区满时丢弃并计数，不会阻塞请求；
+ * 由单个后台线程批量编码后通过 FileChannel 写盘，按文件大小和写入时长滚动。
+ * 支持两种格式：
+ * - ndjson：每行一个JSON对象，便于直接导入日志平台
+ * - binary：紧凑二进制格式，文件头为 "GWAL" + 版本号，记录布局见 {@link #encodeBinary}
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccessLogService {
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS", "TRACE", "OTHER"};
+
+    private static final byte[] BINARY_MAGIC = {'G', 'W', 'A', 'L'};
+    private static final byte BINARY_VERSION = 2;
+
+    /**
+     * 单个字符串字段在二进制格式中的最大字节数
+     */
+    private static final int MAX_FIELD_BYTES = 4096;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final int DRAIN_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final String FILE_PREFIX = "access-";
+    private static final DateTimeFormatter FILE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault());
+
+    private final GatewayProperties gatewayProperties;
+    private final MeterRegistry meterRegistry;
+
+    private AccessLogRingBuffer ringBuffer;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private Counter writtenCounter;
+    private Counter errorCounter;
+
+    // 以下字段只由写线程访问
+    private final AccessLogRingBuffer.RecordHandler encoder = this::encode;
+    private final StringBuilder line = new StringBuilder(512);
+    private boolean binary;
+    private String fileSuffix;
+    private ByteBuffer batch;
+    private FileChannel channel;
+    private long currentFileSize;
+    private long currentFileOpenedAt;
+    private long lastFlushAt;
+
+    /**
+     * 启动写线程
+     */
+    @PostConstruct
+    public void start() {
+        GatewayProperties.AccessLog properties = gatewayProperties.getAccessLog();
+        if (!properties.isEnabled()) {
+            log.info("访问日志未启用");
+            return;
+        }
+
+        binary = "binary".equalsIgnoreCase(properties.getFormat());
+        fileSuffix = binary ? ".bin" : ".ndjson";
+        batch = ByteBuffer.allocateDirect((int) properties.getBatchSize().toBytes());
+        ringBuffer = new AccessLogRingBuffer(properties.getBufferSize());
+
+        FunctionCounter.builder("gateway.accesslog.dropped", ringBuffer, AccessLogRingBuffer::getDropped)
+                .description("因缓冲区已满被丢弃的访问日志记录数")
+                .register(meterRegistry);
+        Gauge.builder("gateway.accesslog.backlog", ringBuffer, AccessLogRingBuffer::size)
+                .description("等待写入的访问日志记录数")
+                .register(meterRegistry);
+        writtenCounter = Counter.builder("gateway.accesslog.written")
+                .description("已写入的访问日志记录数")
+                .register(meterRegistry);
+        errorCounter = Counter.builder("gateway.accesslog.errors")
+                .description("访问日志写入失败次数")
+                .register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::runWriter, "gateway-access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        log.info("访问日志已启动: directory={}, format={}, bufferSize={}",
+                properties.getDirectory(), binary ? "binary" : "ndjson", ringBuffer.getCapacity());
+    }
+
+    /**
+     * 停止写线程，写完缓冲区中剩余的记录
+     */
+    @PreDestroy
+    public void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 记录一次请求，在请求完成时由监控过滤器调用
+     *
+     * @param exchange      请求上下文
+     * @param status        响应状态码
+     * @param durationNanos 请求总耗时（纳秒）
+     */
+    public void record(ServerWebExchange exchange, int status, long durationNanos) {
+        if (ringBuffer == null) {
+            return;
+        }
+        URI upstream = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        ringBuffer.offer(System.currentTimeMillis(), durationNanos, status,
+                methodCode(exchange.getRequest().getMethod().name()),
+                GatewayExchangeAttributes.clientIp(exchange),
+                GatewayExchangeAttributes.userId(exchange),
+                GatewayExchangeAttributes.routeId(exchange),
+                exchange.getRequest().getURI().getRawPath(),
+                upstream);
+    }
+
+    /**
+     * 写线程主循环
+     */
+    private void runWriter() {
+        GatewayProperties.AccessLog properties = gatewayProperties.getAccessLog();
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        lastFlushAt = System.nanoTime();
+
+        while (running || ringBuffer.size() > 0) {
+            int drained;
+            try {
+                drained = ringBuffer.drain(encoder, DRAIN_BATCH);
+                writtenCounter.increment(drained);
+                if (batch.position() > 0 && System.nanoTime() - lastFlushAt >= flushIntervalNanos) {
+                    flush();
+                }
+            } catch (Exception e) {
+                // 写线程不能退出，出错时丢弃当前批次
+                handleWriteError(e);
+                drained = 0;
+            }
+            if (drained == 0 && running) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+
+        try {
+            flush();
+        } catch (Exception e) {
+            handleWriteError(e);
+        }
+        closeChannel();
+        log.info("访问日志写线程已停止: dropped={}", ringBuffer.getDropped());
+    }
+
+    /**
+     * 编码一条记录到批量缓冲区
+     * 异常在这里处理，保证环形缓冲区的消费进度正常推进
+     */
+    private void encode(AccessLogRingBuffer buffer, int slot) {
+        try {
+            if (binary) {
+                encodeBinary(buffer, slot);
+            } else {
+                encodeJson(buffer, slot);
+            }
+        } catch (Exception e) {
+            handleWriteError(e);
+        }
+    }
+
+    /**
+     * 二进制记录布局（大端）：
+     * int 记录长度（不含本字段）| long 时间戳毫秒 | long 耗时纳秒 | short 状态码 | byte 方法 |
+     * 依次为 客户端IP、用户ID、路由ID、请求路径、上游地址，每项为 short 字节长度 + UTF-8 字节（null 时长度为-1）
+     * 超过批量缓冲区容量的记录先刷盘，再单独写入文件
+     */
+    private void encodeBinary(AccessLogRingBuffer buffer, int slot) throws IOException {
+        byte[] clientIp = fieldBytes(buffer.clientIp(slot));
+        byte[] userId = fieldBytes(buffer.userId(slot));
+        byte[] routeId = fieldBytes(buffer.routeId(slot));
+        byte[] path = fieldBytes(buffer.path(slot));
+        URI upstreamUri = buffer.upstream(slot);
+        byte[] upstream = fieldBytes(upstreamUri != null ? upstreamUri.toString() : null);
+
+        int length = 8 + 8 + 2 + 1 + fieldLength(clientIp) + fieldLength(userId) + fieldLength(routeId) + fieldLength(path) + fieldLength(upstream);
+        ByteBuffer target = batch;
+        if (4 + length > batch.capacity()) {
+            flush();
+            target = ByteBuffer.allocate(4 + length);
+        } else {
+            ensureCapacity(4 + length);
+        }
+        target.putInt(length)
+                .putLong(buffer.timestamp(slot))
+                .putLong(buffer.duration(slot))
+                .putShort((short) buffer.status(slot))
+                .put((byte) buffer.method(slot));
+        putField(target, clientIp);
+        putField(target, userId);
+        putField(target, routeId);
+        putField(target, path);
+        putField(target, upstream);
+        if (target != batch) {
+            writeToChannel(target.flip());
+        }
+    }
+
+    private void encodeJson(AccessLogRingBuffer buffer, int slot) throws IOException {
+        line.setLength(0);
+        line.append("{\"ts\":").append(buffer.timestamp(slot))
+                .append(",\"durationNs\":").append(buffer.duration(slot))
+                .append(",\"status\":").append(buffer.status(slot))
+                .append(",\"method\":\"").append(METHODS[buffer.method(slot)]).append('"')
+                .append(",\"clientIp\":");
+        appendJsonString(buffer.clientIp(slot));
+        line.append(",\"userId\":");
+        appendJsonString(buffer.userId(slot));
+        line.append(",\"route\":");
+        appendJsonString(buffer.routeId(slot));
+        line.append(",\"path\":");
+        appendJsonString(buffer.path(slot));
+        line.append(",\"upstream\":");
+        URI upstream = buffer.upstream(slot);
+        appendJsonString(upstream != null ? upstream.toString() : null);
+        line.append("}\n");
+
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > batch.capacity()) {
+            flush();
+            writeToChannel(ByteBuffer.wrap(bytes));
+            return;
+        }
+        ensureCapacity(bytes.length);
+        batch.put(bytes);
+    }
+
+    private void appendJsonString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    private static byte[] fieldBytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FIELD_BYTES) {
+            byte[] truncated = new byte[MAX_FIELD_BYTES];
+            System.arraycopy(bytes, 0, truncated, 0, MAX_FIELD_BYTES);
+            return truncated;
+        }
+        return bytes;
+    }
+
+    private static int fieldLength(byte[] field) {
+        return 2 + (field != null ? field.length : 0);
+    }
+
+    private static void putField(ByteBuffer target, byte[] field) {
+        if (field == null) {
+            target.putShort((short) -1);
+            return;
+        }
+        target.putShort((short) field.length);
+        target.put(field);
+    }
+
+    /**
+     * 批量缓冲区剩余空间不足时先刷盘
+     */
+    private void ensureCapacity(int bytes) throws IOException {
+        if (batch.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * 把批量缓冲区写入文件，必要时先滚动文件
+     */
+    private void flush() throws IOException {
+        lastFlushAt = System.nanoTime();
+        if (batch.position() == 0) {
+            return;
+        }
+        batch.flip();
+        try {
+            writeToChannel(batch);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void writeToChannel(ByteBuffer source) throws IOException {
+        rotateIfNecessary();
+        while (source.hasRemaining()) {
+            currentFileSize += channel.write(source);
+        }
+    }
+
+    /**
+     * 文件超过大小或写入时长限制时滚动到新文件
+     */
+    private void rotateIfNecessary() throws IOException {
+        GatewayProperties.AccessLog properties = gatewayProperties.getAccessLog();
+        if (channel != null
+                && currentFileSize < properties.getMaxFileSize().toBytes()
+                && System.nanoTime() - currentFileOpenedAt < properties.getRotationInterval().toNanos()) {
+            return;
+        }
+        closeChannel();
+
+        Path directory = Paths.get(properties.getDirectory());
+        Files.createDirectories(directory);
+        String baseName = FILE_PREFIX + FILE_TIME_FORMAT.format(Instant.now());
+        Path file = directory.resolve(baseName + fileSuffix);
+        for (int i = 1; Files.exists(file); i++) {
+            file = directory.resolve(baseName + "-" + i + fileSuffix);
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        currentFileSize = 0;
+        currentFileOpenedAt = System.nanoTime();
+        if (binary) {
+            ByteBuffer header = ByteBuffer.allocate(BINARY_MAGIC.length + 1).put(BINARY_MAGIC).put(BINARY_VERSION);
+            header.flip();
+            while (header.hasRemaining()) {
+                currentFileSize += channel.write(header);
+            }
+        }
+        log.info("访问日志文件已滚动: {}", file);
+        purgeHistory(directory, properties.getMaxHistory());
+    }
+
+    /**
+     * 删除超出保留数量的历史文件，文件名包含时间戳，按名称排序即按时间排序
+     */
+    private void purgeHistory(Path directory, int maxHistory) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + fileSuffix)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("列出访问日志文件失败: {}", directory, e);
+            return;
+        }
+        if (files.size() <= maxHistory) {
+            return;
+        }
+        Collections.sort(files);
+        for (Path file : files.subList(0, files.size() - maxHistory)) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("删除历史访问日志失败: {}", file, e);
+            }
+        }
+    }
+
+    private void handleWriteError(Exception e) {
+        errorCounter.increment();
+        log.error("写入访问日志失败，丢弃当前批次", e);
+        batch.clear();
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("关闭访问日志文件失败", e);
+        }
+        channel = null;
+    }
+
+    private static int methodCode(String method) {
+        return switch (method) {
+            case "GET" -> 0;
+            case "POST" -> 1;
+            case "PUT" -> 2;
+            case "DELETE" -> 3;
+            case "PATCH" -> 4;
+            case "HEAD" -> 5;
+            case "OPTIONS" -> 6;
+            case "TRACE" -> 7;
+            default -> 8;
+        };
+    }
+}
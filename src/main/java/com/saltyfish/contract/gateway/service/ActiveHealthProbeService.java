@@ -0,0 +1,245 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.service.impl.HealthStatusServiceImpl;
+import com.saltyfish.contract.gateway.util.HttpHealthProber;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Active Health Probe Service
+ * 主动健康探测服务，周期性请求被监控服务每个实例的健康检查接口
+ *
+ * Nacos 心跳只能说明进程存活，无法说明 HTTP 接口可用。探测结果会参与实例选择和健康快照计算：
+ * - 连续失败达到阈值的实例被标记为不可用，连续成功达到阈值后恢复
+ * - 尚未探测过的实例视为可用，以 Nacos 的健康状态为准
+ *
+ * 调度策略：每轮探测中，每个实例按其地址的哈希值固定分布在探测周期内的某个时间点，
+ * 再叠加随机抖动，避免所有探测同时发出；同时在途的探测数量受最大并发度限制。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ActiveHealthProbeService {
+
+    private static final String GROUP_NAME = "CONTRACT_REVIEW";
+
+    /**
+     * 每轮探测分布在探测周期的前80%内，为抖动和探测耗时留出余量
+     */
+    private static final double SPREAD_RATIO = 0.8;
+
+    private final NamingService namingService;
+    private final GatewayProperties gatewayProperties;
+    private final BlockingCallAdapter blockingCallAdapter;
+
+    /**
+     * 实例探测状态，key为 ip:port
+     */
+    private final Map<String, ProbeState> probeStates = new ConcurrentHashMap<>();
+
+    /**
+     * 探测状态变更通知，发出发生变化的服务名
+     */
+    private final Sinks.Many<String> stateChangeSink = Sinks.many().multicast().directBestEffort();
+
+    private HttpHealthProber prober;
+    private Disposable schedule;
+
+    /**
+     * 启动探测调度
+     */
+    @PostConstruct
+    public void startProbing() {
+        GatewayProperties.HealthProbe properties = gatewayProperties.getHealthProbe();
+        if (!properties.isEnabled()) {
+            log.info("主动健康探测未启用");
+            return;
+        }
+
+        prober = HttpHealthProber.create(properties.getMaxConcurrency(), properties.getTimeout());
+        schedule = Flux.interval(properties.getInterval(), properties.getInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> probeRound(properties), 1)
+                .subscribe(null, e -> log.error("主动健康探测调度异常", e));
+
+        log.info("主动健康探测已启动: interval={}, maxConcurrency={}, path={}",
+                properties.getInterval(), properties.getMaxConcurrency(), properties.getPath());
+    }
+
+    /**
+     * 停止探测调度并释放探测连接池
+     */
+    @PreDestroy
+    public void stopProbing() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+        if (prober != null) {
+            prober.dispose();
+            prober = null;
+        }
+    }
+
+    /**
+     * 判断实例是否通过主动探测
+     * 未启用探测或尚未探测过的实例返回true
+     */
+    public boolean isInstanceUp(String ip, int port) {
+        if (schedule == null) {
+            return true;
+        }
+        ProbeState state = probeStates.get(instanceKey(ip, port));
+        return state == null || state.up;
+    }
+
+    /**
+     * 判断实例是否通过主动探测
+     */
+    public boolean isInstanceUp(Instance instance) {
+        return isInstanceUp(instance.getIp(), instance.getPort());
+    }
+
+    /**
+     * 探测状态变更流，发出实例状态发生翻转的服务名
+     */
+    public Flux<String> stateChanges() {
+        return stateChangeSink.asFlux();
+    }
+
+    /**
+     * 执行一轮探测
+     */
+    private Mono<Void> probeRound(GatewayProperties.HealthProbe properties) {
+        return collectTargets(properties)
+                .flatMapMany(targets -> {
+                    retainStates(targets);
+                    long windowMillis = (long) (properties.getInterval().toMillis() * SPREAD_RATIO);
+                    long jitterMillis = (long) (properties.getInterval().toMillis() * properties.getJitter());
+                    return Flux.fromIterable(targets)
+                            // 定时器开销很小，先全部按偏移量延迟，再由下游限制真正的探测并发
+                            .flatMap(target -> Mono.delay(Duration.ofMillis(offsetMillis(target, windowMillis, jitterMillis)))
+                                    .thenReturn(target), Math.max(1, targets.size()))
+                            .flatMap(target -> prober.probe(target.ip(), target.port(), target.path())
+                                    .doOnNext(up -> updateState(target, up)), properties.getMaxConcurrency());
+                })
+                .then()
+                .onErrorResume(e -> {
+                    log.error("执行主动健康探测失败", e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 收集所有被监控服务的实例
+     */
+    private Mono<List<ProbeTarget>> collectTargets(GatewayProperties.HealthProbe properties) {
+        return Flux.fromIterable(HealthStatusServiceImpl.MONITORED_SERVICES)
+                .concatMap(serviceName -> {
+                    String path = properties.getServicePaths().getOrDefault(serviceName, properties.getPath());
+                    return blockingCallAdapter.call("naming.getAllInstances",
+                                    () -> namingService.getAllInstances(serviceName, GROUP_NAME))
+                            .flatMapIterable(instances -> instances)
+                            .map(instance -> new ProbeTarget(serviceName, instance.getIp(), instance.getPort(), path))
+                            .onErrorResume(e -> {
+                                log.warn("获取探测目标失败: serviceName={}", serviceName, e);
+                                return Flux.empty();
+                            });
+                })
+                .collectList();
+    }
+
+    /**
+     * 清理已下线实例的探测状态
+     */
+    private void retainStates(List<ProbeTarget> targets) {
+        Set<String> keys = new HashSet<>(targets.size() * 2);
+        for (ProbeTarget target : targets) {
+            keys.add(instanceKey(target.ip(), target.port()));
+        }
+        probeStates.keySet().retainAll(keys);
+    }
+
+    /**
+     * 计算实例在本轮中的探测偏移量：稳定的哈希分布 + 随机抖动
+     */
+    private long offsetMillis(ProbeTarget target, long windowMillis, long jitterMillis) {
+        if (windowMillis <= 0) {
+            return 0;
+        }
+        long base = Math.floorMod(instanceKey(target.ip(), target.port()).hashCode() * 0x9E3779B9L, windowMillis);
+        long jitter = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1) : 0;
+        return Math.max(0, Math.min(windowMillis, base + jitter));
+    }
+
+    /**
+     * 更新实例探测状态，状态翻转时通知订阅者
+     */
+    private void updateState(ProbeTarget target, boolean success) {
+        GatewayProperties.HealthProbe properties = gatewayProperties.getHealthProbe();
+        ProbeState state = probeStates.computeIfAbsent(instanceKey(target.ip(), target.port()), key -> new ProbeState());
+
+        boolean changed;
+        synchronized (state) {
+            boolean wasUp = state.up;
+            if (success) {
+                state.consecutiveFailures = 0;
+                state.consecutiveSuccesses++;
+                if (!state.up && state.consecutiveSuccesses >= properties.getRiseThreshold()) {
+                    state.up = true;
+                }
+            } else {
+                state.consecutiveSuccesses = 0;
+                state.consecutiveFailures++;
+                if (state.up && state.consecutiveFailures >= properties.getFallThreshold()) {
+                    state.up = false;
+                }
+            }
+            changed = wasUp != state.up;
+        }
+
+        if (changed) {
+            log.warn("实例主动探测状态变更: {} {}:{}{} -> {}", target.serviceName(), target.ip(), target.port(),
+                    target.path(), state.up ? "UP" : "DOWN");
+            synchronized (stateChangeSink) {
+                stateChangeSink.tryEmitNext(target.serviceName());
+            }
+        }
+    }
+
+    private static String instanceKey(String ip, int port) {
+        return ip + ":" + port;
+    }
+
+    /**
+     * 探测目标
+     */
+    private record ProbeTarget(String serviceName, String ip, int port, String path) {
+    }
+
+    /**
+     * 实例探测状态
+     */
+    private static class ProbeState {
+        private volatile boolean up = true;
+        private int consecutiveSuccesses;
+        private int consecutiveFailures;
+    }
+}
@@ -0,0 +1,220 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Auth Decision Cache Service
+ * 远程鉴权结果缓存，减少 @RemotePreAuthorize 对若依鉴权中心的调用
+ *
+ * - 只缓存"允许"的结果，键为令牌摘要 + 权限表达式，短 TTL 到期后重新鉴权
+ * - 同一令牌和表达式的并发请求只发起一次远程鉴权，其余请求等待其结果
+ * - 登出、角色变更时按令牌或全部失效；开启 Redis 后通过频道通知集群内其他节点
+ * 拒绝结果不缓存，始终由鉴权中心给出响应。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AuthDecisionCacheService {
+
+    private static final String INVALIDATE_CHANNEL = "gateway:auth-invalidate";
+    private static final String INVALIDATE_ALL = "*";
+
+    private final GatewayProperties gatewayProperties;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 令牌摘要 -> (权限表达式 -> 过期时间)
+     */
+    private final Map<String, Map<String, Long>> allowed = new ConcurrentHashMap<>();
+
+    /**
+     * 正在进行的远程鉴权
+     */
+    private final Map<String, Sinks.One<Boolean>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 失效代数，鉴权期间发生失效时不写入结果
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private Disposable cleanupSchedule;
+    private Disposable invalidateSubscription;
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter coalescedCounter;
+
+    @PostConstruct
+    public void start() {
+        GatewayProperties.AuthCache properties = gatewayProperties.getAuthCache();
+        hitCounter = Counter.builder("gateway.authcache.requests")
+                .description("远程鉴权缓存查询次数")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        missCounter = Counter.builder("gateway.authcache.requests")
+                .description("远程鉴权缓存查询次数")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        // 等待进行中鉴权的请求，发起时结果未知，单独计数
+        coalescedCounter = Counter.builder("gateway.authcache.requests")
+                .description("远程鉴权缓存查询次数")
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder("gateway.authcache.tokens", allowed, Map::size)
+                .description("缓存了鉴权结果的令牌数")
+                .register(meterRegistry);
+
+        if (!properties.isEnabled()) {
+            log.info("远程鉴权缓存未启用");
+            return;
+        }
+        cleanupSchedule = Flux.interval(properties.getTtl(), properties.getTtl())
+                .onBackpressureDrop()
+                .subscribe(tick -> cleanup(), e -> log.error("清理鉴权缓存失败", e));
+        if (properties.isRedisEnabled()) {
+            invalidateSubscription = redisTemplate.listenToChannel(INVALIDATE_CHANNEL)
+                    .map(ReactiveSubscription.Message::getMessage)
+                    .subscribe(this::invalidateLocal, e -> log.error("订阅鉴权缓存失效事件失败", e));
+        }
+        log.info("远程鉴权缓存已启动: ttl={}, maxTokens={}, redis={}",
+                properties.getTtl(), properties.getMaxTokens(), properties.isRedisEnabled());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (cleanupSchedule != null) {
+            cleanupSchedule.dispose();
+        }
+        if (invalidateSubscription != null) {
+            invalidateSubscription.dispose();
+        }
+    }
+
+    /**
+     * 执行鉴权：缓存命中时直接放行，否则调用远程鉴权（同一键并发时只调用一次）
+     *
+     * @param tokenHash   令牌摘要
+     * @param expression  权限表达式
+     * @param onAllowed   缓存命中或等待到的结果为允许时执行
+     * @param remoteCheck 远程鉴权，参数为鉴权通过时需要调用的回调
+     */
+    public Mono<Void> authorize(String tokenHash, String expression, Mono<Void> onAllowed,
+                                Function<Runnable, Mono<Void>> remoteCheck) {
+        if (isAllowed(tokenHash, expression)) {
+            hitCounter.increment();
+            return onAllowed;
+        }
+
+        String key = tokenHash + '\n' + expression;
+        Sinks.One<Boolean> sink = Sinks.one();
+        Sinks.One<Boolean> existing = loading.putIfAbsent(key, sink);
+        if (existing != null) {
+            coalescedCounter.increment();
+            // 等待进行中的鉴权；结果为拒绝或等待超时时自行鉴权，由鉴权中心给出拒绝响应
+            return existing.asMono()
+                    .timeout(gatewayProperties.getAuthCache().getLoadTimeout(), Mono.just(Boolean.FALSE))
+                    .flatMap(result -> result
+                            ? onAllowed
+                            : remoteCheck.apply(() -> allow(tokenHash, expression, generation.get())));
+        }
+
+        missCounter.increment();
+        long startGeneration = generation.get();
+        return remoteCheck.apply(() -> {
+                    allow(tokenHash, expression, startGeneration);
+                    sink.tryEmitValue(Boolean.TRUE);
+                })
+                .doFinally(signal -> {
+                    loading.remove(key, sink);
+                    sink.tryEmitValue(Boolean.FALSE);
+                });
+    }
+
+    /**
+     * 使令牌的鉴权结果失效（登出、角色变更）
+     */
+    public void invalidate(String tokenHash) {
+        invalidateLocal(tokenHash);
+        publish(tokenHash);
+    }
+
+    /**
+     * 使所有鉴权结果失效
+     */
+    public void invalidateAll() {
+        invalidateLocal(INVALIDATE_ALL);
+        publish(INVALIDATE_ALL);
+    }
+
+    public int size() {
+        return allowed.size();
+    }
+
+    private boolean isAllowed(String tokenHash, String expression) {
+        Map<String, Long> decisions = allowed.get(tokenHash);
+        if (decisions == null) {
+            return false;
+        }
+        Long expiresAt = decisions.get(expression);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    private void allow(String tokenHash, String expression, long startGeneration) {
+        GatewayProperties.AuthCache properties = gatewayProperties.getAuthCache();
+        if (generation.get() != startGeneration) {
+            return;
+        }
+        Map<String, Long> decisions = allowed.get(tokenHash);
+        if (decisions == null) {
+            if (allowed.size() >= properties.getMaxTokens()) {
+                // 超过上限时不再缓存新令牌，等待定期清理
+                return;
+            }
+            decisions = allowed.computeIfAbsent(tokenHash, k -> new ConcurrentHashMap<>());
+        }
+        decisions.put(expression, System.currentTimeMillis() + properties.getTtl().toMillis());
+    }
+
+    private void invalidateLocal(String tokenHash) {
+        generation.incrementAndGet();
+        if (INVALIDATE_ALL.equals(tokenHash)) {
+            allowed.clear();
+            log.info("已清除全部鉴权缓存");
+        } else {
+            allowed.remove(tokenHash);
+        }
+    }
+
+    private void publish(String message) {
+        if (!gatewayProperties.getAuthCache().isRedisEnabled()) {
+            return;
+        }
+        redisTemplate.convertAndSend(INVALIDATE_CHANNEL, message)
+                .subscribe(null, e -> log.warn("发布鉴权缓存失效事件失败", e));
+    }
+
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        allowed.values().forEach(decisions -> decisions.values().removeIf(expiresAt -> expiresAt <= now));
+        allowed.values().removeIf(Map::isEmpty);
+    }
+}
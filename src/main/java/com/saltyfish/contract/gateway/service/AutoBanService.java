@@ -0,0 +1,295 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auto Ban Service
+ * 自动封禁服务，根据客户端IP的异常响应频率临时封禁IP
+ *
+ * 每个IP维护一个按半衰期指数衰减的分数，403/404/429 等响应按权重累加，
+ * 分数超过阈值后在封禁期内直接拒绝该IP，检查发生在访问规则匹配之前。
+ * 封禁到期由时间轮触发移除，不需要扫描封禁表；
+ * 开启 Redis 共享后，封禁写入带 TTL 的键并通过频道广播，其他节点收到后加入本地封禁表。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AutoBanService {
+
+    private static final String BAN_KEY_PREFIX = "gateway:ban:";
+    private static final String BAN_CHANNEL = "gateway:ban-events";
+
+    private final GatewayProperties gatewayProperties;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * IP异常分数
+     */
+    private final Map<String, DecayingScore> scores = new ConcurrentHashMap<>();
+
+    /**
+     * 封禁表，value为封禁到期时间（毫秒时间戳）
+     */
+    private final Map<String, Long> bannedUntil = new ConcurrentHashMap<>();
+
+    private Timer expiryTimer;
+    private Disposable cleanupSchedule;
+    private Disposable banSubscription;
+    private Counter banCounter;
+
+    /**
+     * 启动封禁过期时间轮和分数清理，按配置订阅集群封禁事件
+     */
+    @PostConstruct
+    public void start() {
+        GatewayProperties.AutoBan properties = gatewayProperties.getAutoBan();
+        if (!properties.isEnabled()) {
+            log.info("自动封禁未启用");
+            return;
+        }
+
+        expiryTimer = new HashedWheelTimer(new DefaultThreadFactory("gateway-ban-expiry", true),
+                1, TimeUnit.SECONDS, 512);
+        banCounter = Counter.builder("gateway.autoban.bans")
+                .description("自动封禁次数")
+                .register(meterRegistry);
+        Gauge.builder("gateway.autoban.banned", bannedUntil, Map::size)
+                .description("当前被封禁的IP数")
+                .register(meterRegistry);
+
+        // 清理已衰减到可忽略的分数，限制分数表的大小
+        cleanupSchedule = Flux.interval(properties.getHalfLife(), properties.getHalfLife())
+                .onBackpressureDrop()
+                .subscribe(tick -> cleanupScores(), e -> log.error("清理IP异常分数失败", e));
+
+        if (properties.isRedisEnabled()) {
+            subscribeClusterBans();
+        }
+
+        log.info("自动封禁已启动: threshold={}, halfLife={}, banDuration={}, redis={}",
+                properties.getThreshold(), properties.getHalfLife(), properties.getBanDuration(),
+                properties.isRedisEnabled());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (cleanupSchedule != null) {
+            cleanupSchedule.dispose();
+        }
+        if (banSubscription != null) {
+            banSubscription.dispose();
+        }
+        if (expiryTimer != null) {
+            expiryTimer.stop();
+        }
+    }
+
+    /**
+     * 判断IP是否处于封禁期
+     */
+    public boolean isBanned(String clientIp) {
+        if (clientIp == null || bannedUntil.isEmpty()) {
+            return false;
+        }
+        Long until = bannedUntil.get(clientIp);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    /**
+     * 记录一次响应，在请求完成时由监控过滤器调用
+     *
+     * @param clientIp 客户端IP
+     * @param status   响应状态码
+     */
+    public void recordResponse(String clientIp, int status) {
+        if (expiryTimer == null || clientIp == null) {
+            return;
+        }
+        GatewayProperties.AutoBan properties = gatewayProperties.getAutoBan();
+        Double weight = properties.getStatusWeights().get(status);
+        if (weight == null || properties.getExemptIps().contains(clientIp) || isBanned(clientIp)) {
+            return;
+        }
+
+        DecayingScore score = scores.get(clientIp);
+        if (score == null) {
+            if (scores.size() >= properties.getMaxTrackedIps()) {
+                return;
+            }
+            score = scores.computeIfAbsent(clientIp, key -> new DecayingScore());
+        }
+        double halfLifeNanos = properties.getHalfLife().toNanos();
+        if (score.add(weight, System.nanoTime(), halfLifeNanos) >= properties.getThreshold()) {
+            score.reset();
+            ban(clientIp, properties.getBanDuration(), true);
+        }
+    }
+
+    /**
+     * 封禁IP
+     *
+     * @param clientIp 客户端IP
+     * @param duration 封禁时长
+     * @param share    是否同步到集群
+     */
+    public void ban(String clientIp, Duration duration, boolean share) {
+        long until = System.currentTimeMillis() + duration.toMillis();
+        if (!applyBan(clientIp, until)) {
+            return;
+        }
+        banCounter.increment();
+        log.warn("IP已被自动封禁: ip={}, duration={}", clientIp, duration);
+
+        if (share && gatewayProperties.getAutoBan().isRedisEnabled()) {
+            redisTemplate.opsForValue().set(BAN_KEY_PREFIX + clientIp, String.valueOf(until), duration)
+                    .then(redisTemplate.convertAndSend(BAN_CHANNEL, clientIp + "|" + until))
+                    .subscribe(null, e -> log.warn("同步封禁到Redis失败: ip={}", clientIp, e));
+        }
+    }
+
+    /**
+     * 解除封禁
+     */
+    public Mono<Boolean> unban(String clientIp) {
+        boolean removed = bannedUntil.remove(clientIp) != null;
+        DecayingScore score = scores.get(clientIp);
+        if (score != null) {
+            score.reset();
+        }
+        if (!gatewayProperties.getAutoBan().isRedisEnabled()) {
+            return Mono.just(removed);
+        }
+        // 到期时间为0表示解除封禁
+        return redisTemplate.delete(BAN_KEY_PREFIX + clientIp)
+                .then(redisTemplate.convertAndSend(BAN_CHANNEL, clientIp + "|0"))
+                .thenReturn(removed)
+                .onErrorResume(e -> {
+                    log.warn("从Redis解除封禁失败: ip={}", clientIp, e);
+                    return Mono.just(removed);
+                });
+    }
+
+    /**
+     * 当前封禁列表，key为IP，value为封禁到期时间（毫秒时间戳）
+     */
+    public Map<String, Long> getBannedIps() {
+        return Collections.unmodifiableMap(new HashMap<>(bannedUntil));
+    }
+
+    /**
+     * 加入本地封禁表，并在时间轮上登记到期移除
+     *
+     * @return 封禁表已满或已有更晚的封禁时返回false
+     */
+    private boolean applyBan(String clientIp, long until) {
+        long now = System.currentTimeMillis();
+        if (until <= now || expiryTimer == null) {
+            return false;
+        }
+        if (!bannedUntil.containsKey(clientIp) && bannedUntil.size() >= gatewayProperties.getAutoBan().getMaxBannedIps()) {
+            log.warn("封禁表已满，忽略封禁: ip={}", clientIp);
+            return false;
+        }
+        long effective = bannedUntil.merge(clientIp, until, Math::max);
+        if (effective != until) {
+            return false;
+        }
+        // 到期时只移除本次登记的封禁，期间被延长的封禁由新的定时任务负责
+        expiryTimer.newTimeout(timeout -> bannedUntil.remove(clientIp, until), until - now, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * 加载集群中已有的封禁并订阅封禁事件
+     */
+    private void subscribeClusterBans() {
+        redisTemplate.scan(ScanOptions.scanOptions().match(BAN_KEY_PREFIX + "*").count(500).build())
+                .flatMap(key -> redisTemplate.opsForValue().get(key)
+                        .doOnNext(until -> applyBan(key.substring(BAN_KEY_PREFIX.length()), Long.parseLong(until))), 16)
+                .count()
+                .subscribe(count -> log.info("已从Redis加载封禁: {}", count),
+                        e -> log.warn("从Redis加载封禁失败", e));
+
+        banSubscription = redisTemplate.listenToChannel(BAN_CHANNEL)
+                .map(ReactiveSubscription.Message::getMessage)
+                .subscribe(this::onBanEvent, e -> log.error("订阅封禁事件失败", e));
+    }
+
+    private void onBanEvent(String event) {
+        int separator = event.lastIndexOf('|');
+        if (separator <= 0) {
+            return;
+        }
+        String clientIp = event.substring(0, separator);
+        long until;
+        try {
+            until = Long.parseLong(event.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            log.warn("忽略无效封禁事件: {}", event);
+            return;
+        }
+        if (until == 0) {
+            bannedUntil.remove(clientIp);
+        } else {
+            applyBan(clientIp, until);
+        }
+    }
+
+    private void cleanupScores() {
+        long now = System.nanoTime();
+        double halfLifeNanos = gatewayProperties.getAutoBan().getHalfLife().toNanos();
+        scores.values().removeIf(score -> score.current(now, halfLifeNanos) < 0.5);
+    }
+
+    /**
+     * 按半衰期指数衰减的分数
+     */
+    private static class DecayingScore {
+        private double value;
+        private long updatedAt = System.nanoTime();
+
+        synchronized double add(double weight, long now, double halfLifeNanos) {
+            value = decayed(now, halfLifeNanos) + weight;
+            updatedAt = now;
+            return value;
+        }
+
+        synchronized double current(long now, double halfLifeNanos) {
+            return decayed(now, halfLifeNanos);
+        }
+
+        synchronized void reset() {
+            value = 0;
+            updatedAt = System.nanoTime();
+        }
+
+        private double decayed(long now, double halfLifeNanos) {
+            return value * Math.pow(0.5, (now - updatedAt) / halfLifeNanos);
+        }
+    }
+}
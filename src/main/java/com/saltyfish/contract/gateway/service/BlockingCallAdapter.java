@@ -0,0 +1,148 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Blocking Call Adapter
+ * 阻塞调用适配器，把 Nacos SDK 等同步调用转换为 Mono，在专用线程上执行，不占用事件循环线程
+ *
+ * 运行在 Java 21 及以上时每个调用使用一个虚拟线程，同时执行的调用数由信号量限制；
+ * 否则使用有界弹性线程池。每个调用都有超时时间，超时后中断执行线程并以 TimeoutException 结束。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BlockingCallAdapter {
+
+    private static final String EXECUTOR_VIRTUAL = "virtual";
+    private static final String EXECUTOR_BOUNDED_ELASTIC = "bounded-elastic";
+
+    private final GatewayProperties gatewayProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 正在执行的调用数
+     */
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private Scheduler scheduler;
+    private Semaphore permits;
+    private String executorType;
+
+    @PostConstruct
+    public void init() {
+        GatewayProperties.BlockingCalls properties = gatewayProperties.getBlockingCalls();
+        int maxConcurrency = Math.max(1, properties.getMaxConcurrency());
+        ExecutorService virtualThreads = properties.isVirtualThreads() ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtualThreads != null) {
+            scheduler = Schedulers.fromExecutorService(virtualThreads, "gateway-blocking-io");
+            permits = new Semaphore(maxConcurrency);
+            executorType = EXECUTOR_VIRTUAL;
+        } else {
+            scheduler = Schedulers.newBoundedElastic(maxConcurrency, properties.getQueueSize(), "gateway-blocking-io");
+            executorType = EXECUTOR_BOUNDED_ELASTIC;
+        }
+
+        Gauge.builder("gateway.blocking.inflight", inflight, AtomicInteger::get)
+                .description("正在执行的阻塞调用数")
+                .tag("executor", executorType)
+                .register(meterRegistry);
+
+        log.info("阻塞调用适配器已启动: executor={}, maxConcurrency={}, timeout={}",
+                executorType, maxConcurrency, properties.getTimeout());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+
+    /**
+     * 在专用线程上执行阻塞调用，使用默认超时时间
+     *
+     * @param operation 调用名称，作为指标标签，如 naming.getAllInstances
+     * @param callable  阻塞调用，返回null时 Mono 为空
+     */
+    public <T> Mono<T> call(String operation, Callable<T> callable) {
+        return call(operation, gatewayProperties.getBlockingCalls().getTimeout(), callable);
+    }
+
+    /**
+     * 在专用线程上执行阻塞调用
+     *
+     * @param operation 调用名称，作为指标标签
+     * @param timeout   超时时间，从订阅开始计算，包含排队时间
+     * @param callable  阻塞调用，返回null时 Mono 为空
+     */
+    public <T> Mono<T> call(String operation, Duration timeout, Callable<T> callable) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.fromCallable(() -> execute(callable))
+                    .subscribeOn(scheduler)
+                    .timeout(timeout)
+                    .doOnSuccess(result -> record(operation, "success", start))
+                    .doOnError(e -> record(operation, e instanceof TimeoutException ? "timeout" : "error", start));
+        });
+    }
+
+    private <T> T execute(Callable<T> callable) throws Exception {
+        if (permits != null) {
+            permits.acquire();
+        }
+        inflight.incrementAndGet();
+        try {
+            return callable.call();
+        } finally {
+            inflight.decrementAndGet();
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    private void record(String operation, String result, long startNanos) {
+        Timer.builder("gateway.blocking.calls")
+                .description("阻塞调用耗时（包含排队时间）")
+                .tag("operation", operation)
+                .tag("result", result)
+                .tag("executor", executorType)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 创建虚拟线程执行器，运行时低于 Java 21 时返回null
+     *
+     * 通过反射调用，源码仍可按 Java 17 编译；使用 -Pjava21 构建时行为相同。
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.info("当前运行时不支持虚拟线程，使用有界弹性线程池: java.version={}", System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
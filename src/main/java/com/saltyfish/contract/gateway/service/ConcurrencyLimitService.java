@@ -0,0 +1,166 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.filter.GatewayExchangeAttributes;
+import com.saltyfish.contract.gateway.util.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrency Limit Service
+ * 按路由的自适应并发限制和优先级降级
+ *
+ * 每个路由一个 {@link AdaptiveConcurrencyLimit}，上限随延迟自动调整。
+ * 请求按优先级分类，不同优先级可使用的上限比例不同，达到上限时低优先级请求先被拒绝：
+ * 健康检查 > 交互式查询 > 文件上传 > AI批量任务。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConcurrencyLimitService {
+
+    /**
+     * 请求优先级，顺序即优先级从高到低
+     */
+    public enum Priority {
+        CRITICAL("critical"),
+        INTERACTIVE("interactive"),
+        UPLOAD("upload"),
+        BATCH("batch");
+
+        private final String tag;
+
+        Priority(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final GatewayProperties gatewayProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 路由的并发限制，路由数量有限，不需要淘汰
+     */
+    private final Map<String, RouteLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * 获取路由的并发限制
+     */
+    public RouteLimiter limiter(String routeId) {
+        RouteLimiter limiter = limiters.get(routeId);
+        if (limiter != null) {
+            return limiter;
+        }
+        return limiters.computeIfAbsent(routeId, this::createLimiter);
+    }
+
+    /**
+     * 判断请求的优先级
+     */
+    public Priority classify(ServerWebExchange exchange) {
+        GatewayProperties.AdaptiveConcurrency properties = gatewayProperties.getAdaptiveConcurrency();
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getURI().getRawPath();
+
+        for (String suffix : properties.getCriticalPathSuffixes()) {
+            if (path.endsWith(suffix)) {
+                return Priority.CRITICAL;
+            }
+        }
+        if (properties.getBatchRoutes().contains(GatewayExchangeAttributes.routeId(exchange))) {
+            return Priority.BATCH;
+        }
+        HttpMethod method = request.getMethod();
+        if (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method)) {
+            return Priority.INTERACTIVE;
+        }
+        MediaType contentType = request.getHeaders().getContentType();
+        if (contentType != null && MediaType.MULTIPART_FORM_DATA.includes(contentType)) {
+            return Priority.UPLOAD;
+        }
+        for (String prefix : properties.getUploadPathPrefixes()) {
+            if (path.startsWith(prefix)) {
+                return Priority.UPLOAD;
+            }
+        }
+        return Priority.INTERACTIVE;
+    }
+
+    /**
+     * 优先级可使用的上限比例
+     */
+    public double share(Priority priority) {
+        GatewayProperties.AdaptiveConcurrency properties = gatewayProperties.getAdaptiveConcurrency();
+        return switch (priority) {
+            case CRITICAL -> 1.0;
+            case INTERACTIVE -> properties.getInteractiveShare();
+            case UPLOAD -> properties.getUploadShare();
+            case BATCH -> properties.getBatchShare();
+        };
+    }
+
+    private RouteLimiter createLimiter(String routeId) {
+        GatewayProperties.AdaptiveConcurrency properties = gatewayProperties.getAdaptiveConcurrency();
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties.getInitialLimit(),
+                properties.getMinLimit(), properties.getMaxLimit(), properties.getSmoothing(),
+                properties.getRttTolerance(), properties.getLongWindow(), properties.getBackoffRatio());
+
+        Gauge.builder("gateway.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("路由当前的并发上限")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        Gauge.builder("gateway.concurrency.inflight", limit, AdaptiveConcurrencyLimit::getInflight)
+                .description("路由当前在途（排队等待上游）的请求数")
+                .tag("route", routeId)
+                .register(meterRegistry);
+
+        Counter[] shedCounters = new Counter[PRIORITIES.length];
+        for (Priority priority : PRIORITIES) {
+            shedCounters[priority.ordinal()] = Counter.builder("gateway.concurrency.shed")
+                    .description("因并发上限被拒绝的请求数")
+                    .tag("route", routeId)
+                    .tag("priority", priority.getTag())
+                    .register(meterRegistry);
+        }
+        log.info("已创建路由并发限制: route={}, initialLimit={}", routeId, properties.getInitialLimit());
+        return new RouteLimiter(limit, shedCounters);
+    }
+
+    /**
+     * 单个路由的并发限制及其降级计数
+     */
+    public static class RouteLimiter {
+        private final AdaptiveConcurrencyLimit limit;
+        private final Counter[] shedCounters;
+
+        private RouteLimiter(AdaptiveConcurrencyLimit limit, Counter[] shedCounters) {
+            this.limit = limit;
+            this.shedCounters = shedCounters;
+        }
+
+        public AdaptiveConcurrencyLimit getLimit() {
+            return limit;
+        }
+
+        public void recordShed(Priority priority) {
+            shedCounters[priority.ordinal()].increment();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.entity.AccessRule;
+import com.saltyfish.contract.gateway.entity.UrlMapping;
+import com.saltyfish.contract.gateway.util.ConfigSnapshotCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Config Snapshot Service
+ * 最近一次有效配置的本地快照，保存访问规则、URL映射和路由编译前的内容
+ *
+ * 每次配置编译成功后异步写入快照文件（先写临时文件再原子替换），连续的多次更新合并为一次写入。
+ * 启动时内存映射读取快照，Nacos、数据库或 Redis 不可用时网关仍按上一次有效的配置处理请求。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConfigSnapshotService {
+
+    private final GatewayProperties gatewayProperties;
+
+    private volatile ConfigSnapshotCodec.AccessRulesSection accessRules;
+    private volatile ConfigSnapshotCodec.UrlMappingsSection urlMappings;
+    private volatile ConfigSnapshotCodec.RoutesSection routes;
+
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gateway-config-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        // 等待已提交的写入完成，避免停机时丢失最后一次配置
+        writeExecutor.shutdown();
+        writeExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 读取快照，读取到的分段同时作为后续写入的初始内容
+     *
+     * @return 快照，未启用、文件不存在或文件无效时返回null
+     */
+    public ConfigSnapshotCodec.ConfigSnapshot load() {
+        GatewayProperties.ConfigSnapshot properties = gatewayProperties.getConfigSnapshot();
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        Path path = Path.of(properties.getPath());
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ConfigSnapshotCodec.ConfigSnapshot snapshot = ConfigSnapshotCodec.decode(buffer);
+            // 只在尚未有新配置时使用快照内容，避免覆盖启动过程中已保存的配置
+            if (accessRules == null) {
+                accessRules = snapshot.accessRules();
+            }
+            if (urlMappings == null) {
+                urlMappings = snapshot.urlMappings();
+            }
+            if (routes == null) {
+                routes = snapshot.routes();
+            }
+            log.info("已读取配置快照: path={}, size={}, 访问规则={}, URL映射={}, 路由={}, 耗时{}ms", path,
+                    channel.size(), describe(snapshot.accessRules()), describe(snapshot.urlMappings()),
+                    describe(snapshot.routes()), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return snapshot;
+        } catch (NoSuchFileException e) {
+            log.info("配置快照不存在: {}", path);
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("读取配置快照失败，忽略快照: path={}, error={}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存访问规则
+     */
+    public void saveAccessRules(String source, long version, String defaultPolicy, List<AccessRule> rules) {
+        accessRules = new ConfigSnapshotCodec.AccessRulesSection(source, version, System.currentTimeMillis(),
+                defaultPolicy, List.copyOf(rules));
+        scheduleWrite();
+    }
+
+    /**
+     * 保存URL映射
+     */
+    public void saveUrlMappings(String source, long version, List<UrlMapping> mappings) {
+        urlMappings = new ConfigSnapshotCodec.UrlMappingsSection(source, version, System.currentTimeMillis(),
+                List.copyOf(mappings));
+        scheduleWrite();
+    }
+
+    /**
+     * 保存路由
+     */
+    public void saveRoutes(String source, long version, List<RouteDefinition> routeDefinitions) {
+        routes = new ConfigSnapshotCodec.RoutesSection(source, version, System.currentTimeMillis(),
+                List.copyOf(routeDefinitions));
+        scheduleWrite();
+    }
+
+    /**
+     * 移除路由分段，Nacos 中已没有路由配置时调用
+     */
+    public void removeRoutes() {
+        routes = null;
+        scheduleWrite();
+    }
+
+    private void scheduleWrite() {
+        if (!gatewayProperties.getConfigSnapshot().isEnabled()) {
+            return;
+        }
+        if (writeScheduled.compareAndSet(false, true)) {
+            try {
+                writeExecutor.execute(this::write);
+            } catch (RejectedExecutionException e) {
+                writeScheduled.set(false);
+                log.warn("写入配置快照被拒绝，应用正在停止");
+            }
+        }
+    }
+
+    /**
+     * 写入快照文件，写入开始前到达的更新都包含在本次写入中
+     */
+    private void write() {
+        writeScheduled.set(false);
+        Path path = Path.of(gatewayProperties.getConfigSnapshot().getPath()).toAbsolutePath();
+        byte[] bytes = ConfigSnapshotCodec.encode(new ConfigSnapshotCodec.ConfigSnapshot(accessRules, urlMappings, routes));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.debug("配置快照已保存: path={}, size={}", path, bytes.length);
+        } catch (IOException e) {
+            log.warn("保存配置快照失败: path={}", path, e);
+        }
+    }
+
+    private static String describe(Object section) {
+        if (section instanceof ConfigSnapshotCodec.AccessRulesSection rules) {
+            return rules.source() + "/" + rules.rules().size();
+        }
+        if (section instanceof ConfigSnapshotCodec.UrlMappingsSection mappings) {
+            return mappings.source() + "/" + mappings.mappings().size();
+        }
+        if (section instanceof ConfigSnapshotCodec.RoutesSection routeSection) {
+            return routeSection.source() + "/" + routeSection.routes().size();
+        }
+        return "无";
+    }
+}
@@ -0,0 +1,182 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.util.DiagnosticLogSite;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Diagnostic Log Service
+ * 网关诊断日志门面，对高频日志调用点限流并周期性输出聚合汇总
+ *
+ * 遭受攻击或后端故障时，每个请求都同步输出一条日志会成为瓶颈：
+ * - 每个调用点按令牌桶限流，超出速率的日志只计数不输出
+ * - 每个汇总周期输出一条汇总，包含总次数、被抑制次数、来源数和最多的目标
+ * - 同一异常签名（异常类型 + 栈顶若干帧）只有前几次输出完整堆栈，之后只输出异常摘要
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DiagnosticLogService {
+
+    /**
+     * 计算异常签名使用的栈帧数
+     */
+    private static final int SIGNATURE_FRAMES = 3;
+
+    private final GatewayProperties gatewayProperties;
+
+    private final Map<String, DiagnosticLogSite> sites = new ConcurrentHashMap<>();
+
+    /**
+     * 异常签名出现次数
+     */
+    private final Map<String, AtomicInteger> signatureCounts = new ConcurrentHashMap<>();
+
+    private Disposable summarySchedule;
+
+    /**
+     * 启动汇总输出
+     */
+    @PostConstruct
+    public void startSummaries() {
+        GatewayProperties.DiagnosticLog properties = gatewayProperties.getDiagnosticLog();
+        summarySchedule = Flux.interval(properties.getSummaryInterval(), properties.getSummaryInterval())
+                .onBackpressureDrop()
+                .subscribe(tick -> emitSummaries(), e -> log.error("输出诊断日志汇总异常", e));
+    }
+
+    @PreDestroy
+    public void stopSummaries() {
+        if (summarySchedule != null) {
+            summarySchedule.dispose();
+        }
+        emitSummaries();
+    }
+
+    /**
+     * 获取或注册一个调用点，同名调用点只注册一次
+     *
+     * @param name   调用点名称
+     * @param logger 输出日志的 Logger
+     * @param level  日志级别
+     */
+    public DiagnosticLogSite site(String name, Logger logger, Level level) {
+        return sites.computeIfAbsent(name, key -> {
+            GatewayProperties.DiagnosticLog properties = gatewayProperties.getDiagnosticLog();
+            return new DiagnosticLogSite(key, logger, level, properties.getPermitsPerSecond(),
+                    properties.getBurst(), properties.getMaxDistinctKeys());
+        });
+    }
+
+    /**
+     * 输出一条限流日志
+     *
+     * @param site   调用点
+     * @param source 来源（如客户端IP），用于汇总
+     * @param target 目标（如请求路径），用于汇总
+     * @param format 日志格式
+     * @param args   日志参数
+     */
+    public void log(DiagnosticLogSite site, String source, String target, String format, Object... args) {
+        boolean permitted = site.tryAcquire(System.nanoTime());
+        site.count(source, target, !permitted);
+        if (permitted) {
+            site.getLogger().atLevel(site.getLevel()).log(format, args);
+        }
+    }
+
+    /**
+     * 输出一条带异常的限流日志
+     * 同一异常签名的前几次出现不受限流影响并输出完整堆栈，之后受限流影响且只输出异常类型和消息
+     */
+    public void logException(DiagnosticLogSite site, String source, String target, Throwable ex,
+                             String format, Object... args) {
+        if (isFirstOccurrences(ex)) {
+            site.count(source, target, false);
+            site.getLogger().atLevel(site.getLevel()).setCause(ex).log(format, args);
+            return;
+        }
+
+        boolean permitted = site.tryAcquire(System.nanoTime());
+        site.count(source, target, !permitted);
+        if (permitted) {
+            site.getLogger().atLevel(site.getLevel())
+                    .log(format + " [{}: {}]", appendArgs(args, ex.getClass().getName(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * 判断异常签名是否仍在输出完整堆栈的次数内
+     * 签名数量达到上限后，新签名不再记录，也不再输出完整堆栈
+     */
+    private boolean isFirstOccurrences(Throwable ex) {
+        GatewayProperties.DiagnosticLog properties = gatewayProperties.getDiagnosticLog();
+        String signature = signature(ex);
+        AtomicInteger count = signatureCounts.get(signature);
+        if (count == null) {
+            if (signatureCounts.size() >= properties.getMaxSignatures()) {
+                return false;
+            }
+            count = signatureCounts.computeIfAbsent(signature, key -> new AtomicInteger());
+        }
+        return count.incrementAndGet() <= properties.getStackTraceLimit();
+    }
+
+    /**
+     * 异常签名：根因的类型和栈顶若干帧
+     */
+    private static String signature(Throwable ex) {
+        Throwable root = ex;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        StringBuilder signature = new StringBuilder(ex.getClass().getName());
+        if (root != ex) {
+            signature.append('<').append(root.getClass().getName());
+        }
+        StackTraceElement[] frames = root.getStackTrace();
+        for (int i = 0; i < Math.min(SIGNATURE_FRAMES, frames.length); i++) {
+            signature.append('|').append(frames[i].getClassName()).append('.')
+                    .append(frames[i].getMethodName()).append(':').append(frames[i].getLineNumber());
+        }
+        return signature.toString();
+    }
+
+    private static Object[] appendArgs(Object[] args, Object... extra) {
+        Object[] merged = Arrays.copyOf(args, args.length + extra.length);
+        System.arraycopy(extra, 0, merged, args.length, extra.length);
+        return merged;
+    }
+
+    /**
+     * 输出各调用点上一周期的汇总，只有发生过抑制的调用点才输出
+     */
+    private void emitSummaries() {
+        long intervalSeconds = gatewayProperties.getDiagnosticLog().getSummaryInterval().toSeconds();
+        for (DiagnosticLogSite site : sites.values()) {
+            DiagnosticLogSite.Window window = site.rollWindow();
+            long suppressed = window.getSuppressed();
+            if (suppressed == 0) {
+                continue;
+            }
+            Map.Entry<String, Long> topTarget = window.topTarget();
+            site.getLogger().atLevel(site.getLevel()).log("[{}] 最近{}秒共 {} 次（已抑制 {} 次），来源 {}{} 个，最多目标 {} ({} 次)",
+                    site.getName(), intervalSeconds, window.getTotal(), suppressed,
+                    window.isSourceOverflow() ? ">=" : "", window.getDistinctSources(),
+                    topTarget != null ? topTarget.getKey() : "-", topTarget != null ? topTarget.getValue() : 0);
+        }
+    }
+}
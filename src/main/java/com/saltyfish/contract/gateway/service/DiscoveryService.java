@@ -5,8 +5,12 @@ import com.alibaba.nacos.api.naming.pojo.Instance;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Discovery Service
@@ -19,61 +23,124 @@ public class DiscoveryService {
     @Autowired
     private NamingService namingService;
 
+    @Autowired
+    private ActiveHealthProbeService activeHealthProbeService;
+
+    @Autowired
+    private BlockingCallAdapter blockingCallAdapter;
+
     /**
      * 获取服务的所有实例
      *
      * @param serviceName    服务名称
      * @param groupName 分组名称
-     * @return 服务实例列表
+     * @return 服务实例列表，查询失败时为空
      */
-    public List<Instance> getAllInstances(String serviceName, String groupName) {
-        try {
-            List<Instance> instances = namingService.getAllInstances(serviceName, groupName);
-            log.debug("获取服务实例成功: serviceName={}, instanceCount={}", serviceName, instances.size());
-            return instances;
-        } catch (Exception e) {
-            log.error("获取服务实例失败: serviceName={}", serviceName, e);
-            return null;
-        }
+    public Mono<List<Instance>> getAllInstances(String serviceName, String groupName) {
+        return blockingCallAdapter.call("naming.getAllInstances",
+                        () -> namingService.getAllInstances(serviceName, groupName))
+                .doOnNext(instances -> log.debug("获取服务实例成功: serviceName={}, instanceCount={}",
+                        serviceName, instances.size()))
+                .onErrorResume(e -> {
+                    log.error("获取服务实例失败: serviceName={}", serviceName, e);
+                    return Mono.empty();
+                });
     }
 
     /**
      * 获取服务的健康实例
      *
      * @param serviceName 服务名称
-     * @return 健康的服务实例列表
+     * @return 健康的服务实例列表，查询失败时为空
      */
-    public List<Instance> getHealthyInstances(String serviceName) {
-        try {
-            List<Instance> instances = namingService.selectInstances(serviceName, true);
-            log.debug("获取健康服务实例成功: serviceName={}, healthyInstanceCount={}", serviceName, instances.size());
-            return instances;
-        } catch (Exception e) {
-            log.error("获取健康服务实例失败: serviceName={}", serviceName, e);
-            return null;
-        }
+    public Mono<List<Instance>> getHealthyInstances(String serviceName) {
+        return selectHealthyInstances(serviceName)
+                .doOnNext(instances -> log.debug("获取健康服务实例成功: serviceName={}, healthyInstanceCount={}",
+                        serviceName, instances.size()))
+                .onErrorResume(e -> {
+                    log.error("获取健康服务实例失败: serviceName={}", serviceName, e);
+                    return Mono.empty();
+                });
     }
 
     /**
      * 根据负载均衡算法选择一个服务实例
      *
      * @param serviceName 服务名称
-     * @return 选中的服务实例
+     * @return 选中的服务实例，没有可用实例或查询失败时为空
+     */
+    public Mono<Instance> selectOneHealthyInstance(String serviceName) {
+        return selectHealthyInstances(serviceName)
+                .map(instances -> Optional.ofNullable(selectWeightedInstance(instances)))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(instance -> {
+                    if (instance.isEmpty()) {
+                        log.warn("没有可用的健康服务实例: serviceName={}", serviceName);
+                        return Mono.<Instance>empty();
+                    }
+                    log.debug("选择服务实例成功: serviceName={}, instance={}:{}",
+                            serviceName, instance.get().getIp(), instance.get().getPort());
+                    return Mono.just(instance.get());
+                })
+                .onErrorResume(e -> {
+                    log.error("选择服务实例失败: serviceName={}", serviceName, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 查询 Nacos 健康实例并过滤掉未通过主动探测的实例
      */
-    public Instance selectOneHealthyInstance(String serviceName) {
-        try {
-            Instance instance = namingService.selectOneHealthyInstance(serviceName);
-            if (instance != null) {
-                log.debug("选择服务实例成功: serviceName={}, instance={}:{}", 
-                         serviceName, instance.getIp(), instance.getPort());
-            } else {
-                log.warn("没有可用的健康服务实例: serviceName={}", serviceName);
+    private Mono<List<Instance>> selectHealthyInstances(String serviceName) {
+        return blockingCallAdapter.call("naming.selectInstances",
+                        () -> namingService.selectInstances(serviceName, true))
+                .map(this::filterProbedInstances);
+    }
+
+    /**
+     * 过滤掉未通过主动探测的实例
+     * 全部实例都未通过探测时保留原列表，避免探测配置错误导致服务整体不可用
+     */
+    private List<Instance> filterProbedInstances(List<Instance> instances) {
+        if (instances == null || instances.isEmpty()) {
+            return instances;
+        }
+        List<Instance> probed = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (activeHealthProbeService.isInstanceUp(instance)) {
+                probed.add(instance);
             }
-            return instance;
-        } catch (Exception e) {
-            log.error("选择服务实例失败: serviceName={}", serviceName, e);
+        }
+        if (probed.isEmpty()) {
+            log.warn("所有实例均未通过主动探测，回退到Nacos健康实例列表: serviceName={}",
+                    instances.get(0).getServiceName());
+            return instances;
+        }
+        return probed;
+    }
+
+    /**
+     * 按实例权重随机选择一个实例
+     */
+    private Instance selectWeightedInstance(List<Instance> instances) {
+        if (instances == null || instances.isEmpty()) {
             return null;
         }
+        double totalWeight = 0;
+        for (Instance instance : instances) {
+            totalWeight += Math.max(0, instance.getWeight());
+        }
+        if (totalWeight <= 0) {
+            return instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
+        }
+        double random = ThreadLocalRandom.current().nextDouble(totalWeight);
+        for (Instance instance : instances) {
+            random -= Math.max(0, instance.getWeight());
+            if (random < 0) {
+                return instance;
+            }
+        }
+        return instances.get(instances.size() - 1);
     }
 
     /**
@@ -82,9 +149,10 @@ public class DiscoveryService {
      * @param serviceName 服务名称
      * @return 是否存在健康实例
      */
-    public boolean hasHealthyInstance(String serviceName) {
-        List<Instance> instances = getHealthyInstances(serviceName);
-        return instances != null && !instances.isEmpty();
+    public Mono<Boolean> hasHealthyInstance(String serviceName) {
+        return getHealthyInstances(serviceName)
+                .map(instances -> !instances.isEmpty())
+                .defaultIfEmpty(false);
     }
 
     /**
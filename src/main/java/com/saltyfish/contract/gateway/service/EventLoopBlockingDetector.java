@@ -0,0 +1,356 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.dto.EventLoopBlockingDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.LoopResources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Event Loop Blocking Detector
+ * 事件循环阻塞检测，用于测试和预发环境，默认关闭
+ *
+ * 检测线程按固定间隔向每个 reactor-netty 事件循环提交一个空探测任务，探测任务从提交到执行的延迟即事件循环延迟。
+ * 探测任务等待超过阈值时对事件循环线程采样调用栈，按栈中最近的过滤器或控制器类归类，记录阻塞次数、累计阻塞时间和最近一次的调用栈。
+ * 阻塞在两次检测之间开始并结束时来不及采样，这类阻塞单独计数，不归入任何组件。
+ * 开启严格模式后，存在阻塞记录时 /actuator/health 返回 DOWN，test-routes.sh 以非零状态退出。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventLoopBlockingDetector {
+
+    public static final String UNKNOWN_COMPONENT = "unknown";
+
+    private static final String BASE_PACKAGE = "com.saltyfish.contract.gateway.";
+
+    private final GatewayProperties gatewayProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final List<LoopProbe> probes = new ArrayList<>();
+
+    /**
+     * 按过滤器/控制器汇总的阻塞记录，只由检测线程写入
+     */
+    private final Map<String, Finding> findings = new ConcurrentHashMap<>();
+
+    /**
+     * 没有采样到调用栈的阻塞，只由检测线程写入
+     */
+    private volatile long unsampledCount;
+    private volatile long unsampledNanos;
+
+    private ScheduledExecutorService watchdog;
+    private Timer lagTimer;
+    private Timer unsampledTimer;
+
+    @PostConstruct
+    public void start() {
+        GatewayProperties.BlockingDetector properties = gatewayProperties.getBlockingDetector();
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        // 服务端和网关 HttpClient 默认共用 reactor-netty 全局资源中的事件循环
+        EventLoopGroup group = HttpResources.get().onServer(LoopResources.DEFAULT_NATIVE);
+        for (EventExecutor executor : group) {
+            probes.add(new LoopProbe(executor, loopThread(executor)));
+        }
+
+        lagTimer = Timer.builder("gateway.eventloop.lag")
+                .description("事件循环延迟：探测任务从提交到执行的时间")
+                .register(meterRegistry);
+        unsampledTimer = Timer.builder("gateway.eventloop.blocked.unsampled")
+                .description("没有采样到调用栈的事件循环阻塞时间")
+                .register(meterRegistry);
+
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gateway-blocking-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = properties.getProbeInterval().toNanos();
+        watchdog.scheduleAtFixedRate(this::tick, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+
+        log.warn("事件循环阻塞检测已开启: loops={}, probeInterval={}, threshold={}, failOnBlocking={}",
+                probes.size(), properties.getProbeInterval(), properties.getThreshold(), properties.isFailOnBlocking());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return watchdog != null;
+    }
+
+    /**
+     * 是否应判定为失败：严格模式下存在阻塞记录
+     */
+    public boolean isFailing() {
+        return isEnabled() && gatewayProperties.getBlockingDetector().isFailOnBlocking()
+                && (!findings.isEmpty() || unsampledCount > 0);
+    }
+
+    /**
+     * 没有采样到调用栈的阻塞次数
+     */
+    public long getUnsampledCount() {
+        return unsampledCount;
+    }
+
+    /**
+     * 没有采样到调用栈的累计阻塞时间（毫秒）
+     */
+    public long getUnsampledMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(unsampledNanos);
+    }
+
+    /**
+     * 按累计阻塞时间从高到低返回阻塞记录
+     */
+    public List<EventLoopBlockingDto> getFindings() {
+        return findings.values().stream()
+                .map(Finding::toDto)
+                .sorted(Comparator.comparingLong(EventLoopBlockingDto::getBlockedMillis).reversed())
+                .toList();
+    }
+
+    /**
+     * 检测摘要
+     */
+    public Map<String, Object> summary() {
+        GatewayProperties.BlockingDetector properties = gatewayProperties.getBlockingDetector();
+        List<EventLoopBlockingDto> list = getFindings();
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("enabled", isEnabled());
+        summary.put("failOnBlocking", properties.isFailOnBlocking());
+        summary.put("thresholdMillis", properties.getThreshold().toMillis());
+        summary.put("loops", probes.size());
+        summary.put("blockedMillis", list.stream().mapToLong(EventLoopBlockingDto::getBlockedMillis).sum());
+        summary.put("findings", list);
+        summary.put("unsampledCount", unsampledCount);
+        summary.put("unsampledMillis", getUnsampledMillis());
+        return summary;
+    }
+
+    /**
+     * 清空阻塞记录，集成测试在每个用例前调用
+     */
+    public void reset() {
+        findings.clear();
+        unsampledCount = 0;
+        unsampledNanos = 0;
+    }
+
+    /**
+     * 检测线程每个间隔执行一次：结算已执行的探测、对超过阈值仍未执行的探测采样、提交新的探测
+     */
+    private void tick() {
+        long thresholdNanos = gatewayProperties.getBlockingDetector().getThreshold().toNanos();
+        long now = System.nanoTime();
+        for (LoopProbe probe : probes) {
+            try {
+                if (probe.submittedAt == 0) {
+                    probe.submit(now);
+                    continue;
+                }
+                long completedAt = probe.completedAt;
+                if (completedAt != 0) {
+                    long lag = completedAt - probe.submittedAt;
+                    lagTimer.record(lag, TimeUnit.NANOSECONDS);
+                    if (lag >= thresholdNanos) {
+                        recordBlocked(probe, lag);
+                    }
+                    probe.submit(now);
+                } else if (probe.sample == null && probe.thread != null && now - probe.submittedAt >= thresholdNanos) {
+                    probe.sample = probe.thread.getStackTrace();
+                }
+            } catch (RejectedExecutionException e) {
+                // 事件循环正在关闭
+                probe.submittedAt = 0;
+            } catch (Exception e) {
+                log.warn("事件循环探测失败", e);
+            }
+        }
+    }
+
+    private void recordBlocked(LoopProbe probe, long blockedNanos) {
+        StackTraceElement[] stack = probe.sample;
+        String threadName = probe.thread != null ? probe.thread.getName() : null;
+        if (stack == null) {
+            // 阻塞在两次检测之间结束，无法判断发生在哪个组件
+            unsampledCount++;
+            unsampledNanos += blockedNanos;
+            unsampledTimer.record(blockedNanos, TimeUnit.NANOSECONDS);
+            log.debug("检测到未采样的事件循环阻塞: blocked={}ms, thread={}",
+                    TimeUnit.NANOSECONDS.toMillis(blockedNanos), threadName);
+            return;
+        }
+        String component = resolveComponent(stack);
+        List<String> frames = Arrays.stream(stack)
+                .limit(gatewayProperties.getBlockingDetector().getStackDepth())
+                .map(StackTraceElement::toString)
+                .toList();
+
+        Finding finding = findings.computeIfAbsent(component, Finding::new);
+        boolean first = finding.count == 0;
+        finding.record(blockedNanos, threadName, frames);
+
+        Timer.builder("gateway.eventloop.blocked")
+                .description("事件循环阻塞时间")
+                .tag("component", component)
+                .register(meterRegistry)
+                .record(blockedNanos, TimeUnit.NANOSECONDS);
+
+        if (first) {
+            log.warn("检测到事件循环阻塞: component={}, blocked={}ms, thread={}\n\t{}", component,
+                    TimeUnit.NANOSECONDS.toMillis(blockedNanos), threadName, String.join("\n\t", frames));
+        } else {
+            log.debug("检测到事件循环阻塞: component={}, blocked={}ms, thread={}", component,
+                    TimeUnit.NANOSECONDS.toMillis(blockedNanos), threadName);
+        }
+    }
+
+    /**
+     * 事件循环线程，在启动时通过一次性任务取得，供探测任务未执行时采样
+     */
+    private static Thread loopThread(EventExecutor executor) {
+        Future<Thread> future = executor.submit(Thread::currentThread);
+        try {
+            return future.get(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("获取事件循环线程失败，首次探测执行后再记录: executor={}", executor, e);
+        }
+        return null;
+    }
+
+    /**
+     * 取调用栈中最近的过滤器或控制器类名，没有时取最近的网关类名
+     */
+    private static String resolveComponent(StackTraceElement[] stack) {
+        String fallback = null;
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (!className.startsWith(BASE_PACKAGE)) {
+                continue;
+            }
+            if (className.startsWith(BASE_PACKAGE + "filter.") || className.startsWith(BASE_PACKAGE + "controller.")) {
+                return simpleName(className);
+            }
+            if (fallback == null) {
+                fallback = simpleName(className);
+            }
+        }
+        return fallback != null ? fallback : UNKNOWN_COMPONENT;
+    }
+
+    private static String simpleName(String className) {
+        String name = className.substring(className.lastIndexOf('.') + 1);
+        int inner = name.indexOf('$');
+        return inner > 0 ? name.substring(0, inner) : name;
+    }
+
+    /**
+     * 单个事件循环的探测状态
+     * thread 在创建时记录，获取失败时由首次执行的探测任务补上；completedAt 由探测任务在事件循环线程写入，其余字段只由检测线程读写
+     */
+    private static final class LoopProbe {
+
+        private final EventExecutor executor;
+        private final Runnable task = this::run;
+
+        private volatile long submittedAt;
+        private volatile long completedAt;
+        private volatile Thread thread;
+        private volatile StackTraceElement[] sample;
+
+        private LoopProbe(EventExecutor executor, Thread thread) {
+            this.executor = executor;
+            this.thread = thread;
+        }
+
+        private void submit(long now) {
+            completedAt = 0;
+            sample = null;
+            submittedAt = now;
+            executor.execute(task);
+        }
+
+        private void run() {
+            if (thread == null) {
+                thread = Thread.currentThread();
+            }
+            completedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * 单个过滤器/控制器的阻塞统计，只由检测线程写入
+     */
+    private static final class Finding {
+
+        private final String component;
+        private volatile long count;
+        private volatile long blockedNanos;
+        private volatile long maxBlockedNanos;
+        private volatile long lastSeen;
+        private volatile String thread;
+        private volatile List<String> stackTrace = List.of();
+
+        private Finding(String component) {
+            this.component = component;
+        }
+
+        private void record(long nanos, String threadName, List<String> frames) {
+            count++;
+            blockedNanos += nanos;
+            maxBlockedNanos = Math.max(maxBlockedNanos, nanos);
+            lastSeen = System.currentTimeMillis();
+            thread = threadName;
+            if (!frames.isEmpty()) {
+                stackTrace = frames;
+            }
+        }
+
+        private EventLoopBlockingDto toDto() {
+            return EventLoopBlockingDto.builder()
+                    .component(component)
+                    .count(count)
+                    .blockedMillis(TimeUnit.NANOSECONDS.toMillis(blockedNanos))
+                    .maxBlockedMillis(TimeUnit.NANOSECONDS.toMillis(maxBlockedNanos))
+                    .lastSeen(lastSeen)
+                    .thread(thread)
+                    .stackTrace(stackTrace)
+                    .build();
+        }
+    }
+}
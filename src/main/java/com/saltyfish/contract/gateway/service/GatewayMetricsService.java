@@ -0,0 +1,178 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.filter.GatewayExchangeAttributes;
+import com.saltyfish.contract.gateway.filter.RequestTiming;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gateway Metrics Service
+ * 网关请求指标服务
+ *
+ * 指标按路由ID和路径模板打标签，首次出现时注册并缓存在无锁 Map 中，之后每次请求只做一次 Map 查找。
+ * 序列数量达到上限后，新的组合统一归入 overflow 标签，保证 Prometheus 注册表的内存有界。
+ */
+@Slf4j
+@Service
+public class GatewayMetricsService {
+
+    private static final Set<String> KNOWN_METHODS = Set.of(
+            "GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE");
+
+    private static final RequestTiming.Phase[] PHASES = RequestTiming.Phase.values();
+
+    private final MeterRegistry meterRegistry;
+    private final int maxSeries;
+
+    private final Map<RequestKey, RequestMeters> requestMeters = new ConcurrentHashMap<>();
+    private final Map<ErrorKey, Counter> errorCounters = new ConcurrentHashMap<>();
+    private final Counter overflowCounter;
+    private final Timer[] phaseTimers;
+    private final AtomicBoolean overflowWarned = new AtomicBoolean();
+
+    public GatewayMetricsService(MeterRegistry meterRegistry, GatewayProperties gatewayProperties) {
+        this.meterRegistry = meterRegistry;
+        this.maxSeries = gatewayProperties.getMonitoring().getMaxMeterSeries();
+        this.overflowCounter = Counter.builder("gateway.metrics.overflow")
+                .description("因序列数量达到上限而归入overflow标签的请求数")
+                .register(meterRegistry);
+
+        this.phaseTimers = new Timer[PHASES.length];
+        for (RequestTiming.Phase phase : PHASES) {
+            phaseTimers[phase.ordinal()] = Timer.builder("gateway.requests.phase")
+                    .description("请求在网关各处理阶段的耗时")
+                    .tag("phase", phase.getTag())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 记录一次请求各阶段的耗时，未经过的阶段不记录
+     *
+     * @param timing 请求计时
+     */
+    public void recordPhases(RequestTiming timing) {
+        for (RequestTiming.Phase phase : PHASES) {
+            long phaseNanos = timing.phaseNanos(phase);
+            if (phaseNanos >= 0) {
+                phaseTimers[phase.ordinal()].record(phaseNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * 记录一次请求
+     *
+     * @param routeId       路由ID
+     * @param pathTemplate  路径模板
+     * @param method        HTTP方法
+     * @param status        响应状态码，未知时为0
+     * @param durationNanos 处理耗时（纳秒）
+     * @param error         异常，可为空
+     */
+    public void recordRequest(String routeId, String pathTemplate, String method, int status,
+                              long durationNanos, Throwable error) {
+        String normalizedMethod = KNOWN_METHODS.contains(method) ? method : "OTHER";
+
+        RequestKey key = new RequestKey(routeId, pathTemplate, normalizedMethod, status);
+        RequestMeters meters = requestMeters.get(key);
+        if (meters == null) {
+            meters = resolveRequestMeters(key);
+        }
+        meters.total.increment();
+        meters.duration.record(durationNanos, TimeUnit.NANOSECONDS);
+
+        if (error != null) {
+            ErrorKey errorKey = new ErrorKey(routeId, pathTemplate, normalizedMethod, error.getClass());
+            Counter counter = errorCounters.get(errorKey);
+            if (counter == null) {
+                counter = resolveErrorCounter(errorKey);
+            }
+            counter.increment();
+        }
+    }
+
+    /**
+     * 首次出现的请求组合：未超过上限时注册新序列，否则归入overflow
+     */
+    private RequestMeters resolveRequestMeters(RequestKey key) {
+        if (requestMeters.size() >= maxSeries) {
+            onOverflow();
+            key = new RequestKey(GatewayExchangeAttributes.OVERFLOW, GatewayExchangeAttributes.OVERFLOW,
+                    key.method(), key.status());
+            RequestMeters existing = requestMeters.get(key);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return requestMeters.computeIfAbsent(key, this::registerRequestMeters);
+    }
+
+    private RequestMeters registerRequestMeters(RequestKey key) {
+        String status = key.status() > 0 ? String.valueOf(key.status()) : "unknown";
+        Counter total = Counter.builder("gateway.requests.total")
+                .tag("route", key.routeId())
+                .tag("path", key.pathTemplate())
+                .tag("method", key.method())
+                .tag("status", status)
+                .register(meterRegistry);
+        Timer duration = Timer.builder("gateway.requests.duration")
+                .tag("route", key.routeId())
+                .tag("path", key.pathTemplate())
+                .tag("method", key.method())
+                .tag("status", status)
+                .register(meterRegistry);
+        return new RequestMeters(total, duration);
+    }
+
+    /**
+     * 首次出现的异常组合：未超过上限时注册新序列，否则归入overflow
+     */
+    private Counter resolveErrorCounter(ErrorKey key) {
+        if (errorCounters.size() >= maxSeries) {
+            onOverflow();
+            key = new ErrorKey(GatewayExchangeAttributes.OVERFLOW, GatewayExchangeAttributes.OVERFLOW,
+                    key.method(), key.errorType());
+        }
+        return errorCounters.computeIfAbsent(key, k -> Counter.builder("gateway.requests.errors")
+                .tag("route", k.routeId())
+                .tag("path", k.pathTemplate())
+                .tag("method", k.method())
+                .tag("error", k.errorType().getSimpleName())
+                .register(meterRegistry));
+    }
+
+    private void onOverflow() {
+        overflowCounter.increment();
+        if (overflowWarned.compareAndSet(false, true)) {
+            log.warn("网关指标序列数量达到上限{}，新的标签组合将归入overflow", maxSeries);
+        }
+    }
+
+    /**
+     * 当前已注册的请求指标序列数
+     */
+    public int getSeriesCount() {
+        return requestMeters.size();
+    }
+
+    private record RequestKey(String routeId, String pathTemplate, String method, int status) {
+    }
+
+    private record ErrorKey(String routeId, String pathTemplate, String method, Class<?> errorType) {
+    }
+
+    private record RequestMeters(Counter total, Timer duration) {
+    }
+}
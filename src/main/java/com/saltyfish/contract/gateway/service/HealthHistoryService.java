@@ -0,0 +1,130 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.dto.HealthHistoryPointDto;
+import com.saltyfish.contract.gateway.dto.HealthTransitionDto;
+import com.saltyfish.contract.gateway.dto.ServiceHealthDto;
+import com.saltyfish.contract.gateway.dto.ServiceHealthStatus;
+import com.saltyfish.contract.gateway.service.impl.HealthStatusServiceImpl;
+import com.saltyfish.contract.gateway.util.HealthHistoryBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Health History Service
+ * 服务健康历史服务，按秒采样健康快照并写入每个服务的环形缓冲区
+ *
+ * 采样在独立的定时任务中进行，读取的是订阅维护的健康快照，不在请求链路上产生任何开销
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HealthHistoryService {
+
+    private final HealthStatusService healthStatusService;
+    private final GatewayProperties gatewayProperties;
+
+    private final Map<String, HealthHistoryBuffer> buffers = new HashMap<>();
+
+    private Disposable sampler;
+
+    /**
+     * 为每个被监控服务分配缓冲区并启动秒级采样
+     */
+    @PostConstruct
+    public void startSampling() {
+        GatewayProperties.HealthHistory properties = gatewayProperties.getHealthHistory();
+        for (String serviceName : HealthStatusServiceImpl.MONITORED_SERVICES) {
+            buffers.put(serviceName, new HealthHistoryBuffer(
+                    properties.getSecondCapacity(),
+                    properties.getMinuteCapacity(),
+                    properties.getTransitionCapacity()));
+        }
+
+        sampler = Flux.interval(Duration.ofSeconds(1))
+                .onBackpressureDrop()
+                .subscribe(tick -> sample(), e -> log.error("健康历史采样异常", e));
+
+        log.info("健康历史采样已启动: 秒级容量={}, 分钟级容量={}",
+                properties.getSecondCapacity(), properties.getMinuteCapacity());
+    }
+
+    /**
+     * 停止采样
+     */
+    @PreDestroy
+    public void stopSampling() {
+        if (sampler != null) {
+            sampler.dispose();
+        }
+    }
+
+    /**
+     * 采样一次所有服务的健康快照
+     */
+    private void sample() {
+        long epochSecond = System.currentTimeMillis() / 1000;
+        for (ServiceHealthDto serviceHealth : healthStatusService.getHealthSnapshot()) {
+            HealthHistoryBuffer buffer = buffers.get(serviceHealth.getServiceName());
+            if (buffer != null) {
+                buffer.record(epochSecond,
+                        serviceHealth.getHealthyCount(),
+                        serviceHealth.getTotalInstance(),
+                        ServiceHealthStatus.of(serviceHealth.getStatus()).ordinal());
+            }
+        }
+    }
+
+    /**
+     * 查询健康历史
+     *
+     * @param serviceName 服务名称
+     * @param fromMillis  起始时间（毫秒）
+     * @param toMillis    结束时间（毫秒）
+     * @param minute      是否使用分钟级降采样数据
+     * @return 采样点列表，服务未被监控时返回空列表
+     */
+    public List<HealthHistoryPointDto> queryHistory(String serviceName, long fromMillis, long toMillis, boolean minute) {
+        HealthHistoryBuffer buffer = buffers.get(serviceName);
+        if (buffer == null) {
+            return Collections.emptyList();
+        }
+        return minute
+                ? buffer.queryMinutes(fromMillis / 1000, toMillis / 1000)
+                : buffer.querySeconds(fromMillis / 1000, toMillis / 1000);
+    }
+
+    /**
+     * 查询状态转换记录
+     *
+     * @param serviceName 服务名称
+     * @param fromMillis  起始时间（毫秒）
+     * @param toMillis    结束时间（毫秒）
+     * @return 状态转换列表，服务未被监控时返回空列表
+     */
+    public List<HealthTransitionDto> queryTransitions(String serviceName, long fromMillis, long toMillis) {
+        HealthHistoryBuffer buffer = buffers.get(serviceName);
+        if (buffer == null) {
+            return Collections.emptyList();
+        }
+        return buffer.queryTransitions(fromMillis / 1000, toMillis / 1000);
+    }
+
+    /**
+     * 是否为被监控服务
+     */
+    public boolean isMonitored(String serviceName) {
+        return buffers.containsKey(serviceName);
+    }
+}
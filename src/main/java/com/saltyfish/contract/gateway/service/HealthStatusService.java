@@ -1,6 +1,8 @@
 package com.saltyfish.contract.gateway.service;
 
 import com.saltyfish.contract.gateway.dto.ServiceHealthDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -14,7 +16,7 @@ public interface HealthStatusService {
      *
      * @return 服务健康状态列表
      */
-    List<ServiceHealthDto> getAllServiceHealth();
+    Mono<List<ServiceHealthDto>> getAllServiceHealth();
 
     /**
      * 获取指定服务的健康状态
@@ -22,5 +24,19 @@ public interface HealthStatusService {
      * @param serviceName 服务名称
      * @return 服务健康状态
      */
-    ServiceHealthDto getServiceHealth(String serviceName);
+    Mono<ServiceHealthDto> getServiceHealth(String serviceName);
+
+    /**
+     * 获取由服务订阅维护的健康快照（不访问 Nacos）
+     *
+     * @return 被监控服务的最新健康状态列表
+     */
+    List<ServiceHealthDto> getHealthSnapshot();
+
+    /**
+     * 服务健康状态变更流，仅在状态发生变化时发出，所有订阅者共享同一上游
+     *
+     * @return 健康状态变更流
+     */
+    Flux<ServiceHealthDto> healthChanges();
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.dto.HeavyHitterDto;
+import com.saltyfish.contract.gateway.filter.GatewayExchangeAttributes;
+import com.saltyfish.contract.gateway.util.CountMinSketch;
+import com.saltyfish.contract.gateway.util.SpaceSavingSketch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Heavy Hitter Service
+ * 高频键统计服务，统计当前窗口内请求最多的客户端IP、路由、路径模板和拒绝原因
+ *
+ * 每个维度使用 Space-Saving 统计 Top-K，使用 Count-Min Sketch 估计任意键的次数，内存占用固定。
+ * 为减少事件循环线程之间的竞争，每个维度按线程分成若干分片，查询时再合并；
+ * 统计按固定窗口滚动，窗口结束时保留上一窗口的合并结果并清空分片。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HeavyHitterService {
+
+    /**
+     * 统计维度
+     */
+    public enum Dimension {
+        IP("ip"),
+        ROUTE("route"),
+        PATH("path"),
+        DENIAL("denial");
+
+        private final String value;
+
+        Dimension(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * 根据名称获取维度，不存在时返回null
+         */
+        public static Dimension of(String value) {
+            for (Dimension dimension : values()) {
+                if (dimension.value.equalsIgnoreCase(value)) {
+                    return dimension;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final Dimension[] DIMENSIONS = Dimension.values();
+
+    private final GatewayProperties gatewayProperties;
+
+    /**
+     * 分片，按 [维度][分片] 组织
+     */
+    private Shard[][] shards;
+    private int stripeMask;
+
+    private volatile long windowStart;
+    private volatile WindowSnapshot lastWindow;
+    private Disposable rollSchedule;
+
+    /**
+     * 初始化分片并启动窗口滚动
+     */
+    @PostConstruct
+    public void start() {
+        GatewayProperties.HeavyHitter properties = gatewayProperties.getHeavyHitter();
+        if (!properties.isEnabled()) {
+            log.info("高频键统计未启用");
+            return;
+        }
+
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+        Shard[][] created = new Shard[DIMENSIONS.length][stripes];
+        for (Shard[] dimensionShards : created) {
+            for (int i = 0; i < stripes; i++) {
+                dimensionShards[i] = new Shard(properties);
+            }
+        }
+        stripeMask = stripes - 1;
+        windowStart = System.currentTimeMillis();
+        shards = created;
+
+        rollSchedule = Flux.interval(properties.getWindow(), properties.getWindow())
+                .onBackpressureDrop()
+                .subscribe(tick -> rollWindow(), e -> log.error("滚动高频键统计窗口异常", e));
+
+        log.info("高频键统计已启动: window={}, capacity={}, stripes={}",
+                properties.getWindow(), properties.getCapacity(), stripes);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rollSchedule != null) {
+            rollSchedule.dispose();
+        }
+    }
+
+    /**
+     * 记录一次请求，在请求完成时由监控过滤器调用
+     */
+    public void record(ServerWebExchange exchange) {
+        if (shards == null) {
+            return;
+        }
+        // 按线程对象的哈希选分片，同一事件循环线程固定落在同一分片；高位混入低位，避免哈希低位分布不均
+        int hash = System.identityHashCode(Thread.currentThread());
+        int stripe = (hash ^ (hash >>> 16)) & stripeMask;
+        offer(Dimension.IP, stripe, GatewayExchangeAttributes.clientIp(exchange));
+        offer(Dimension.ROUTE, stripe, GatewayExchangeAttributes.routeId(exchange));
+        offer(Dimension.PATH, stripe, GatewayExchangeAttributes.pathTemplate(exchange));
+        offer(Dimension.DENIAL, stripe, GatewayExchangeAttributes.denialReason(exchange));
+    }
+
+    /**
+     * 查询某维度的 Top-K
+     *
+     * @param dimension 维度
+     * @param current   true为当前窗口（未结束），false为上一个完整窗口
+     * @param limit     返回数量
+     */
+    public List<HeavyHitterDto> top(Dimension dimension, boolean current, int limit) {
+        Merged merged = merged(dimension, current);
+        if (merged == null) {
+            return Collections.emptyList();
+        }
+        List<HeavyHitterDto> result = new ArrayList<>();
+        for (SpaceSavingSketch.Entry entry : merged.topK.top(limit)) {
+            result.add(HeavyHitterDto.builder()
+                    .key(entry.key())
+                    .count(entry.count())
+                    .error(entry.error())
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * 估计某个键在窗口内的次数（可能高估）
+     */
+    public long estimate(Dimension dimension, String key, boolean current) {
+        Merged merged = merged(dimension, current);
+        return merged != null ? merged.frequency.estimate(key) : 0;
+    }
+
+    /**
+     * 窗口起始时间（毫秒时间戳），没有对应窗口时返回-1
+     */
+    public long windowStart(boolean current) {
+        if (current) {
+            return shards != null ? windowStart : -1;
+        }
+        WindowSnapshot snapshot = lastWindow;
+        return snapshot != null ? snapshot.start : -1;
+    }
+
+    /**
+     * 窗口结束时间（毫秒时间戳），当前窗口返回当前时间，没有对应窗口时返回-1
+     */
+    public long windowEnd(boolean current) {
+        if (current) {
+            return shards != null ? System.currentTimeMillis() : -1;
+        }
+        WindowSnapshot snapshot = lastWindow;
+        return snapshot != null ? snapshot.end : -1;
+    }
+
+    private void offer(Dimension dimension, int stripe, String key) {
+        if (key == null) {
+            return;
+        }
+        Shard shard = shards[dimension.ordinal()][stripe];
+        synchronized (shard) {
+            shard.topK.offer(key, 1);
+            shard.frequency.add(key, 1);
+        }
+    }
+
+    private Merged merged(Dimension dimension, boolean current) {
+        if (shards == null) {
+            return null;
+        }
+        if (!current) {
+            WindowSnapshot snapshot = lastWindow;
+            return snapshot != null ? snapshot.dimensions[dimension.ordinal()] : null;
+        }
+        return merge(dimension, false);
+    }
+
+    /**
+     * 合并某维度的所有分片
+     * Top-K 按各分片的计数重新累加，分片内的误差不再单独保留
+     */
+    private Merged merge(Dimension dimension, boolean clear) {
+        Merged merged = new Merged(gatewayProperties.getHeavyHitter());
+        for (Shard shard : shards[dimension.ordinal()]) {
+            synchronized (shard) {
+                shard.topK.mergeInto(merged.topK);
+                merged.frequency.merge(shard.frequency);
+                if (clear) {
+                    shard.topK.clear();
+                    shard.frequency.clear();
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 结束当前窗口：保存合并结果并清空分片
+     */
+    private void rollWindow() {
+        long now = System.currentTimeMillis();
+        Merged[] dimensions = new Merged[DIMENSIONS.length];
+        for (Dimension dimension : DIMENSIONS) {
+            dimensions[dimension.ordinal()] = merge(dimension, true);
+        }
+        lastWindow = new WindowSnapshot(windowStart, now, dimensions);
+        windowStart = now;
+    }
+
+    /**
+     * 单个分片
+     */
+    private static class Shard {
+        private final SpaceSavingSketch topK;
+        private final CountMinSketch frequency;
+
+        private Shard(GatewayProperties.HeavyHitter properties) {
+            this.topK = new SpaceSavingSketch(properties.getCapacity());
+            this.frequency = new CountMinSketch(properties.getSketchWidth(), properties.getSketchDepth());
+        }
+    }
+
+    /**
+     * 合并后的维度统计
+     */
+    private static class Merged {
+        private final SpaceSavingSketch topK;
+        private final CountMinSketch frequency;
+
+        private Merged(GatewayProperties.HeavyHitter properties) {
+            this.topK = new SpaceSavingSketch(properties.getCapacity());
+            this.frequency = new CountMinSketch(properties.getSketchWidth(), properties.getSketchDepth());
+        }
+    }
+
+    /**
+     * 已结束窗口的统计结果
+     */
+    private record WindowSnapshot(long start, long end, Merged[] dimensions) {
+    }
+}
@@ -0,0 +1,227 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.util.DiagnosticLogSite;
+import com.saltyfish.contract.gateway.util.JwtVerifier;
+import com.saltyfish.contract.gateway.util.TokenHashes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JWT Identity Service
+ * 本地解析请求令牌，得到用户ID和角色，不调用鉴权中心
+ *
+ * 验签密钥来自本地配置，配置刷新后重新解析；验签结果按令牌摘要缓存，
+ * 缓存有效期不超过令牌自身的过期时间，重复令牌不再验签。无效令牌不缓存。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JwtIdentityService {
+
+    /**
+     * 令牌中的身份信息
+     *
+     * @param userId    用户ID
+     * @param username  用户名，令牌中没有时为null
+     * @param roles     角色
+     * @param expiresAt 缓存过期时间（毫秒时间戳）
+     */
+    public record Identity(String userId, String username, List<String> roles, long expiresAt) {
+    }
+
+    private final GatewayProperties gatewayProperties;
+    private final DiagnosticLogService diagnosticLogService;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 令牌摘要 -> 身份
+     */
+    private final Map<String, Identity> identities = new ConcurrentHashMap<>();
+
+    private volatile CompiledKeys compiledKeys = new CompiledKeys(null, null, null);
+
+    private DiagnosticLogSite invalidLogSite;
+    private Disposable cleanupSchedule;
+    private Counter cachedCounter;
+    private Counter verifiedCounter;
+    private Counter invalidCounter;
+
+    @PostConstruct
+    public void start() {
+        invalidLogSite = diagnosticLogService.site("jwt-invalid", log, Level.WARN);
+        cachedCounter = counter("cached");
+        verifiedCounter = counter("verified");
+        invalidCounter = counter("invalid");
+        Gauge.builder("gateway.jwt.cached", identities, Map::size)
+                .description("缓存的令牌身份数")
+                .register(meterRegistry);
+
+        cleanupSchedule = Flux.interval(Duration.ofMinutes(1), Duration.ofMinutes(1))
+                .onBackpressureDrop()
+                .subscribe(tick -> cleanup(), e -> log.error("清理令牌身份缓存失败", e));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (cleanupSchedule != null) {
+            cleanupSchedule.dispose();
+        }
+    }
+
+    /**
+     * 解析令牌
+     *
+     * @param token    令牌（不含 Bearer 前缀）
+     * @param clientIp 客户端IP，用于日志
+     * @return 身份，令牌无效或没有用户ID时返回null
+     */
+    public Identity resolve(String token, String clientIp) {
+        GatewayProperties.Jwt properties = gatewayProperties.getJwt();
+        // 先检查密钥配置，密钥变化时清空缓存
+        JwtVerifier verifier = verifier(properties);
+        if (verifier == null) {
+            invalidCounter.increment();
+            return null;
+        }
+
+        String tokenHash = TokenHashes.sha256(token);
+        long now = System.currentTimeMillis();
+        Identity identity = identities.get(tokenHash);
+        if (identity != null && identity.expiresAt() > now) {
+            cachedCounter.increment();
+            return identity;
+        }
+        try {
+            identity = toIdentity(verifier.verify(token), properties, now);
+        } catch (JwtVerifier.InvalidTokenException e) {
+            invalidCounter.increment();
+            diagnosticLogService.log(invalidLogSite, clientIp, e.getMessage(),
+                    "令牌验证失败: clientIp={}, reason={}", clientIp, e.getMessage());
+            return null;
+        }
+        if (identity == null) {
+            invalidCounter.increment();
+            return null;
+        }
+
+        verifiedCounter.increment();
+        if (identities.size() < properties.getCacheSize() || identities.containsKey(tokenHash)) {
+            identities.put(tokenHash, identity);
+        }
+        return identity;
+    }
+
+    private Identity toIdentity(JwtVerifier.VerifiedToken verified, GatewayProperties.Jwt properties, long now) {
+        Map<String, Object> claims = verified.claims();
+        String userId = null;
+        for (String claim : properties.getUserIdClaims()) {
+            Object value = claims.get(claim);
+            if (value != null && !String.valueOf(value).isEmpty()) {
+                userId = String.valueOf(value);
+                break;
+            }
+        }
+        if (userId == null) {
+            return null;
+        }
+        Object username = claims.get(properties.getUsernameClaim());
+        long expiresAt = Math.min(verified.expiresAt(), now + properties.getCacheTtl().toMillis());
+        return new Identity(userId, username != null ? String.valueOf(username) : null,
+                roles(claims.get(properties.getRolesClaim())), expiresAt);
+    }
+
+    /**
+     * 角色声明可以是数组或逗号分隔的字符串
+     */
+    private static List<String> roles(Object value) {
+        if (value instanceof Collection<?> collection) {
+            List<String> roles = new ArrayList<>(collection.size());
+            for (Object role : collection) {
+                roles.add(String.valueOf(role));
+            }
+            return List.copyOf(roles);
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            return List.of(text.split("\\s*,\\s*"));
+        }
+        return List.of();
+    }
+
+    /**
+     * 获取验签器，密钥配置变化（刷新后对象被替换）时重新解析；配置错误时返回null
+     */
+    private JwtVerifier verifier(GatewayProperties.Jwt properties) {
+        CompiledKeys current = compiledKeys;
+        if (current.hmacSecret == properties.getHmacSecret() && current.rsaPublicKeys == properties.getRsaPublicKeys()) {
+            return current.verifier;
+        }
+        synchronized (this) {
+            current = compiledKeys;
+            if (current.hmacSecret != properties.getHmacSecret() || current.rsaPublicKeys != properties.getRsaPublicKeys()) {
+                JwtVerifier verifier = null;
+                try {
+                    verifier = compile(properties);
+                    log.info("已加载JWT验签密钥: hmac={}, rsaKeys={}",
+                            properties.getHmacSecret() != null, properties.getRsaPublicKeys().keySet());
+                } catch (IllegalArgumentException e) {
+                    // 密钥配置错误时所有令牌按无效处理，直到配置被修正
+                    log.error("JWT验签密钥配置错误", e);
+                }
+                current = new CompiledKeys(properties.getHmacSecret(), properties.getRsaPublicKeys(), verifier);
+                compiledKeys = current;
+                // 密钥变化后旧的验签结果不再可信
+                identities.clear();
+            }
+            return current.verifier;
+        }
+    }
+
+    private static JwtVerifier compile(GatewayProperties.Jwt properties) {
+        String secret = properties.getHmacSecret();
+        byte[] hmacKey = null;
+        if (secret != null && !secret.isEmpty()) {
+            hmacKey = properties.isHmacSecretBase64()
+                    ? Base64.getDecoder().decode(secret)
+                    : secret.getBytes(StandardCharsets.UTF_8);
+        }
+        return new JwtVerifier(hmacKey, properties.getRsaPublicKeys(), properties.getClockSkew(),
+                properties.isRequireExpiration());
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("gateway.jwt.requests")
+                .description("令牌解析次数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        identities.values().removeIf(identity -> identity.expiresAt() <= now);
+    }
+
+    /**
+     * 已解析的密钥及其配置来源
+     */
+    private record CompiledKeys(String hmacSecret, Map<String, String> rsaPublicKeys, JwtVerifier verifier) {
+    }
+}
@@ -6,18 +6,43 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Nacos Config Service
  * Nacos配置服务，提供配置的读取和发布功能
+ *
+ * Nacos SDK 的调用是阻塞的，统一通过 {@link BlockingCallAdapter} 执行，不占用事件循环线程。
+ * 已注册监听器的配置由 {@link com.saltyfish.contract.gateway.config.NacosConfigListener} 推送到本地缓存，
+ * 读取时直接返回缓存内容及其MD5，不访问 Nacos。
  */
 @Slf4j
 @Service
 public class NacosConfigService {
 
+    public static final String ACCESS_RULES_DATA_ID = "contract-gateway-access-rules.yml";
+    public static final String URL_MAPPINGS_DATA_ID = "contract-gateway-url-mappings.yml";
+    public static final String ROUTES_DATA_ID = "contract-gateway-routes.yml";
+
+    private static final long GET_CONFIG_TIMEOUT_MS = 5000;
+
+    /**
+     * 读取配置的调用超时，比 SDK 自身的超时多留1秒
+     */
+    private static final Duration GET_CONFIG_CALL_TIMEOUT = Duration.ofMillis(GET_CONFIG_TIMEOUT_MS + 1000);
+
     @Autowired
     private ConfigService configService;
 
+    @Autowired
+    private BlockingCallAdapter blockingCallAdapter;
+
     @Value("${spring.cloud.nacos.config.group:CONTRACT_REVIEW}")
     private String configGroup;
 
@@ -25,42 +50,76 @@ public class NacosConfigService {
     private String namespace;
 
     /**
-     * 获取配置内容
+     * 已监听配置的本地副本，配置不存在时内容为null
+     */
+    private final Map<String, ConfigContent> configCache = new ConcurrentHashMap<>();
+
+    /**
+     * 配置内容及其MD5
+     *
+     * @param content 配置内容，配置不存在时为null
+     * @param md5     内容的MD5，配置不存在时为null
+     */
+    public record ConfigContent(String content, String md5) {
+
+        static ConfigContent of(String content) {
+            if (content == null) {
+                return new ConfigContent(null, null);
+            }
+            return new ConfigContent(content, DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * 更新本地缓存，由配置监听器在收到推送时调用
+     *
+     * @param dataId  配置ID
+     * @param content 配置内容，配置被删除时为null
+     */
+    public void cacheConfig(String dataId, String content) {
+        configCache.put(dataId, ConfigContent.of(content != null && !content.isEmpty() ? content : null));
+    }
+
+    /**
+     * 获取配置内容，已监听的配置从本地缓存读取，其余配置从 Nacos 读取
      *
      * @param dataId 配置ID
-     * @return 配置内容
+     * @return 配置内容，读取失败时返回错误
      */
-    public String getConfig(String dataId) {
-        try {
-            String config = configService.getConfig(dataId, configGroup, 5000);
-            log.debug("获取配置成功: dataId={}, group={}, config={}", dataId, configGroup, config);
-            return config;
-        } catch (NacosException e) {
-            log.error("获取配置失败: dataId={}, group={}", dataId, configGroup, e);
-            return null;
+    public Mono<ConfigContent> getConfig(String dataId) {
+        ConfigContent cached = configCache.get(dataId);
+        if (cached != null) {
+            return Mono.just(cached);
         }
+        return blockingCallAdapter.call("config.get", GET_CONFIG_CALL_TIMEOUT,
+                        () -> ConfigContent.of(configService.getConfig(dataId, configGroup, GET_CONFIG_TIMEOUT_MS)))
+                .doOnNext(config -> log.debug("获取配置成功: dataId={}, group={}, md5={}", dataId, configGroup, config.md5()))
+                .doOnError(e -> log.error("获取配置失败: dataId={}, group={}", dataId, configGroup, e));
     }
 
     /**
-     * 发布配置
+     * 发布配置，发布成功后立即更新本地缓存
      *
      * @param dataId  配置ID
      * @param content 配置内容
      * @return 是否发布成功
      */
-    public boolean publishConfig(String dataId, String content) {
-        try {
-            boolean result = configService.publishConfig(dataId, configGroup, content);
-            if (result) {
-                log.info("发布配置成功: dataId={}, group={}", dataId, configGroup);
-            } else {
-                log.warn("发布配置失败: dataId={}, group={}", dataId, configGroup);
-            }
-            return result;
-        } catch (NacosException e) {
-            log.error("发布配置异常: dataId={}, group={}", dataId, configGroup, e);
-            return false;
-        }
+    public Mono<Boolean> publishConfig(String dataId, String content) {
+        return blockingCallAdapter.call("config.publish", () -> configService.publishConfig(dataId, configGroup, content))
+                .doOnNext(result -> {
+                    if (result) {
+                        if (configCache.containsKey(dataId)) {
+                            cacheConfig(dataId, content);
+                        }
+                        log.info("发布配置成功: dataId={}, group={}", dataId, configGroup);
+                    } else {
+                        log.warn("发布配置失败: dataId={}, group={}", dataId, configGroup);
+                    }
+                })
+                .onErrorResume(NacosException.class, e -> {
+                    log.error("发布配置异常: dataId={}, group={}", dataId, configGroup, e);
+                    return Mono.just(false);
+                });
     }
 
     /**
@@ -69,60 +128,63 @@ public class NacosConfigService {
      * @param dataId 配置ID
      * @return 是否删除成功
      */
-    public boolean removeConfig(String dataId) {
-        try {
-            boolean result = configService.removeConfig(dataId, configGroup);
-            if (result) {
-                log.info("删除配置成功: dataId={}, group={}", dataId, configGroup);
-            } else {
-                log.warn("删除配置失败: dataId={}, group={}", dataId, configGroup);
-            }
-            return result;
-        } catch (NacosException e) {
-            log.error("删除配置异常: dataId={}, group={}", dataId, configGroup, e);
-            return false;
-        }
+    public Mono<Boolean> removeConfig(String dataId) {
+        return blockingCallAdapter.call("config.remove", () -> configService.removeConfig(dataId, configGroup))
+                .doOnNext(result -> {
+                    if (result) {
+                        if (configCache.containsKey(dataId)) {
+                            cacheConfig(dataId, null);
+                        }
+                        log.info("删除配置成功: dataId={}, group={}", dataId, configGroup);
+                    } else {
+                        log.warn("删除配置失败: dataId={}, group={}", dataId, configGroup);
+                    }
+                })
+                .onErrorResume(NacosException.class, e -> {
+                    log.error("删除配置异常: dataId={}, group={}", dataId, configGroup, e);
+                    return Mono.just(false);
+                });
     }
 
     /**
      * 获取访问规则配置
      */
-    public String getAccessRuleConfig() {
-        return getConfig("contract-gateway-access-rules.yml");
+    public Mono<ConfigContent> getAccessRuleConfig() {
+        return getConfig(ACCESS_RULES_DATA_ID);
     }
 
     /**
      * 获取URL映射配置
      */
-    public String getUrlMappingConfig() {
-        return getConfig("contract-gateway-url-mappings.yml");
+    public Mono<ConfigContent> getUrlMappingConfig() {
+        return getConfig(URL_MAPPINGS_DATA_ID);
     }
 
     /**
      * 获取路由配置
      */
-    public String getRouteConfig() {
-        return getConfig("contract-gateway-routes.yml");
+    public Mono<ConfigContent> getRouteConfig() {
+        return getConfig(ROUTES_DATA_ID);
     }
 
     /**
      * 发布访问规则配置
      */
-    public boolean publishAccessRuleConfig(String content) {
-        return publishConfig("contract-gateway-access-rules.yml", content);
+    public Mono<Boolean> publishAccessRuleConfig(String content) {
+        return publishConfig(ACCESS_RULES_DATA_ID, content);
     }
 
     /**
      * 发布URL映射配置
      */
-    public boolean publishUrlMappingConfig(String content) {
-        return publishConfig("contract-gateway-url-mappings.yml", content);
+    public Mono<Boolean> publishUrlMappingConfig(String content) {
+        return publishConfig(URL_MAPPINGS_DATA_ID, content);
     }
 
     /**
      * 发布路由配置
      */
-    public boolean publishRouteConfig(String content) {
-        return publishConfig("contract-gateway-routes.yml", content);
+    public Mono<Boolean> publishRouteConfig(String content) {
+        return publishConfig(ROUTES_DATA_ID, content);
     }
-}
\ No newline at end of file
+}
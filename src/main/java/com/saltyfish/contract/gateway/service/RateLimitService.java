@@ -0,0 +1,444 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.filter.GatewayExchangeAttributes;
+import com.saltyfish.contract.gateway.util.DiagnosticLogSite;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rate Limit Service
+ * 限流服务，按IP、用户或路由对请求限流
+ *
+ * 本地模式：每个限流键一个 GCRA 令牌桶，状态只有一个保存理论到达时间的 AtomicLong，
+ * 通过 CAS 无锁更新，按需计算补充的令牌，不需要定时器。限流键数量达到上限后，
+ * 新键按哈希落入固定数量的共享桶，内存占用有上限。
+ *
+ * 集群模式：Redis Lua 脚本原子地维护滑动窗口计数，每次向 Redis 预取一批许可在本地消费，
+ * 大多数请求不访问 Redis；同一键同时只有一个预取请求在途，等待预取的请求在许可被先到者用完时
+ * 再次预取，只有 Redis 窗口用尽时才拒绝。窗口按 Redis 服务器时间划分，不受网关节点时钟偏差影响。
+ * Redis 不可用时放行请求。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RateLimitService {
+
+    /**
+     * 允许通过时的返回值
+     */
+    public static final long PERMITTED = 0L;
+
+    private static final String CLUSTER_KEY_PREFIX = "gateway:rl:";
+
+    /**
+     * 滑动窗口计数脚本，当前时间取 Redis 服务器时间（需要 Redis 5 及以上的脚本效果复制）
+     * KEYS[1] 计数哈希键，字段为窗口序号
+     * ARGV[1] 窗口内许可数，ARGV[2] 窗口长度（毫秒），ARGV[3] 申请的许可数
+     * 返回 {授予的许可数, 建议重试等待毫秒数, 当前窗口剩余毫秒数}
+     */
+    private static final RedisScript<List<Long>> SLIDING_WINDOW_SCRIPT = RedisScript.of("""
+            local limit = tonumber(ARGV[1])
+            local window = tonumber(ARGV[2])
+            local requested = tonumber(ARGV[3])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local index = math.floor(now / window)
+            local current = tonumber(redis.call('HGET', KEYS[1], index) or '0')
+            local previous = tonumber(redis.call('HGET', KEYS[1], index - 1) or '0')
+            local elapsed = now % window
+            local used = previous * (window - elapsed) / window + current
+            local available = math.floor(limit - used)
+            if available <= 0 then
+              local retry = window - elapsed
+              if previous > 0 then
+                retry = math.min(retry, math.ceil((used - limit + 1) * window / previous))
+              end
+              return {0, retry, window - elapsed}
+            end
+            local granted = math.min(requested, available)
+            redis.call('HINCRBY', KEYS[1], index, granted)
+            redis.call('HDEL', KEYS[1], index - 2)
+            redis.call('PEXPIRE', KEYS[1], window * 2)
+            return {granted, 0, window - elapsed}
+            """, longListType());
+
+    private final GatewayProperties gatewayProperties;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final DiagnosticLogService diagnosticLogService;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 编译后的规则，配置刷新后按需重新编译
+     */
+    private volatile CompiledRules compiledRules = new CompiledRules(null, List.of());
+
+    private DiagnosticLogSite redisErrorLogSite;
+    private Counter rejectedCounter;
+    private Disposable cleanupSchedule;
+
+    @PostConstruct
+    public void start() {
+        redisErrorLogSite = diagnosticLogService.site("rate-limit-redis-error", log, Level.WARN);
+        rejectedCounter = Counter.builder("gateway.ratelimit.rejected")
+                .description("被限流拒绝的请求数")
+                .register(meterRegistry);
+        // 移除已经回满的令牌桶，它们与新建的桶等价
+        cleanupSchedule = Flux.interval(Duration.ofMinutes(1), Duration.ofMinutes(1))
+                .onBackpressureDrop()
+                .subscribe(tick -> cleanupBuckets(), e -> log.error("清理限流桶失败", e));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (cleanupSchedule != null) {
+            cleanupSchedule.dispose();
+        }
+    }
+
+    /**
+     * 对请求执行所有匹配的限流规则
+     *
+     * @return {@link #PERMITTED} 表示放行，否则为建议的重试等待时间（纳秒）
+     */
+    public Mono<Long> acquire(ServerWebExchange exchange) {
+        GatewayProperties.RateLimit properties = gatewayProperties.getRateLimit();
+        if (!properties.isEnabled()) {
+            return Mono.just(PERMITTED);
+        }
+        List<CompiledRule> rules = rules(properties);
+        if (rules.isEmpty()) {
+            return Mono.just(PERMITTED);
+        }
+
+        String routeId = GatewayExchangeAttributes.routeId(exchange);
+        String path = exchange.getRequest().getURI().getRawPath();
+        boolean cluster = "cluster".equalsIgnoreCase(properties.getMode());
+
+        Mono<Long> result = Mono.just(PERMITTED);
+        for (CompiledRule rule : rules) {
+            if (!rule.matches(routeId, path)) {
+                continue;
+            }
+            String key = rule.key(exchange, routeId);
+            if (!cluster) {
+                long waitNanos = acquireLocal(rule, key);
+                if (waitNanos != PERMITTED) {
+                    rejectedCounter.increment();
+                    return Mono.just(waitNanos);
+                }
+                continue;
+            }
+            result = result.flatMap(waitNanos -> waitNanos != PERMITTED
+                    ? Mono.just(waitNanos)
+                    : acquireCluster(properties, rule, key));
+        }
+        return result.doOnNext(waitNanos -> {
+            if (waitNanos != PERMITTED) {
+                rejectedCounter.increment();
+            }
+        });
+    }
+
+    /**
+     * 本地 GCRA 令牌桶
+     */
+    private long acquireLocal(CompiledRule rule, String key) {
+        return tryAcquire(rule.bucket(key, gatewayProperties.getRateLimit().getMaxBuckets()), System.nanoTime(),
+                rule.emissionIntervalNanos, rule.burstToleranceNanos);
+    }
+
+    /**
+     * GCRA：理论到达时间与当前时间的差不超过突发容忍度时放行，并把理论到达时间后移一个发放间隔
+     *
+     * @return 放行时返回 {@link #PERMITTED}，否则返回需要等待的纳秒数
+     */
+    private static long tryAcquire(AtomicLong theoreticalArrivalTime, long now,
+                                   long emissionIntervalNanos, long burstToleranceNanos) {
+        while (true) {
+            long tat = theoreticalArrivalTime.get();
+            long base = Math.max(tat, now);
+            long wait = base - now - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrivalTime.compareAndSet(tat, base + emissionIntervalNanos)) {
+                return PERMITTED;
+            }
+        }
+    }
+
+    /**
+     * 集群模式：优先消费本地预取的许可，用完后向 Redis 预取下一批
+     */
+    private Mono<Long> acquireCluster(GatewayProperties.RateLimit properties, CompiledRule rule, String key) {
+        Lease lease = rule.lease(key, properties.getMaxBuckets());
+        long now = System.currentTimeMillis();
+        if (now < lease.blockedUntil) {
+            return Mono.just(TimeUnit.MILLISECONDS.toNanos(lease.blockedUntil - now));
+        }
+        if (now < lease.expiresAt && lease.remaining.getAndDecrement() > 0) {
+            return Mono.just(PERMITTED);
+        }
+
+        Mono<Long> refill = lease.inflight.get();
+        if (refill == null) {
+            Mono<Long> created = refillLease(properties, rule, key, lease).cache();
+            refill = lease.inflight.compareAndSet(null, created) ? created : lease.inflight.get();
+            if (refill == null) {
+                refill = created;
+            }
+        }
+        return refill.flatMap(retryMillis -> {
+            if (retryMillis < 0) {
+                return Mono.just(PERMITTED);
+            }
+            if (retryMillis > 0) {
+                return Mono.just(TimeUnit.MILLISECONDS.toNanos(retryMillis));
+            }
+            if (lease.remaining.getAndDecrement() > 0) {
+                return Mono.just(PERMITTED);
+            }
+            // 本批许可已被并发请求用完，但 Redis 窗口仍可能有余量：重新预取而不是拒绝。
+            // 每次重试都对应一次成功的预取，次数受窗口内许可数限制
+            return acquireCluster(properties, rule, key);
+        });
+    }
+
+    /**
+     * 向 Redis 预取一批许可
+     *
+     * @return 预取成功返回0，Redis 不可用时返回-1，否则返回建议重试等待毫秒数
+     */
+    private Mono<Long> refillLease(GatewayProperties.RateLimit properties, CompiledRule rule, String key, Lease lease) {
+        long windowMillis = properties.getClusterWindow().toMillis();
+        // 各窗口的计数保存在同一个哈希中，窗口序号由脚本按 Redis 时间计算
+        List<String> keys = List.of(CLUSTER_KEY_PREFIX + rule.name + ":" + key);
+        long leaseSize = Math.max(1, Math.min(properties.getClusterLeaseSize(), rule.limitPerWindow));
+
+        return redisTemplate.execute(SLIDING_WINDOW_SCRIPT, keys,
+                        List.of(String.valueOf(rule.limitPerWindow), String.valueOf(windowMillis),
+                                String.valueOf(leaseSize)))
+                .reduce(new ArrayList<Long>(), (values, chunk) -> {
+                    for (Number value : chunk) {
+                        values.add(value.longValue());
+                    }
+                    return values;
+                })
+                .map(result -> {
+                    long granted = result.get(0);
+                    long retryMillis = result.get(1);
+                    long windowRemainingMillis = result.get(2);
+                    long completedAt = System.currentTimeMillis();
+                    if (granted > 0) {
+                        lease.remaining.set(granted);
+                        // 许可只在 Redis 的当前窗口内有效，按本地时钟换算到期时间，过期后未用完的许可作废
+                        lease.expiresAt = completedAt + windowRemainingMillis;
+                        return 0L;
+                    }
+                    lease.blockedUntil = completedAt + Math.max(1, retryMillis);
+                    return Math.max(1, retryMillis);
+                })
+                .onErrorResume(e -> {
+                    // Redis 不可用时放行，避免限流组件成为单点
+                    diagnosticLogService.logException(redisErrorLogSite, null, rule.name, e,
+                            "集群限流访问Redis失败，放行请求: rule={}", rule.name);
+                    return Mono.just(-1L);
+                })
+                .doFinally(signal -> lease.inflight.set(null));
+    }
+
+    /**
+     * 获取编译后的规则，配置对象中的规则列表被替换（Nacos 刷新重新绑定）后重新编译
+     */
+    private List<CompiledRule> rules(GatewayProperties.RateLimit properties) {
+        CompiledRules current = compiledRules;
+        if (current.source == properties.getRules()) {
+            return current.rules;
+        }
+        synchronized (this) {
+            current = compiledRules;
+            if (current.source != properties.getRules()) {
+                current = new CompiledRules(properties.getRules(), compile(properties));
+                compiledRules = current;
+                log.info("限流规则已编译: count={}, mode={}", current.rules.size(), properties.getMode());
+            }
+            return current.rules;
+        }
+    }
+
+    private List<CompiledRule> compile(GatewayProperties.RateLimit properties) {
+        List<CompiledRule> rules = new ArrayList<>();
+        for (GatewayProperties.RateLimitRule rule : properties.getRules()) {
+            if (!rule.isEnabled()) {
+                continue;
+            }
+            if (rule.getPermitsPerSecond() <= 0) {
+                log.warn("忽略无效限流规则: name={}, permitsPerSecond={}", rule.getName(), rule.getPermitsPerSecond());
+                continue;
+            }
+            KeyType keyType = KeyType.parse(rule.getKeyType());
+            if (keyType == null) {
+                log.warn("忽略无效限流规则: name={}, keyType={}", rule.getName(), rule.getKeyType());
+                continue;
+            }
+            rules.add(new CompiledRule(rule, keyType, properties));
+        }
+        return List.copyOf(rules);
+    }
+
+    /**
+     * 脚本返回整数数组；RedisScript 只接受原始的 Class，这里转换为带泛型的类型
+     */
+    @SuppressWarnings("unchecked")
+    private static Class<List<Long>> longListType() {
+        return (Class<List<Long>>) (Class<?>) List.class;
+    }
+
+    private void cleanupBuckets() {
+        long now = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        for (CompiledRule rule : compiledRules.rules) {
+            rule.buckets.values().removeIf(bucket -> bucket.get() <= now);
+            rule.leases.values().removeIf(lease -> lease.expiresAt <= nowMillis
+                    && lease.blockedUntil <= nowMillis && lease.inflight.get() == null);
+        }
+    }
+
+    /**
+     * 限流键类型
+     */
+    private enum KeyType {
+        IP, USER, ROUTE;
+
+        /**
+         * 忽略大小写解析，无效值返回null
+         */
+        private static KeyType parse(String value) {
+            if (value == null) {
+                return null;
+            }
+            for (KeyType type : values()) {
+                if (type.name().equalsIgnoreCase(value.trim())) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 编译后的规则及其令牌桶
+     */
+    private static class CompiledRule {
+        private final String name;
+        private final KeyType keyType;
+        private final String routeId;
+        private final String pathPrefix;
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        private final long limitPerWindow;
+
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final AtomicLong[] overflowBuckets;
+        private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+        private final Lease[] overflowLeases;
+
+        private CompiledRule(GatewayProperties.RateLimitRule rule, KeyType keyType,
+                             GatewayProperties.RateLimit properties) {
+            this.name = rule.getName();
+            this.keyType = keyType;
+            this.routeId = rule.getRouteId();
+            this.pathPrefix = rule.getPathPrefix();
+            this.emissionIntervalNanos = (long) (1_000_000_000L / rule.getPermitsPerSecond());
+            this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, rule.getBurst() - 1);
+            this.limitPerWindow = Math.max(1, (long) (rule.getPermitsPerSecond()
+                    * properties.getClusterWindow().toMillis() / 1000.0));
+
+            int stripes = properties.getOverflowStripes();
+            this.overflowBuckets = new AtomicLong[stripes];
+            this.overflowLeases = new Lease[stripes];
+            for (int i = 0; i < stripes; i++) {
+                overflowBuckets[i] = new AtomicLong(Long.MIN_VALUE);
+                overflowLeases[i] = new Lease();
+            }
+        }
+
+        private boolean matches(String requestRouteId, String path) {
+            return (routeId == null || routeId.equals(requestRouteId))
+                    && (pathPrefix == null || path.startsWith(pathPrefix));
+        }
+
+        private String key(ServerWebExchange exchange, String requestRouteId) {
+            String key = switch (keyType) {
+                case IP -> GatewayExchangeAttributes.clientIp(exchange);
+                // 未识别用户时退化为按IP限流
+                case USER -> {
+                    String userId = GatewayExchangeAttributes.userId(exchange);
+                    yield userId != null ? userId : GatewayExchangeAttributes.clientIp(exchange);
+                }
+                case ROUTE -> requestRouteId;
+            };
+            return key != null ? key : GatewayExchangeAttributes.OVERFLOW;
+        }
+
+        private AtomicLong bucket(String key, int maxBuckets) {
+            AtomicLong bucket = buckets.get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (buckets.size() >= maxBuckets) {
+                return overflowBuckets[Math.floorMod(key.hashCode(), overflowBuckets.length)];
+            }
+            return buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+        }
+
+        private Lease lease(String key, int maxBuckets) {
+            Lease lease = leases.get(key);
+            if (lease != null) {
+                return lease;
+            }
+            if (leases.size() >= maxBuckets) {
+                return overflowLeases[Math.floorMod(key.hashCode(), overflowLeases.length)];
+            }
+            return leases.computeIfAbsent(key, k -> new Lease());
+        }
+    }
+
+    /**
+     * 集群模式下本地预取的许可
+     */
+    private static class Lease {
+        private final AtomicLong remaining = new AtomicLong();
+        private final AtomicReference<Mono<Long>> inflight = new AtomicReference<>();
+        private volatile long expiresAt;
+        private volatile long blockedUntil;
+    }
+
+    /**
+     * 编译结果及其来源的规则列表
+     */
+    private record CompiledRules(List<GatewayProperties.RateLimitRule> source, List<CompiledRule> rules) {
+    }
+}
@@ -0,0 +1,319 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.dto.ShadowDivergenceDto;
+import com.saltyfish.contract.gateway.filter.GatewayExchangeAttributes;
+import com.saltyfish.contract.gateway.util.CompiledAccessRules;
+import com.saltyfish.contract.gateway.util.IpAddress;
+import com.saltyfish.contract.gateway.util.NacosConfigParser;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shadow Rule Service
+ * 影子规则服务，在真实流量上试运行候选访问规则，统计与当前规则结论不同的请求
+ *
+ * 候选规则不影响请求结果：按采样率抽取请求，在响应结束后分别用当前规则和候选规则求值，
+ * 结论不同时按变化方向、两边决定结果的规则和路径模板计数。
+ * 每秒的求值次数、CPU时间和分配的内存都有上限，超出预算的采样直接丢弃并计数，影子求值的开销不随流量增长。
+ * CPU时间和分配量取自当前线程的 ThreadMXBean 计数差值，JVM 不支持线程CPU计时时退回按耗时计算，不支持分配统计时不限制分配量。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShadowRuleService {
+
+    private static final String ALLOW_TO_DENY = "allow-to-deny";
+    private static final String DENY_TO_ALLOW = "deny-to-allow";
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported()
+            && THREADS.isThreadCpuTimeEnabled();
+    private static final com.sun.management.ThreadMXBean ALLOCATION_THREADS = allocationThreads();
+
+    private final GatewayProperties gatewayProperties;
+    private final AccessControlService accessControlService;
+
+    private final AtomicLong versions = new AtomicLong();
+
+    /**
+     * 当前候选规则，未加载时为null
+     */
+    private volatile Candidate candidate;
+
+    /**
+     * 加载候选规则（格式与 contract-gateway-access-rules.yml 相同），替换之前的候选规则并清空统计
+     *
+     * @return 候选规则快照
+     * @throws com.saltyfish.contract.gateway.exception.ConfigValidationException 规则无效
+     */
+    public CompiledAccessRules loadCandidate(String content) {
+        NacosConfigParser.AccessRulesConfig config = NacosConfigParser.parseAccessRules(content);
+        CompiledAccessRules rules = CompiledAccessRules.compile(config.rules(), config.defaultPolicy(),
+                CompiledAccessRules.SOURCE_SHADOW, versions.incrementAndGet(), true, null);
+        candidate = new Candidate(rules, System.currentTimeMillis());
+        log.info("已加载影子规则: version={}, 规则数量={}", rules.getVersion(), rules.size());
+        return rules;
+    }
+
+    /**
+     * 卸载候选规则
+     *
+     * @return 是否存在候选规则
+     */
+    public boolean clearCandidate() {
+        Candidate previous = candidate;
+        candidate = null;
+        if (previous != null) {
+            log.info("已卸载影子规则: version={}", previous.rules.getVersion());
+        }
+        return previous != null;
+    }
+
+    /**
+     * 判断当前请求是否参与影子求值，未加载候选规则或未被采样时返回false
+     */
+    public boolean sample() {
+        Candidate current = candidate;
+        if (current == null) {
+            return false;
+        }
+        double sampleRate = gatewayProperties.getShadowRules().getSampleRate();
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return false;
+        }
+        current.sampled.increment();
+        return true;
+    }
+
+    /**
+     * 对已采样的请求求值并记录分歧，在响应结束后调用
+     */
+    public void evaluate(ServerWebExchange exchange, String path, String method, String clientIp, String userId) {
+        Candidate current = candidate;
+        CompiledAccessRules active = accessControlService.getCompiledRules();
+        if (current == null || active == null) {
+            return;
+        }
+        GatewayProperties.ShadowRules properties = gatewayProperties.getShadowRules();
+        if (!current.budget.tryAcquire(currentSecond(), properties.getMaxEvaluationsPerSecond(),
+                properties.getCpuBudget().toNanos(), properties.getAllocationBudget().toBytes())) {
+            current.budgetExceeded.increment();
+            return;
+        }
+
+        long startCpu = cpuTime();
+        long startAllocated = allocatedBytes();
+        try {
+            IpAddress clientAddress = GatewayExchangeAttributes.clientAddress(exchange);
+            int activeIndex = active.evaluate(path, method, clientIp, clientAddress, userId);
+            int candidateIndex = current.rules.evaluate(path, method, clientIp, clientAddress, userId);
+            current.evaluated.increment();
+
+            boolean activeAllows = active.allows(activeIndex);
+            if (activeAllows != current.rules.allows(candidateIndex)) {
+                current.divergent.increment();
+                DivergenceKey key = new DivergenceKey(activeAllows ? ALLOW_TO_DENY : DENY_TO_ALLOW,
+                        active.ruleName(activeIndex), current.rules.ruleName(candidateIndex),
+                        GatewayExchangeAttributes.pathTemplate(exchange));
+                current.record(key, properties.getMaxDivergenceKeys());
+            }
+        } finally {
+            current.budget.charge(currentSecond(), cpuTime() - startCpu, allocatedBytes() - startAllocated);
+        }
+    }
+
+    /**
+     * 影子求值统计摘要
+     *
+     * @param limit 返回的分歧条目数上限，按次数从高到低
+     * @return 未加载候选规则时返回null
+     */
+    public Map<String, Object> summary(int limit) {
+        Candidate current = candidate;
+        if (current == null) {
+            return null;
+        }
+        CompiledAccessRules active = accessControlService.getCompiledRules();
+        List<ShadowDivergenceDto> divergences = current.divergences.entrySet().stream()
+                .map(entry -> ShadowDivergenceDto.builder()
+                        .direction(entry.getKey().direction)
+                        .activeRule(entry.getKey().activeRule)
+                        .candidateRule(entry.getKey().candidateRule)
+                        .pathTemplate(entry.getKey().pathTemplate)
+                        .count(entry.getValue().sum())
+                        .build())
+                .sorted(Comparator.comparingLong(ShadowDivergenceDto::getCount).reversed())
+                .limit(limit)
+                .toList();
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("candidateVersion", current.rules.getVersion());
+        summary.put("candidateRules", current.rules.size());
+        summary.put("activeVersion", active != null ? active.getVersion() : null);
+        summary.put("activeSource", active != null ? active.getSource() : null);
+        summary.put("loadedAt", current.loadedAt);
+        summary.put("sampleRate", gatewayProperties.getShadowRules().getSampleRate());
+        summary.put("sampled", current.sampled.sum());
+        summary.put("evaluated", current.evaluated.sum());
+        summary.put("budgetExceeded", current.budgetExceeded.sum());
+        summary.put("divergent", current.divergent.sum());
+        summary.put("divergences", divergences);
+        return summary;
+    }
+
+    private static long currentSecond() {
+        return System.nanoTime() / NANOS_PER_SECOND;
+    }
+
+    /**
+     * 当前线程已用的CPU时间，不支持时以单调时钟代替
+     */
+    private static long cpuTime() {
+        return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * 当前线程累计分配的字节数，不支持时返回0
+     */
+    private static long allocatedBytes() {
+        return ALLOCATION_THREADS != null ? ALLOCATION_THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationThreads() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+
+    /**
+     * 分歧统计键
+     */
+    private record DivergenceKey(String direction, String activeRule, String candidateRule, String pathTemplate) {
+    }
+
+    /**
+     * 候选规则及其统计
+     */
+    private static final class Candidate {
+
+        private static final DivergenceKey[] OVERFLOW_KEYS = {
+                new DivergenceKey(ALLOW_TO_DENY, GatewayExchangeAttributes.OVERFLOW,
+                        GatewayExchangeAttributes.OVERFLOW, GatewayExchangeAttributes.OVERFLOW),
+                new DivergenceKey(DENY_TO_ALLOW, GatewayExchangeAttributes.OVERFLOW,
+                        GatewayExchangeAttributes.OVERFLOW, GatewayExchangeAttributes.OVERFLOW)
+        };
+
+        private final CompiledAccessRules rules;
+        private final long loadedAt;
+        private final LongAdder sampled = new LongAdder();
+        private final LongAdder evaluated = new LongAdder();
+        private final LongAdder budgetExceeded = new LongAdder();
+        private final LongAdder divergent = new LongAdder();
+        private final Map<DivergenceKey, LongAdder> divergences = new ConcurrentHashMap<>();
+        private final Budget budget = new Budget(currentSecond());
+
+        private Candidate(CompiledAccessRules rules, long loadedAt) {
+            this.rules = rules;
+            this.loadedAt = loadedAt;
+        }
+
+        /**
+         * 记录分歧，键数量达到上限后新键归入 overflow
+         */
+        private void record(DivergenceKey key, int maxKeys) {
+            LongAdder counter = divergences.get(key);
+            if (counter == null) {
+                if (divergences.size() >= maxKeys) {
+                    key = OVERFLOW_KEYS[ALLOW_TO_DENY.equals(key.direction) ? 0 : 1];
+                }
+                counter = divergences.computeIfAbsent(key, k -> new LongAdder());
+            }
+            counter.increment();
+        }
+    }
+
+    /**
+     * 每秒求值预算：次数、CPU时间和分配量任一超限后，本秒内剩余的采样全部丢弃
+     *
+     * 每个计数器的高位保存秒序号、低位保存本秒累计值，切换到新的一秒和清零在同一次 CAS 中完成，
+     * 不会出现秒序号已切换、计数尚未清零的窗口。
+     */
+    private static final class Budget {
+
+        private static final int VALUE_BITS = 32;
+        private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+        private static final long SECOND_MASK = (1L << (Long.SIZE - VALUE_BITS)) - 1;
+
+        private final AtomicLong evaluations;
+        private final AtomicLong cpuNanos;
+        private final AtomicLong allocatedBytes;
+
+        private Budget(long second) {
+            // 从当前秒开始计数，避免初始值0被当作某一秒
+            long initial = (second & SECOND_MASK) << VALUE_BITS;
+            evaluations = new AtomicLong(initial);
+            cpuNanos = new AtomicLong(initial);
+            allocatedBytes = new AtomicLong(initial);
+        }
+
+        private boolean tryAcquire(long second, int maxEvaluations, long maxCpuNanos, long maxAllocatedBytes) {
+            return value(cpuNanos, second) < maxCpuNanos
+                    && value(allocatedBytes, second) < maxAllocatedBytes
+                    && add(evaluations, second, 1) <= maxEvaluations;
+        }
+
+        private void charge(long second, long cpu, long allocated) {
+            add(cpuNanos, second, Math.max(0, cpu));
+            add(allocatedBytes, second, Math.max(0, allocated));
+        }
+
+        /**
+         * 读取本秒的累计值，计数器还停留在之前的秒时为0
+         */
+        private static long value(AtomicLong counter, long second) {
+            long state = counter.get();
+            return (state >>> VALUE_BITS) == (second & SECOND_MASK) ? state & VALUE_MASK : 0;
+        }
+
+        /**
+         * 累加并返回本秒的累计值；计数器已切换到更新的一秒时计入新的一秒，不回退
+         */
+        private static long add(AtomicLong counter, long second, long delta) {
+            long tag = second & SECOND_MASK;
+            while (true) {
+                long state = counter.get();
+                long stateTag = state >>> VALUE_BITS;
+                long value = state & VALUE_MASK;
+                if (stateTag != tag) {
+                    // 秒序号按回绕比较，调用方的秒序号更新时从0开始
+                    boolean newer = ((tag - stateTag) & SECOND_MASK) < (SECOND_MASK >>> 1);
+                    if (newer) {
+                        value = 0;
+                        stateTag = tag;
+                    }
+                }
+                long next = Math.min(value + delta, VALUE_MASK);
+                if (counter.compareAndSet(state, (stateTag << VALUE_BITS) | next)) {
+                    return next;
+                }
+            }
+        }
+    }
+}
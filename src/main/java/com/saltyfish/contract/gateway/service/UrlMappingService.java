@@ -1,20 +1,33 @@
 package com.saltyfish.contract.gateway.service;
 
 import com.saltyfish.contract.gateway.entity.UrlMapping;
+import com.saltyfish.contract.gateway.exception.ConfigValidationException;
 import com.saltyfish.contract.gateway.repository.UrlMappingRepository;
+import com.saltyfish.contract.gateway.util.CompiledUrlMappings;
+import com.saltyfish.contract.gateway.util.ConfigSnapshotCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * URL Mapping Service
  * URL映射服务，提供路径重写和服务路由功能（响应式版本）
+ *
+ * 映射编译为不可变快照后在内存中匹配，只有快照尚未加载时才读取 Redis/数据库。
+ * 编译成功的 Nacos 映射和数据库映射写入 {@link ConfigSnapshotService}，重启时先从快照恢复。
+ * 数据库映射按缓存有效期定期重新读取；读取失败时保留当前快照，尚未加载时请求不做映射并在下次请求重试。
  */
 @Slf4j
 @Service
@@ -26,10 +39,40 @@ public class UrlMappingService {
     @Autowired
     private ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
 
+    @Autowired
+    private ConfigSnapshotService configSnapshotService;
+
     private static final String CACHE_KEY_PREFIX = "gateway:url:mappings:";
     private static final String CACHE_KEY_ALL_MAPPINGS = CACHE_KEY_PREFIX + "all";
     private static final Duration CACHE_EXPIRE = Duration.ofSeconds(300); // 5分钟缓存
 
+    /**
+     * 当前生效的映射快照，请求时直接使用；Nacos 推送的映射优先于数据库映射
+     */
+    private final AtomicReference<CompiledUrlMappings> compiledMappings = new AtomicReference<>();
+
+    private final AtomicLong versions = new AtomicLong();
+
+    private Disposable reloadSchedule;
+
+    /**
+     * 启动数据库映射的定期重新加载，替代原先 Redis 缓存过期后的重新读取
+     */
+    @PostConstruct
+    public void startReload() {
+        reloadSchedule = Flux.interval(CACHE_EXPIRE, CACHE_EXPIRE)
+                .onBackpressureDrop()
+                .concatMap(tick -> reloadDatabaseMappings(), 1)
+                .subscribe(null, e -> log.error("URL映射定期加载调度异常", e));
+    }
+
+    @PreDestroy
+    public void stopReload() {
+        if (reloadSchedule != null) {
+            reloadSchedule.dispose();
+        }
+    }
+
     /**
      * 初始化URL映射缓存
      */
@@ -50,12 +93,13 @@ public class UrlMappingService {
      * @return URL映射信息
      */
     public Mono<UrlMapping> findMapping(String externalPath) {
-        return getCachedUrlMappings()
-                .flatMapIterable(mappings -> mappings)
-                .filter(mapping -> mapping.getEnabled() && matchPath(externalPath, mapping.getExternalPath()))
-                .next()
+        CompiledUrlMappings mappings = compiledMappings.get();
+        Mono<CompiledUrlMappings> snapshot = mappings != null
+                ? Mono.just(mappings)
+                : getCachedUrlMappings().map(list -> installDatabaseMappings(list, false));
+        return snapshot
+                .mapNotNull(current -> current.find(externalPath))
                 .doOnNext(mapping -> log.debug("找到URL映射: {} -> {}", externalPath, mapping.getInternalPath()))
-                .doOnTerminate(() -> log.debug("未找到URL映射: {}", externalPath))
                 .onErrorResume(e -> {
                     log.error("查找URL映射异常: externalPath={}", externalPath, e);
                     return Mono.empty();
@@ -109,41 +153,104 @@ public class UrlMappingService {
     }
 
     /**
-     * 匹配路径
+     * 应用 Nacos 推送的URL映射，校验通过后整体替换当前快照
+     *
+     * @return 新的映射快照
+     * @throws ConfigValidationException 映射无效，当前快照保持不变
      */
-    private boolean matchPath(String path, String pattern) {
-        if (path == null || pattern == null) {
-            return false;
-        }
+    public CompiledUrlMappings applyNacosMappings(List<UrlMapping> mappings) {
+        CompiledUrlMappings compiled = CompiledUrlMappings.compile(mappings, CompiledUrlMappings.SOURCE_NACOS,
+                versions.incrementAndGet(), true, null);
+        compiledMappings.set(compiled);
+        configSnapshotService.saveUrlMappings(compiled.getSource(), compiled.getVersion(), mappings);
+        log.info("URL映射已切换: version={}, source={}, 映射数量={}",
+                compiled.getVersion(), compiled.getSource(), compiled.size());
+        return compiled;
+    }
 
-        // 精确匹配
-        if (path.equals(pattern)) {
-            return true;
+    /**
+     * 从配置快照恢复映射，只在尚未加载任何映射时生效，恢复的映射不再写回快照
+     *
+     * @return 是否已恢复
+     */
+    public boolean restoreMappings(ConfigSnapshotCodec.UrlMappingsSection section) {
+        List<String> skipped = new ArrayList<>();
+        CompiledUrlMappings compiled = CompiledUrlMappings.compile(section.mappings(), section.source(),
+                versions.incrementAndGet(), false, skipped);
+        skipped.forEach(error -> log.warn("忽略快照中无效的URL映射: {}", error));
+        boolean restored = compiledMappings.compareAndSet(null, compiled);
+        if (restored) {
+            log.info("已从快照恢复URL映射: version={}, source={}, 映射数量={}, 快照版本={}",
+                    compiled.getVersion(), compiled.getSource(), compiled.size(), section.version());
         }
+        return restored;
+    }
 
-        // 通配符匹配
-        if (pattern.endsWith("/**")) {
-            String prefix = pattern.substring(0, pattern.length() - 3);
-            return path.startsWith(prefix);
+    /**
+     * 撤销从快照恢复的 Nacos 映射，改用数据库映射
+     * Nacos 中已没有URL映射配置时调用；数据库读取失败时继续使用快照中的映射，期间 Nacos 推送了新映射时保持不变
+     */
+    public Mono<Void> demoteRestoredNacosMappings() {
+        CompiledUrlMappings restored = compiledMappings.get();
+        if (restored == null || !CompiledUrlMappings.SOURCE_NACOS.equals(restored.getSource())) {
+            return Mono.empty();
         }
+        return urlMappingRepository.findEnabledMappingsOrderByPriority()
+                .collectList()
+                .doOnNext(mappings -> {
+                    if (compiledMappings.compareAndSet(restored, null)) {
+                        CompiledUrlMappings installed = installDatabaseMappings(mappings, true);
+                        log.warn("已改用数据库URL映射: version={}, 映射数量={}", installed.getVersion(), installed.size());
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.error("加载数据库URL映射失败，继续使用快照中的映射", e);
+                    return Mono.empty();
+                })
+                .then();
+    }
 
-        if (pattern.endsWith("/*")) {
-            String prefix = pattern.substring(0, pattern.length() - 2);
-            return path.startsWith(prefix) && !path.substring(prefix.length()).contains("/");
-        }
+    /**
+     * 获取当前生效的映射快照
+     *
+     * @return 映射快照，尚未加载时返回null
+     */
+    public CompiledUrlMappings getCompiledMappings() {
+        return compiledMappings.get();
+    }
 
-        // 正则匹配
-        if (pattern.startsWith("regex:")) {
-            String regex = pattern.substring(6);
-            try {
-                return Pattern.matches(regex, path);
-            } catch (Exception e) {
-                log.warn("正则匹配异常: path={}, regex={}", path, regex, e);
-                return false;
-            }
+    /**
+     * 编译数据库映射并安装，已有 Nacos 映射时保持 Nacos 映射不变
+     *
+     * @param persist 是否写入配置快照，只有直接从数据库读取的映射才写入
+     */
+    private CompiledUrlMappings installDatabaseMappings(List<UrlMapping> mappings, boolean persist) {
+        List<String> skipped = new ArrayList<>();
+        CompiledUrlMappings candidate = CompiledUrlMappings.compile(mappings, CompiledUrlMappings.SOURCE_DATABASE,
+                versions.incrementAndGet(), false, skipped);
+        skipped.forEach(error -> log.warn("忽略无效的URL映射: {}", error));
+        CompiledUrlMappings installed = compiledMappings.updateAndGet(current -> current != null
+                && CompiledUrlMappings.SOURCE_NACOS.equals(current.getSource()) ? current : candidate);
+        if (persist && installed == candidate) {
+            configSnapshotService.saveUrlMappings(candidate.getSource(), candidate.getVersion(), mappings);
         }
+        return installed;
+    }
 
-        return false;
+    /**
+     * 重新读取数据库映射，Nacos 映射生效时跳过；读取失败时保留当前快照
+     */
+    private Mono<Void> reloadDatabaseMappings() {
+        CompiledUrlMappings current = compiledMappings.get();
+        if (current != null && CompiledUrlMappings.SOURCE_NACOS.equals(current.getSource())) {
+            return Mono.empty();
+        }
+        return refreshUrlMappingsCache()
+                .onErrorResume(e -> {
+                    log.error("定期加载URL映射失败，继续使用当前映射", e);
+                    return Mono.empty();
+                })
+                .then();
     }
 
     /**
@@ -154,23 +261,31 @@ public class UrlMappingService {
         return reactiveRedisTemplate.opsForValue().get(CACHE_KEY_ALL_MAPPINGS)
                 .cast(List.class)
                 .map(list -> (List<UrlMapping>) list)
+                .onErrorResume(e -> {
+                    log.warn("读取URL映射Redis缓存失败，改为读取数据库", e);
+                    return Mono.empty();
+                })
                 .switchIfEmpty(Mono.defer(() -> refreshUrlMappingsCache()));
     }
 
     /**
      * 刷新URL映射缓存
+     * 只安装从数据库成功读取的映射；数据库读取失败时以错误结束，当前快照保持不变
      */
     public Mono<List<UrlMapping>> refreshUrlMappingsCache() {
         return urlMappingRepository.findEnabledMappingsOrderByPriority()
                 .collectList()
+                .doOnNext(mappings -> {
+                    installDatabaseMappings(mappings, true);
+                    log.info("URL映射缓存已刷新，映射数量: {}", mappings.size());
+                })
                 .flatMap(mappings -> reactiveRedisTemplate.opsForValue()
                         .set(CACHE_KEY_ALL_MAPPINGS, mappings, CACHE_EXPIRE)
-                        .thenReturn(mappings))
-                .doOnNext(mappings -> log.info("URL映射缓存已刷新，映射数量: {}", mappings.size()))
-                .onErrorResume(e -> {
-                    log.error("刷新URL映射缓存失败", e);
-                    return Mono.just(List.of());
-                });
+                        .onErrorResume(e -> {
+                            log.warn("写入URL映射Redis缓存失败", e);
+                            return Mono.empty();
+                        })
+                        .thenReturn(mappings));
     }
 
     /**
@@ -178,7 +293,12 @@ public class UrlMappingService {
      */
     public Mono<Void> clearUrlMappingsCache() {
         return reactiveRedisTemplate.delete(CACHE_KEY_ALL_MAPPINGS)
-                .doOnSuccess(v -> log.info("URL映射缓存已清除"))
+                .doOnSuccess(v -> {
+                    // 数据库映射快照一并清除，下次请求重新加载
+                    compiledMappings.updateAndGet(current -> current != null
+                            && CompiledUrlMappings.SOURCE_DATABASE.equals(current.getSource()) ? null : current);
+                    log.info("URL映射缓存已清除");
+                })
                 .onErrorResume(e -> {
                     log.error("清除URL映射缓存失败", e);
                     return Mono.empty();
@@ -0,0 +1,294 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.registry.NacosAutoServiceRegistration;
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.config.NacosConfigListener;
+import com.saltyfish.contract.gateway.util.CompiledAccessRules;
+import com.saltyfish.contract.gateway.util.CompiledUrlMappings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.handler.codec.http.HttpMethod;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Warmup Service
+ * 启动预热服务，在注册到 Nacos 和报告就绪之前完成预热
+ *
+ * 预热依次执行：等待 Nacos 初始配置并加载数据库规则和映射，构建路由表，
+ * 为每个 lb:// 路由的上游实例预先建立连接，最后向本机端口重复发送合成请求，
+ * 让过滤器链在接收真实流量前完成类加载和 JIT 编译。
+ *
+ * 作为 {@link ApplicationRunner} 执行，Spring Boot 在所有 Runner 结束后才把就绪状态切换为 ACCEPTING_TRAFFIC。
+ * 任一阶段失败或预热超时都只记录日志，之后照常注册，避免实例永远无法上线。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WarmupService implements ApplicationRunner {
+
+    /**
+     * 合成请求携带的请求头，带该请求头的本机请求不计入指标、访问日志、高频键统计和自适应并发样本
+     */
+    public static final String WARMUP_HEADER = "X-Gateway-Warmup";
+
+    private static final String LB_SCHEME = "lb";
+
+    private final GatewayProperties gatewayProperties;
+    private final AccessControlService accessControlService;
+    private final UrlMappingService urlMappingService;
+    private final NacosConfigListener nacosConfigListener;
+    private final RouteLocator routeLocator;
+    private final ReactiveDiscoveryClient discoveryClient;
+    private final HttpClient httpClient;
+    private final ObjectProvider<NacosAutoServiceRegistration> serviceRegistration;
+    private final ObjectProvider<NacosDiscoveryProperties> discoveryProperties;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        GatewayProperties.Warmup properties = gatewayProperties.getWarmup();
+        if (properties.isEnabled()) {
+            warmup(properties);
+        } else {
+            log.info("启动预热未启用");
+        }
+        register();
+    }
+
+    /**
+     * 执行预热，超过总超时时间后跳过剩余阶段
+     */
+    private void warmup(GatewayProperties.Warmup properties) {
+        long start = System.nanoTime();
+        long deadline = start + properties.getTimeout().toNanos();
+        log.info("开始启动预热: timeout={}", properties.getTimeout());
+
+        List<String> serviceIds = new ArrayList<>();
+        boolean completed = phase("config", deadline, () -> loadConfig(properties, deadline))
+                && phase("routes", deadline, () -> loadRoutes(serviceIds))
+                && phase("connections", deadline, () -> openConnections(serviceIds, properties))
+                && phase("requests", deadline, () -> replayRequests(properties));
+
+        long elapsed = System.nanoTime() - start;
+        record("total", completed ? "completed" : "incomplete", elapsed);
+        log.info("启动预热{}: 耗时{}ms", completed ? "完成" : "未全部完成", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * 执行一个预热阶段并记录耗时
+     *
+     * @return 是否在截止时间前成功完成
+     */
+    private boolean phase(String name, long deadline, Supplier<Mono<String>> work) {
+        long start = System.nanoTime();
+        long remaining = deadline - start;
+        if (remaining <= 0) {
+            record(name, "timeout", 0);
+            log.warn("预热已超时，跳过阶段: {}", name);
+            return false;
+        }
+        try {
+            String detail = work.get().timeout(Duration.ofNanos(remaining)).block();
+            long elapsed = System.nanoTime() - start;
+            record(name, "completed", elapsed);
+            log.info("预热阶段完成: phase={}, {}, 耗时{}ms", name, detail, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            return true;
+        } catch (RuntimeException e) {
+            boolean timeout = e.getCause() instanceof TimeoutException;
+            record(name, timeout ? "timeout" : "failed", System.nanoTime() - start);
+            if (timeout) {
+                log.warn("预热阶段超时: phase={}", name);
+            } else {
+                log.warn("预热阶段失败: phase={}", name, e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 等待 Nacos 初始配置，再从数据库加载访问规则和URL映射（已有 Nacos 配置时保持不变）
+     */
+    private Mono<String> loadConfig(GatewayProperties.Warmup properties, long deadline) {
+        return Mono.fromCallable(() -> {
+                    long remaining = Math.max(0, deadline - System.nanoTime());
+                    Duration timeout = Duration.ofNanos(Math.min(properties.getConfigTimeout().toNanos(), remaining));
+                    return nacosConfigListener.awaitInitialConfig(timeout);
+                })
+                .flatMap(nacosLoaded -> Mono.when(accessControlService.initAccessRulesCache(),
+                                urlMappingService.initUrlMappingsCache())
+                        .then(Mono.fromSupplier(() -> {
+                            CompiledAccessRules rules = accessControlService.getCompiledRules();
+                            CompiledUrlMappings mappings = urlMappingService.getCompiledMappings();
+                            return "nacos=" + (nacosLoaded ? "loaded" : "pending")
+                                    + ", 访问规则=" + (rules != null ? rules.getSource() + "/" + rules.size() : "未加载")
+                                    + ", URL映射=" + (mappings != null ? mappings.getSource() + "/" + mappings.size() : "未加载");
+                        })));
+    }
+
+    /**
+     * 构建路由表（编译断言和过滤器），并收集 lb:// 路由的服务名
+     */
+    private Mono<String> loadRoutes(List<String> serviceIds) {
+        return routeLocator.getRoutes()
+                .collectList()
+                .map(routes -> {
+                    Set<String> services = new TreeSet<>();
+                    for (Route route : routes) {
+                        if (LB_SCHEME.equalsIgnoreCase(route.getUri().getScheme()) && route.getUri().getHost() != null) {
+                            services.add(route.getUri().getHost());
+                        }
+                    }
+                    serviceIds.addAll(services);
+                    return "路由=" + routes.size() + ", 上游服务=" + services;
+                });
+    }
+
+    /**
+     * 使用网关转发所用的 HttpClient 向每个上游实例并发发送健康检查请求，在转发连接池中预先建立连接
+     */
+    private Mono<String> openConnections(List<String> serviceIds, GatewayProperties.Warmup properties) {
+        GatewayProperties.HealthProbe healthProbe = gatewayProperties.getHealthProbe();
+        int connections = Math.max(1, properties.getConnectionsPerInstance());
+        AtomicInteger instances = new AtomicInteger();
+        AtomicInteger opened = new AtomicInteger();
+        return Flux.fromIterable(serviceIds)
+                .flatMap(serviceId -> discoveryClient.getInstances(serviceId)
+                        .onErrorResume(e -> {
+                            log.warn("预热时获取服务实例失败: serviceId={}, error={}", serviceId, e.getMessage());
+                            return Flux.empty();
+                        })
+                        .flatMap(instance -> {
+                            instances.incrementAndGet();
+                            String path = healthProbe.getServicePaths().getOrDefault(serviceId, healthProbe.getPath());
+                            return Flux.range(0, connections)
+                                    .flatMap(i -> send(httpClient, HttpMethod.GET, uri(instance, path)), connections)
+                                    .doOnNext(status -> opened.incrementAndGet());
+                        }))
+                .then(Mono.fromSupplier(() -> "实例=" + instances.get() + ", 连接=" + opened.get()));
+    }
+
+    /**
+     * 向本机端口重复发送合成请求，请求经过完整的 WebFilter 和 GlobalFilter 链
+     */
+    private Mono<String> replayRequests(GatewayProperties.Warmup properties) {
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        List<String[]> requests = parseRequests(properties.getRequests());
+        if (port == null || requests.isEmpty() || properties.getIterations() <= 0) {
+            return Mono.just("未配置合成请求");
+        }
+
+        int concurrency = Math.max(1, properties.getConcurrency());
+        ConnectionProvider provider = ConnectionProvider.builder("gateway-warmup")
+                .maxConnections(concurrency)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        HttpClient client = HttpClient.create(provider)
+                .headers(headers -> headers.set(WARMUP_HEADER, "true"));
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        return Flux.fromIterable(requests)
+                .repeat(properties.getIterations() - 1L)
+                .flatMap(request -> send(client, HttpMethod.valueOf(request[0]),
+                                "http://127.0.0.1:" + port + request[1])
+                        .doOnNext(status -> {
+                            sent.incrementAndGet();
+                            if (status >= 500) {
+                                errors.incrementAndGet();
+                            }
+                        }), concurrency)
+                .then(Mono.fromSupplier(() -> "请求=" + sent.get() + ", 5xx=" + errors.get()))
+                .doFinally(signal -> provider.disposeLater().subscribe());
+    }
+
+    /**
+     * 解析 "METHOD /path" 形式的合成请求，忽略格式错误和非 GET/HEAD 的请求
+     */
+    private static List<String[]> parseRequests(List<String> requests) {
+        List<String[]> parsed = new ArrayList<>();
+        for (String request : requests) {
+            String[] parts = request.trim().split("\\s+", 2);
+            if (parts.length != 2 || !parts[1].startsWith("/")) {
+                log.warn("忽略格式错误的预热请求: {}", request);
+                continue;
+            }
+            String method = parts[0].toUpperCase();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                log.warn("预热请求只允许 GET 和 HEAD，已忽略: {}", request);
+                continue;
+            }
+            parsed.add(new String[]{method, parts[1]});
+        }
+        return parsed;
+    }
+
+    /**
+     * 发送请求并读完响应体，连接归还连接池；失败时不发出状态码
+     */
+    private static Mono<Integer> send(HttpClient client, HttpMethod method, String uri) {
+        return client.request(method)
+                .uri(uri)
+                .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                .onErrorResume(e -> {
+                    log.debug("预热请求失败: {} {}, error={}", method, uri, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private static String uri(ServiceInstance instance, String path) {
+        return instance.getUri().toString() + path;
+    }
+
+    /**
+     * 预热完成后注册到 Nacos（bootstrap.yml 中关闭了启动时的自动注册）
+     */
+    private void register() {
+        NacosAutoServiceRegistration registration = serviceRegistration.getIfAvailable();
+        NacosDiscoveryProperties properties = discoveryProperties.getIfAvailable();
+        if (registration == null || properties == null) {
+            log.info("未启用Nacos服务注册");
+            return;
+        }
+        properties.setRegisterEnabled(true);
+        try {
+            registration.start();
+            log.info("已注册到Nacos: service={}, group={}", properties.getService(), properties.getGroup());
+        } catch (Exception e) {
+            log.error("注册到Nacos失败: service={}", properties.getService(), e);
+        }
+    }
+
+    private void record(String phase, String result, long elapsedNanos) {
+        Timer.builder("gateway.warmup.duration")
+                .description("启动预热耗时")
+                .tag("phase", phase)
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
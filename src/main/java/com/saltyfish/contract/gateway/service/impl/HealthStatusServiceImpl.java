@@ -1,17 +1,29 @@
 package com.saltyfish.contract.gateway.service.impl;
 
 import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 import com.saltyfish.contract.gateway.dto.ServiceHealthDto;
+import com.saltyfish.contract.gateway.service.ActiveHealthProbeService;
+import com.saltyfish.contract.gateway.service.BlockingCallAdapter;
 import com.saltyfish.contract.gateway.service.DiscoveryService;
 import com.saltyfish.contract.gateway.service.HealthStatusService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 健康状态服务实现
@@ -23,9 +35,13 @@ public class HealthStatusServiceImpl implements HealthStatusService {
 
     private final DiscoveryService discoveryService;
     private final NamingService namingService;
+    private final ActiveHealthProbeService activeHealthProbeService;
+    private final BlockingCallAdapter blockingCallAdapter;
+
+    private static final String GROUP_NAME = "CONTRACT_REVIEW";
 
     // 需要监控的服务列表
-    private static final List<String> MONITORED_SERVICES = Arrays.asList(
+    public static final List<String> MONITORED_SERVICES = Arrays.asList(
         "contract-gateway",
         "contract-management-service",
         "contract-review-engine",
@@ -33,79 +49,164 @@ public class HealthStatusServiceImpl implements HealthStatusService {
         "contract-ai-service"
     );
 
-    @Override
-    public List<ServiceHealthDto> getAllServiceHealth() {
-        List<ServiceHealthDto> serviceList = new ArrayList<>();
-
-        try {
-            // 1. 获取所有服务名
-            List<String> allServices = namingService.getServicesOfServer(0, 100, "CONTRACT_REVIEW").getData();
-
-            // 2. 遍历每个服务，获取实例健康状态
-            for (String serviceName : allServices) {
-                // 只监控我们关心的服务
-                if (!MONITORED_SERVICES.contains(serviceName)) {
-                    continue;
-                }
+    /**
+     * 最新的服务健康快照，由 Nacos 订阅事件驱动更新
+     */
+    private final Map<String, ServiceHealthDto> healthSnapshot = new ConcurrentHashMap<>();
+
+    /**
+     * 各服务的订阅监听器，用于销毁时取消订阅
+     */
+    private final Map<String, EventListener> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * 各服务最近一次获取到的实例列表，主动探测状态变化时据此重新计算健康状态
+     */
+    private final Map<String, List<Instance>> lastInstances = new ConcurrentHashMap<>();
+
+    private Disposable probeSubscription;
+
+    /**
+     * 健康状态变更广播，所有 SSE 订阅者共享同一个上游
+     */
+    private final Sinks.Many<ServiceHealthDto> healthChangeSink = Sinks.many().multicast().directBestEffort();
 
-                ServiceHealthDto serviceHealth = getServiceHealthInternal(serviceName);
-                if (serviceHealth != null) {
-                    serviceList.add(serviceHealth);
+    /**
+     * 订阅所有被监控服务的实例变更
+     */
+    @PostConstruct
+    public void subscribeServiceHealth() {
+        for (String serviceName : MONITORED_SERVICES) {
+            EventListener listener = event -> {
+                if (event instanceof NamingEvent namingEvent) {
+                    List<Instance> instances = namingEvent.getInstances();
+                    lastInstances.put(serviceName, instances != null ? instances : List.of());
+                    publishServiceHealth(buildServiceHealth(serviceName, instances));
                 }
+            };
+            try {
+                namingService.subscribe(serviceName, GROUP_NAME, listener);
+                subscriptions.put(serviceName, listener);
+            } catch (Exception e) {
+                log.error("订阅服务实例变更失败: serviceName={}", serviceName, e);
             }
-        } catch (Exception e) {
-            log.error("获取所有服务健康状态失败", e);
         }
 
-        return serviceList;
+        // 订阅事件只在实例变化时触发，启动时异步补齐一次初始快照
+        Flux.fromIterable(MONITORED_SERVICES)
+                .flatMap(this::getServiceHealthInternal)
+                .subscribe(this::publishServiceHealth);
+
+        // 主动探测状态翻转时，基于最近的实例列表重新计算健康状态
+        probeSubscription = activeHealthProbeService.stateChanges()
+                .subscribe(serviceName -> {
+                    List<Instance> instances = lastInstances.get(serviceName);
+                    if (instances != null) {
+                        publishServiceHealth(buildServiceHealth(serviceName, instances));
+                    }
+                });
+
+        log.info("服务健康状态订阅初始化完成，监控服务数量: {}", MONITORED_SERVICES.size());
+    }
+
+    /**
+     * 取消所有服务订阅
+     */
+    @PreDestroy
+    public void unsubscribeServiceHealth() {
+        subscriptions.forEach((serviceName, listener) -> {
+            try {
+                namingService.unsubscribe(serviceName, GROUP_NAME, listener);
+            } catch (Exception e) {
+                log.warn("取消服务订阅失败: serviceName={}", serviceName, e);
+            }
+        });
+        subscriptions.clear();
+        if (probeSubscription != null) {
+            probeSubscription.dispose();
+        }
+        healthChangeSink.tryEmitComplete();
     }
 
     @Override
-    public ServiceHealthDto getServiceHealth(String serviceName) {
+    public List<ServiceHealthDto> getHealthSnapshot() {
+        List<ServiceHealthDto> snapshot = new ArrayList<>(MONITORED_SERVICES.size());
+        for (String serviceName : MONITORED_SERVICES) {
+            ServiceHealthDto serviceHealth = healthSnapshot.get(serviceName);
+            if (serviceHealth != null) {
+                snapshot.add(serviceHealth);
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public Flux<ServiceHealthDto> healthChanges() {
+        return healthChangeSink.asFlux();
+    }
+
+    /**
+     * 更新健康快照，仅在状态发生变化时广播
+     * 多个 Nacos 通知线程可能并发回调，发射需要串行化
+     */
+    private synchronized void publishServiceHealth(ServiceHealthDto serviceHealth) {
+        ServiceHealthDto previous = healthSnapshot.put(serviceHealth.getServiceName(), serviceHealth);
+        if (serviceHealth.equals(previous)) {
+            return;
+        }
+        log.debug("服务健康状态变更: {} {} -> {}", serviceHealth.getServiceName(),
+                previous != null ? previous.getStatus() : null, serviceHealth.getStatus());
+        healthChangeSink.tryEmitNext(serviceHealth);
+    }
+
+    @Override
+    public Mono<List<ServiceHealthDto>> getAllServiceHealth() {
+        // 1. 获取所有服务名
+        return blockingCallAdapter.call("naming.getServicesOfServer",
+                        () -> namingService.getServicesOfServer(0, 100, GROUP_NAME).getData())
+                // 2. 遍历每个服务，获取实例健康状态，只监控我们关心的服务
+                .flatMapMany(Flux::fromIterable)
+                .filter(MONITORED_SERVICES::contains)
+                .concatMap(this::getServiceHealthInternal)
+                .collectList()
+                .onErrorResume(e -> {
+                    log.error("获取所有服务健康状态失败", e);
+                    return Mono.empty();
+                })
+                .defaultIfEmpty(new ArrayList<>());
+    }
+
+    @Override
+    public Mono<ServiceHealthDto> getServiceHealth(String serviceName) {
         return getServiceHealthInternal(serviceName);
     }
 
     /**
      * 内部方法：获取单个服务的健康状态
+     * 获取失败的服务记录为不可用
      *
      * @param serviceName 服务名称
      * @return 服务健康状态DTO
      */
-    private ServiceHealthDto getServiceHealthInternal(String serviceName) {
-        try {
-            // 获取该服务的所有实例
-            List<Instance> instances = discoveryService.getAllInstances(serviceName, "CONTRACT_REVIEW");
-
-            if (instances == null || instances.isEmpty()) {
-                return ServiceHealthDto.builder()
-                        .serviceName(serviceName)
-                        .status("UNAVAILABLE")
-                        .healthyCount(0)
-                        .unhealthyCount(0)
-                        .totalInstance(0)
-                        .build();
-            }
-
-            // 统计健康/不健康实例数
-            long healthyCount = instances.stream()
-                    .filter(Instance::isHealthy)
-                    .count();
-            long unhealthyCount = instances.size() - healthyCount;
-
-            // 计算服务状态
-            String status = calculateServiceStatus((int) healthyCount, (int) unhealthyCount, instances.size());
-
-            return ServiceHealthDto.builder()
-                    .serviceName(serviceName)
-                    .status(status)
-                    .healthyCount((int) healthyCount)
-                    .unhealthyCount((int) unhealthyCount)
-                    .totalInstance(instances.size())
-                    .build();
+    private Mono<ServiceHealthDto> getServiceHealthInternal(String serviceName) {
+        // 获取该服务的所有实例
+        return discoveryService.getAllInstances(serviceName, GROUP_NAME)
+                .map(instances -> {
+                    lastInstances.put(serviceName, instances);
+                    return buildServiceHealth(serviceName, instances);
+                })
+                .defaultIfEmpty(buildServiceHealth(serviceName, null));
+    }
 
-        } catch (Exception e) {
-            log.error("获取服务健康状态失败: serviceName={}", serviceName, e);
-            // 对于获取失败的服务，记录为不可用
+    /**
+     * 根据实例列表构建服务健康状态
+     *
+     * @param serviceName 服务名称
+     * @param instances   服务实例列表
+     * @return 服务健康状态DTO
+     */
+    private ServiceHealthDto buildServiceHealth(String serviceName, List<Instance> instances) {
+        if (instances == null || instances.isEmpty()) {
             return ServiceHealthDto.builder()
                     .serviceName(serviceName)
                     .status("UNAVAILABLE")
@@ -114,6 +215,23 @@ public class HealthStatusServiceImpl implements HealthStatusService {
                     .totalInstance(0)
                     .build();
         }
+
+        // 统计健康/不健康实例数，Nacos健康且通过主动探测的实例才计为健康
+        long healthyCount = instances.stream()
+                .filter(instance -> instance.isHealthy() && activeHealthProbeService.isInstanceUp(instance))
+                .count();
+        long unhealthyCount = instances.size() - healthyCount;
+
+        // 计算服务状态
+        String status = calculateServiceStatus((int) healthyCount, (int) unhealthyCount, instances.size());
+
+        return ServiceHealthDto.builder()
+                .serviceName(serviceName)
+                .status(status)
+                .healthyCount((int) healthyCount)
+                .unhealthyCount((int) unhealthyCount)
+                .totalInstance(instances.size())
+                .build();
     }
 
     /**
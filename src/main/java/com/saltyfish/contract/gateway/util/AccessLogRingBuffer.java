@@ -0,0 +1,182 @@
+package com.saltyfish.contract.gateway.util;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Access Log Ring Buffer
+ * 访问日志多生产者单消费者无锁环形缓冲区
+ *
+ * 每条记录是固定布局的一组槽位，按字段存放在预分配的并行数组中：
+ * 生产者（事件循环线程）通过 CAS 申请序号后写入字段，再以 release 语义发布该槽位；
+ * 唯一的消费者（后台写线程）按序号顺序读取已发布的槽位。
+ * 缓冲区满时生产者直接丢弃并计数，永远不会阻塞。
+ */
+public class AccessLogRingBuffer {
+
+    /**
+     * 单条记录的读取回调，slot 只在回调期间有效
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void onRecord(AccessLogRingBuffer buffer, int slot);
+    }
+
+    private final int capacity;
+    private final int mask;
+
+    // 固定布局字段
+    private final long[] timestamps;
+    private final long[] durations;
+    private final int[] statuses;
+    private final byte[] methods;
+    private final String[] clientIps;
+    private final String[] userIds;
+    private final String[] routeIds;
+    private final String[] paths;
+    private final URI[] upstreams;
+
+    /**
+     * 槽位发布标记：值为 序号+1 时表示该序号的记录已写完
+     */
+    private final AtomicLongArray published;
+
+    private final AtomicLong claimSequence = new AtomicLong();
+    private final AtomicLong consumeSequence = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public AccessLogRingBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.timestamps = new long[this.capacity];
+        this.durations = new long[this.capacity];
+        this.statuses = new int[this.capacity];
+        this.methods = new byte[this.capacity];
+        this.clientIps = new String[this.capacity];
+        this.userIds = new String[this.capacity];
+        this.routeIds = new String[this.capacity];
+        this.paths = new String[this.capacity];
+        this.upstreams = new URI[this.capacity];
+        this.published = new AtomicLongArray(this.capacity);
+    }
+
+    /**
+     * 写入一条记录（不分配对象）
+     *
+     * @return 缓冲区已满被丢弃时返回false
+     */
+    public boolean offer(long timestamp, long durationNanos, int status, int method,
+                         String clientIp, String userId, String routeId, String path, URI upstream) {
+        long sequence;
+        do {
+            sequence = claimSequence.get();
+            if (sequence - consumeSequence.get() >= capacity) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimSequence.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        timestamps[slot] = timestamp;
+        durations[slot] = durationNanos;
+        statuses[slot] = status;
+        methods[slot] = (byte) method;
+        clientIps[slot] = clientIp;
+        userIds[slot] = userId;
+        routeIds[slot] = routeId;
+        paths[slot] = path;
+        upstreams[slot] = upstream;
+        published.lazySet(slot, sequence + 1);
+        return true;
+    }
+
+    /**
+     * 按顺序消费已发布的记录，只能由单个消费者线程调用
+     *
+     * @param handler    记录回调
+     * @param maxRecords 本次最多消费的记录数
+     * @return 实际消费的记录数
+     */
+    public int drain(RecordHandler handler, int maxRecords) {
+        long next = consumeSequence.get();
+        int count = 0;
+        while (count < maxRecords) {
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next + 1) {
+                break;
+            }
+            handler.onRecord(this, slot);
+            // 释放引用，避免缓冲区长期持有请求相关对象
+            clientIps[slot] = null;
+            userIds[slot] = null;
+            routeIds[slot] = null;
+            paths[slot] = null;
+            upstreams[slot] = null;
+            next++;
+            count++;
+        }
+        if (count > 0) {
+            consumeSequence.lazySet(next);
+        }
+        return count;
+    }
+
+    public long timestamp(int slot) {
+        return timestamps[slot];
+    }
+
+    public long duration(int slot) {
+        return durations[slot];
+    }
+
+    public int status(int slot) {
+        return statuses[slot];
+    }
+
+    public int method(int slot) {
+        return methods[slot];
+    }
+
+    public String clientIp(int slot) {
+        return clientIps[slot];
+    }
+
+    public String userId(int slot) {
+        return userIds[slot];
+    }
+
+    public String routeId(int slot) {
+        return routeIds[slot];
+    }
+
+    public String path(int slot) {
+        return paths[slot];
+    }
+
+    public URI upstream(int slot) {
+        return upstreams[slot];
+    }
+
+    /**
+     * 因缓冲区已满被丢弃的记录数
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 当前待消费的记录数
+     */
+    public long size() {
+        return claimSequence.get() - consumeSequence.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,132 @@
+package com.saltyfish.contract.gateway.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive Concurrency Limit
+ * 根据延迟变化自动调整的并发上限（梯度算法 + 丢弃时乘性回退）
+ *
+ * 维护长期 RTT 的指数移动平均作为基线，每个样本按 基线 × 容忍度 / 当前RTT 计算梯度（0.5~1.0），
+ * 新上限 = 当前上限 × 梯度 + sqrt(当前上限)，再按平滑系数与旧值混合：
+ * - 延迟接近基线时梯度为1，上限按 sqrt(limit) 缓慢增长
+ * - 延迟升高时梯度小于1，上限下降
+ * - 请求失败（超时、5xx）时上限乘以回退系数
+ * 只有在途请求达到上限一半以上时才允许增长，避免低负载时上限虚高。
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final double longRttAlpha;
+    private final double backoffRatio;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile int limit;
+
+    // 以下字段在 synchronized 中更新
+    private double estimatedLimit;
+    private double longRttNanos;
+
+    /**
+     * @param initialLimit 初始上限
+     * @param minLimit     最小上限
+     * @param maxLimit     最大上限
+     * @param smoothing    平滑系数（0~1），越大调整越快
+     * @param rttTolerance 允许延迟高出基线的倍数
+     * @param longWindow   长期RTT平均的样本窗口
+     * @param backoffRatio 失败时的回退系数
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double smoothing,
+                                    double rttTolerance, int longWindow, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.rttTolerance = rttTolerance;
+        this.longRttAlpha = 2.0 / (Math.max(1, longWindow) + 1);
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /**
+     * 尝试占用一个并发名额
+     *
+     * @param share 本次请求可使用的上限比例（0~1），低优先级请求使用更小的比例
+     * @return 成功时返回占用前的在途请求数，失败时返回-1
+     */
+    public int tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                return -1;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * 释放名额并提交一个延迟样本
+     *
+     * @param rttNanos        请求耗时（纳秒）
+     * @param inflightAtStart 请求开始时的在途请求数
+     */
+    public void onSuccess(long rttNanos, int inflightAtStart) {
+        inflight.decrementAndGet();
+        update(rttNanos, inflightAtStart);
+    }
+
+    /**
+     * 释放名额并按失败回退上限
+     */
+    public void onDropped() {
+        inflight.decrementAndGet();
+        synchronized (this) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * backoffRatio);
+            limit = (int) estimatedLimit;
+        }
+    }
+
+    /**
+     * 只释放名额，不提交样本（如客户端取消）
+     */
+    public void onIgnore() {
+        inflight.decrementAndGet();
+    }
+
+    private synchronized void update(long rttNanos, int inflightAtStart) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) * longRttAlpha;
+        }
+
+        // 负载较低时不增长，防止上限脱离实际并发
+        if (inflightAtStart < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / rttNanos));
+        double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
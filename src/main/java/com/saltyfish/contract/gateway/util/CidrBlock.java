@@ -0,0 +1,63 @@
+package com.saltyfish.contract.gateway.util;
+
+/**
+ * CIDR Block
+ * IP网段，IPv4 网段按映射地址表示，与 {@link IpAddress} 统一做128位掩码比较
+ *
+ * @param high       网络地址高64位
+ * @param low        网络地址低64位
+ * @param prefixBits 128位空间中的前缀长度
+ */
+public record CidrBlock(long high, long low, int prefixBits) {
+
+    /**
+     * 解析网段（如 10.0.0.0/8、fd00::/8），没有前缀长度时表示单个地址
+     *
+     * @throws IllegalArgumentException 格式错误
+     */
+    public static CidrBlock parse(String cidr) {
+        String text = cidr.trim();
+        int slash = text.indexOf('/');
+        IpAddress address = IpAddress.parse(text, 0, slash < 0 ? text.length() : slash);
+        if (address == null) {
+            throw new IllegalArgumentException("无效的网段: " + cidr);
+        }
+        int maxBits = address.isIpv4() ? 32 : 128;
+        int bits = maxBits;
+        if (slash >= 0) {
+            try {
+                bits = Integer.parseInt(text.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的网段: " + cidr);
+            }
+            if (bits < 0 || bits > maxBits) {
+                throw new IllegalArgumentException("无效的网段: " + cidr);
+            }
+        }
+        int prefixBits = address.isIpv4() ? 96 + bits : bits;
+        return new CidrBlock(address.high() & highMask(prefixBits), address.low() & lowMask(prefixBits), prefixBits);
+    }
+
+    /**
+     * 判断地址是否在网段内
+     */
+    public boolean contains(IpAddress address) {
+        return address != null
+                && (address.high() & highMask(prefixBits)) == high
+                && (address.low() & lowMask(prefixBits)) == low;
+    }
+
+    private static long highMask(int prefixBits) {
+        if (prefixBits >= 64) {
+            return -1L;
+        }
+        return prefixBits == 0 ? 0 : -1L << (64 - prefixBits);
+    }
+
+    private static long lowMask(int prefixBits) {
+        if (prefixBits <= 64) {
+            return 0;
+        }
+        return prefixBits == 128 ? -1L : -1L << (128 - prefixBits);
+    }
+}
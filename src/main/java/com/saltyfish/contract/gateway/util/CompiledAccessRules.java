@@ -0,0 +1,236 @@
+package com.saltyfish.contract.gateway.util;
+
+import com.saltyfish.contract.gateway.entity.AccessRule;
+import com.saltyfish.contract.gateway.exception.ConfigValidationException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled Access Rules
+ * 编译后的访问规则快照，请求时只做字符串比较、预编译正则和网段位运算
+ *
+ * 快照不可变，带版本号和来源（database/nacos/shadow），替换时整体换引用。
+ * 匹配语义：按优先级从高到低，第一条命中的黑名单规则拒绝、白名单规则放行；
+ * 都未命中时按默认策略，未配置默认策略时"存在白名单则拒绝，否则放行"。
+ */
+public final class CompiledAccessRules {
+
+    public static final String SOURCE_DATABASE = "database";
+    public static final String SOURCE_NACOS = "nacos";
+    public static final String SOURCE_SHADOW = "shadow";
+
+    /**
+     * {@link #evaluate} 未命中任何规则、使用默认策略时的返回值
+     */
+    public static final int DEFAULT_POLICY = -1;
+
+    /**
+     * 单条规则的匹配条件
+     */
+    @FunctionalInterface
+    private interface Matcher {
+        boolean matches(String path, String method, String clientIp, IpAddress clientAddress, String userId);
+    }
+
+    private record CompiledRule(String name, boolean blacklist, Matcher matcher) {
+    }
+
+    private final long version;
+    private final String source;
+    private final CompiledRule[] rules;
+    private final boolean defaultAllow;
+
+    private CompiledAccessRules(long version, String source, CompiledRule[] rules, boolean defaultAllow) {
+        this.version = version;
+        this.source = source;
+        this.rules = rules;
+        this.defaultAllow = defaultAllow;
+    }
+
+    /**
+     * 编译访问规则
+     *
+     * @param rules         规则，编译时按优先级从高到低排序，未启用的规则被忽略
+     * @param defaultPolicy 默认策略 allow/deny，为null时使用"存在白名单则拒绝"的规则
+     * @param source        来源
+     * @param version       版本号
+     * @param strict        严格模式下任一规则无效即整体失败；否则跳过无效规则
+     * @param skipped       非严格模式下收集被跳过规则的错误，可为null
+     * @throws ConfigValidationException 严格模式下存在无效规则
+     */
+    public static CompiledAccessRules compile(List<AccessRule> rules, String defaultPolicy, String source,
+                                              long version, boolean strict, List<String> skipped) {
+        List<String> errors = new ArrayList<>();
+        Boolean explicitDefault = null;
+        if (defaultPolicy != null) {
+            switch (defaultPolicy) {
+                case "allow" -> explicitDefault = true;
+                case "deny" -> explicitDefault = false;
+                default -> errors.add("default-policy 只能是 allow 或 deny: " + defaultPolicy);
+            }
+        }
+
+        List<AccessRule> sorted = new ArrayList<>(rules);
+        sorted.sort(Comparator.comparing((AccessRule rule) -> rule.getPriority() != null ? rule.getPriority() : 0)
+                .reversed());
+        List<CompiledRule> compiled = new ArrayList<>(sorted.size());
+        boolean hasWhitelist = false;
+        for (AccessRule rule : sorted) {
+            if (!Boolean.TRUE.equals(rule.getEnabled())) {
+                continue;
+            }
+            String error = validate(rule);
+            Matcher matcher = null;
+            if (error == null) {
+                try {
+                    matcher = matcher(rule);
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error != null) {
+                String message = "规则[" + rule.getRuleName() + "]: " + error;
+                errors.add(message);
+                if (skipped != null) {
+                    skipped.add(message);
+                }
+                continue;
+            }
+            boolean blacklist = "blacklist".equals(rule.getRuleType());
+            hasWhitelist |= !blacklist;
+            compiled.add(new CompiledRule(rule.getRuleName(), blacklist, matcher));
+        }
+
+        if (strict && !errors.isEmpty()) {
+            throw new ConfigValidationException("访问规则校验失败", errors);
+        }
+        boolean defaultAllow = explicitDefault != null ? explicitDefault : !hasWhitelist;
+        return new CompiledAccessRules(version, source, compiled.toArray(new CompiledRule[0]), defaultAllow);
+    }
+
+    /**
+     * 判断请求是否允许访问
+     */
+    public boolean isAllowed(String path, String method, String clientIp, IpAddress clientAddress, String userId) {
+        return allows(evaluate(path, method, clientIp, clientAddress, userId));
+    }
+
+    /**
+     * 查找决定访问结果的规则
+     *
+     * @return 第一条命中规则的序号，未命中时返回 {@link #DEFAULT_POLICY}
+     */
+    public int evaluate(String path, String method, String clientIp, IpAddress clientAddress, String userId) {
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i].matcher.matches(path, method, clientIp, clientAddress, userId)) {
+                return i;
+            }
+        }
+        return DEFAULT_POLICY;
+    }
+
+    /**
+     * 序号对应的访问结果
+     */
+    public boolean allows(int index) {
+        return index == DEFAULT_POLICY ? defaultAllow : !rules[index].blacklist;
+    }
+
+    /**
+     * 序号对应的规则名称，默认策略返回 "default-policy"
+     */
+    public String ruleName(int index) {
+        return index == DEFAULT_POLICY ? "default-policy" : rules[index].name;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    private static String validate(AccessRule rule) {
+        if (rule.getRuleName() == null || rule.getRuleName().isBlank()) {
+            return "缺少规则名称";
+        }
+        if (!"blacklist".equals(rule.getRuleType()) && !"whitelist".equals(rule.getRuleType())) {
+            return "规则类型只能是 blacklist 或 whitelist: " + rule.getRuleType();
+        }
+        if (rule.getMatchValue() == null || rule.getMatchValue().isEmpty()) {
+            return "缺少匹配值";
+        }
+        return null;
+    }
+
+    private static Matcher matcher(AccessRule rule) {
+        String pattern = Objects.requireNonNullElse(rule.getMatchPattern(), "exact");
+        String value = rule.getMatchValue();
+        String matchType = Objects.requireNonNullElse(rule.getMatchType(), "");
+        return switch (matchType) {
+            case "path" -> pathMatcher(pattern, value);
+            case "method" -> (path, method, ip, address, user) -> method != null && method.equalsIgnoreCase(value);
+            case "ip" -> ipMatcher(pattern, value);
+            case "user" -> (path, method, ip, address, user) -> value.equals(user);
+            default -> throw new IllegalArgumentException("未知的匹配类型: " + matchType);
+        };
+    }
+
+    private static Matcher pathMatcher(String pattern, String value) {
+        return switch (pattern) {
+            case "exact" -> (path, method, ip, address, user) -> value.equals(path);
+            case "prefix" -> (path, method, ip, address, user) -> path != null && path.startsWith(value);
+            case "suffix" -> (path, method, ip, address, user) -> path != null && path.endsWith(value);
+            case "wildcard" -> {
+                Pattern regex = compileRegex(value.replace("*", ".*").replace("?", "."));
+                yield (path, method, ip, address, user) -> path != null && regex.matcher(path).matches();
+            }
+            case "regex" -> {
+                Pattern regex = compileRegex(value);
+                yield (path, method, ip, address, user) -> path != null && regex.matcher(path).matches();
+            }
+            default -> throw new IllegalArgumentException("路径规则不支持的匹配模式: " + pattern);
+        };
+    }
+
+    private static Matcher ipMatcher(String pattern, String value) {
+        return switch (pattern) {
+            case "exact" -> {
+                // 按数值比较，::1 与 0:0:0:0:0:0:0:1 等写法视为同一地址
+                IpAddress target = IpAddress.parse(value);
+                if (target == null) {
+                    throw new IllegalArgumentException("无效的IP地址: " + value);
+                }
+                yield (path, method, ip, address, user) -> target.equals(address);
+            }
+            case "prefix" -> (path, method, ip, address, user) -> ip != null && ip.startsWith(value);
+            case "cidr" -> {
+                CidrBlock block = CidrBlock.parse(value);
+                yield (path, method, ip, address, user) -> block.contains(address);
+            }
+            case "regex" -> {
+                Pattern regex = compileRegex(value);
+                yield (path, method, ip, address, user) -> ip != null && regex.matcher(ip).matches();
+            }
+            default -> throw new IllegalArgumentException("IP规则不支持的匹配模式: " + pattern);
+        };
+    }
+
+    private static Pattern compileRegex(String regex) {
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("无效的正则表达式: " + regex);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.saltyfish.contract.gateway.util;
+
+import com.saltyfish.contract.gateway.entity.UrlMapping;
+import com.saltyfish.contract.gateway.exception.ConfigValidationException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled URL Mappings
+ * 编译后的URL映射快照，按优先级从高到低排列，正则在编译时预编译
+ *
+ * 外部路径支持精确匹配、"/**" 多级前缀、"/*" 单级前缀和 "regex:" 正则四种写法。
+ */
+public final class CompiledUrlMappings {
+
+    public static final String SOURCE_DATABASE = "database";
+    public static final String SOURCE_NACOS = "nacos";
+
+    private static final Set<String> MAPPING_TYPES = Set.of("rewrite", "redirect", "alias");
+
+    private record CompiledMapping(Predicate<String> matcher, UrlMapping mapping) {
+    }
+
+    private final long version;
+    private final String source;
+    private final CompiledMapping[] mappings;
+
+    private CompiledUrlMappings(long version, String source, CompiledMapping[] mappings) {
+        this.version = version;
+        this.source = source;
+        this.mappings = mappings;
+    }
+
+    /**
+     * 编译URL映射
+     *
+     * @param mappings 映射，编译时按优先级从高到低排序，未启用的映射被忽略
+     * @param source   来源
+     * @param version  版本号
+     * @param strict   严格模式下任一映射无效即整体失败；否则跳过无效映射
+     * @param skipped  非严格模式下收集被跳过映射的错误，可为null
+     * @throws ConfigValidationException 严格模式下存在无效映射
+     */
+    public static CompiledUrlMappings compile(List<UrlMapping> mappings, String source, long version,
+                                              boolean strict, List<String> skipped) {
+        List<UrlMapping> sorted = new ArrayList<>(mappings);
+        sorted.sort(Comparator.comparing((UrlMapping mapping) -> mapping.getPriority() != null ? mapping.getPriority() : 0)
+                .reversed());
+        List<String> errors = new ArrayList<>();
+        List<CompiledMapping> compiled = new ArrayList<>(sorted.size());
+        for (UrlMapping mapping : sorted) {
+            if (!Boolean.TRUE.equals(mapping.getEnabled())) {
+                continue;
+            }
+            String error = validate(mapping);
+            Predicate<String> matcher = null;
+            if (error == null) {
+                try {
+                    matcher = matcher(mapping.getExternalPath());
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error != null) {
+                String message = "映射[" + mapping.getMappingName() + "]: " + error;
+                errors.add(message);
+                if (skipped != null) {
+                    skipped.add(message);
+                }
+                continue;
+            }
+            compiled.add(new CompiledMapping(matcher, mapping));
+        }
+
+        if (strict && !errors.isEmpty()) {
+            throw new ConfigValidationException("URL映射校验失败", errors);
+        }
+        return new CompiledUrlMappings(version, source, compiled.toArray(new CompiledMapping[0]));
+    }
+
+    /**
+     * 查找第一个匹配的映射
+     *
+     * @return 映射，未匹配时返回null
+     */
+    public UrlMapping find(String path) {
+        if (path == null) {
+            return null;
+        }
+        for (CompiledMapping mapping : mappings) {
+            if (mapping.matcher.test(path)) {
+                return mapping.mapping;
+            }
+        }
+        return null;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int size() {
+        return mappings.length;
+    }
+
+    private static String validate(UrlMapping mapping) {
+        if (mapping.getMappingName() == null || mapping.getMappingName().isBlank()) {
+            return "缺少映射名称";
+        }
+        if (mapping.getExternalPath() == null || mapping.getExternalPath().isBlank()) {
+            return "缺少外部路径";
+        }
+        if (mapping.getInternalPath() == null || mapping.getInternalPath().isBlank()) {
+            return "缺少内部路径";
+        }
+        if (mapping.getTargetService() == null || mapping.getTargetService().isBlank()) {
+            return "缺少目标服务";
+        }
+        if (mapping.getMappingType() != null && !MAPPING_TYPES.contains(mapping.getMappingType())) {
+            return "映射类型只能是 rewrite、redirect 或 alias: " + mapping.getMappingType();
+        }
+        return null;
+    }
+
+    private static Predicate<String> matcher(String pattern) {
+        if (pattern.startsWith("regex:")) {
+            String regex = pattern.substring(6);
+            try {
+                return Pattern.compile(regex).asMatchPredicate();
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("无效的正则表达式: " + regex);
+            }
+        }
+        if (pattern.endsWith("/**")) {
+            String prefix = pattern.substring(0, pattern.length() - 3);
+            return path -> path.startsWith(prefix);
+        }
+        if (pattern.endsWith("/*")) {
+            // 前缀保留末尾的 "/"，只匹配下一级路径
+            String prefix = pattern.substring(0, pattern.length() - 1);
+            return path -> path.startsWith(prefix) && path.indexOf('/', prefix.length()) < 0;
+        }
+        return pattern::equals;
+    }
+}
@@ -0,0 +1,410 @@
+package com.saltyfish.contract.gateway.util;
+
+import com.saltyfish.contract.gateway.entity.AccessRule;
+import com.saltyfish.contract.gateway.entity.UrlMapping;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Config Snapshot Codec
+ * 最近一次有效配置的二进制快照编解码
+ *
+ * 文件格式：魔数 "GWCS"、格式版本（1字节）、分段数（1字节），之后每段为
+ * 类型（1字节）、负载长度（4字节）、负载CRC32（4字节）和负载。
+ * 负载以来源、配置版本号和保存时间开头，字符串按 UTF-8 长度前缀编码。
+ * 校验失败的分段被跳过，其余分段仍可使用。
+ */
+public final class ConfigSnapshotCodec {
+
+    private static final byte[] MAGIC = {'G', 'W', 'C', 'S'};
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte SECTION_ACCESS_RULES = 1;
+    private static final byte SECTION_URL_MAPPINGS = 2;
+    private static final byte SECTION_ROUTES = 3;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_LONG = 2;
+    private static final byte VALUE_BOOLEAN = 3;
+    private static final byte VALUE_DOUBLE = 4;
+
+    private ConfigSnapshotCodec() {
+    }
+
+    /**
+     * 访问规则分段
+     */
+    public record AccessRulesSection(String source, long version, long savedAt, String defaultPolicy,
+                                     List<AccessRule> rules) {
+    }
+
+    /**
+     * URL映射分段
+     */
+    public record UrlMappingsSection(String source, long version, long savedAt, List<UrlMapping> mappings) {
+    }
+
+    /**
+     * 路由分段
+     */
+    public record RoutesSection(String source, long version, long savedAt, List<RouteDefinition> routes) {
+    }
+
+    /**
+     * 快照内容，不存在或已损坏的分段为null
+     */
+    public record ConfigSnapshot(AccessRulesSection accessRules, UrlMappingsSection urlMappings,
+                                 RoutesSection routes) {
+    }
+
+    /**
+     * 编码快照
+     */
+    public static byte[] encode(ConfigSnapshot snapshot) {
+        List<byte[]> sections = new ArrayList<>(3);
+        List<Byte> types = new ArrayList<>(3);
+        if (snapshot.accessRules() != null) {
+            types.add(SECTION_ACCESS_RULES);
+            sections.add(encodeAccessRules(snapshot.accessRules()));
+        }
+        if (snapshot.urlMappings() != null) {
+            types.add(SECTION_URL_MAPPINGS);
+            sections.add(encodeUrlMappings(snapshot.urlMappings()));
+        }
+        if (snapshot.routes() != null) {
+            types.add(SECTION_ROUTES);
+            sections.add(encodeRoutes(snapshot.routes()));
+        }
+
+        return write(out -> {
+            out.write(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(sections.size());
+            for (int i = 0; i < sections.size(); i++) {
+                byte[] payload = sections.get(i);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                out.writeByte(types.get(i));
+                out.writeInt(payload.length);
+                out.writeInt((int) crc.getValue());
+                out.write(payload);
+            }
+        });
+    }
+
+    /**
+     * 解码快照
+     *
+     * @throws IllegalArgumentException 文件头无效或格式版本不支持
+     */
+    public static ConfigSnapshot decode(ByteBuffer buffer) {
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("不是配置快照文件");
+            }
+            byte formatVersion = buffer.get();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IllegalArgumentException("不支持的快照格式版本: " + formatVersion);
+            }
+
+            AccessRulesSection accessRules = null;
+            UrlMappingsSection urlMappings = null;
+            RoutesSection routes = null;
+            int count = buffer.get();
+            for (int i = 0; i < count; i++) {
+                byte type = buffer.get();
+                int length = buffer.getInt();
+                int expectedCrc = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    continue;
+                }
+                ByteBuffer section = ByteBuffer.wrap(payload);
+                try {
+                    switch (type) {
+                        case SECTION_ACCESS_RULES -> accessRules = decodeAccessRules(section);
+                        case SECTION_URL_MAPPINGS -> urlMappings = decodeUrlMappings(section);
+                        case SECTION_ROUTES -> routes = decodeRoutes(section);
+                        default -> {
+                            // 新版本增加的分段类型，跳过
+                        }
+                    }
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    // 分段内容损坏，跳过
+                }
+            }
+            return new ConfigSnapshot(accessRules, urlMappings, routes);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("快照文件不完整");
+        }
+    }
+
+    private static byte[] encodeAccessRules(AccessRulesSection section) {
+        return write(out -> {
+            writeHeader(out, section.source(), section.version(), section.savedAt());
+            writeString(out, section.defaultPolicy());
+            out.writeInt(section.rules().size());
+            for (AccessRule rule : section.rules()) {
+                writeString(out, rule.getRuleName());
+                writeString(out, rule.getRuleType());
+                writeString(out, rule.getMatchType());
+                writeString(out, rule.getMatchPattern());
+                writeString(out, rule.getMatchValue());
+                out.writeInt(rule.getPriority() != null ? rule.getPriority() : 0);
+                out.writeBoolean(Boolean.TRUE.equals(rule.getEnabled()));
+            }
+        });
+    }
+
+    private static AccessRulesSection decodeAccessRules(ByteBuffer in) {
+        String source = readString(in);
+        long version = in.getLong();
+        long savedAt = in.getLong();
+        String defaultPolicy = readString(in);
+        int count = in.getInt();
+        List<AccessRule> rules = new ArrayList<>(Math.min(count, 4096));
+        for (int i = 0; i < count; i++) {
+            AccessRule rule = new AccessRule();
+            rule.setRuleName(readString(in));
+            rule.setRuleType(readString(in));
+            rule.setMatchType(readString(in));
+            rule.setMatchPattern(readString(in));
+            rule.setMatchValue(readString(in));
+            rule.setPriority(in.getInt());
+            rule.setEnabled(in.get() != 0);
+            rules.add(rule);
+        }
+        return new AccessRulesSection(source, version, savedAt, defaultPolicy, rules);
+    }
+
+    private static byte[] encodeUrlMappings(UrlMappingsSection section) {
+        return write(out -> {
+            writeHeader(out, section.source(), section.version(), section.savedAt());
+            out.writeInt(section.mappings().size());
+            for (UrlMapping mapping : section.mappings()) {
+                writeString(out, mapping.getMappingName());
+                writeString(out, mapping.getExternalPath());
+                writeString(out, mapping.getInternalPath());
+                writeString(out, mapping.getTargetService());
+                writeString(out, mapping.getMappingType());
+                out.writeInt(mapping.getPriority() != null ? mapping.getPriority() : 0);
+                out.writeBoolean(Boolean.TRUE.equals(mapping.getEnabled()));
+            }
+        });
+    }
+
+    private static UrlMappingsSection decodeUrlMappings(ByteBuffer in) {
+        String source = readString(in);
+        long version = in.getLong();
+        long savedAt = in.getLong();
+        int count = in.getInt();
+        List<UrlMapping> mappings = new ArrayList<>(Math.min(count, 4096));
+        for (int i = 0; i < count; i++) {
+            UrlMapping mapping = new UrlMapping();
+            mapping.setMappingName(readString(in));
+            mapping.setExternalPath(readString(in));
+            mapping.setInternalPath(readString(in));
+            mapping.setTargetService(readString(in));
+            mapping.setMappingType(readString(in));
+            mapping.setPriority(in.getInt());
+            mapping.setEnabled(in.get() != 0);
+            mappings.add(mapping);
+        }
+        return new UrlMappingsSection(source, version, savedAt, mappings);
+    }
+
+    private static byte[] encodeRoutes(RoutesSection section) {
+        return write(out -> {
+            writeHeader(out, section.source(), section.version(), section.savedAt());
+            out.writeInt(section.routes().size());
+            for (RouteDefinition route : section.routes()) {
+                writeString(out, route.getId());
+                writeString(out, route.getUri() != null ? route.getUri().toString() : null);
+                out.writeInt(route.getOrder());
+                out.writeInt(route.getPredicates().size());
+                for (PredicateDefinition predicate : route.getPredicates()) {
+                    writeString(out, predicate.getName());
+                    writeArgs(out, predicate.getArgs());
+                }
+                out.writeInt(route.getFilters().size());
+                for (FilterDefinition filter : route.getFilters()) {
+                    writeString(out, filter.getName());
+                    writeArgs(out, filter.getArgs());
+                }
+                out.writeInt(route.getMetadata().size());
+                for (Map.Entry<String, Object> entry : route.getMetadata().entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeValue(out, entry.getValue());
+                }
+            }
+        });
+    }
+
+    private static RoutesSection decodeRoutes(ByteBuffer in) {
+        String source = readString(in);
+        long version = in.getLong();
+        long savedAt = in.getLong();
+        int count = in.getInt();
+        List<RouteDefinition> routes = new ArrayList<>(Math.min(count, 4096));
+        for (int i = 0; i < count; i++) {
+            RouteDefinition route = new RouteDefinition();
+            route.setId(readString(in));
+            String uri = readString(in);
+            route.setUri(uri != null ? URI.create(uri) : null);
+            route.setOrder(in.getInt());
+
+            int predicateCount = in.getInt();
+            List<PredicateDefinition> predicates = new ArrayList<>(Math.min(predicateCount, 64));
+            for (int p = 0; p < predicateCount; p++) {
+                PredicateDefinition predicate = new PredicateDefinition();
+                predicate.setName(readString(in));
+                predicate.setArgs(readArgs(in));
+                predicates.add(predicate);
+            }
+            route.setPredicates(predicates);
+
+            int filterCount = in.getInt();
+            List<FilterDefinition> filters = new ArrayList<>(Math.min(filterCount, 64));
+            for (int f = 0; f < filterCount; f++) {
+                FilterDefinition filter = new FilterDefinition();
+                filter.setName(readString(in));
+                filter.setArgs(readArgs(in));
+                filters.add(filter);
+            }
+            route.setFilters(filters);
+
+            int metadataCount = in.getInt();
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            for (int m = 0; m < metadataCount; m++) {
+                metadata.put(readString(in), readValue(in));
+            }
+            route.setMetadata(metadata);
+            routes.add(route);
+        }
+        return new RoutesSection(source, version, savedAt, routes);
+    }
+
+    private static void writeHeader(DataOutputStream out, String source, long version, long savedAt)
+            throws IOException {
+        writeString(out, source);
+        out.writeLong(version);
+        out.writeLong(savedAt);
+    }
+
+    private static void writeArgs(DataOutputStream out, Map<String, String> args) throws IOException {
+        out.writeInt(args.size());
+        for (Map.Entry<String, String> entry : args.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readArgs(ByteBuffer in) {
+        int count = in.getInt();
+        Map<String, String> args = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            args.put(readString(in), readString(in));
+        }
+        return args;
+    }
+
+    /**
+     * 路由元数据的值保留数字和布尔类型，超时等元数据按数字读取
+     */
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof Integer || value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Boolean flag) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean(flag);
+        } else if (value instanceof Number number) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble(number.doubleValue());
+        } else {
+            out.writeByte(VALUE_STRING);
+            writeString(out, String.valueOf(value));
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte type = in.get();
+        return switch (type) {
+            case VALUE_NULL -> null;
+            case VALUE_LONG -> {
+                long value = in.getLong();
+                yield value == (int) value ? (Object) (int) value : (Object) value;
+            }
+            case VALUE_BOOLEAN -> in.get() != 0;
+            case VALUE_DOUBLE -> in.getDouble();
+            case VALUE_STRING -> readString(in);
+            default -> throw new IllegalArgumentException("未知的值类型: " + type);
+        };
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] write(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            // 写入内存不会失败
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
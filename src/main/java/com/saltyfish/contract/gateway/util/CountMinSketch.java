@@ -0,0 +1,80 @@
+package com.saltyfish.contract.gateway.util;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min Sketch
+ * 固定内存的频率估计，估计值只会高估不会低估
+ *
+ * depth 行 × width 列的计数矩阵保存在一个 long 数组中，
+ * 各行的哈希函数由键的 hashCode 与不同种子混合得到，更新和查询都不分配对象。
+ * 非线程安全，由调用方保证互斥。
+ */
+public class CountMinSketch {
+
+    private static final int[] SEEDS = {0x5bd1e995, 0x27d4eb2f, 0x165667b1, 0x9e3779b1, 0x85ebca6b, 0xc2b2ae35, 0x7feb352d, 0x846ca68b};
+
+    private final int depth;
+    private final int widthMask;
+    private final long[] cells;
+
+    /**
+     * @param width 每行的计数器数量，向上取整为2的幂
+     * @param depth 行数（哈希函数数量），最多8
+     */
+    public CountMinSketch(int width, int depth) {
+        int roundedWidth = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = Math.min(Math.max(1, depth), SEEDS.length);
+        this.widthMask = roundedWidth - 1;
+        this.cells = new long[this.depth * roundedWidth];
+    }
+
+    /**
+     * 累加一个键的计数
+     */
+    public void add(String key, long increment) {
+        int hash = key.hashCode();
+        for (int row = 0; row < depth; row++) {
+            cells[cellIndex(row, hash)] += increment;
+        }
+    }
+
+    /**
+     * 估计一个键的计数
+     */
+    public long estimate(String key) {
+        int hash = key.hashCode();
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, cells[cellIndex(row, hash)]);
+        }
+        return min;
+    }
+
+    /**
+     * 把另一个相同尺寸的实例的计数累加到当前实例（用于汇总分片）
+     */
+    public void merge(CountMinSketch other) {
+        if (other.cells.length != cells.length) {
+            throw new IllegalArgumentException("Count-Min Sketch 尺寸不一致");
+        }
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] += other.cells[i];
+        }
+    }
+
+    /**
+     * 清空所有计数
+     */
+    public void clear() {
+        Arrays.fill(cells, 0);
+    }
+
+    private int cellIndex(int row, int hash) {
+        int h = (hash ^ SEEDS[row]) * 0x9E3779B9;
+        h ^= h >>> 15;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return row * (widthMask + 1) + (h & widthMask);
+    }
+}
@@ -0,0 +1,171 @@
+package com.saltyfish.contract.gateway.util;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diagnostic Log Site
+ * 一个诊断日志调用点的限流与聚合状态
+ *
+ * 限流使用 GCRA（通用信元速率算法）实现的令牌桶，只需一个 AtomicLong 保存理论到达时间；
+ * 聚合窗口统计窗口内的总次数、被抑制次数、不同来源数和各目标的次数，
+ * 来源和目标的数量都有上限，超过上限的部分只计数不记录键。
+ */
+public class DiagnosticLogSite {
+
+    /**
+     * 超过目标数量上限时使用的目标名
+     */
+    public static final String OTHER = "other";
+
+    private final String name;
+    private final Logger logger;
+    private final Level level;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxDistinctKeys;
+
+    /**
+     * 令牌桶的理论到达时间（纳秒）
+     */
+    private final AtomicLong theoreticalArrivalTime = new AtomicLong(Long.MIN_VALUE);
+
+    private final AtomicReference<Window> window;
+
+    /**
+     * @param name            调用点名称，出现在汇总日志中
+     * @param logger          输出日志的 Logger
+     * @param level           日志级别
+     * @param permitsPerSecond 每秒允许输出的日志条数
+     * @param burst           允许的突发条数
+     * @param maxDistinctKeys 每个窗口最多记录的来源和目标数量
+     */
+    public DiagnosticLogSite(String name, Logger logger, Level level,
+                             double permitsPerSecond, int burst, int maxDistinctKeys) {
+        this.name = name;
+        this.logger = logger;
+        this.level = level;
+        this.emissionIntervalNanos = (long) (1_000_000_000L / Math.max(permitsPerSecond, 0.001));
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, burst - 1);
+        this.maxDistinctKeys = maxDistinctKeys;
+        this.window = new AtomicReference<>(new Window());
+    }
+
+    /**
+     * 尝试获取一次输出许可
+     */
+    public boolean tryAcquire(long nowNanos) {
+        long tat;
+        long newTat;
+        do {
+            tat = theoreticalArrivalTime.get();
+            long base = Math.max(tat, nowNanos);
+            if (base - nowNanos > burstToleranceNanos) {
+                return false;
+            }
+            newTat = base + emissionIntervalNanos;
+        } while (!theoreticalArrivalTime.compareAndSet(tat, newTat));
+        return true;
+    }
+
+    /**
+     * 记录一次发生
+     *
+     * @param source     来源（如客户端IP），可为null
+     * @param target     目标（如请求路径），可为null
+     * @param suppressed 是否被限流抑制
+     */
+    public void count(String source, String target, boolean suppressed) {
+        Window current = window.get();
+        current.total.increment();
+        if (suppressed) {
+            current.suppressed.increment();
+        }
+        if (source != null && !current.sources.containsKey(source)) {
+            if (current.sources.size() < maxDistinctKeys) {
+                current.sources.putIfAbsent(source, Boolean.TRUE);
+            } else {
+                current.sourceOverflow = true;
+            }
+        }
+        if (target != null) {
+            LongAdder counter = current.targets.get(target);
+            if (counter == null) {
+                String key = current.targets.size() < maxDistinctKeys ? target : OTHER;
+                counter = current.targets.computeIfAbsent(key, k -> new LongAdder());
+            }
+            counter.increment();
+        }
+    }
+
+    /**
+     * 切换到新窗口并返回旧窗口
+     */
+    public Window rollWindow() {
+        return window.getAndSet(new Window());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Logger getLogger() {
+        return logger;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * 聚合窗口
+     */
+    public static class Window {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder suppressed = new LongAdder();
+        private final Map<String, Boolean> sources = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> targets = new ConcurrentHashMap<>();
+        private volatile boolean sourceOverflow;
+
+        public long getTotal() {
+            return total.sum();
+        }
+
+        public long getSuppressed() {
+            return suppressed.sum();
+        }
+
+        public int getDistinctSources() {
+            return sources.size();
+        }
+
+        /**
+         * 来源数量是否超过上限（此时 {@link #getDistinctSources()} 为下限）
+         */
+        public boolean isSourceOverflow() {
+            return sourceOverflow;
+        }
+
+        /**
+         * 次数最多的目标，没有目标时返回null
+         */
+        public Map.Entry<String, Long> topTarget() {
+            String topKey = null;
+            long topCount = 0;
+            for (Map.Entry<String, LongAdder> entry : targets.entrySet()) {
+                long count = entry.getValue().sum();
+                if (count > topCount) {
+                    topKey = entry.getKey();
+                    topCount = count;
+                }
+            }
+            return topKey != null ? Map.entry(topKey, topCount) : null;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.saltyfish.contract.gateway.util;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
+
+/**
+ * Fair Queue Scheduler
+ * 按用户公平分配并发名额的调度器（加权差额轮询，DRR）
+ *
+ * - 总在途数和每个用户的在途数都有上限
+ * - 没有排队请求且名额充足时直接放行
+ * - 否则按用户排队，名额释放时按差额轮询依次从各用户队列中取请求，
+ *   每轮每个用户获得 quantum × 权重 的额度，重度用户无法占满所有名额
+ * - 队列总长度和单用户队列长度有上限，排队超时的请求被移出队列
+ * 所有状态在同一把锁下更新，放行回调在锁外执行。
+ * 每次放行对应一个 {@link Permit}，名额只能通过它归还，重复归还会被忽略。
+ */
+public class FairQueueScheduler {
+
+    /**
+     * 队列已满
+     */
+    public static class QueueFullException extends RuntimeException {
+        public QueueFullException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private final int maxInflight;
+    private final int perUserMaxInflight;
+    private final int maxQueueSize;
+    private final int perUserQueueSize;
+    private final int quantum;
+    private final ToIntFunction<String> weights;
+
+    private final Map<String, UserQueue> users = new HashMap<>();
+    private final ArrayDeque<UserQueue> activeUsers = new ArrayDeque<>();
+    private int inflight;
+    private int queued;
+
+    /**
+     * @param maxInflight        总在途上限
+     * @param perUserMaxInflight 单用户在途上限
+     * @param maxQueueSize       总排队上限
+     * @param perUserQueueSize   单用户排队上限
+     * @param quantum            每轮基础额度
+     * @param weights            用户权重
+     */
+    public FairQueueScheduler(int maxInflight, int perUserMaxInflight, int maxQueueSize, int perUserQueueSize,
+                              int quantum, ToIntFunction<String> weights) {
+        this.maxInflight = maxInflight;
+        this.perUserMaxInflight = perUserMaxInflight;
+        this.maxQueueSize = maxQueueSize;
+        this.perUserQueueSize = perUserQueueSize;
+        this.quantum = Math.max(1, quantum);
+        this.weights = weights;
+    }
+
+    /**
+     * 申请一个名额，订阅时才开始申请
+     *
+     * @param user    用户（或租户）标识
+     * @param timeout 最长排队时间
+     * @return 获得名额时发出 {@link Permit}，请求结束后调用其 {@link Permit#release()} 归还；
+     * 队列已满时以 {@link QueueFullException} 结束，排队超时以 {@link TimeoutException} 结束
+     */
+    public Mono<Permit> acquire(String user, Duration timeout) {
+        return Mono.defer(() -> {
+            synchronized (this) {
+                UserQueue userQueue = users.get(user);
+                boolean userIdle = userQueue == null || userQueue.waiters.isEmpty();
+                int userInflight = userQueue != null ? userQueue.inflight : 0;
+                if (queued == 0 && userIdle && inflight < maxInflight && userInflight < perUserMaxInflight) {
+                    grantLocked(userQueue != null ? userQueue : userQueue(user));
+                    return Mono.just(new Permit(user));
+                }
+                if (queued >= maxQueueSize) {
+                    return Mono.error(new QueueFullException("队列已满"));
+                }
+                if (userQueue != null && userQueue.waiters.size() >= perUserQueueSize) {
+                    return Mono.error(new QueueFullException("用户队列已满"));
+                }
+            }
+            return enqueue(user, timeout);
+        });
+    }
+
+    public synchronized int getInflight() {
+        return inflight;
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    /**
+     * 进入用户队列等待放行
+     */
+    private Mono<Permit> enqueue(String user, Duration timeout) {
+        Waiter waiter = new Waiter(new Permit(user));
+        return Mono.<Permit>create(sink -> {
+                    List<Waiter> granted;
+                    synchronized (this) {
+                        waiter.sink = sink;
+                        UserQueue userQueue = userQueue(user);
+                        if (queued >= maxQueueSize || userQueue.waiters.size() >= perUserQueueSize) {
+                            sink.error(new QueueFullException("队列已满"));
+                            removeIfIdle(userQueue);
+                            return;
+                        }
+                        userQueue.waiters.addLast(waiter);
+                        queued++;
+                        if (!userQueue.active) {
+                            userQueue.active = true;
+                            activeUsers.addLast(userQueue);
+                        }
+                        granted = dispatchLocked();
+                    }
+                    complete(granted);
+                })
+                .timeout(timeout)
+                .doOnCancel(() -> cancel(waiter))
+                .doOnError(TimeoutException.class, e -> cancel(waiter));
+    }
+
+    /**
+     * 归还名额并调度排队请求，只由 {@link Permit#release()} 调用
+     */
+    private void release(String user) {
+        List<Waiter> granted;
+        synchronized (this) {
+            UserQueue userQueue = users.get(user);
+            inflight--;
+            if (userQueue != null) {
+                userQueue.inflight--;
+                removeIfIdle(userQueue);
+            }
+            granted = dispatchLocked();
+        }
+        complete(granted);
+    }
+
+    /**
+     * 差额轮询：依次给活跃用户补充额度，在额度和名额允许时放行其排队请求
+     */
+    private List<Waiter> dispatchLocked() {
+        List<Waiter> granted = null;
+        int skipped = 0;
+        while (inflight < maxInflight && !activeUsers.isEmpty() && skipped < activeUsers.size()) {
+            UserQueue userQueue = activeUsers.pollFirst();
+            if (userQueue.inflight >= perUserMaxInflight) {
+                // 该用户已达在途上限，本轮跳过
+                activeUsers.addLast(userQueue);
+                skipped++;
+                continue;
+            }
+            skipped = 0;
+            // 每个请求的开销相同，额度不跨轮累积
+            int share = quantum * Math.max(1, weights.applyAsInt(userQueue.user));
+            userQueue.deficit = Math.min(userQueue.deficit + share, share);
+            while (userQueue.deficit > 0 && !userQueue.waiters.isEmpty()
+                    && inflight < maxInflight && userQueue.inflight < perUserMaxInflight) {
+                Waiter waiter = userQueue.waiters.pollFirst();
+                queued--;
+                userQueue.deficit--;
+                grantLocked(userQueue);
+                if (granted == null) {
+                    granted = new ArrayList<>();
+                }
+                granted.add(waiter);
+            }
+            if (userQueue.waiters.isEmpty()) {
+                userQueue.deficit = 0;
+                userQueue.active = false;
+                removeIfIdle(userQueue);
+            } else {
+                activeUsers.addLast(userQueue);
+            }
+        }
+        return granted;
+    }
+
+    private void grantLocked(UserQueue userQueue) {
+        inflight++;
+        userQueue.inflight++;
+    }
+
+    private UserQueue userQueue(String user) {
+        return users.computeIfAbsent(user, UserQueue::new);
+    }
+
+    private void removeIfIdle(UserQueue userQueue) {
+        if (userQueue.inflight <= 0 && userQueue.waiters.isEmpty() && !userQueue.active) {
+            users.remove(userQueue.user);
+        }
+    }
+
+    /**
+     * 排队请求超时或被取消：仍在队列中时移除；已经获得名额时归还名额
+     */
+    private void cancel(Waiter waiter) {
+        boolean release = false;
+        synchronized (this) {
+            UserQueue userQueue = users.get(waiter.permit.user);
+            if (userQueue != null && userQueue.waiters.remove(waiter)) {
+                queued--;
+                if (userQueue.waiters.isEmpty() && userQueue.active) {
+                    userQueue.active = false;
+                    userQueue.deficit = 0;
+                    activeUsers.remove(userQueue);
+                    removeIfIdle(userQueue);
+                }
+            } else if (waiter.granted) {
+                release = true;
+            }
+            waiter.cancelled = true;
+        }
+        if (release) {
+            // 名额可能已经交给下游，与下游的归还共用同一个 Permit
+            waiter.permit.release();
+        }
+    }
+
+    private void complete(List<Waiter> granted) {
+        if (granted == null) {
+            return;
+        }
+        for (Waiter waiter : granted) {
+            boolean deliver;
+            synchronized (this) {
+                deliver = !waiter.cancelled;
+                waiter.granted = deliver;
+            }
+            if (deliver) {
+                waiter.sink.success(waiter.permit);
+            } else {
+                // 放行前已被取消，归还名额
+                waiter.permit.release();
+            }
+        }
+    }
+
+    /**
+     * 一次放行获得的名额，{@link #release()} 只有第一次调用生效
+     */
+    public final class Permit {
+        private final String user;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String user) {
+            this.user = user;
+        }
+
+        /**
+         * 归还名额
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                FairQueueScheduler.this.release(user);
+            }
+        }
+    }
+
+    /**
+     * 单个用户的队列
+     */
+    private static class UserQueue {
+        private final String user;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private int inflight;
+        private int deficit;
+        private boolean active;
+
+        private UserQueue(String user) {
+            this.user = user;
+        }
+    }
+
+    /**
+     * 排队中的请求
+     */
+    private static class Waiter {
+        private final Permit permit;
+        private MonoSink<Permit> sink;
+        private boolean granted;
+        private boolean cancelled;
+
+        private Waiter(Permit permit) {
+            this.permit = permit;
+        }
+    }
+}
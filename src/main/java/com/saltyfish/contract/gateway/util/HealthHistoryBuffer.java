@@ -0,0 +1,220 @@
+package com.saltyfish.contract.gateway.util;
+
+import com.saltyfish.contract.gateway.dto.HealthHistoryPointDto;
+import com.saltyfish.contract.gateway.dto.HealthTransitionDto;
+import com.saltyfish.contract.gateway.dto.ServiceHealthStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Health History Buffer
+ * 单个服务的健康历史环形缓冲区
+ *
+ * 数据以基本类型数组存储，分为三部分：
+ * - 秒级采样环：时间戳、健康实例数、实例总数、状态序数
+ * - 分钟级降采样环：每分钟健康实例数最小值、实例总数最大值、最差状态
+ * - 状态转换环：转换时间、转换前后状态
+ *
+ * 单写多读：record 只允许一个线程调用，写入完成后通过 volatile 计数发布；
+ * 查询线程只读取已发布的槽位，并跳过可能正在被覆盖的最旧槽位。
+ */
+public class HealthHistoryBuffer {
+
+    private static final int NO_STATUS = -1;
+
+    // 秒级采样
+    private final int secondCapacity;
+    private final long[] secondTimes;
+    private final int[] secondHealthy;
+    private final int[] secondTotal;
+    private final byte[] secondStatus;
+    private volatile long secondWritten;
+
+    // 分钟级降采样
+    private final int minuteCapacity;
+    private final long[] minuteTimes;
+    private final int[] minuteHealthy;
+    private final int[] minuteTotal;
+    private final byte[] minuteStatus;
+    private volatile long minuteWritten;
+
+    // 状态转换
+    private final int transitionCapacity;
+    private final long[] transitionTimes;
+    private final byte[] transitionFrom;
+    private final byte[] transitionTo;
+    private volatile long transitionWritten;
+
+    // 当前分钟的累加器，仅由写线程访问
+    private long currentMinute = -1;
+    private int currentMinuteHealthy;
+    private int currentMinuteTotal;
+    private int currentMinuteStatus;
+    private int lastStatus = NO_STATUS;
+
+    /**
+     * @throws IllegalArgumentException 任一容量不是正数
+     */
+    public HealthHistoryBuffer(int secondCapacity, int minuteCapacity, int transitionCapacity) {
+        requirePositive("second-capacity", secondCapacity);
+        requirePositive("minute-capacity", minuteCapacity);
+        requirePositive("transition-capacity", transitionCapacity);
+        this.secondCapacity = secondCapacity;
+        this.secondTimes = new long[secondCapacity];
+        this.secondHealthy = new int[secondCapacity];
+        this.secondTotal = new int[secondCapacity];
+        this.secondStatus = new byte[secondCapacity];
+
+        this.minuteCapacity = minuteCapacity;
+        this.minuteTimes = new long[minuteCapacity];
+        this.minuteHealthy = new int[minuteCapacity];
+        this.minuteTotal = new int[minuteCapacity];
+        this.minuteStatus = new byte[minuteCapacity];
+
+        this.transitionCapacity = transitionCapacity;
+        this.transitionTimes = new long[transitionCapacity];
+        this.transitionFrom = new byte[transitionCapacity];
+        this.transitionTo = new byte[transitionCapacity];
+    }
+
+    private static void requirePositive(String name, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("健康历史容量必须大于0: " + name + "=" + capacity);
+        }
+    }
+
+    /**
+     * 记录一次秒级采样（不分配对象）
+     *
+     * @param epochSecond   采样时间（秒）
+     * @param healthyCount  健康实例数
+     * @param totalCount    实例总数
+     * @param statusOrdinal 状态序数
+     */
+    public void record(long epochSecond, int healthyCount, int totalCount, int statusOrdinal) {
+        long written = secondWritten;
+        int slot = (int) (written % secondCapacity);
+        secondTimes[slot] = epochSecond;
+        secondHealthy[slot] = healthyCount;
+        secondTotal[slot] = totalCount;
+        secondStatus[slot] = (byte) statusOrdinal;
+        secondWritten = written + 1;
+
+        long minute = epochSecond / 60;
+        if (minute != currentMinute) {
+            flushMinute();
+            currentMinute = minute;
+            currentMinuteHealthy = healthyCount;
+            currentMinuteTotal = totalCount;
+            currentMinuteStatus = statusOrdinal;
+        } else {
+            currentMinuteHealthy = Math.min(currentMinuteHealthy, healthyCount);
+            currentMinuteTotal = Math.max(currentMinuteTotal, totalCount);
+            currentMinuteStatus = Math.max(currentMinuteStatus, statusOrdinal);
+        }
+
+        if (lastStatus != NO_STATUS && lastStatus != statusOrdinal) {
+            long transitions = transitionWritten;
+            int transitionSlot = (int) (transitions % transitionCapacity);
+            transitionTimes[transitionSlot] = epochSecond;
+            transitionFrom[transitionSlot] = (byte) lastStatus;
+            transitionTo[transitionSlot] = (byte) statusOrdinal;
+            transitionWritten = transitions + 1;
+        }
+        lastStatus = statusOrdinal;
+    }
+
+    /**
+     * 将当前分钟的累加结果写入分钟环
+     */
+    private void flushMinute() {
+        if (currentMinute < 0) {
+            return;
+        }
+        long written = minuteWritten;
+        int slot = (int) (written % minuteCapacity);
+        minuteTimes[slot] = currentMinute * 60;
+        minuteHealthy[slot] = currentMinuteHealthy;
+        minuteTotal[slot] = currentMinuteTotal;
+        minuteStatus[slot] = (byte) currentMinuteStatus;
+        minuteWritten = written + 1;
+    }
+
+    /**
+     * 查询秒级采样点
+     *
+     * @param fromSecond 起始时间（秒，包含）
+     * @param toSecond   结束时间（秒，包含）
+     */
+    public List<HealthHistoryPointDto> querySeconds(long fromSecond, long toSecond) {
+        long written = secondWritten;
+        long start = Math.max(0, written - secondCapacity + 1);
+        List<HealthHistoryPointDto> points = new ArrayList<>();
+        for (long i = start; i < written; i++) {
+            int slot = (int) (i % secondCapacity);
+            long time = secondTimes[slot];
+            if (time < fromSecond || time > toSecond) {
+                continue;
+            }
+            points.add(HealthHistoryPointDto.builder()
+                    .timestamp(time * 1000)
+                    .healthyCount(secondHealthy[slot])
+                    .totalInstance(secondTotal[slot])
+                    .status(ServiceHealthStatus.ofOrdinal(secondStatus[slot]).name())
+                    .build());
+        }
+        return points;
+    }
+
+    /**
+     * 查询分钟级降采样点（不包含尚未结束的当前分钟）
+     *
+     * @param fromSecond 起始时间（秒，包含）
+     * @param toSecond   结束时间（秒，包含）
+     */
+    public List<HealthHistoryPointDto> queryMinutes(long fromSecond, long toSecond) {
+        long written = minuteWritten;
+        long start = Math.max(0, written - minuteCapacity + 1);
+        List<HealthHistoryPointDto> points = new ArrayList<>();
+        for (long i = start; i < written; i++) {
+            int slot = (int) (i % minuteCapacity);
+            long time = minuteTimes[slot];
+            if (time + 59 < fromSecond || time > toSecond) {
+                continue;
+            }
+            points.add(HealthHistoryPointDto.builder()
+                    .timestamp(time * 1000)
+                    .healthyCount(minuteHealthy[slot])
+                    .totalInstance(minuteTotal[slot])
+                    .status(ServiceHealthStatus.ofOrdinal(minuteStatus[slot]).name())
+                    .build());
+        }
+        return points;
+    }
+
+    /**
+     * 查询状态转换记录
+     *
+     * @param fromSecond 起始时间（秒，包含）
+     * @param toSecond   结束时间（秒，包含）
+     */
+    public List<HealthTransitionDto> queryTransitions(long fromSecond, long toSecond) {
+        long written = transitionWritten;
+        long start = Math.max(0, written - transitionCapacity + 1);
+        List<HealthTransitionDto> transitions = new ArrayList<>();
+        for (long i = start; i < written; i++) {
+            int slot = (int) (i % transitionCapacity);
+            long time = transitionTimes[slot];
+            if (time < fromSecond || time > toSecond) {
+                continue;
+            }
+            transitions.add(HealthTransitionDto.builder()
+                    .timestamp(time * 1000)
+                    .fromStatus(ServiceHealthStatus.ofOrdinal(transitionFrom[slot]).name())
+                    .toStatus(ServiceHealthStatus.ofOrdinal(transitionTo[slot]).name())
+                    .build());
+        }
+        return transitions;
+    }
+}
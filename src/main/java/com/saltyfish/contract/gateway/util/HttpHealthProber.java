@@ -0,0 +1,82 @@
+package com.saltyfish.contract.gateway.util;
+
+import io.netty.channel.ChannelOption;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * HTTP Health Prober
+ * 基于 Reactor Netty 的非阻塞 HTTP 健康探测器
+ *
+ * 所有探测共享同一个 HttpClient 及其连接池，不依赖 Spring 容器，
+ * 可以直接指向本地桩服务器进行验证。由 {@link #create} 创建的探测器不再使用时需要调用 {@link #dispose} 释放连接池。
+ */
+public class HttpHealthProber {
+
+    private final HttpClient httpClient;
+    private final Duration timeout;
+
+    /**
+     * 探测器独占的连接池，使用外部 HttpClient 时为null
+     */
+    private final ConnectionProvider provider;
+
+    public HttpHealthProber(HttpClient httpClient, Duration timeout) {
+        this(httpClient, timeout, null);
+    }
+
+    private HttpHealthProber(HttpClient httpClient, Duration timeout, ConnectionProvider provider) {
+        this.httpClient = httpClient;
+        this.timeout = timeout;
+        this.provider = provider;
+    }
+
+    /**
+     * 创建带独立连接池的探测器
+     *
+     * @param maxConnections 最大连接数，通常与探测并发度一致
+     * @param timeout        单次探测超时时间（同时作为连接超时）
+     */
+    public static HttpHealthProber create(int maxConnections, Duration timeout) {
+        ConnectionProvider provider = ConnectionProvider.builder("gateway-health-probe")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .maxIdleTime(Duration.ofSeconds(60))
+                .build();
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeout.toMillis())
+                .responseTimeout(timeout);
+        return new HttpHealthProber(httpClient, timeout, provider);
+    }
+
+    /**
+     * 释放探测器独占的连接池，外部传入的 HttpClient 不受影响
+     */
+    public void dispose() {
+        if (provider != null) {
+            provider.disposeLater().subscribe();
+        }
+    }
+
+    /**
+     * 探测一个实例，2xx 响应视为健康，其余状态码、超时和连接失败均视为不健康
+     *
+     * @param host 实例地址
+     * @param port 实例端口
+     * @param path 健康检查路径
+     * @return 是否健康，不会以错误结束
+     */
+    public Mono<Boolean> probe(String host, int port, String path) {
+        return httpClient.get()
+                .uri("http://" + host + ":" + port + path)
+                .responseSingle((response, body) -> {
+                    int code = response.status().code();
+                    return body.then(Mono.just(code >= 200 && code < 300));
+                })
+                .timeout(timeout)
+                .onErrorReturn(false);
+    }
+}
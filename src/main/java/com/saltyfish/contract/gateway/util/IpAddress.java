@@ -0,0 +1,251 @@
+package com.saltyfish.contract.gateway.util;
+
+import java.net.InetAddress;
+
+/**
+ * IP Address
+ * 数值形式的IP地址，统一表示为128位：IPv4 地址映射到 ::ffff:0:0/96
+ *
+ * 只解析字面量地址，不做DNS查询；匹配网段时只做位运算。
+ *
+ * @param high 高64位
+ * @param low  低64位
+ */
+public record IpAddress(long high, long low) {
+
+    private static final long V4_MAPPED_PREFIX = 0xffffL << 32;
+
+    /**
+     * 由 IPv4 地址构造
+     */
+    public static IpAddress ofIpv4(long ipv4) {
+        return new IpAddress(0, V4_MAPPED_PREFIX | (ipv4 & 0xffffffffL));
+    }
+
+    /**
+     * 由 InetAddress 构造（已经是数值形式，不需要解析）
+     */
+    public static IpAddress of(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            return ofIpv4(toLong(bytes, 0, 4));
+        }
+        return new IpAddress(toLong(bytes, 0, 8), toLong(bytes, 8, 16));
+    }
+
+    /**
+     * 解析IP字面量，允许 IPv4 带端口（1.2.3.4:80）、IPv6 带方括号和端口（[::1]:80）及区域标识
+     *
+     * @return 解析结果，不是合法的IP字面量时返回null
+     */
+    public static IpAddress parse(CharSequence text, int start, int end) {
+        // 去掉首尾空白
+        while (start < end && text.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start >= end) {
+            return null;
+        }
+        if (text.charAt(start) == '[') {
+            int close = indexOf(text, ']', start, end);
+            return close < 0 ? null : parseIpv6(text, start + 1, close);
+        }
+        int firstColon = indexOf(text, ':', start, end);
+        if (firstColon < 0) {
+            long ipv4 = parseIpv4(text, start, end);
+            return ipv4 < 0 ? null : ofIpv4(ipv4);
+        }
+        if (indexOf(text, ':', firstColon + 1, end) < 0) {
+            // 只有一个冒号：IPv4 带端口
+            long ipv4 = parseIpv4(text, start, firstColon);
+            return ipv4 < 0 ? null : ofIpv4(ipv4);
+        }
+        return parseIpv6(text, start, end);
+    }
+
+    public static IpAddress parse(String text) {
+        return text == null ? null : parse(text, 0, text.length());
+    }
+
+    public boolean isIpv4() {
+        return high == 0 && (low >>> 32) == 0xffffL;
+    }
+
+    /**
+     * IPv4 输出点分十进制，IPv6 按 RFC 5952 输出（小写、省略前导零、最长的连续零组缩写为 ::）
+     */
+    @Override
+    public String toString() {
+        if (isIpv4()) {
+            return ((low >>> 24) & 0xff) + "." + ((low >>> 16) & 0xff) + "." + ((low >>> 8) & 0xff) + "." + (low & 0xff);
+        }
+        int[] groups = new int[8];
+        for (int i = 0; i < 4; i++) {
+            groups[i] = (int) (high >>> (48 - 16 * i)) & 0xffff;
+            groups[i + 4] = (int) (low >>> (48 - 16 * i)) & 0xffff;
+        }
+        // 找出最长的连续零组，长度至少为2，等长时取第一段
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int i = 0; i < 8; ) {
+            if (groups[i] != 0) {
+                i++;
+                continue;
+            }
+            int j = i;
+            while (j < 8 && groups[j] == 0) {
+                j++;
+            }
+            if (j - i > bestLength) {
+                bestStart = i;
+                bestLength = j - i;
+            }
+            i = j;
+        }
+        StringBuilder builder = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                builder.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (builder.length() > 0 && builder.charAt(builder.length() - 1) != ':') {
+                builder.append(':');
+            }
+            builder.append(Integer.toHexString(groups[i]));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 解析点分十进制 IPv4，失败时返回-1
+     */
+    private static long parseIpv4(CharSequence text, int start, int end) {
+        long result = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 3) {
+                result = (result << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (value < 0 || octets != 3) {
+            return -1;
+        }
+        return (result << 8) | value;
+    }
+
+    /**
+     * 解析 IPv6，支持 :: 缩写和末尾的 IPv4 形式
+     */
+    private static IpAddress parseIpv6(CharSequence text, int start, int end) {
+        int zone = indexOf(text, '%', start, end);
+        if (zone >= 0) {
+            end = zone;
+        }
+        int[] groups = new int[8];
+        int count = 0;
+        int compressAt = -1;
+        int i = start;
+        if (end - start >= 2 && text.charAt(start) == ':' && text.charAt(start + 1) == ':') {
+            compressAt = 0;
+            i = start + 2;
+        }
+        while (i < end) {
+            if (count >= 8) {
+                return null;
+            }
+            int groupEnd = i;
+            int value = 0;
+            while (groupEnd < end && groupEnd - i < 5) {
+                int digit = Character.digit(text.charAt(groupEnd), 16);
+                if (digit < 0) {
+                    break;
+                }
+                value = (value << 4) | digit;
+                groupEnd++;
+            }
+            if (groupEnd < end && text.charAt(groupEnd) == '.') {
+                // 末尾的 IPv4 部分占两组
+                long ipv4 = parseIpv4(text, i, end);
+                if (ipv4 < 0 || count > 6) {
+                    return null;
+                }
+                groups[count++] = (int) (ipv4 >>> 16);
+                groups[count++] = (int) (ipv4 & 0xffff);
+                i = end;
+                break;
+            }
+            if (groupEnd == i || groupEnd - i > 4) {
+                return null;
+            }
+            groups[count++] = value;
+            i = groupEnd;
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i) != ':') {
+                return null;
+            }
+            i++;
+            if (i < end && text.charAt(i) == ':') {
+                if (compressAt >= 0) {
+                    return null;
+                }
+                compressAt = count;
+                i++;
+            } else if (i == end) {
+                // 以单个冒号结尾
+                return null;
+            }
+        }
+        if (compressAt < 0 && count != 8 || compressAt >= 0 && count == 8) {
+            return null;
+        }
+        int[] full = new int[8];
+        if (compressAt < 0) {
+            full = groups;
+        } else {
+            int tail = count - compressAt;
+            System.arraycopy(groups, 0, full, 0, compressAt);
+            System.arraycopy(groups, compressAt, full, 8 - tail, tail);
+        }
+        long high = 0;
+        long low = 0;
+        for (int g = 0; g < 4; g++) {
+            high = (high << 16) | full[g];
+            low = (low << 16) | full[g + 4];
+        }
+        return new IpAddress(high, low);
+    }
+
+    private static int indexOf(CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long toLong(byte[] bytes, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = (value << 8) | (bytes[i] & 0xff);
+        }
+        return value;
+    }
+}
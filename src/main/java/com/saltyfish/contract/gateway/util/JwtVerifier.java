@@ -0,0 +1,180 @@
+package com.saltyfish.contract.gateway.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JWT Verifier
+ * 本地 JWT 验签工具，支持 HS256/384/512 和 RS256/384/512
+ *
+ * 密钥集在创建时解析一次：HMAC 密钥为共享密钥，RSA 公钥按 kid 索引（令牌头无 kid 且只有一个公钥时直接使用）。
+ * 验签通过后检查 exp/nbf（允许时钟偏差），返回载荷中的声明。
+ */
+public class JwtVerifier {
+
+    /**
+     * 令牌无效
+     */
+    public static class InvalidTokenException extends Exception {
+        public InvalidTokenException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /**
+     * 验签通过的令牌
+     *
+     * @param claims    载荷声明
+     * @param expiresAt 过期时间（毫秒时间戳），令牌无 exp 时为 Long.MAX_VALUE
+     */
+    public record VerifiedToken(Map<String, Object> claims, long expiresAt) {
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+    private static final Base64.Decoder URL_DECODER = Base64.getUrlDecoder();
+
+    private final byte[] hmacKey;
+    private final Map<String, PublicKey> rsaKeys;
+    private final long clockSkewMillis;
+    private final boolean requireExpiration;
+
+    /**
+     * @param hmacKey           HMAC 密钥，不使用时为 null
+     * @param rsaPublicKeys     kid -> PEM 或 Base64 编码的 X.509 公钥
+     * @param clockSkew         允许的时钟偏差
+     * @param requireExpiration 是否要求令牌包含 exp
+     */
+    public JwtVerifier(byte[] hmacKey, Map<String, String> rsaPublicKeys, Duration clockSkew,
+                       boolean requireExpiration) {
+        this.hmacKey = hmacKey != null && hmacKey.length > 0 ? hmacKey : null;
+        this.rsaKeys = new HashMap<>();
+        rsaPublicKeys.forEach((kid, pem) -> rsaKeys.put(kid, parsePublicKey(kid, pem)));
+        this.clockSkewMillis = clockSkew.toMillis();
+        this.requireExpiration = requireExpiration;
+    }
+
+    /**
+     * 验证令牌
+     *
+     * @throws InvalidTokenException 格式错误、签名不符、算法或密钥不可用、已过期或未生效
+     */
+    public VerifiedToken verify(String token) throws InvalidTokenException {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw new InvalidTokenException("令牌格式错误");
+        }
+
+        Map<String, Object> header = decodeJson(token.substring(0, firstDot));
+        byte[] signingInput = token.substring(0, secondDot).getBytes(StandardCharsets.US_ASCII);
+        byte[] signature = decode(token.substring(secondDot + 1));
+        verifySignature(header, signingInput, signature);
+
+        Map<String, Object> claims = decodeJson(token.substring(firstDot + 1, secondDot));
+        long now = System.currentTimeMillis();
+        Long expiresAt = epochMillis(claims.get("exp"));
+        if (expiresAt == null && requireExpiration) {
+            throw new InvalidTokenException("令牌缺少过期时间");
+        }
+        if (expiresAt != null && now - clockSkewMillis >= expiresAt) {
+            throw new InvalidTokenException("令牌已过期");
+        }
+        Long notBefore = epochMillis(claims.get("nbf"));
+        if (notBefore != null && now + clockSkewMillis < notBefore) {
+            throw new InvalidTokenException("令牌未生效");
+        }
+        return new VerifiedToken(claims, expiresAt != null ? expiresAt : Long.MAX_VALUE);
+    }
+
+    private void verifySignature(Map<String, Object> header, byte[] signingInput, byte[] signature)
+            throws InvalidTokenException {
+        Object alg = header.get("alg");
+        try {
+            switch (String.valueOf(alg)) {
+                case "HS256" -> verifyHmac("HmacSHA256", signingInput, signature);
+                case "HS384" -> verifyHmac("HmacSHA384", signingInput, signature);
+                case "HS512" -> verifyHmac("HmacSHA512", signingInput, signature);
+                case "RS256" -> verifyRsa("SHA256withRSA", header.get("kid"), signingInput, signature);
+                case "RS384" -> verifyRsa("SHA384withRSA", header.get("kid"), signingInput, signature);
+                case "RS512" -> verifyRsa("SHA512withRSA", header.get("kid"), signingInput, signature);
+                default -> throw new InvalidTokenException("不支持的签名算法: " + alg);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new InvalidTokenException("验签失败: " + e.getMessage());
+        }
+    }
+
+    private void verifyHmac(String algorithm, byte[] signingInput, byte[] signature)
+            throws GeneralSecurityException, InvalidTokenException {
+        if (hmacKey == null) {
+            throw new InvalidTokenException("未配置HMAC密钥");
+        }
+        Mac mac = Mac.getInstance(algorithm);
+        mac.init(new SecretKeySpec(hmacKey, algorithm));
+        if (!MessageDigest.isEqual(mac.doFinal(signingInput), signature)) {
+            throw new InvalidTokenException("签名不匹配");
+        }
+    }
+
+    private void verifyRsa(String algorithm, Object kid, byte[] signingInput, byte[] signature)
+            throws GeneralSecurityException, InvalidTokenException {
+        PublicKey key = kid != null ? rsaKeys.get(String.valueOf(kid))
+                : rsaKeys.size() == 1 ? rsaKeys.values().iterator().next() : null;
+        if (key == null) {
+            throw new InvalidTokenException("未找到公钥: kid=" + kid);
+        }
+        Signature verifier = Signature.getInstance(algorithm);
+        verifier.initVerify(key);
+        verifier.update(signingInput);
+        if (!verifier.verify(signature)) {
+            throw new InvalidTokenException("签名不匹配");
+        }
+    }
+
+    private static Map<String, Object> decodeJson(String part) throws InvalidTokenException {
+        try {
+            return OBJECT_MAPPER.readValue(decode(part), MAP_TYPE);
+        } catch (InvalidTokenException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidTokenException("令牌内容不是有效的JSON");
+        }
+    }
+
+    private static byte[] decode(String part) throws InvalidTokenException {
+        try {
+            return URL_DECODER.decode(part);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException("令牌编码错误");
+        }
+    }
+
+    private static Long epochMillis(Object value) {
+        return value instanceof Number number ? number.longValue() * 1000 : null;
+    }
+
+    private static PublicKey parsePublicKey(String kid, String pem) {
+        String base64 = pem.replaceAll("-----(BEGIN|END) PUBLIC KEY-----", "").replaceAll("\\s", "");
+        try {
+            return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("无法解析公钥: kid=" + kid, e);
+        }
+    }
+}
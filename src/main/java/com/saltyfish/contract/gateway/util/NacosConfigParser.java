@@ -0,0 +1,321 @@
+package com.saltyfish.contract.gateway.util;
+
+import com.saltyfish.contract.gateway.entity.AccessRule;
+import com.saltyfish.contract.gateway.entity.UrlMapping;
+import com.saltyfish.contract.gateway.exception.ConfigValidationException;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Nacos Config Parser
+ * 解析 Nacos 中的访问规则、URL映射和路由配置（格式见 nacos-config-examples）
+ *
+ * 解析时收集全部格式错误后一次性抛出 {@link ConfigValidationException}，配置要么整体可用，要么整体拒绝。
+ */
+public final class NacosConfigParser {
+
+    public static final String SOURCE_METADATA_KEY = "source";
+
+    private NacosConfigParser() {
+    }
+
+    /**
+     * 解析后的访问规则配置
+     *
+     * @param defaultPolicy 默认策略，未配置时为null
+     * @param rules         全部规则（含未启用的规则）
+     */
+    public record AccessRulesConfig(String defaultPolicy, List<AccessRule> rules) {
+    }
+
+    /**
+     * 解析访问规则配置
+     *
+     * access-rules 下除 default-policy 外的每个列表都是一组规则，
+     * 列表名以 blacklist 结尾的是黑名单（如 ip-blacklist），以 whitelist 结尾的是白名单。
+     */
+    public static AccessRulesConfig parseAccessRules(String content) {
+        Map<String, Object> root = load(content);
+        Object section = root.get("access-rules");
+        if (!(section instanceof Map<?, ?> groups)) {
+            throw new ConfigValidationException("访问规则配置缺少 access-rules 节点");
+        }
+
+        List<String> errors = new ArrayList<>();
+        String defaultPolicy = null;
+        List<AccessRule> rules = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Map.Entry<?, ?> group : groups.entrySet()) {
+            String key = String.valueOf(group.getKey());
+            if ("default-policy".equals(key)) {
+                defaultPolicy = group.getValue() != null ? String.valueOf(group.getValue()) : null;
+                continue;
+            }
+            String ruleType = key.endsWith("blacklist") ? "blacklist" : key.endsWith("whitelist") ? "whitelist" : null;
+            if (ruleType == null) {
+                errors.add("未知的规则分组: " + key);
+                continue;
+            }
+            List<Map<?, ?>> items = items(group.getValue(), key, errors);
+            for (int i = 0; i < items.size(); i++) {
+                Map<?, ?> item = items.get(i);
+                String location = key + "[" + i + "]";
+                AccessRule rule = new AccessRule();
+                rule.setRuleName(string(item, "name"));
+                rule.setRuleType(ruleType);
+                rule.setMatchType(string(item, "match-type"));
+                rule.setMatchPattern(string(item, "match-pattern"));
+                rule.setMatchValue(string(item, "match-value"));
+                rule.setPriority(integer(item, "priority", 0, location, errors));
+                rule.setEnabled(bool(item, "enabled", location, errors));
+                rule.setDescription(string(item, "description"));
+                if (rule.getRuleName() != null && !names.add(rule.getRuleName())) {
+                    errors.add(location + ": 规则名称重复 " + rule.getRuleName());
+                }
+                rules.add(rule);
+            }
+        }
+        throwIfInvalid("访问规则配置格式错误", errors);
+        return new AccessRulesConfig(defaultPolicy, rules);
+    }
+
+    /**
+     * 解析URL映射配置
+     */
+    public static List<UrlMapping> parseUrlMappings(String content) {
+        Map<String, Object> root = load(content);
+        List<String> errors = new ArrayList<>();
+        List<Map<?, ?>> items = items(root.get("url-mappings"), "url-mappings", errors);
+        List<UrlMapping> mappings = new ArrayList<>(items.size());
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            Map<?, ?> item = items.get(i);
+            String location = "url-mappings[" + i + "]";
+            UrlMapping mapping = new UrlMapping();
+            mapping.setMappingName(string(item, "name"));
+            mapping.setExternalPath(string(item, "external-path"));
+            mapping.setInternalPath(string(item, "internal-path"));
+            mapping.setTargetService(string(item, "target-service"));
+            mapping.setMappingType(string(item, "mapping-type"));
+            mapping.setPriority(integer(item, "priority", 0, location, errors));
+            mapping.setEnabled(bool(item, "enabled", location, errors));
+            mapping.setDescription(string(item, "description"));
+            if (mapping.getMappingName() != null && !names.add(mapping.getMappingName())) {
+                errors.add(location + ": 映射名称重复 " + mapping.getMappingName());
+            }
+            mappings.add(mapping);
+        }
+        throwIfInvalid("URL映射配置格式错误", errors);
+        return mappings;
+    }
+
+    /**
+     * 解析路由配置（spring.cloud.gateway.routes），断言和过滤器支持 "Name=args" 简写和 name/args 完整写法
+     *
+     * 每条路由的 metadata 都会标记 source=nacos，用于区分本地配置的路由。
+     */
+    public static List<RouteDefinition> parseRoutes(String content) {
+        Map<String, Object> root = load(content);
+        Object routesNode = path(root, "spring", "cloud", "gateway", "routes");
+        List<String> errors = new ArrayList<>();
+        List<Map<?, ?>> items = items(routesNode, "spring.cloud.gateway.routes", errors);
+        List<RouteDefinition> routes = new ArrayList<>(items.size());
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            Map<?, ?> item = items.get(i);
+            String location = "routes[" + i + "]";
+            RouteDefinition route = new RouteDefinition();
+
+            String id = string(item, "id");
+            if (id == null || id.isBlank()) {
+                errors.add(location + ": 缺少路由ID");
+            } else if (!ids.add(id)) {
+                errors.add(location + ": 路由ID重复 " + id);
+            } else {
+                route.setId(id);
+                location = "路由[" + id + "]";
+            }
+
+            String uri = string(item, "uri");
+            try {
+                URI parsed = URI.create(uri != null ? uri : "");
+                if (parsed.getScheme() == null) {
+                    errors.add(location + ": URI缺少协议 " + uri);
+                }
+                route.setUri(parsed);
+            } catch (IllegalArgumentException e) {
+                errors.add(location + ": 无效的URI " + uri);
+            }
+
+            route.setPredicates(definitions(item.get("predicates"), location + ".predicates", errors,
+                    PredicateDefinition::new, NacosConfigParser::predicate));
+            if (route.getPredicates().isEmpty()) {
+                errors.add(location + ": 至少需要一个断言");
+            }
+            route.setFilters(definitions(item.get("filters"), location + ".filters", errors,
+                    FilterDefinition::new, NacosConfigParser::filter));
+            route.setOrder(integer(item, "order", 0, location, errors));
+
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            if (item.get("metadata") instanceof Map<?, ?> source) {
+                source.forEach((key, value) -> metadata.put(String.valueOf(key), value));
+            } else if (item.get("metadata") != null) {
+                errors.add(location + ": metadata 必须是对象");
+            }
+            metadata.put(SOURCE_METADATA_KEY, "nacos");
+            route.setMetadata(metadata);
+            routes.add(route);
+        }
+        throwIfInvalid("路由配置格式错误", errors);
+        return routes;
+    }
+
+    private static <T> List<T> definitions(Object node, String location, List<String> errors,
+                                           Function<String, T> shortcut,
+                                           BiFunction<String, Map<String, String>, T> full) {
+        if (node == null) {
+            return new ArrayList<>();
+        }
+        if (!(node instanceof List<?> list)) {
+            errors.add(location + " 必须是列表");
+            return new ArrayList<>();
+        }
+        List<T> definitions = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            Object entry = list.get(i);
+            try {
+                if (entry instanceof String text) {
+                    definitions.add(shortcut.apply(text));
+                } else if (entry instanceof Map<?, ?> map && map.get("name") != null) {
+                    Map<String, String> args = new LinkedHashMap<>();
+                    if (map.get("args") instanceof Map<?, ?> source) {
+                        source.forEach((key, value) -> args.put(String.valueOf(key), String.valueOf(value)));
+                    }
+                    definitions.add(full.apply(String.valueOf(map.get("name")), args));
+                } else {
+                    errors.add(location + "[" + i + "]: 无法识别的定义");
+                }
+            } catch (RuntimeException e) {
+                // 简写格式错误（如缺少 "="）
+                errors.add(location + "[" + i + "]: " + e.getMessage());
+            }
+        }
+        return definitions;
+    }
+
+    private static PredicateDefinition predicate(String name, Map<String, String> args) {
+        PredicateDefinition definition = new PredicateDefinition();
+        definition.setName(name);
+        definition.setArgs(args);
+        return definition;
+    }
+
+    private static FilterDefinition filter(String name, Map<String, String> args) {
+        FilterDefinition definition = new FilterDefinition();
+        definition.setName(name);
+        definition.setArgs(args);
+        return definition;
+    }
+
+    private static Map<String, Object> load(String content) {
+        if (content == null || content.isBlank()) {
+            throw new ConfigValidationException("配置内容为空");
+        }
+        try {
+            Object root = new Yaml(new SafeConstructor(new LoaderOptions())).load(content);
+            if (!(root instanceof Map<?, ?> map)) {
+                throw new ConfigValidationException("配置根节点必须是对象");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> result = (Map<String, Object>) map;
+            return result;
+        } catch (YAMLException e) {
+            throw new ConfigValidationException("YAML格式错误: " + e.getMessage());
+        }
+    }
+
+    private static Object path(Map<String, Object> root, String... keys) {
+        Object node = root;
+        for (String key : keys) {
+            if (!(node instanceof Map<?, ?> map)) {
+                return null;
+            }
+            node = map.get(key);
+        }
+        return node;
+    }
+
+    private static List<Map<?, ?>> items(Object node, String location, List<String> errors) {
+        List<Map<?, ?>> items = new ArrayList<>();
+        if (node == null) {
+            return items;
+        }
+        if (!(node instanceof List<?> list)) {
+            errors.add(location + " 必须是列表");
+            return items;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) instanceof Map<?, ?> map) {
+                items.add(map);
+            } else {
+                errors.add(location + "[" + i + "] 必须是对象");
+            }
+        }
+        return items;
+    }
+
+    private static String string(Map<?, ?> item, String key) {
+        Object value = item.get(key);
+        return value != null ? String.valueOf(value) : null;
+    }
+
+    private static Integer integer(Map<?, ?> item, String key, int defaultValue, String location,
+                                   List<String> errors) {
+        Object value = item.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        try {
+            return Integer.parseInt(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            errors.add(location + ": " + key + " 必须是整数");
+            return defaultValue;
+        }
+    }
+
+    private static Boolean bool(Map<?, ?> item, String key, String location, List<String> errors) {
+        Object value = item.get(key);
+        if (value == null) {
+            return true;
+        }
+        if (value instanceof Boolean flag) {
+            return flag;
+        }
+        errors.add(location + ": " + key + " 必须是 true 或 false");
+        return false;
+    }
+
+    private static void throwIfInvalid(String message, List<String> errors) {
+        if (!errors.isEmpty()) {
+            throw new ConfigValidationException(message, errors);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.saltyfish.contract.gateway.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Space-Saving Sketch
+ * 基于 Space-Saving 算法的固定容量 Top-K 计数器
+ *
+ * 最多跟踪 capacity 个键，键满时用新键替换计数最小的键，并把被替换的计数记为新键的误差上界。
+ * 所有状态保存在预分配的数组中：
+ * - 计数器按最小堆组织，O(log K) 找到并更新最小计数
+ * - 键到计数器的索引使用线性探测的开放寻址表，删除时回移后继元素，不产生墓碑
+ * 更新过程不分配对象。非线程安全，由调用方保证互斥。
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+
+    // 计数器，按计数器ID存放
+    private final String[] keys;
+    private final int[] hashes;
+    private final long[] counts;
+    private final long[] errors;
+    private final int[] heapPositions;
+
+    // 最小堆，存放计数器ID
+    private final int[] heap;
+    private int size;
+
+    // 开放寻址索引，存放 计数器ID+1，0表示空
+    private final int[] table;
+    private final int tableMask;
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.hashes = new int[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heapPositions = new int[capacity];
+        this.heap = new int[capacity];
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+        this.table = new int[tableSize];
+        this.tableMask = tableSize - 1;
+    }
+
+    /**
+     * 累加一个键的计数
+     */
+    public void offer(String key, long increment) {
+        int hash = mix(key.hashCode());
+        int id = find(key, hash);
+        if (id >= 0) {
+            counts[id] += increment;
+            siftDown(heapPositions[id]);
+            return;
+        }
+
+        if (size < capacity) {
+            id = size;
+            heap[size] = id;
+            heapPositions[id] = size;
+            size++;
+            keys[id] = key;
+            hashes[id] = hash;
+            counts[id] = increment;
+            errors[id] = 0;
+            insert(id);
+            siftUp(heapPositions[id]);
+            return;
+        }
+
+        // 替换计数最小的键
+        id = heap[0];
+        remove(id);
+        errors[id] = counts[id];
+        counts[id] += increment;
+        keys[id] = key;
+        hashes[id] = hash;
+        insert(id);
+        siftDown(0);
+    }
+
+    /**
+     * 按计数从大到小返回前 n 个键
+     */
+    public List<Entry> top(int n) {
+        Integer[] ids = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+        }
+        Arrays.sort(ids, Comparator.comparingLong((Integer id) -> counts[id]).reversed());
+        List<Entry> result = new ArrayList<>(Math.min(n, size));
+        for (int i = 0; i < Math.min(n, size); i++) {
+            int id = ids[i];
+            result.add(new Entry(keys[id], counts[id], errors[id]));
+        }
+        return result;
+    }
+
+    /**
+     * 把当前所有计数合并到另一个实例（用于汇总分片）
+     */
+    public void mergeInto(SpaceSavingSketch target) {
+        for (int id = 0; id < size; id++) {
+            target.offer(keys[id], counts[id]);
+        }
+    }
+
+    /**
+     * 清空所有计数，保留已分配的数组
+     */
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int find(String key, int hash) {
+        int index = hash & tableMask;
+        while (true) {
+            int slot = table[index];
+            if (slot == 0) {
+                return -1;
+            }
+            int id = slot - 1;
+            if (hashes[id] == hash && keys[id].equals(key)) {
+                return id;
+            }
+            index = (index + 1) & tableMask;
+        }
+    }
+
+    private void insert(int id) {
+        int index = hashes[id] & tableMask;
+        while (table[index] != 0) {
+            index = (index + 1) & tableMask;
+        }
+        table[index] = id + 1;
+    }
+
+    /**
+     * 从索引中删除计数器，并把后续探测链上的元素回移，保持线性探测的查找正确性
+     */
+    private void remove(int id) {
+        int index = hashes[id] & tableMask;
+        while (table[index] != id + 1) {
+            index = (index + 1) & tableMask;
+        }
+        table[index] = 0;
+
+        int next = (index + 1) & tableMask;
+        while (table[next] != 0) {
+            int nextId = table[next] - 1;
+            int home = hashes[nextId] & tableMask;
+            // home 不在 (index, next] 区间内时，元素可以回移到空位
+            boolean movable = index <= next ? (home <= index || home > next) : (home <= index && home > next);
+            if (movable) {
+                table[index] = table[next];
+                table[next] = 0;
+                index = next;
+            }
+            next = (next + 1) & tableMask;
+        }
+    }
+
+    private void siftUp(int position) {
+        int id = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int parentId = heap[parent];
+            if (counts[parentId] <= counts[id]) {
+                break;
+            }
+            heap[position] = parentId;
+            heapPositions[parentId] = position;
+            position = parent;
+        }
+        heap[position] = id;
+        heapPositions[id] = position;
+    }
+
+    private void siftDown(int position) {
+        int id = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && counts[heap[right]] < counts[heap[child]]) {
+                child = right;
+            }
+            int childId = heap[child];
+            if (counts[id] <= counts[childId]) {
+                break;
+            }
+            heap[position] = childId;
+            heapPositions[childId] = position;
+            position = child;
+        }
+        heap[position] = id;
+        heapPositions[id] = position;
+    }
+
+    static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Top-K 结果项
+     *
+     * @param key   键
+     * @param count 计数（可能高估）
+     * @param error 高估的上界
+     */
+    public record Entry(String key, long count, long error) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.saltyfish.contract.gateway.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Token Hashes
+ * 令牌摘要工具，缓存和日志中只保存令牌的 SHA-256 摘要，不保存令牌原文
+ */
+public final class TokenHashes {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private TokenHashes() {
+    }
+
+    /**
+     * 计算令牌的 SHA-256 十六进制摘要
+     */
+    public static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 JRE 都必须支持 SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 从 Authorization 请求头中取出令牌
+     *
+     * @return 令牌，请求头为空时返回 null
+     */
+    public static String bearerToken(String authorization) {
+        if (authorization == null || authorization.isBlank()) {
+            return null;
+        }
+        String token = authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())
+                ? authorization.substring(BEARER_PREFIX.length())
+                : authorization;
+        token = token.trim();
+        return token.isEmpty() ? null : token;
+    }
+}
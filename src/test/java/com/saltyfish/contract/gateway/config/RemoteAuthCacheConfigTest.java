@@ -0,0 +1,295 @@
+package com.saltyfish.contract.gateway.config;
+
+import com.ruoyi.feign.annotation.RemotePreAuthorize;
+import com.saltyfish.contract.gateway.filter.CachingRemoteAuthWebFilter;
+import com.saltyfish.contract.gateway.service.AuthDecisionCacheService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Remote Auth Cache Config Test
+ * 用若依真实的 RemoteAuthWebFilter 验证鉴权缓存的前提
+ *
+ * 缓存命中时直接调用后续过滤器、不经过 RemoteAuthWebFilter，这要求原过滤器只做允许/拒绝判断，
+ * 不为下游准备登录上下文。这里把同一令牌的请求先后走未命中和命中两条路径，比较到达
+ * {@code @RemotePreAuthorize} 处理方法时的请求头、请求属性、Principal 和 Reactor Context，
+ * 并验证被拒绝的令牌不会写入缓存。
+ *
+ * 原过滤器的协作对象（鉴权中心客户端等）用桩代替，按 {@link AuthCenter#allow} 返回允许或拒绝；
+ * 无法用桩构造原过滤器时跳过测试，而不是给出通过的结果。
+ */
+class RemoteAuthCacheConfigTest {
+
+    private static final String TOKEN = "token-a";
+
+    private final AuthCenter authCenter = new AuthCenter();
+    private final List<Seen> seen = new ArrayList<>();
+
+    private AuthDecisionCacheService cacheService;
+    private RequestMappingHandlerMapping handlerMapping;
+    private WebFilter filter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        GatewayProperties properties = new GatewayProperties();
+        properties.getAuthCache().setEnabled(true);
+        properties.getAuthCache().setRedisEnabled(false);
+        properties.getAuthCache().setLoadTimeout(Duration.ofSeconds(1));
+        cacheService = new AuthDecisionCacheService(properties, mock(ReactiveStringRedisTemplate.class),
+                new SimpleMeterRegistry());
+        cacheService.start();
+
+        HandlerMethod handler = new HandlerMethod(new SecuredController(), "secured");
+        handlerMapping = mock(RequestMappingHandlerMapping.class);
+        when(handlerMapping.getHandler(any())).thenReturn(Mono.just(handler));
+
+        ObjectProvider<AuthDecisionCacheService> cacheProvider = mock(ObjectProvider.class);
+        when(cacheProvider.getObject()).thenReturn(cacheService);
+        ObjectProvider<RequestMappingHandlerMapping> mappingProvider = mock(ObjectProvider.class);
+        when(mappingProvider.getObject()).thenReturn(handlerMapping);
+        ObjectProvider<GatewayProperties> propertiesProvider = mock(ObjectProvider.class);
+        when(propertiesProvider.getObject()).thenReturn(properties);
+
+        Object remoteAuthFilter = createRemoteAuthFilter();
+        Object processed = RemoteAuthCacheConfig
+                .remoteAuthWebFilterCachingPostProcessor(cacheProvider, mappingProvider, propertiesProvider)
+                .postProcessAfterInitialization(remoteAuthFilter, "remoteAuthWebFilter");
+        filter = assertInstanceOf(CachingRemoteAuthWebFilter.class, processed, "应按类型包装若依的远程鉴权过滤器");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (cacheService != null) {
+            cacheService.stop();
+        }
+    }
+
+    @Test
+    void cachedRequestReachesHandlerWithSameContextAsUncachedRequest() {
+        authCenter.allow = true;
+
+        execute();
+        Assumptions.assumeTrue(seen.size() == 1, "鉴权中心桩未能让原过滤器放行，无法比较两条路径");
+        int remoteCalls = authCenter.calls.get();
+
+        execute();
+        assertEquals(remoteCalls, authCenter.calls.get(), "缓存命中时不应再调用鉴权中心");
+        assertEquals(2, seen.size(), "缓存命中的请求应到达处理方法");
+        assertEquals(seen.get(0), seen.get(1), "命中缓存的请求与经过远程鉴权的请求看到的上下文不同");
+    }
+
+    @Test
+    void deniedTokenIsNeverCached() {
+        authCenter.allow = false;
+
+        execute();
+        int remoteCalls = authCenter.calls.get();
+        Assumptions.assumeTrue(remoteCalls > 0, "原过滤器没有调用鉴权中心桩");
+        assertTrue(seen.isEmpty(), "被拒绝的请求不应到达处理方法");
+        assertEquals(0, cacheService.size());
+
+        execute();
+        assertTrue(authCenter.calls.get() > remoteCalls, "被拒绝的令牌应再次远程鉴权");
+        assertTrue(seen.isEmpty());
+        assertEquals(0, cacheService.size());
+    }
+
+    private void execute() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/admin/secured")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + TOKEN));
+        filter.filter(exchange, this::handle)
+                .onErrorResume(e -> Mono.empty())
+                .block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * 过滤器链末端，记录处理方法能看到的上下文
+     */
+    private Mono<Void> handle(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(principal -> Mono.deferContextual(context -> {
+                    seen.add(new Seen(
+                            new HashMap<>(exchange.getRequest().getHeaders().toSingleValueMap()),
+                            Set.copyOf(exchange.getAttributes().keySet()),
+                            principal.map(Principal::getName).orElse(null),
+                            context.stream().map(entry -> String.valueOf(entry.getKey())).collect(Collectors.toSet())));
+                    return Mono.<Void>empty();
+                }));
+    }
+
+    /**
+     * 用桩协作对象构造若依的 RemoteAuthWebFilter，构造器参数和未注入的字段都用桩填充
+     */
+    private Object createRemoteAuthFilter() throws Exception {
+        Class<?> type;
+        try {
+            type = Class.forName(RemoteAuthCacheConfig.REMOTE_AUTH_FILTER_CLASS);
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError("类路径上没有 " + RemoteAuthCacheConfig.REMOTE_AUTH_FILTER_CLASS
+                    + "，RemoteAuthCacheConfig 不会生效", e);
+        }
+        try {
+            Constructor<?> constructor = Arrays.stream(type.getDeclaredConstructors())
+                    .max(Comparator.comparingInt(Constructor::getParameterCount))
+                    .orElseThrow();
+            constructor.setAccessible(true);
+            Object[] args = Arrays.stream(constructor.getParameterTypes())
+                    .map(this::collaborator)
+                    .toArray();
+            Object instance = constructor.newInstance(args);
+            for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    if (field.get(instance) == null) {
+                        field.set(instance, collaborator(field.getType()));
+                    }
+                }
+            }
+            return instance;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Assumptions.abort("无法用桩构造 RemoteAuthWebFilter: " + e);
+        }
+    }
+
+    private Object collaborator(Class<?> type) {
+        if (type != Object.class && type.isInstance(handlerMapping)) {
+            return handlerMapping;
+        }
+        return authCenter.valueOf(type, null);
+    }
+
+    /**
+     * 鉴权中心桩：对原过滤器协作对象的所有调用给出"允许"或"拒绝"形态的返回值，并统计调用次数
+     */
+    private static final class AuthCenter implements Answer<Object> {
+
+        private volatile boolean allow = true;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Object answer(InvocationOnMock invocation) throws Throwable {
+            if (invocation.getMethod().getDeclaringClass() == Object.class) {
+                return RETURNS_DEFAULTS.answer(invocation);
+            }
+            calls.incrementAndGet();
+            return valueOf(invocation.getMethod().getReturnType(), invocation.getMethod().getGenericReturnType());
+        }
+
+        private Object valueOf(Class<?> type, Type genericType) {
+            if (type == void.class) {
+                return null;
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                return allow;
+            }
+            if (type == int.class || type == Integer.class) {
+                // 若依统一响应的成功状态码
+                return allow ? 200 : 401;
+            }
+            if (type == long.class || type == Long.class) {
+                return allow ? 200L : 401L;
+            }
+            if (type == String.class) {
+                return allow ? "" : "denied";
+            }
+            if (Mono.class.isAssignableFrom(type)) {
+                Object value = valueOf(typeArgument(genericType), null);
+                return value != null ? Mono.just(value) : Mono.empty();
+            }
+            if (Flux.class.isAssignableFrom(type)) {
+                return Flux.empty();
+            }
+            if (Optional.class == type) {
+                return Optional.ofNullable(valueOf(typeArgument(genericType), null));
+            }
+            if (type.isAssignableFrom(ArrayList.class)) {
+                return new ArrayList<>();
+            }
+            if (type.isAssignableFrom(HashSet.class)) {
+                return new HashSet<>();
+            }
+            if (type.isAssignableFrom(HashMap.class)) {
+                return new HashMap<>();
+            }
+            if (type.isPrimitive() || type.isArray() || type.isEnum() || Modifier.isFinal(type.getModifiers())) {
+                return null;
+            }
+            return mock(type, this);
+        }
+
+        private static Class<?> typeArgument(Type genericType) {
+            if (genericType instanceof ParameterizedType parameterized
+                    && parameterized.getActualTypeArguments()[0] instanceof Class<?> argument) {
+                return argument;
+            }
+            if (genericType instanceof ParameterizedType parameterized
+                    && parameterized.getActualTypeArguments()[0] instanceof ParameterizedType nested) {
+                return (Class<?>) nested.getRawType();
+            }
+            return Boolean.class;
+        }
+    }
+
+    /**
+     * 处理方法看到的上下文
+     */
+    private record Seen(Map<String, String> headers, Set<String> attributes, String principal, Set<String> contextKeys) {
+    }
+
+    static class SecuredController {
+
+        @RemotePreAuthorize("@ss.hasRole('admin')")
+        public Mono<String> secured() {
+            return Mono.just("ok");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.saltyfish.contract.gateway.service;
+
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.saltyfish.contract.gateway.config.GatewayProperties;
+import com.saltyfish.contract.gateway.service.impl.HealthStatusServiceImpl;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Active Health Probe Service Test
+ * 用本地 HttpServer 模拟实例的健康检查接口，验证连续失败和连续成功阈值
+ *
+ * 桩服务按脚本依次返回状态码，状态翻转时记录桩服务已处理的请求数：
+ * 探测间隔远大于单次探测耗时，翻转必须恰好发生在达到阈值的那次探测之后。
+ */
+class ActiveHealthProbeServiceTest {
+
+    private static final String HOST = "127.0.0.1";
+    private static final String SERVICE = HealthStatusServiceImpl.MONITORED_SERVICES.get(0);
+
+    /**
+     * 脚本：3次失败，之后一直成功
+     */
+    private static final int[] SCRIPT = {503, 503, 503, 200, 200};
+
+    private HttpServer server;
+    private final AtomicInteger served = new AtomicInteger();
+
+    private BlockingCallAdapter blockingCallAdapter;
+    private ActiveHealthProbeService probeService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(HOST), 0), 0);
+        server.createContext("/actuator/health", exchange -> {
+            // 先计数再响应，探测方收到响应时计数已可见
+            int index = served.getAndIncrement();
+            int status = index < SCRIPT.length ? SCRIPT[index] : 200;
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+
+        GatewayProperties properties = new GatewayProperties();
+        GatewayProperties.HealthProbe healthProbe = properties.getHealthProbe();
+        healthProbe.setEnabled(true);
+        healthProbe.setInterval(Duration.ofMillis(200));
+        healthProbe.setTimeout(Duration.ofSeconds(1));
+        healthProbe.setJitter(0);
+        healthProbe.setFallThreshold(3);
+        healthProbe.setRiseThreshold(2);
+
+        Instance instance = new Instance();
+        instance.setIp(HOST);
+        instance.setPort(server.getAddress().getPort());
+        NamingService namingService = mock(NamingService.class);
+        // 只有一个服务有实例，每轮恰好探测一次
+        when(namingService.getAllInstances(anyString(), anyString()))
+                .thenAnswer(invocation -> SERVICE.equals(invocation.getArgument(0)) ? List.of(instance) : List.of());
+
+        blockingCallAdapter = new BlockingCallAdapter(properties, new SimpleMeterRegistry());
+        blockingCallAdapter.init();
+        probeService = new ActiveHealthProbeService(namingService, properties, blockingCallAdapter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (probeService != null) {
+            probeService.stopProbing();
+        }
+        if (blockingCallAdapter != null) {
+            blockingCallAdapter.destroy();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void marksInstanceDownAfterFallThresholdAndUpAfterRiseThreshold() throws Exception {
+        int port = server.getAddress().getPort();
+        List<int[]> transitions = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        Disposable subscription = probeService.stateChanges().subscribe(serviceName -> {
+            // {已处理的请求数, 翻转后是否可用}
+            transitions.add(new int[]{served.get(), probeService.isInstanceUp(HOST, port) ? 1 : 0});
+            latch.countDown();
+        });
+
+        try {
+            probeService.startProbing();
+            assertTrue(probeService.isInstanceUp(HOST, port), "尚未探测的实例应视为可用");
+            assertTrue(latch.await(10, TimeUnit.SECONDS), "未观察到两次状态翻转: " + transitions.size());
+        } finally {
+            subscription.dispose();
+        }
+
+        assertEquals(3, transitions.get(0)[0], "第3次连续失败后才标记为不可用");
+        assertEquals(0, transitions.get(0)[1]);
+        assertEquals(5, transitions.get(1)[0], "第2次连续成功后才恢复可用");
+        assertEquals(1, transitions.get(1)[1]);
+        assertTrue(probeService.isInstanceUp(HOST, port));
+    }
+
+    @Test
+    void treatsUnreachableInstanceAsFailure() throws IOException, InterruptedException {
+        int port = server.getAddress().getPort();
+        server.stop(0);
+
+        CountDownLatch down = new CountDownLatch(1);
+        Disposable subscription = probeService.stateChanges().subscribe(serviceName -> down.countDown());
+        try {
+            probeService.startProbing();
+            assertTrue(down.await(10, TimeUnit.SECONDS), "连接失败应计为探测失败");
+        } finally {
+            subscription.dispose();
+        }
+        assertFalse(probeService.isInstanceUp(HOST, port));
+        assertEquals(0, served.get());
+    }
+}
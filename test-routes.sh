@@ -5,6 +5,15 @@ echo "=== Contract Gateway 路由功能测试 ==="
 echo "网关地址: http://localhost:9090"
 echo ""
 
+# 管理接口需要令牌时通过 ADMIN_TOKEN 传入
+AUTH_ARGS=()
+if [ -n "${ADMIN_TOKEN:-}" ]; then
+  AUTH_ARGS=(-H "Authorization: Bearer ${ADMIN_TOKEN}")
+fi
+
+# 清空事件循环阻塞记录，测试结束后只检查本次测试产生的阻塞
+curl -s -o /dev/null "${AUTH_ARGS[@]}" -X DELETE http://localhost:9090/admin/event-loop/blocking
+
 # 测试路由管理API
 echo "1. 测试获取所有路由定义"
 curl -s http://localhost:9090/admin/routes | head -20
@@ -70,5 +79,28 @@ echo "cfs -> contract-file-storage-service (Contract File Storage)"
 echo "cai -> contract-ai-service (Contract AI Service)"
 echo ""
 
+echo "=== 事件循环阻塞检查 ==="
+# 检测开启（gateway.blocking-detector.enabled=true）时输出阻塞记录，同时开启 fail-on-blocking 且存在阻塞时以非零状态退出；
+# 接口无法读取（未传 ADMIN_TOKEN、无权限、未安装 jq）时跳过检查
+BLOCKING=$(curl -s "${AUTH_ARGS[@]}" http://localhost:9090/admin/event-loop/blocking)
+if ! command -v jq > /dev/null 2>&1; then
+  echo "未安装 jq，跳过"
+elif ! echo "$BLOCKING" | jq -e '.data.enabled != null' > /dev/null 2>&1; then
+  echo "无法读取阻塞记录（需要时通过 ADMIN_TOKEN 传入管理员令牌），跳过"
+elif [ "$(echo "$BLOCKING" | jq -r '.data.enabled')" != "true" ]; then
+  echo "阻塞检测未开启，跳过"
+elif [ "$(echo "$BLOCKING" | jq '(.data.findings | length) + .data.unsampledCount')" -gt 0 ]; then
+  echo "检测到事件循环阻塞:"
+  echo "$BLOCKING" | jq -r '.data.findings[] | "  \(.component): \(.count)次, 累计\(.blockedMillis)ms, 最长\(.maxBlockedMillis)ms\n    \(.stackTrace[:5] | join("\n    "))"'
+  echo "$BLOCKING" | jq -r '"  未采样: \(.data.unsampledCount)次, 累计\(.data.unsampledMillis)ms"'
+  if [ "$(echo "$BLOCKING" | jq -r '.data.failOnBlocking')" = "true" ]; then
+    exit 1
+  fi
+  echo "未开启 fail-on-blocking，只输出告警"
+else
+  echo "未检测到事件循环阻塞"
+fi
+echo ""
+
 echo "=== 测试完成 ==="
 echo "注意: 如果后端服务未启动，会返回 503 Service Unavailable"
\ No newline at end of file